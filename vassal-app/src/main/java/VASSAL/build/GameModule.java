@@ -145,6 +145,7 @@ import javax.swing.JToolBar;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
+import java.awt.BorderLayout;
 import java.awt.Container;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
@@ -394,7 +395,19 @@ public class GameModule extends AbstractConfigurable
       }
     };
 
-  private final PlayerWindow frame = new PlayerWindow();
+  private final PlayerWindow frame;
+
+  /**
+   * True if this module was built without any top-level windows
+   */
+  private final boolean headless;
+
+  /**
+   * Stand-ins for the toolbar and control panel of the player window when
+   * running headless, so that components can still install their controls.
+   */
+  private final JToolBar headlessToolBar;
+  private final JPanel headlessControlPanel;
 
   /**
    * Reads/writes full game state; starts/stops gameplay.
@@ -582,11 +595,21 @@ public class GameModule extends AbstractConfigurable
     return frame;
   }
 
+  /**
+   * @return true if this module was built without a player window, e.g. for
+   * batch processing of saved games on a machine without a display
+   */
+  public boolean isHeadless() {
+    return headless;
+  }
+
   /**
    * Sets the proper name for module window's title bar
    */
   public void initFrameTitle() {
-    frame.setTitle(getTitleString());
+    if (frame != null) {
+      frame.setTitle(getTitleString());
+    }
   }
 
   /**
@@ -652,20 +675,48 @@ public class GameModule extends AbstractConfigurable
    * @param archive The .vmod (or .tmp) archive to associate
    */
   public GameModule(DataArchive archive) {
+    this(archive, false);
+  }
+
+  /**
+   * Constructor for a GameModule.
+   * @param archive The .vmod (or .tmp) archive to associate
+   * @param headless If true, no player window is created. The module's
+   * components and game state are built as usual, but nothing is displayed.
+   */
+  public GameModule(DataArchive archive, boolean headless) {
     this.archive = archive;
+    this.headless = headless;
     final boolean isEditing = (archive instanceof ArchiveWriter);
     resourceFinder = new I18nResourcePathFinder(archive, isEditing ? "en" : Resources.getLocale().getLanguage());
 
-    frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
-    frame.addWindowListener(new WindowAdapter() {
-      @Override
-      public void windowClosing(WindowEvent e) {
-        quit();
-      }
-    });
+    if (headless) {
+      frame = null;
+      headlessToolBar = new JToolBar();
+      headlessControlPanel = new JPanel(new BorderLayout());
 
-    addKeyStrokeSource(
-      new KeyStrokeSource(frame.getRootPane(), JComponent.WHEN_IN_FOCUSED_WINDOW));
+      // Components which dock into the main window expect the control
+      // panel to have a parent
+      final JPanel root = new JPanel(new BorderLayout());
+      root.add(headlessToolBar, BorderLayout.NORTH);
+      root.add(headlessControlPanel, BorderLayout.CENTER);
+    }
+    else {
+      frame = new PlayerWindow();
+      headlessToolBar = null;
+      headlessControlPanel = null;
+
+      frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+      frame.addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowClosing(WindowEvent e) {
+          quit();
+        }
+      });
+
+      addKeyStrokeSource(
+        new KeyStrokeSource(frame.getRootPane(), JComponent.WHEN_IN_FOCUSED_WINDOW));
+    }
 
     validator = new CompoundValidityChecker(
       new MandatoryComponent(this, Documentation.class),
@@ -941,34 +992,36 @@ public class GameModule extends AbstractConfigurable
    * to the chat log, to be displayed there once a Chatter is registered.
    */
   private void initFrame() {
-    final Rectangle screen = SwingUtils.getScreenBounds(frame);
+    if (!headless) {
+      final Rectangle screen = SwingUtils.getScreenBounds(frame);
 
-    if (GlobalOptions.getInstance().isUseSingleWindow()) {
-      frame.setLocation(screen.getLocation());
+      if (GlobalOptions.getInstance().isUseSingleWindow()) {
+        frame.setLocation(screen.getLocation());
 
-      final Prefs p = Prefs.getGlobalPrefs();
+        final Prefs p = Prefs.getGlobalPrefs();
 
-      // If not "remembering" window size, nuke the pref
-      if (Boolean.FALSE.equals(p.getOption(MAIN_WINDOW_REMEMBER).getValue())) {
-        p.getOption(MAIN_WINDOW_WIDTH).setValue(-1);
-        p.getOption(MAIN_WINDOW_HEIGHT).setValue(-1);
-      }
+        // If not "remembering" window size, nuke the pref
+        if (Boolean.FALSE.equals(p.getOption(MAIN_WINDOW_REMEMBER).getValue())) {
+          p.getOption(MAIN_WINDOW_WIDTH).setValue(-1);
+          p.getOption(MAIN_WINDOW_HEIGHT).setValue(-1);
+        }
 
-      // Read window size prefs
-      final int ph = (Integer) p.getOption(MAIN_WINDOW_HEIGHT).getValue();
-      final int pw = (Integer) p.getOption(MAIN_WINDOW_WIDTH).getValue();
+        // Read window size prefs
+        final int ph = (Integer) p.getOption(MAIN_WINDOW_HEIGHT).getValue();
+        final int pw = (Integer) p.getOption(MAIN_WINDOW_WIDTH).getValue();
 
-      // Use pref if valid, otherwise screen dimensions
-      final int h = (ph > 0) ? ph : screen.height;
-      final int w = (pw > 0) ? pw : screen.width;
+        // Use pref if valid, otherwise screen dimensions
+        final int h = (ph > 0) ? ph : screen.height;
+        final int w = (pw > 0) ? pw : screen.width;
 
-      // Before we have a map, we use 1/3 of height
-      frame.setSize(w, h / 3);
-    }
-    else {
-      final String key = "BoundsOfGameModule"; //$NON-NLS-1$
-      final Rectangle r = new Rectangle(0, 0, screen.width, screen.height / 4);
-      getPrefs().addOption(new PositionOption(key, frame, r));
+        // Before we have a map, we use 1/3 of height
+        frame.setSize(w, h / 3);
+      }
+      else {
+        final String key = "BoundsOfGameModule"; //$NON-NLS-1$
+        final Rectangle r = new Rectangle(0, 0, screen.width, screen.height / 4);
+        getPrefs().addOption(new PositionOption(key, frame, r));
+      }
     }
 
     final String mess = Resources.getString(
@@ -1480,7 +1533,7 @@ public class GameModule extends AbstractConfigurable
   }
 
   public JComponent getControlPanel() {
-    return frame.getControlPanel();
+    return headless ? headlessControlPanel : frame.getControlPanel();
   }
 
   /**
@@ -1656,7 +1709,7 @@ public class GameModule extends AbstractConfigurable
    */
   @Override
   public JToolBar getToolBar() {
-    return frame.getToolBar();
+    return headless ? headlessToolBar : frame.getToolBar();
   }
 
   /**
@@ -1704,7 +1757,9 @@ public class GameModule extends AbstractConfigurable
    * Updates the title bar of the main module window, and all map windows
    */
   public void updateTitleBar() {
-    frame.setTitle(getTitleString());
+    if (frame != null) {
+      frame.setTitle(getTitleString());
+    }
 
     for (final Map m : getComponentsOf(Map.class)) {
       m.updateTitleBar();
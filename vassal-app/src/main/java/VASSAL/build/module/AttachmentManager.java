@@ -23,12 +23,18 @@ import VASSAL.counters.Decorator;
 import VASSAL.counters.GamePiece;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
- * Maintains a list of pieces with attachment traits
+ * Maintains an index of the attachment traits of the pieces in the game, by
+ * attachment name and by piece id. The index is kept up to date as pieces are
+ * added to and removed from the {@link GameState}, and as attachment traits
+ * are renamed, so that attachments can be found without searching through
+ * every piece.
  */
 public class AttachmentManager {
 
@@ -36,10 +42,30 @@ public class AttachmentManager {
    * Map of the attachment traits with the same attachment names
    */
   private final Map<String, List<Attachment>> attachments = new HashMap<>();
+
+  /**
+   * Map of piece ids to the attachment traits of the pieces with those ids
+   */
+  private final Map<String, PieceAttachments> pieceAttachments = new HashMap<>();
+
   private final List<GamePiece> newPiecesWithAttachments = new ArrayList<>();
 
+  /**
+   * The attachment traits of one outermost piece
+   */
+  private static class PieceAttachments {
+    final GamePiece outer;
+    final List<Attachment> traits;
+
+    PieceAttachments(GamePiece outer, List<Attachment> traits) {
+      this.outer = outer;
+      this.traits = traits;
+    }
+  }
+
   public void clearAll() {
     attachments.clear();
+    pieceAttachments.clear();
   }
 
   public void clearNew() {
@@ -91,21 +117,32 @@ public class AttachmentManager {
       return;
     }
 
-    final List<GamePiece> myAttachments = Decorator.getDecorators(p, Attachment.class);
-    if (!myAttachments.isEmpty()) {
-      newPiecesWithAttachments.add(p);
+    // A piece replacing another with the same id (e.g. when refreshed) supersedes it
+    final PieceAttachments old = p.getId() == null ? null : pieceAttachments.get(p.getId());
+    if (old != null) {
+      if (old.outer == p) {
+        return;
+      }
+      pieceRemoved(old.outer);
     }
 
-    for (final GamePiece piece : myAttachments) {
-      final Attachment attachment = (Attachment) piece;
+    final List<Attachment> myAttachments = new ArrayList<>();
+    for (final GamePiece piece : Decorator.getDecorators(p, Attachment.class)) {
+      myAttachments.add((Attachment) piece);
+    }
 
-      final String attachName = attachment.getAttachName();
-      List<Attachment> currentAttachments = attachments.get(attachName);
-      if (currentAttachments == null) {
-        currentAttachments = new ArrayList<>();
-      }
-      currentAttachments.add(attachment);
-      attachments.put(attachName, currentAttachments);
+    if (myAttachments.isEmpty()) {
+      return;
+    }
+
+    newPiecesWithAttachments.add(p);
+
+    for (final Attachment attachment : myAttachments) {
+      attachments.computeIfAbsent(attachment.getAttachName(), k -> new ArrayList<>()).add(attachment);
+    }
+
+    if (p.getId() != null) {
+      pieceAttachments.put(p.getId(), new PieceAttachments(p, myAttachments));
     }
   }
 
@@ -119,15 +156,102 @@ public class AttachmentManager {
     }
     for (final GamePiece piece : Decorator.getDecorators(p, Attachment.class)) {
       final Attachment attachment = (Attachment) piece;
-      // if (attachment.isAutoAttach()) {
-      final String attachId = attachment.getAttachName();
+      removeByName(attachment, attachment.getAttachName());
+    }
 
-      // Clean the attachments array
-      final List<Attachment> currentAttachments = attachments.get(attachId);
-      if (currentAttachments != null) {
-        currentAttachments.remove(attachment);
+    final PieceAttachments pa = p.getId() == null ? null : pieceAttachments.get(p.getId());
+    if (pa != null && pa.outer == p) {
+      pieceAttachments.remove(p.getId());
+    }
+  }
+
+  /**
+   * An attachment trait has been given a new attachment name. Move it in the index.
+   * @param attachment the renamed attachment trait
+   * @param oldName the name the trait was indexed under
+   */
+  public void attachNameChanged(Attachment attachment, String oldName) {
+    if (removeByName(attachment, oldName)) {
+      attachments.computeIfAbsent(attachment.getAttachName(), k -> new ArrayList<>()).add(attachment);
+    }
+  }
+
+  private boolean removeByName(Attachment attachment, String attachName) {
+    final List<Attachment> currentAttachments = attachments.get(attachName);
+    if (currentAttachments == null || !currentAttachments.remove(attachment)) {
+      return false;
+    }
+    if (currentAttachments.isEmpty()) {
+      attachments.remove(attachName);
+    }
+    return true;
+  }
+
+  /**
+   * Finds the attachment traits of a piece which have a given attachment name. Pieces in the game are
+   * looked up in the index; any other piece has its traits searched.
+   *
+   * @param p a piece, or any trait of it
+   * @param attachName attachment name
+   * @return the matching attachment traits, outermost first
+   */
+  public List<Attachment> getAttachments(GamePiece p, String attachName) {
+    final GamePiece outer = Decorator.getOutermost(p);
+    final PieceAttachments pa = outer.getId() == null ? null : pieceAttachments.get(outer.getId());
+    if (pa == null || pa.outer != outer) {
+      return findAttachments(outer, attachName);
+    }
+
+    List<Attachment> matches = null;
+    for (final Attachment a : pa.traits) {
+      if (a.getAttachName().equals(attachName)) {
+        if (matches == null) {
+          matches = new ArrayList<>(1);
+        }
+        matches.add(a);
+      }
+    }
+    return matches == null ? List.of() : matches;
+  }
+
+  /**
+   * Searches the traits of a piece for attachment traits with a given attachment name.
+   *
+   * @param p a piece, or any trait of it
+   * @param attachName attachment name
+   * @return the matching attachment traits, outermost first
+   */
+  public static List<Attachment> findAttachments(GamePiece p, String attachName) {
+    List<Attachment> matches = null;
+    GamePiece piece = Decorator.getOutermost(p);
+    while (piece instanceof Decorator) {
+      if (piece instanceof Attachment && ((Attachment) piece).getAttachName().equals(attachName)) {
+        if (matches == null) {
+          matches = new ArrayList<>(1);
+        }
+        matches.add((Attachment) piece);
       }
-      attachments.put(attachId, currentAttachments);
+      piece = ((Decorator) piece).getInner();
+    }
+    return matches == null ? List.of() : matches;
+  }
+
+  /**
+   * Calls the consumer with each piece in the game which has attachment traits, together with those traits.
+   * @param consumer called with each outermost piece and its attachment traits
+   */
+  public void forEachPiece(BiConsumer<GamePiece, List<Attachment>> consumer) {
+    for (final PieceAttachments pa : pieceAttachments.values()) {
+      consumer.accept(pa.outer, Collections.unmodifiableList(pa.traits));
     }
   }
+
+  /**
+   * @param pieceId a piece id
+   * @return the attachment traits of the piece in the game with that id, or an empty list
+   */
+  public List<Attachment> getAttachments(String pieceId) {
+    final PieceAttachments pa = pieceId == null ? null : pieceAttachments.get(pieceId);
+    return pa == null ? List.of() : Collections.unmodifiableList(pa.traits);
+  }
 }
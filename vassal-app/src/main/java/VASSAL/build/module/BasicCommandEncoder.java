@@ -22,7 +22,9 @@ import VASSAL.build.Buildable;
 import VASSAL.build.Builder;
 import VASSAL.build.GameModule;
 import VASSAL.command.AddPiece;
+import VASSAL.command.ChangeDeckDelta;
 import VASSAL.command.ChangePiece;
+import VASSAL.command.ChangePieceDelta;
 import VASSAL.command.Command;
 import VASSAL.command.CommandEncoder;
 import VASSAL.command.MovePiece;
@@ -83,9 +85,11 @@ import VASSAL.counters.TriggerAction;
 import VASSAL.counters.UsePrototype;
 import VASSAL.tools.ErrorDialog;
 import VASSAL.tools.SequenceEncoder;
+import VASSAL.tools.version.VersionUtils;
 
 import java.awt.Point;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Although it is the {@link CommandEncoder} which handles the basic commands: {@link AddPiece},
@@ -327,6 +331,43 @@ public class BasicCommandEncoder implements CommandEncoder, Buildable {
   public static final String REMOVE = "-" + PARAM_SEPARATOR; //$NON-NLS-1$
   public static final String CHANGE = "D" + PARAM_SEPARATOR; //$NON-NLS-1$
   public static final String MOVE = "M" + PARAM_SEPARATOR; //$NON-NLS-1$
+  public static final String CHANGE_DELTA = "DD" + PARAM_SEPARATOR; //$NON-NLS-1$
+  public static final String CHANGE_DECK = "DK" + PARAM_SEPARATOR; //$NON-NLS-1$
+
+  /** The first version which can decode {@link #CHANGE_DELTA} and {@link #CHANGE_DECK} */
+  public static final String DELTA_VERSION = "3.7.0"; //NON-NLS
+
+  // Set while encoding for players known to decode deltas. Otherwise, as for logs and saved games, changes are
+  // always written in full, so that older versions can read them.
+  private static final ThreadLocal<Boolean> DELTAS = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+  /**
+   * Encodes a command to be sent to other players, all of whom run {@link #DELTA_VERSION} or later, writing
+   * changes to pieces as deltas where that is shorter.
+   * @param encoder the encoder for the whole command, usually the {@link GameModule}
+   * @param c the command
+   * @return the encoded command
+   */
+  public static String encodeWithDeltas(CommandEncoder encoder, Command c) {
+    final Boolean old = DELTAS.get();
+    DELTAS.set(Boolean.TRUE);
+    try {
+      return encoder.encode(c);
+    }
+    finally {
+      DELTAS.set(old);
+    }
+  }
+
+  /**
+   * @param clientVersion the version of VASSAL another player runs
+   * @return true if that player can decode deltas. Pre-releases, such as betas and snapshots, of
+   * {@link #DELTA_VERSION} count as that version.
+   */
+  public static boolean decodesDeltas(String clientVersion) {
+    return clientVersion != null && !clientVersion.isEmpty() &&
+      VersionUtils.compareVersions(VersionUtils.truncateToIncrementalVersion(clientVersion), DELTA_VERSION) >= 0;
+  }
 
   /**
    * Deserializes a string into a Basic Piece command (Add, Remove, Change, Move, and... Play Audio Clip!), readying it for execution.
@@ -373,6 +414,49 @@ public class BasicCommandEncoder implements CommandEncoder, Buildable {
       final String oldState = st.hasMoreTokens() ? st.nextToken() : null;
       return new ChangePiece(id, oldState, newState);
     }
+    else if (command.startsWith(CHANGE_DELTA)) {
+      command = command.substring(CHANGE_DELTA.length());
+      st = new SequenceEncoder.Decoder(command, PARAM_SEPARATOR);
+      final String id = st.nextToken();
+      final int levels = st.nextInt(0);
+      final int count = st.nextInt(0);
+      final int[] changed = new int[count];
+      final String[] newStates = new String[count];
+      final String[] oldStates = new String[count];
+      for (int i = 0; i < count; ++i) {
+        changed[i] = st.nextInt(0);
+        newStates[i] = st.nextToken();
+        oldStates[i] = st.nextToken();
+      }
+      return new ChangePieceDelta(id, levels, changed, newStates, oldStates);
+    }
+    else if (command.startsWith(CHANGE_DECK)) {
+      command = command.substring(CHANGE_DECK.length());
+      st = new SequenceEncoder.Decoder(command, PARAM_SEPARATOR);
+      final String id = st.nextToken();
+      final String header = st.nextToken();
+      final char mode = st.nextChar(ChangeDeckDelta.EDIT);
+      if (mode == ChangeDeckDelta.REORDER) {
+        final String[] order = new String[st.nextInt(0)];
+        for (int i = 0; i < order.length; ++i) {
+          order[i] = st.nextToken();
+        }
+        return ChangeDeckDelta.reordered(id, header, order);
+      }
+      else {
+        final String[] removed = new String[st.nextInt(0)];
+        for (int i = 0; i < removed.length; ++i) {
+          removed[i] = st.nextToken();
+        }
+        final int[] insertedAt = new int[st.nextInt(0)];
+        final String[] inserted = new String[insertedAt.length];
+        for (int i = 0; i < inserted.length; ++i) {
+          insertedAt[i] = st.nextInt(0);
+          inserted[i] = st.nextToken();
+        }
+        return ChangeDeckDelta.edited(id, header, removed, insertedAt, inserted);
+      }
+    }
     else if (command.startsWith(MOVE)) {
       command = command.substring(MOVE.length());
       st = new SequenceEncoder.Decoder(command, PARAM_SEPARATOR);
@@ -411,6 +495,88 @@ public class BasicCommandEncoder implements CommandEncoder, Buildable {
     return "null".equals(s) ? null : s; //$NON-NLS-1$
   }
 
+  private boolean isDeck(String id) {
+    return GameModule.getGameModule() != null && GameModule.getGameModule().getGameState() != null &&
+      GameModule.getGameModule().getGameState().getPieceForId(id) instanceof Deck;
+  }
+
+  /**
+   * Encodes a change to a piece made of traits as a {@link ChangePieceDelta}, carrying only the traits whose
+   * state changed.
+   * @param cp the change
+   * @return the encoded delta, or null if the change can't be sent that way
+   */
+  private String encodeChangeDelta(ChangePiece cp) {
+    if (cp.getOldState() == null || GameModule.getGameModule() == null || GameModule.getGameModule().getGameState() == null) {
+      return null;
+    }
+
+    // The piece tells us how deep its state is. If it has gone, or isn't made of traits, send the whole state.
+    final GamePiece target = GameModule.getGameModule().getGameState().getPieceForId(cp.getId());
+    final int levels = ChangePieceDelta.getStateLevels(target);
+    if (levels < 2) {
+      return null;
+    }
+
+    final String[] newStates;
+    final String[] oldStates;
+    try {
+      newStates = ChangePieceDelta.splitState(cp.getNewState(), levels);
+      oldStates = ChangePieceDelta.splitState(cp.getOldState(), levels);
+    }
+    catch (NoSuchElementException e) {
+      return null;
+    }
+
+    int count = 0;
+    final int[] changed = new int[levels];
+    for (int i = 0; i < levels; ++i) {
+      if (!newStates[i].equals(oldStates[i])) {
+        newStates[count] = newStates[i];
+        oldStates[count] = oldStates[i];
+        changed[count++] = i;
+      }
+    }
+    return encodeChangeDelta(cp.getId(), levels, changed, newStates, oldStates, count);
+  }
+
+  /**
+   * Encodes a change to a {@link Deck} as a {@link ChangeDeckDelta}, describing how its contents changed
+   * rather than listing all of them.
+   * @param cd the delta, with neither state set
+   * @return the encoded delta
+   */
+  private String encodeDeckDelta(ChangeDeckDelta cd) {
+    final SequenceEncoder se = new SequenceEncoder(PARAM_SEPARATOR);
+    se.append(cd.getId()).append(cd.getHeader()).append(cd.getMode());
+    if (cd.getMode() == ChangeDeckDelta.REORDER) {
+      se.append(cd.getOrder().length);
+      for (final String id : cd.getOrder()) {
+        se.append(id);
+      }
+    }
+    else {
+      se.append(cd.getRemoved().length);
+      for (final String id : cd.getRemoved()) {
+        se.append(id);
+      }
+      se.append(cd.getInserted().length);
+      for (int i = 0; i < cd.getInserted().length; ++i) {
+        se.append(cd.getInsertedAt()[i]).append(cd.getInserted()[i]);
+      }
+    }
+    return CHANGE_DECK + se.getValue();
+  }
+
+  private String encodeChangeDelta(String id, int levels, int[] changed, String[] newStates, String[] oldStates, int count) {
+    final SequenceEncoder se = new SequenceEncoder(PARAM_SEPARATOR);
+    se.append(id).append(levels).append(count);
+    for (int i = 0; i < count; ++i) {
+      se.append(changed[i]).append(newStates[i]).append(oldStates[i]);
+    }
+    return CHANGE_DELTA + se.getValue();
+  }
+
   /**
    * Serializes a Basic Piece command (Add, Remove, Change, Move, and ... Play Audio Clip!) into a String,
    * readying it for transmission to other clients.
@@ -433,13 +599,37 @@ public class BasicCommandEncoder implements CommandEncoder, Buildable {
     else if (c instanceof RemovePiece) {
       return REMOVE + ((RemovePiece) c).getId();
     }
+    else if (c instanceof ChangePieceDelta && ((ChangePieceDelta) c).getNewState() == null) {
+      // Never executed here, so pass it on as it came. There is no full form to write; it had no effect here.
+      if (!DELTAS.get()) {
+        return ""; //$NON-NLS-1$
+      }
+      final ChangePieceDelta cd = (ChangePieceDelta) c;
+      return encodeChangeDelta(cd.getId(), cd.getLevels(), cd.getChanged(), cd.getNewStates(), cd.getOldStates(), cd.getChanged().length);
+    }
+    else if (c instanceof ChangeDeckDelta && ((ChangeDeckDelta) c).getNewState() == null) {
+      return DELTAS.get() ? encodeDeckDelta((ChangeDeckDelta) c) : ""; //$NON-NLS-1$
+    }
     else if (c instanceof ChangePiece) {
       final ChangePiece cp = (ChangePiece) c;
       se.append(cp.getId()).append(cp.getNewState());
       if (cp.getOldState() != null) {
         se.append(cp.getOldState());
       }
-      return CHANGE + se.getValue();
+      final String full = CHANGE + se.getValue();
+      if (!DELTAS.get()) {
+        return full;
+      }
+
+      final String delta;
+      if (isDeck(cp.getId())) {
+        final ChangeDeckDelta cd = ChangeDeckDelta.diff(cp);
+        delta = cd == null ? null : encodeDeckDelta(cd);
+      }
+      else {
+        delta = encodeChangeDelta(cp);
+      }
+      return delta != null && delta.length() < full.length() ? delta : full;
     }
     else if (c instanceof MovePiece) {
       final MovePiece mp = (MovePiece) c;
@@ -317,6 +317,17 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
     return nextInput < logInput.size();
   }
 
+  /**
+   * Executes all of the unexecuted commands of a VLOG file being replayed,
+   * leaving the game in the state at the end of the log.
+   */
+  public void fastForward() {
+    while (isReplaying()) {
+      logInput.get(nextInput++).execute();
+    }
+    stepAction.setEnabled(false);
+  }
+
   @Override
   public Command getRestoreCommand() {
     return new MultiplayerStateCommand(isMultiPlayer());
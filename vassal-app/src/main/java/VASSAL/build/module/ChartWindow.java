@@ -97,13 +97,15 @@ public class ChartWindow extends Widget {
     rebuild();
     launch.setAlignmentY(0.0F);
     GameModule.getGameModule().getToolBar().add(launch);
-    frame = new JDialog(GameModule.getGameModule().getPlayerWindow());
-    GameModule.getGameModule().addKeyStrokeSource(new KeyStrokeSource(frame.getRootPane(), JComponent.WHEN_IN_FOCUSED_WINDOW));
-    while (root.getComponentCount() > 0) {
-      frame.add(root.getComponent(0));
+    if (!GameModule.getGameModule().isHeadless()) {
+      frame = new JDialog(GameModule.getGameModule().getPlayerWindow());
+      GameModule.getGameModule().addKeyStrokeSource(new KeyStrokeSource(frame.getRootPane(), JComponent.WHEN_IN_FOCUSED_WINDOW));
+      while (root.getComponentCount() > 0) {
+        frame.add(root.getComponent(0));
+      }
+      root = frame.getContentPane();
+      frame.setTitle(getAttributeValueString(NAME));
     }
-    root = frame.getContentPane();
-    frame.setTitle(getAttributeValueString(NAME));
     final int count = GameModule.getGameModule().getComponentsOf(ChartWindow.class).size();
     id = "ChartWindow" + count; //$NON-NLS-1$
   }
@@ -52,10 +52,12 @@ import javax.swing.text.html.HTMLDocument;
 import javax.swing.text.html.HTMLEditorKit;
 import javax.swing.text.html.StyleSheet;
 import javax.swing.undo.UndoManager;
+import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
+import java.awt.GraphicsEnvironment;
 import java.awt.dnd.DropTarget;
 import java.awt.dnd.DropTargetDragEvent;
 import java.awt.dnd.DropTargetDropEvent;
@@ -328,7 +330,9 @@ public class Chatter extends JPanel implements CommandEncoder, Buildable, DropTa
     setPreferredSize(new Dimension(input.getMaximumSize().width, input.getPreferredSize().height + conversationPane.getPreferredSize().height));
 
     // Accept dropped files
-    dt = new DropTarget(conversationPane, this);
+    if (!GraphicsEnvironment.isHeadless()) {
+      dt = new DropTarget(conversationPane, this);
+    }
   }
 
 
@@ -556,7 +560,12 @@ public class Chatter extends JPanel implements CommandEncoder, Buildable, DropTa
 
     chatFont.addPropertyChangeListener(evt -> setFont((Font) evt.getNewValue()));
 
-    mod.getPlayerWindow().addChatter(this);
+    if (mod.isHeadless()) {
+      mod.getControlPanel().add(this, BorderLayout.CENTER);
+    }
+    else {
+      mod.getPlayerWindow().addChatter(this);
+    }
 
     chatFont.fireUpdate();
     mod.getPrefs().addOption(Resources.getString("Chatter.chat_window"), chatFont); //$NON-NLS-1$
@@ -75,6 +75,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -100,6 +101,7 @@ public final class GameRefresher implements CommandEncoder, GameComponent {
   private int notFoundCount;
   private int noStackCount;
   private int noMapCount;
+  private boolean gpIdError;
 
   private final GameModule theModule;
   private final Set<String> options = new HashSet<>();
@@ -109,7 +111,7 @@ public final class GameRefresher implements CommandEncoder, GameComponent {
   }
 
   private final java.util.Map<GamePiece, GamePiece> updatedPieces = new HashMap<>();      //BR// maps old pieces to new pieces
-  private final java.util.Map<GamePiece, GamePiece> formerPieces = new HashMap<>();       //BR// maps new pieces to old pieces
+  private final java.util.Map<GamePiece, GamePiece> formerPieces = new LinkedHashMap<>();       //BR// maps new pieces to old pieces
   private final java.util.Map<String, List<GamePiece>> attachmentIndex = new HashMap<>(); //BR// maps old attachment traits to their original targets
 
   public GameRefresher(GpIdSupport gpIdSupport) {
@@ -161,6 +163,14 @@ public final class GameRefresher implements CommandEncoder, GameComponent {
     return options.contains("DeleteNoMap"); //$NON-NLS-1$
   }
 
+  /**
+   * @return true if the last {@link #execute} refreshed nothing because
+   * the module has invalid piece ids
+   */
+  public boolean isGpIdError() {
+    return gpIdError;
+  }
+
   public void start() {
     dialog = new RefreshDialog(this);
     dialog.setVisible(true);
@@ -304,6 +314,7 @@ public final class GameRefresher implements CommandEncoder, GameComponent {
     updatedCount = 0;
     noMapCount = 0;
     noStackCount = 0;
+    gpIdError = false;
     /*
      * 1. Use the GpIdChecker to build a cross-reference of all available
      * PieceSlots and PlaceMarker's in the module.
@@ -325,6 +336,7 @@ public final class GameRefresher implements CommandEncoder, GameComponent {
         // is run in the player, errors might still be present.
         // Inform user that he must upgrade the module to the latest vassal version before running Refresh
         gpIdChecker = null;
+        gpIdError = true;
         log(Resources.getString("GameRefresher.gpid_error_message"));
         return;
       }
@@ -546,19 +558,14 @@ public final class GameRefresher implements CommandEncoder, GameComponent {
 
     //BR// Now find any Attachment traits and update them
     if (!isTestMode()) {
-      for (final Map map : Map.getMapList()) {
-        // All the pieces on each map, one by one
-        for (final GamePiece piece : map.getAllPieces()) {
-          if (piece instanceof Stack) {
-            for (final GamePiece p : ((Stack)piece).asList()) {
-              indexAttachment(p);
-            }
-          }
-          else {
-            indexAttachment(piece);
+      // Only the pieces with Attachment traits need to be visited, and the AttachmentManager knows which those are
+      GameModule.getGameModule().getGameState().getAttachmentManager().forEachPiece((outer, traits) -> {
+        if (outer.getMap() != null) {
+          for (final Attachment attachment : traits) {
+            attachmentIndex.put(outer.getId() + attachment.getAttachName(), attachment.getContents());
           }
         }
-      }
+      });
     }
   }
 
@@ -584,17 +591,10 @@ public final class GameRefresher implements CommandEncoder, GameComponent {
   public void refreshAllAttachments(Command command) {
     //BR// Now find any Attachment traits and update them
     if (!isTestMode()) {
-      for (final Map map : Map.getMapList()) {
-        // All the pieces on each map, one by one
-        for (final GamePiece piece : map.getAllPieces()) {
-          if (piece instanceof Stack) {
-            for (final GamePiece p : ((Stack)piece).asList()) {
-              refreshAttachment(p, command);
-            }
-          }
-          else {
-            refreshAttachment(piece, command);
-          }
+      // Only the pieces which were replaced by the refresh can have broken Attachment mappings
+      for (final GamePiece piece : formerPieces.keySet()) {
+        if (piece.getMap() != null) {
+          refreshAttachment(piece, command);
         }
       }
 
@@ -20,6 +20,7 @@ import VASSAL.Info;
 import VASSAL.build.AbstractBuildable;
 import VASSAL.build.Buildable;
 import VASSAL.build.GameModule;
+import VASSAL.build.module.map.PieceImageCache;
 import VASSAL.build.module.metadata.AbstractMetaData;
 import VASSAL.build.module.metadata.MetaDataFactory;
 import VASSAL.build.module.metadata.SaveMetaData;
@@ -129,6 +130,12 @@ public class GameState implements CommandEncoder {
     return attachmentManager;
   }
 
+  private final PropertyIndex propertyIndex = new PropertyIndex();
+
+  public PropertyIndex getPropertyIndex() {
+    return propertyIndex;
+  }
+
   /**
    * @return true if currently loading in background
    */
@@ -497,6 +504,11 @@ public class GameState implements CommandEncoder {
       return NO_NEED_TO_SAVE;
     }
 
+    // Nobody to ask; headless callers save explicitly
+    if (GameModule.getGameModule().isHeadless()) {
+      return NO_NEED_TO_SAVE;
+    }
+
     final int result = JOptionPane.showConfirmDialog(
       GameModule.getGameModule().getPlayerWindow(),
       Resources.getString("GameState.save_game_query"), //$NON-NLS-1$
@@ -538,6 +550,7 @@ public class GameState implements CommandEncoder {
     if (!gameStarting) {
       pieces.clear();
       attachmentManager.clearAll();
+      propertyIndex.clearAll();
     }
 
     newGame.setEnabled(!gameStarting);
@@ -547,7 +560,7 @@ public class GameState implements CommandEncoder {
 
     g.resetSourcesAndListeners();
 
-    if (gameStarting) {
+    if (gameStarting && !g.isHeadless()) {
       g.getWizardSupport().showGameSetupWizard();
     }
 
@@ -579,7 +592,7 @@ public class GameState implements CommandEncoder {
           // But NOT if we're starting a session by *replaying* a logfile -- in that case we'd get the reminder at the
           // end of the logfile.
           final Logger logger = GameModule.getGameModule().getLogger();
-          if (logger instanceof BasicLogger) {
+          if (logger instanceof BasicLogger && !GameModule.getGameModule().isHeadless()) {
             if (!((BasicLogger)logger).isReplaying()) {
               ((BasicLogger) logger).queryNewLogFile(true);
             }
@@ -1109,7 +1122,12 @@ public class GameState implements CommandEncoder {
       p.setId(getNewPieceId());
     }
     attachmentManager.pieceAdded(p);
-    pieces.put(p.getId(), p);
+    final GamePiece old = pieces.put(p.getId(), p);
+    if (old != null && old != p) {
+      propertyIndex.pieceRemoved(old);
+      PieceImageCache.getInstance().remove(old);
+    }
+    propertyIndex.pieceAdded(p);
   }
 
   /**
@@ -1124,7 +1142,13 @@ public class GameState implements CommandEncoder {
    */
   public void removePiece(String id) {
     if (id != null) {
-      pieces.remove(id);
+      final GamePiece p = pieces.remove(id);
+      if (p != null) {
+        attachmentManager.pieceRemoved(p);
+        propertyIndex.pieceRemoved(p);
+        // Not on leaving a map, as it may only be moving to another, and the cache is shared by all of them
+        PieceImageCache.getInstance().remove(p);
+      }
     }
   }
 
@@ -1342,7 +1366,9 @@ public class GameState implements CommandEncoder {
       msg = Resources.getString("GameState.game_saved"); //$NON-NLS-1$
     }
     GameModule.getGameModule().warn(msg);
-    ModuleManagerUpdateHelper.sendGameUpdate(f);
+    if (!GameModule.getGameModule().isHeadless()) {
+      ModuleManagerUpdateHelper.sendGameUpdate(f);
+    }
   }
 
   public void loadGameInForeground(final File f) {
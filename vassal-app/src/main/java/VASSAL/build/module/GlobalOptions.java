@@ -32,6 +32,7 @@ import VASSAL.configure.ConfigurerFactory;
 import VASSAL.configure.FormattedStringConfigurer;
 import VASSAL.configure.IconConfigurer;
 import VASSAL.configure.IntConfigurer;
+import VASSAL.configure.StringArrayConfigurer;
 import VASSAL.configure.StringEnum;
 import VASSAL.i18n.Resources;
 import VASSAL.preferences.BasicPreference;
@@ -96,6 +97,8 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
   public static final String SEND_TO_LOCATION_MOVE_TRAILS = "sendToLocationMoveTrails"; //NON-NLS
   public static final String STORE_LEADING_ZERO_INTEGERS_AS_STRINGS = "storeLeadingZeroIntegersAsStrings"; //NON-NLS
   public static final String PURGE_BLANK_PROPERTY_PROMPTS = "purgeBlankPropertyPrompts"; //NON-NLS
+  public static final String INDEXED_PROPERTIES = "indexedProperties"; //NON-NLS
+  public static final String CACHE_PIECE_IMAGES = "cachePieceImages"; //NON-NLS
 
   // Hybrid preference settings
   public static final String ALWAYS = "Always"; //$NON-NLS-1$
@@ -150,6 +153,8 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
   private String sendToLocationMoveTrails = NEVER; // Send-to-Location generates movement trails (default to off)
   private boolean storeLeadingZeroIntegersAsStrings = false; // Store integers with leading zeroes as String internally
   private boolean purgeBlankPropertyPrompts = true; // Purge blank property prompts
+  private String[] indexedProperties = new String[0]; // Piece properties indexed for Fast Match
+  private boolean cachePieceImages = false; // Keep pre-rendered images of pieces
 
   // Configurable prompt string for unmask-my-pieces
   private String promptString = Resources.getString("GlobalOptions.opponents_can_unmask_my_pieces");
@@ -473,7 +478,9 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
       Resources.getString("Editor.GlobalOption.inventory_visible_to_all"),
       Resources.getString("Editor.GlobalOption.send_to_location_movement_trails"),
       Resources.getString("Editor.GlobalOption.leading_zero_integer_strings"),
-      Resources.getString("Editor.GlobalOption.purge_blank_property_prompts")
+      Resources.getString("Editor.GlobalOption.purge_blank_property_prompts"),
+      Resources.getString("Editor.GlobalOption.indexed_properties"),
+      Resources.getString("Editor.GlobalOption.cache_piece_images")
     };
   }
 
@@ -494,7 +501,9 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
         INVENTORY_VISIBLE_TO_ALL,
         SEND_TO_LOCATION_MOVE_TRAILS,
         STORE_LEADING_ZERO_INTEGERS_AS_STRINGS,
-        PURGE_BLANK_PROPERTY_PROMPTS
+        PURGE_BLANK_PROPERTY_PROMPTS,
+        INDEXED_PROPERTIES,
+        CACHE_PIECE_IMAGES
       )
     );
 
@@ -519,6 +528,8 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
       PromptOnOff.class,
       PromptOnOff.class,
       Boolean.class,
+      Boolean.class,
+      String[].class,
       Boolean.class
     };
   }
@@ -653,6 +664,12 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
     else if (PURGE_BLANK_PROPERTY_PROMPTS.equals(key)) {
       return String.valueOf(purgeBlankPropertyPrompts);
     }
+    else if (INDEXED_PROPERTIES.equals(key)) {
+      return StringArrayConfigurer.arrayToString(indexedProperties);
+    }
+    else if (CACHE_PIECE_IMAGES.equals(key)) {
+      return String.valueOf(cachePieceImages);
+    }
     else if (INVENTORY_VISIBLE_TO_ALL.equals(key)) {
       return inventoryVisibleToAll;
     }
@@ -747,6 +764,24 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
         purgeBlankPropertyPrompts = "true".equals(value); //NON-NLS
       }
     }
+    else if (INDEXED_PROPERTIES.equals(key)) {
+      if (value instanceof String) {
+        value = StringArrayConfigurer.stringToArray((String) value);
+      }
+      indexedProperties = (String[]) value;
+      final GameState gs = GameModule.getGameModule().getGameState();
+      if (gs != null) {
+        gs.getPropertyIndex().setIndexedProperties(Arrays.asList(indexedProperties));
+      }
+    }
+    else if (CACHE_PIECE_IMAGES.equals(key)) {
+      if (value instanceof Boolean) {
+        cachePieceImages = (Boolean) value;
+      }
+      else if (value instanceof String) {
+        cachePieceImages = "true".equals(value); //NON-NLS
+      }
+    }
     else if (INVENTORY_VISIBLE_TO_ALL.equals(key)) {
       inventoryVisibleToAll = (String) value;
     }
@@ -774,6 +809,11 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
     }
   }
 
+  /** @return the piece properties which are indexed to speed up Fast Match of Global Key Commands */
+  public String[] getIndexedProperties() {
+    return indexedProperties.clone();
+  }
+
   /** @return true if auto-reporting moves is enabled (designer-setting or user-pref, depending) */
   public boolean autoReportEnabled() {
     return isEnabled(autoReport, AUTO_REPORT);
@@ -855,6 +895,11 @@ public class GlobalOptions extends AbstractConfigurable implements ComponentDesc
     return purgeBlankPropertyPrompts;
   }
 
+  /** @return true if maps should draw unchanged pieces from pre-rendered images */
+  public boolean isCachePieceImages() {
+    return cachePieceImages;
+  }
+
   /** @return whether specific hybrid preference is enabled (could be designer-forced setting, could be player preference) */
   private boolean isEnabled(String attValue, String prefsPrompt) {
     if (ALWAYS.equals(attValue)) {
@@ -252,6 +252,11 @@ public class Inventory extends AbstractToolbarItem
     GameModule.getGameModule().addSideChangeListenerToPlayerRoster(this);
     getLaunchButton().setAlignmentY(0.0F);
     GameModule.getGameModule().getGameState().addGameComponent(this);
+
+    if (GameModule.getGameModule().isHeadless()) {
+      return;
+    }
+
     frame = new JDialog(GameModule.getGameModule().getPlayerWindow());
     frame.setTitle(getConfigureName());
     final String key = "Inventory." + getConfigureName(); //$NON-NLS-1$
@@ -978,7 +983,7 @@ public class Inventory extends AbstractToolbarItem
       setupLaunch();
     }
     else {
-      if (!GameModule.getGameModule().isLoadOverSemaphore()) {
+      if (frame != null && !GameModule.getGameModule().isLoadOverSemaphore()) {
         frame.setVisible(false);
       }
     }
@@ -42,12 +42,14 @@ import VASSAL.build.module.map.ImageSaver;
 import VASSAL.build.module.map.KeyBufferer;
 import VASSAL.build.module.map.LOS_Thread;
 import VASSAL.build.module.map.LayeredPieceCollection;
+import VASSAL.build.module.map.LocationIndex;
 import VASSAL.build.module.map.MapCenterer;
 import VASSAL.build.module.map.MapShader;
 import VASSAL.build.module.map.MassKeyCommand;
 import VASSAL.build.module.map.MenuDisplayer;
 import VASSAL.build.module.map.MoveCameraButton;
 import VASSAL.build.module.map.PieceCollection;
+import VASSAL.build.module.map.PieceImageCache;
 import VASSAL.build.module.map.PieceMover;
 import VASSAL.build.module.map.PieceRecenterer;
 import VASSAL.build.module.map.Scroller;
@@ -154,6 +156,7 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.Insets;
 import java.awt.Point;
 import java.awt.Rectangle;
@@ -188,6 +191,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import static VASSAL.preferences.Prefs.MAIN_WINDOW_HEIGHT;
@@ -257,6 +261,8 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
   protected int[][] boardWidths; // Cache of board widths by row/column
   protected int[][] boardHeights; // Cache of board heights by row/column
   protected PieceCollection pieces = new DefaultPieceCollection(); // All the pieces on the map, but sorted into visual layers. Will be replaced by a LayeredPieceCollection if Map has a "Game Piece Layers" Component.
+  protected final LocationIndex locationIndex = new LocationIndex(this); // The pieces on the map bucketed by Zone, Location and position, for Global Key Commands
+  protected final PieceImageCache pieceImageCache = PieceImageCache.getInstance(); // Pre-rendered images of the pieces, if enabled in Global Options; shared by all maps
   protected Highlighter highlighter = new ColoredBorder();
   protected ArrayList<Highlighter> highlighters = new ArrayList<>(); //NOPMD
   protected boolean clearFirst = false; // Whether to clear the display before
@@ -985,10 +991,12 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
       }
     };
 
-    DragSource.getDefaultDragSource().createDefaultDragGestureRecognizer(
-      theMap, DnDConstants.ACTION_MOVE, dgl);
-    theMap.setDropTarget(PieceMover.DragHandler.makeDropTarget(
-      theMap, DnDConstants.ACTION_MOVE, this));
+    if (!GraphicsEnvironment.isHeadless()) {
+      DragSource.getDefaultDragSource().createDefaultDragGestureRecognizer(
+        theMap, DnDConstants.ACTION_MOVE, dgl);
+      theMap.setDropTarget(PieceMover.DragHandler.makeDropTarget(
+        theMap, DnDConstants.ACTION_MOVE, this));
+    }
     g.getGameState().addGameComponent(this);
     g.getToolBar().add(getLaunchButton());
     getLaunchButton().setEnabled(useLaunchButtonEdit);
@@ -1128,6 +1136,7 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
    */
   @Override
   public void sideChanged(String oldSide, String newSide) {
+    locationIndex.invalidateShapes();
     repaint();
   }
 
@@ -1143,6 +1152,7 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
       boards.add(b);
     }
     setBoardBoundaries();
+    locationIndex.invalidate();
   }
 
   /**
@@ -2385,7 +2395,7 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
         );
       }
       else {
-        gamePiece.draw(g, pt.x, pt.y, c, dzoom);
+        drawPiece(gamePiece, g, pt.x, pt.y, c, dzoom);
         if (Boolean.TRUE.equals(gamePiece.getProperty(Properties.SELECTED))) {
           highlighter.draw(gamePiece, g, pt.x, pt.y, c, dzoom);
         }
@@ -2399,6 +2409,32 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
     g2d.setComposite(oldComposite);
   }
 
+  /**
+   * Draws a single piece (not a Stack), from its pre-rendered image if piece images are cached
+   * @param p piece to draw
+   * @param g target graphics object
+   * @param x x position at which to draw the piece, in drawing coordinates
+   * @param y y position at which to draw the piece, in drawing coordinates
+   * @param obs observer component
+   * @param zoom zoom factor, including the OS scaling
+   */
+  public void drawPiece(GamePiece p, Graphics g, int x, int y, Component obs, double zoom) {
+    final GlobalOptions options = GlobalOptions.getInstance();
+    if (options != null && options.isCachePieceImages()) {
+      pieceImageCache.draw(p, g, x, y, obs, zoom);
+    }
+    else {
+      p.draw(g, x, y, obs, zoom);
+    }
+  }
+
+  /**
+   * @return pre-rendered images of the pieces, shared by all maps
+   */
+  public PieceImageCache getPieceImageCache() {
+    return pieceImageCache;
+  }
+
   /**
    * Draws all pieces visible in a rectangular area of the map
    * @param g Graphics object where map should be painted
@@ -2585,6 +2621,7 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
    */
   public void setPieceCollection(PieceCollection pieces) {
     this.pieces = pieces;
+    locationIndex.invalidate();
   }
 
   /**
@@ -2594,6 +2631,13 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
     return pieces;
   }
 
+  /**
+   * @return index of the pieces/stacks/decks on this map by Zone, Location and position
+   */
+  public LocationIndex getLocationIndex() {
+    return locationIndex;
+  }
+
   /**
    * Clears the map border region, if any. If the {@link #clearFirst} flag is set, wipe the map image too.
    * @param g target graphics object
@@ -2863,7 +2907,8 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
     final GameModule g = GameModule.getGameModule();
 
     if (show) {
-      if (!g.isLoadOverSemaphore()) {
+      // Without a player window there are no map windows to manage
+      if (!g.isLoadOverSemaphore() && !g.isHeadless()) {
         if (shouldDockIntoMainWindow()) {
           // kludge for modules which still use mainWindowDock
           // remove this when mainWindowDock is removed
@@ -2953,8 +2998,10 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
     else {
       pieces.clear();
       boards.clear();
+      locationIndex.invalidate();
+      pieceImageCache.clear();
 
-      if (!g.isLoadOverSemaphore()) {
+      if (!g.isLoadOverSemaphore() && !g.isHeadless()) {
         if (shouldDockIntoMainWindow()) {
           if (splitPane != null) {
             // If this is a docked-to-main-window map, AND it's presently visible, save our window size preferences
@@ -3060,14 +3107,7 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
    * @return a visible piece at the given location, or null if none.
    */
   public GamePiece findPiece(Point pt, PieceFinder finder) {
-    final GamePiece[] stack = pieces.getPieces();
-    for (int i = stack.length - 1; i >= 0; --i) {
-      final GamePiece p = finder.select(this, stack[i], pt);
-      if (p != null) {
-        return p;
-      }
-    }
-    return null;
+    return findPiece(pt, finder, pieces.getPieces());
   }
 
   /**
@@ -3078,10 +3118,22 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
    * @return a piece at the given location, regardless of visibility, or null if none.
    */
   public GamePiece findAnyPiece(Point pt, PieceFinder finder) {
-    final GamePiece[] stack = pieces.getAllPieces();
+    return findPiece(pt, finder, pieces.getAllPieces());
+  }
+
+  private GamePiece findPiece(Point pt, PieceFinder finder, GamePiece[] stack) {
+    // A finder which selects by shape need only be offered the pieces whose shapes are near the point
+    final Set<GamePiece> near = finder.selectsByShape() ? locationIndex.getPiecesNear(pt) : null;
+    if (near != null && near.isEmpty()) {
+      return null;
+    }
+
     // Our piece collection is provided to us in "draw order", in other words "back-to-front", which means
     // that we need to iterate backwards to prioritize checking pieces that are visually "in front of" others.
     for (int i = stack.length - 1; i >= 0; --i) {
+      if (near != null && !near.contains(stack[i])) {
+        continue;
+      }
       final GamePiece p = finder.select(this, stack[i], pt);
       if (p != null) {
         return p;
@@ -3179,6 +3231,7 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
       }
       p.setMap(this);
       pieces.add(p);
+      locationIndex.pieceAdded(p);
       theMap.repaint();
     }
   }
@@ -3199,6 +3252,7 @@ public class Map extends AbstractToolbarItem implements GameComponent, MouseList
    */
   public void removePiece(GamePiece p) {
     pieces.remove(p);
+    locationIndex.pieceRemoved(p);
     theMap.repaint();
   }
 
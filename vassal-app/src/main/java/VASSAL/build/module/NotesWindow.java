@@ -92,8 +92,16 @@ public class NotesWindow extends AbstractToolbarItem
   public NotesWindow() {
     privateNotes = new PrivateNotesController();
     secretNotes = new SecretNotesController();
-    frame = new NotesDialog();
-    frame.setTitle(Resources.getString("Notes.notes")); //$NON-NLS-1$
+    final GameModule g = GameModule.getGameModule();
+    if (g != null && g.isHeadless()) {
+      // No dialog, but the notes themselves must still be kept
+      scenarioNotes = new TextConfigurer(null, null);
+      publicNotes = new TextConfigurer(null, null);
+    }
+    else {
+      frame = new NotesDialog();
+      frame.setTitle(Resources.getString("Notes.notes")); //$NON-NLS-1$
+    }
     setNameKey("");                // No description or name configured
     setButtonTextKey(BUTTON_TEXT); // Legacy different button text key
 
@@ -122,7 +130,9 @@ public class NotesWindow extends AbstractToolbarItem
     ));
     launch = getLaunchButton();
 
-    frame.pack();
+    if (frame != null) {
+      frame.pack();
+    }
     setup(false);
   }
 
@@ -348,7 +358,9 @@ public class NotesWindow extends AbstractToolbarItem
     gm.getGameState().addGameComponent(privateNotes);
     gm.addCommandEncoder(secretNotes);
     gm.getGameState().addGameComponent(secretNotes);
-    gm.addKeyStrokeSource(new KeyStrokeSource(frame.getRootPane(), JComponent.WHEN_IN_FOCUSED_WINDOW));
+    if (frame != null) {
+      gm.addKeyStrokeSource(new KeyStrokeSource(frame.getRootPane(), JComponent.WHEN_IN_FOCUSED_WINDOW));
+    }
   }
 
   @Override
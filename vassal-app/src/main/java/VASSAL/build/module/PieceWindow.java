@@ -276,7 +276,7 @@ public class PieceWindow extends Widget implements UniqueIdManager.Identifyable
         // Register as the docked PieceWindow
         GameModule.getGameModule().setPieceWindow(this);
       }
-      else {
+      else if (!GameModule.getGameModule().isHeadless()) {
         final String key = PositionOption.key + getConfigureName();
         final Window w = initFrame();
         final PositionOption pos = new VisibilityOption(key, w);
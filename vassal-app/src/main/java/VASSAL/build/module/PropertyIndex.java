@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.map.LocationIndex;
+import VASSAL.counters.Decorator;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Stack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains an index of the pieces in the game by the values of those piece properties which the module
+ * designer has declared as indexed in the {@link GlobalOptions}, so that Global Key Commands and the
+ * Sum and Count functions can find the pieces having a particular value of such a property without
+ * checking every piece on every map.
+ *
+ * Pieces are marked as changed whenever their state is set, they receive a key command, or a property
+ * is set on them, and are re-indexed when the index is next consulted. Indexed properties should be ones
+ * whose values are held by the piece itself, such as Dynamic Properties, Markers and piece names.
+ * Calculated Properties, and properties which depend upon the piece's location or upon other pieces,
+ * do not change in step with the piece and should not be indexed.
+ */
+public class PropertyIndex {
+
+  private static final AtomicLong STATE_CHANGES = new AtomicLong();
+
+  private final Set<String> properties = new LinkedHashSet<>();
+
+  /**
+   * Property name -> property value -> pieces with that value
+   */
+  private final Map<String, Map<String, Set<GamePiece>>> index = new HashMap<>();
+
+  /**
+   * Every piece in the game -> the values under which it is indexed (null until it has been indexed)
+   */
+  private final Map<GamePiece, String[]> pieces = new IdentityHashMap<>();
+
+  /**
+   * Pieces whose property values may have changed since they were indexed
+   */
+  private final Set<GamePiece> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * Sets the properties to be indexed, and reindexes all pieces.
+   * @param names property names
+   */
+  public void setIndexedProperties(Collection<String> names) {
+    properties.clear();
+    for (final String name : names) {
+      if (name != null && !name.isEmpty()) {
+        properties.add(name);
+      }
+    }
+
+    index.clear();
+    for (final Map.Entry<GamePiece, String[]> e : pieces.entrySet()) {
+      e.setValue(null);
+    }
+    changed.clear();
+    changed.addAll(pieces.keySet());
+  }
+
+  /**
+   * @return true if any properties are indexed
+   */
+  public boolean isEnabled() {
+    return !properties.isEmpty();
+  }
+
+  /**
+   * @param property property name
+   * @return true if pieces are indexed by the values of this property
+   */
+  public boolean isIndexed(String property) {
+    return properties.contains(property);
+  }
+
+  public void clearAll() {
+    index.clear();
+    pieces.clear();
+    changed.clear();
+  }
+
+  /**
+   * A piece has been added to the game state.
+   * @param p the piece
+   */
+  public void pieceAdded(GamePiece p) {
+    if (p instanceof Stack) {
+      return;
+    }
+    final String[] old = pieces.put(p, null);
+    if (old != null) {
+      unindex(p, old);
+    }
+    if (!properties.isEmpty()) {
+      changed.add(p);
+    }
+  }
+
+  /**
+   * A piece has been removed from the game state.
+   * @param p the piece
+   */
+  public void pieceRemoved(GamePiece p) {
+    final String[] old = pieces.remove(p);
+    if (old != null) {
+      unindex(p, old);
+    }
+    changed.remove(p);
+  }
+
+  /**
+   * The properties of a piece in the game may have changed.
+   * @param p the piece, or any trait of it
+   */
+  public void pieceChanged(GamePiece p) {
+    if (properties.isEmpty()) {
+      return;
+    }
+    final GamePiece outer = Decorator.getOutermost(p);
+    if (pieces.containsKey(outer)) {
+      changed.add(outer);
+    }
+  }
+
+  /**
+   * Notes that the properties of a piece may have changed, if it is part of the current game.
+   * @param p the piece, or any trait of it
+   */
+  public static void changed(GamePiece p) {
+    final GameModule g = GameModule.getGameModule();
+    final GameState gs = g == null ? null : g.getGameState();
+    final PropertyIndex index = gs == null ? null : gs.getPropertyIndex();
+    if (index != null) {
+      index.pieceChanged(p);
+    }
+  }
+
+  /**
+   * Notes that the state of a piece may have changed, and so its appearance as well as its properties.
+   * The piece's shape is also marked as changed in the {@link LocationIndex} of its map.
+   * @param p the piece, or any trait of it
+   */
+  public static void stateChanged(GamePiece p) {
+    STATE_CHANGES.incrementAndGet();
+    changed(p);
+
+    final GamePiece outer = Decorator.getOutermost(p);
+    final LocationIndex locations = outer.getMap() == null ? null : outer.getMap().getLocationIndex();
+    if (locations != null) {
+      locations.shapeChanged(outer.getParent() == null ? outer : outer.getParent());
+    }
+  }
+
+  /**
+   * @return a count which goes up whenever the state of any piece may have changed, so that what has been
+   * worked out from the appearance of pieces (e.g. the layout of a {@link Stack}) can be checked for currency
+   */
+  public static long getStateChangeCount() {
+    return STATE_CHANGES.get();
+  }
+
+  /**
+   * Finds the pieces in the game for which an indexed property has a given value.
+   *
+   * @param property an indexed property name
+   * @param value property value, compared as a String
+   * @return the pieces, in no particular order, or null if the property is not indexed
+   */
+  public List<GamePiece> getPieces(String property, String value) {
+    if (!properties.contains(property)) {
+      return null;
+    }
+
+    update();
+
+    final Map<String, Set<GamePiece>> values = index.get(property);
+    final Set<GamePiece> matches = values == null ? null : values.get(value);
+    // A copy, since commands sent to the pieces may well change the index
+    return matches == null ? new ArrayList<>() : new ArrayList<>(matches);
+  }
+
+  /**
+   * Re-indexes any pieces which have changed.
+   */
+  private void update() {
+    if (changed.isEmpty()) {
+      return;
+    }
+
+    final List<GamePiece> toUpdate = new ArrayList<>(changed);
+    changed.clear();
+
+    for (final GamePiece p : toUpdate) {
+      if (!pieces.containsKey(p)) {
+        continue;
+      }
+
+      final String[] old = pieces.get(p);
+      if (old != null) {
+        unindex(p, old);
+      }
+
+      final String[] values = new String[properties.size()];
+      int i = 0;
+      for (final String property : properties) {
+        final Object prop = p.getProperty(property);
+        values[i] = prop == null ? null : prop.toString();
+        if (values[i] != null) {
+          index.computeIfAbsent(property, k -> new HashMap<>())
+               .computeIfAbsent(values[i], k -> Collections.newSetFromMap(new IdentityHashMap<>()))
+               .add(p);
+        }
+        ++i;
+      }
+      pieces.put(p, values);
+    }
+  }
+
+  private void unindex(GamePiece p, String[] values) {
+    int i = 0;
+    for (final String property : properties) {
+      if (i >= values.length) {
+        break;
+      }
+      final String value = values[i++];
+      if (value == null) {
+        continue;
+      }
+      final Map<String, Set<GamePiece>> byValue = index.get(property);
+      if (byValue == null) {
+        continue;
+      }
+      final Set<GamePiece> set = byValue.get(value);
+      if (set != null) {
+        set.remove(p);
+        if (set.isEmpty()) {
+          byValue.remove(value);
+        }
+      }
+    }
+  }
+}
@@ -69,6 +69,7 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
@@ -89,6 +90,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This is a {@link Drawable} class that draws the counters horizontally when
@@ -316,7 +318,9 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
     view.addMouseMotionListener(this);
     view.addMouseListener(this);
     view.addKeyListener(this);
-    DragSource.getDefaultDragSource().addDragSourceMotionListener(this);
+    if (!GraphicsEnvironment.isHeadless()) {
+      DragSource.getDefaultDragSource().addDragSourceMotionListener(this);
+    }
 
     setAttributeTranslatable(VERSION, false);
     setAttributeTranslatable(SUMMARY_REPORT_FORMAT, true);
@@ -953,17 +957,35 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
   protected List<GamePiece> getDisplayablePieces() {
     final GamePiece[] allPieces = map.getPieces(); // All pieces from bottom up
 
-    final Visitor visitor = new Visitor(new Filter(), map,
-      map.componentToMap(currentMousePosition.getPoint()),
+    final Point pt = map.componentToMap(currentMousePosition.getPoint());
+    final Visitor visitor = new Visitor(new Filter(), map, pt,
       showOverlap, showNumberFromDeck, showDeckMasked, showOnlyTopOfStack
     );
     final DeckVisitorDispatcher dispatcher = new DeckVisitorDispatcher(visitor);
 
+    // Only the pieces whose shapes are near the point, or which are at the position of the first piece
+    // found there, can be shown
+    final LocationIndex index = map.getLocationIndex();
+    final Set<GamePiece> near = index.getPiecesNear(pt);
+    Point nearPosition = null;
+
     /*
      * Process pieces from the top down to make it easier to check for top layer
      * only.
      */
     for (int i = allPieces.length - 1; i >= 0; i--) {
+      if (!near.contains(allPieces[i])) {
+        if (visitor.foundPieceAt == null) {
+          continue;
+        }
+        if (!visitor.foundPieceAt.equals(nearPosition)) {
+          nearPosition = new Point(visitor.foundPieceAt);
+          near.addAll(index.getPiecesAt(nearPosition));
+        }
+        if (!near.contains(allPieces[i])) {
+          continue;
+        }
+      }
       dispatcher.accept(allPieces[i]);
     }
 
@@ -96,6 +96,7 @@ public class GlobalMap implements AutoConfigurable,
   protected final LaunchButton launch;
 
   protected CounterDetailViewer mouseOverViewer;
+  protected OverviewImage overviewImage; // Picture of the pieces on the map, at our scale
   protected final ScrollPane scroll;
   protected final View view;
   protected ComponentI18nData myI18nData;
@@ -134,6 +135,9 @@ public class GlobalMap implements AutoConfigurable,
 
     mouseOverViewer = new CounterViewer();
 
+    overviewImage = new OverviewImage(map);
+    map.getLocationIndex().addListener(overviewImage);
+
     GameModule.getGameModule().getGameState().addGameComponent(this);
 
     GameModule.getGameModule().addKeyStrokeSource(
@@ -165,6 +169,7 @@ public class GlobalMap implements AutoConfigurable,
 
     map = (Map) b;
     map.removeDrawComponent(this);
+    map.getLocationIndex().removeListener(overviewImage);
     map.getToolBar().remove(launch);
     GameModule.getGameModule().getGameState().removeGameComponent(this);
 
@@ -523,9 +528,27 @@ public class GlobalMap implements AutoConfigurable,
         this
       );
 
-      for (final GamePiece gp : map.getPieces()) {
-        final Point p = mapToDrawing(gp.getPosition(), os_scale);
-        gp.draw(g, p.x, p.y, this, dscale);
+      final Dimension size = getPreferredSize();
+      final Point origin = new Point(map.getEdgeBuffer().width, map.getEdgeBuffer().height);
+      if (!overviewImage.draw(g, (int) Math.ceil(size.width * os_scale), (int) Math.ceil(size.height * os_scale), origin, dscale)) {
+        // Too large to keep a picture of, so draw the pieces which are within the area being painted
+        final Rectangle clip = g.getClipBounds();
+        for (final GamePiece gp : map.getPieces()) {
+          final Point p = mapToDrawing(gp.getPosition(), os_scale);
+          if (clip != null) {
+            final Rectangle b = gp.boundingBox();
+            final Rectangle r = new Rectangle(
+              p.x + (int) Math.floor(b.x * dscale) - 1,
+              p.y + (int) Math.floor(b.y * dscale) - 1,
+              (int) Math.ceil(b.width * dscale) + 2,
+              (int) Math.ceil(b.height * dscale) + 2
+            );
+            if (!clip.intersects(r)) {
+              continue;
+            }
+          }
+          gp.draw(g, p.x, p.y, this, dscale);
+        }
       }
 
       mouseOverViewer.draw(g, map);
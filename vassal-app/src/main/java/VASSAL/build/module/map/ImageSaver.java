@@ -30,17 +30,18 @@ import java.awt.Frame;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import javax.imageio.ImageIO;
-import javax.imageio.ImageWriter;
-import javax.imageio.event.IIOWriteProgressListener;
-import javax.imageio.stream.ImageOutputStream;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
@@ -54,10 +55,9 @@ import VASSAL.tools.ErrorDialog;
 import VASSAL.tools.WriteErrorDialog;
 import VASSAL.tools.filechooser.FileChooser;
 import VASSAL.tools.filechooser.PNGFileFilter;
+import VASSAL.tools.image.PNGEncoder;
 import VASSAL.tools.swing.ProgressDialog;
 
-// FIXME: Replace this in 3.2 with tiling code.
-
 /**
  * This allows the user to capture a snapshot of the entire map into
  * a PNG file.
@@ -220,14 +220,18 @@ public class ImageSaver extends AbstractToolbarItem {
     task.execute();
   }
 
+  /**
+   * Paints the map in horizontal bands, one at a time on this task's thread, as painting is not thread-safe.
+   * Bands are filtered for the PNG encoder on worker threads, and streamed in order into a single PNG.
+   * Only a few bands are held at once, so the memory needed does not depend on the size of the map.
+   */
   private class SnapshotTask extends SwingWorker<Void, Void> {
-    private int tiles;
-    private int tilesDone = 0;
+    // about how much image data to put in each band
+    private static final long BAND_BYTES = 16L * 1024L * 1024L;
+    private static final int MAX_WORKERS = 4;
 
     private final File file;
-    @SuppressWarnings("unused")
     private final int x;
-    @SuppressWarnings("unused")
     private final int y;
     private final int w;
     private final int h;
@@ -235,9 +239,6 @@ public class ImageSaver extends AbstractToolbarItem {
     private final Color bg = ColorConfigurer.stringToColor(
       map.getAttributeValueString(Map.BACKGROUND_COLOR));
 
-    private final List<File> files = new ArrayList<>();
-
-// FIXME: SnapshotTask ignores x,y!
     public SnapshotTask(File file, int x, int y, int w, int h) {
       this.file = file;
       this.x = x;
@@ -246,22 +247,43 @@ public class ImageSaver extends AbstractToolbarItem {
       this.h = h;
     }
 
-    private void writeImage(final File f, BufferedImage img, Rectangle r)
-                                                          throws IOException {
+    /**
+     * Paints rows of the map. Painting is not thread-safe, so this is called only from
+     * {@link #doInBackground}, one band at a time.
+     *
+     * @param top the first row of the band
+     * @param rows the number of rows in the band
+     */
+    private BufferedImage paintBand(int top, int rows) {
+      final BufferedImage img = new BufferedImage(w, rows, BufferedImage.TYPE_INT_ARGB);
+      final Graphics2D g = img.createGraphics();
+
+      g.setColor(bg);
+      g.fillRect(0, 0, w, rows);
 
-      files.add(f);
+      final Rectangle r = new Rectangle(x, y + top, w, rows);
+      g.translate(-r.x, -r.y);
+      map.paintRegion(g, r, null);
+      g.dispose();
+
+      return img;
+    }
+
+    @Override
+    public Void doInBackground() throws IOException, InterruptedException, ExecutionException {
+      setProgress(0);
 
       // make sure that we can write the file before proceeding
-      if (f.exists()) {
-        if (!f.canWrite()) {
+      if (file.exists()) {
+        if (!file.canWrite()) {
           throw new IOException(
-            "Cannot write to the file \"" + f.getAbsolutePath() + "\""
+            "Cannot write to the file \"" + file.getAbsolutePath() + "\""
           );
         }
       }
       else {
-        final File p = f.getParentFile();
-        if (p.isDirectory() && !p.canWrite()) {
+        final File p = file.getParentFile();
+        if (p != null && p.isDirectory() && !p.canWrite()) {
           throw new IOException(
             "Cannot write to the directory \"" + p.getAbsolutePath() + "\""
           );
@@ -270,141 +292,76 @@ public class ImageSaver extends AbstractToolbarItem {
 
       // update the dialog on the EDT
       SwingUtilities.invokeLater(() -> {
-        dialog.setLabel(Resources.getString("Editor.ImageSaver.saving_map_image_as") + " " + f.getName() + ":");
-        dialog.setIndeterminate(true);
+        dialog.setLabel(Resources.getString("Editor.ImageSaver.saving_map_image_as") + " " + file.getName() + ":");
+        dialog.setIndeterminate(false);
       });
 
-      // FIXME: do something to estimate how long painting will take
-      final Graphics2D g = img.createGraphics();
-
-      final Color oc = g.getColor();
-      g.setColor(bg);
-      g.fillRect(0, 0, img.getWidth(), img.getHeight());
-      g.setColor(oc);
-
-      g.translate(-r.x, -r.y);
-      map.paintRegion(g, r, null);
-      g.dispose();
-
-      // update the dialog on the EDT
-      SwingUtilities.invokeLater(() -> dialog.setIndeterminate(false));
-
-      final ImageWriter iw = ImageIO.getImageWritersByFormatName("png").next(); //NON-NLS
-      iw.addIIOWriteProgressListener(new IIOWriteProgressListener() {
-        @Override
-        public void imageComplete(ImageWriter source) { }
+      final int bandRows = (int) Math.max(1, Math.min(h, BAND_BYTES / (4L * w)));
+      final int bands = (h + bandRows - 1) / bandRows;
+
+      // each band in flight holds its image and its filtered rows
+      final Runtime rt = Runtime.getRuntime();
+      final long perBand = 8L * w * bandRows;
+      final int workers = (int) Math.max(1, Math.min(
+        Math.min(rt.availableProcessors(), MAX_WORKERS),
+        rt.maxMemory() / 4 / perBand - 1
+      ));
+
+      // bands are painted here in turn, and filtered for the PNG encoder by the workers
+      final ExecutorService exec = Executors.newFixedThreadPool(workers, r -> {
+        final Thread t = new Thread(r, "Image Export Thread"); //NON-NLS
+        t.setDaemon(true);
+        return t;
+      });
 
-        @Override
-        public void imageProgress(ImageWriter source, float percentageDone) {
-          setProgress(Math.round((100 * tilesDone + percentageDone) / tiles));
+      final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+      final OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+      boolean ok = false;
+      try {
+        final PNGEncoder enc = new PNGEncoder(out, w, h);
+
+        int done = 0;
+        for (int band = 0; band < bands; ++band) {
+          final int top = band * bandRows;
+          final int rows = Math.min(bandRows, h - top);
+          final BufferedImage img = paintBand(top, rows);
+          pending.add(exec.submit(() -> PNGEncoder.filter(img, rows)));
+
+          // keep the workers busy, but only a bounded number of bands ahead
+          if (pending.size() > workers) {
+            enc.write(pending.poll().get());
+            setProgress(100 * ++done / bands);
+          }
         }
 
-        @Override
-        public void imageStarted(ImageWriter source, int imageIndex) { }
-
-        @Override
-        public void thumbnailComplete(ImageWriter source) { }
-
-        @Override
-        public void thumbnailProgress(ImageWriter source,
-                                      float percentageDone) { }
-
-        @Override
-        public void thumbnailStarted(ImageWriter source,
-                                     int imageIndex, int thumbnailIndex) { }
-
-        @Override
-        public void writeAborted(ImageWriter source) { }
-      });
-
-      try (ImageOutputStream os = ImageIO.createImageOutputStream(f)) {
-        if (os == null) {
-          throw new IOException("Failed to write file " + f.getAbsolutePath());
+        while (!pending.isEmpty()) {
+          enc.write(pending.poll().get());
+          setProgress(100 * ++done / bands);
         }
 
-        iw.setOutput(os);
-        iw.write(img);
+        enc.close();
+        ok = true;
       }
       finally {
-        iw.dispose();
-      }
-    }
-
-    @Override
-    public Void doInBackground() throws IOException {
-      setProgress(0);
-
-      int tw = w;
-      int th = h;
-      BufferedImage img = null;
-
-      // ensure that the size of the image data array (4 bytes per pixel)
-      // does not exceed the maximum array size, 2^31-1 elements;
-      // otherwise we'll overflow an int and have a negative array size
-      while ((long)tw * th > Integer.MAX_VALUE / 4) {
-        if (tw > th) {
-          tw = (int) Math.ceil(tw / 2.0);
-        }
-        else {
-          th = (int) Math.ceil(th / 2.0);
+        for (final Future<byte[]> f : pending) {
+          f.cancel(true);
         }
-      }
+        exec.shutdownNow();
 
-      // find a size of BufferedImage we can allocate successfully
-      while (img == null) {
-        try {
-          img = new BufferedImage(tw, th, BufferedImage.TYPE_INT_ARGB);
-        }
-        catch (OutOfMemoryError e) {
-          if (tw > th) {
-            tw = (int) Math.ceil(tw / 2.0);
+        if (!ok) {
+          // remove the partial file, however we failed
+          try {
+            out.close();
           }
-          else {
-            th = (int) Math.ceil(th / 2.0);
+          catch (IOException ignore) {
+            // We're already failing
           }
-        }
-      }
-
-      if (tw == w && th == h) {
-        // write the whole map as one image
-        tiles = 1;
-        writeImage(file, img, new Rectangle(0, 0, w, h));
-      }
-      else {
-        // get the base name of the files to write
-        final String base;
-        final String suffix;
-        final String s = file.getName();
-        if (s.endsWith(".png")) { //NON-NLS
-          base = s.substring(0, s.lastIndexOf('.'));
-          suffix = ".png"; //NON-NLS
-        }
-        else {
-          base = s;
-          suffix = "";
-        }
-
-        // calculate total tiles
-        final int tcols = (int) Math.ceil((double) w / tw);
-        final int trows = (int) Math.ceil((double) h / th);
-
-        tiles = tcols * trows;
-
-        // tile across the map with images of size tw by th.
-        for (int tx = 0; tx < tcols; ++tx) {
-          for (int ty = 0; ty < trows; ++ty) {
-            final File f = new File(file.getParent(),
-              base + "." + tx + "." + ty + suffix);
 
-            final Rectangle r = new Rectangle(
-              tw * tx,
-              th * ty,
-              Math.min(tw, w - tw * tx),
-              Math.min(th, h - th * ty)
-            );
-
-            writeImage(f, img, r);
-            ++tilesDone;
+          try {
+            Files.deleteIfExists(file.toPath());
+          }
+          catch (IOException ignore) {
+            // We're already failing
           }
         }
       }
@@ -418,8 +375,8 @@ public class ImageSaver extends AbstractToolbarItem {
         get();
       }
       catch (CancellationException e) {
-        // on cancellation, remove all files we created
-        for (final File f : files) f.delete();
+        // on cancellation, remove the file we created
+        file.delete();
       }
       catch (InterruptedException e) {
         ErrorDialog.bug(e);
@@ -430,15 +387,12 @@ public class ImageSaver extends AbstractToolbarItem {
         // Unwrap until we hit a cause which is not an ExecutionException
         while ((c = c.getCause()) instanceof ExecutionException); // NOPMD
 
+        // doInBackground has already removed the partial file
         if (c instanceof IOException) {
-          WriteErrorDialog.error(e, (IOException) c, files.get(files.size() - 1));
-        }
-        else if (c instanceof InterruptedException) {
-          // This is thrown by the inner imageop when the task is cancelled.
-          // on cancellation, remove all files we created
-          for (final File f : files) f.delete();
+          WriteErrorDialog.error(e, (IOException) c, file);
         }
-        else {
+        else if (!(c instanceof InterruptedException)) {
+          // InterruptedException is thrown while waiting for a band when the task is cancelled
           ErrorDialog.bug(e);
         }
       }
@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module.map;
+
+import VASSAL.build.module.Map;
+import VASSAL.build.module.properties.MutableProperty;
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.Deck;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Stack;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Buckets the pieces and stacks on a {@link Map} by the Zone and Location names of the pieces they contain
+ * and by their position, so that a Global Key Command targeting a particular Zone, Location or X/Y position
+ * need only visit the pieces which are there.
+ *
+ * The buckets hold the top-level members of the map's {@link PieceCollection}; a Stack or Deck is in the
+ * bucket of every Zone and Location name held by one of its pieces. Pieces and stacks are marked as changed
+ * when they move, or when pieces are added to or removed from a stack, and are re-bucketed when the index
+ * is next consulted. Changing the map's boards invalidates every bucket.
+ *
+ * The buckets are only used to narrow a search: callers should still check the properties of each piece.
+ *
+ * The index also keeps the bounds of the shape of each piece and stack on a grid, so that finding the piece
+ * under a point (e.g. when clicking on the map) need only consider the pieces near it. A piece or stack has
+ * its bounds worked out again when it moves or its contents change, as above, when the state of one of its
+ * pieces changes, or when a stack is expanded or collapsed. Since shapes may also depend upon the player's side
+ * and upon Global Properties, all bounds are worked out again after a change of either.
+ */
+public class LocationIndex {
+
+  /**
+   * Size of the squares of the grid on which shape bounds are kept
+   */
+  private static final int CELL_SIZE = 128;
+
+  /**
+   * A shape covering more squares than this is kept aside, rather than in each square
+   */
+  private static final int MAX_CELLS = 64;
+
+  private final Map map;
+
+  private final java.util.Map<String, Set<GamePiece>> byZone = new HashMap<>();
+  private final java.util.Map<String, Set<GamePiece>> byLocation = new HashMap<>();
+  private final java.util.Map<Point, Set<GamePiece>> byPosition = new HashMap<>();
+
+  /**
+   * Every piece or stack on the map -> the keys under which it is bucketed (null until it has been bucketed)
+   */
+  private final java.util.Map<GamePiece, Keys> entries = new IdentityHashMap<>();
+
+  /**
+   * Pieces or stacks which may have moved since they were bucketed
+   */
+  private final Set<GamePiece> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * True if the buckets must be rebuilt from the pieces on the map
+   */
+  private boolean invalid = true;
+
+  /**
+   * Every piece or stack with a non-empty shape -> the bounds of its shape on the map
+   */
+  private final java.util.Map<GamePiece, Rectangle> shapeBounds = new IdentityHashMap<>();
+  private final java.util.Map<Point, Set<GamePiece>> byCell = new HashMap<>();
+  private final Set<GamePiece> oversized = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * Pieces or stacks whose shapes may have changed since their bounds were worked out
+   */
+  private final Set<GamePiece> reshaped = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * True if the bounds of every shape must be worked out again
+   */
+  private boolean shapesInvalid = true;
+
+  /**
+   * The count of Global Property changes when the shape bounds were last brought up to date
+   */
+  private long propertyChanges;
+
+  private static class Keys {
+    final Collection<String> zones;
+    final Collection<String> locations;
+    final Point position;
+
+    Keys(Collection<String> zones, Collection<String> locations, Point position) {
+      this.zones = zones;
+      this.locations = locations;
+      this.position = position;
+    }
+  }
+
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Is told of the changes to the pieces on the map of which the index hears, e.g. to keep a picture of the map
+   * up to date. It is told whether or not the index itself has yet been built.
+   */
+  public interface Listener {
+    /**
+     * A top-level piece or stack may have moved, changed its appearance or contents, or been added to or removed
+     * from the map
+     * @param p the piece or stack
+     */
+    void pieceChanged(GamePiece p);
+
+    /**
+     * Any of the pieces on the map may have changed, e.g. because the boards or the player's side have changed
+     */
+    void allChanged();
+  }
+
+  public LocationIndex(Map map) {
+    this.map = map;
+  }
+
+  public void addListener(Listener l) {
+    listeners.add(l);
+  }
+
+  public void removeListener(Listener l) {
+    listeners.remove(l);
+  }
+
+  private void fireChanged(GamePiece p) {
+    for (final Listener l : listeners) {
+      l.pieceChanged(p);
+    }
+  }
+
+  /**
+   * Discards all buckets, which will be rebuilt from the pieces on the map when next needed.
+   */
+  public void invalidate() {
+    invalid = true;
+    byZone.clear();
+    byLocation.clear();
+    byPosition.clear();
+    entries.clear();
+    changed.clear();
+    invalidateShapes();
+  }
+
+  /**
+   * Discards the bounds of all shapes, which will be worked out again when next needed.
+   */
+  public void invalidateShapes() {
+    for (final Listener l : listeners) {
+      l.allChanged();
+    }
+    shapesInvalid = true;
+    shapeBounds.clear();
+    byCell.clear();
+    oversized.clear();
+    reshaped.clear();
+  }
+
+  /**
+   * A piece or stack has been added to the map.
+   * @param p the piece or stack
+   */
+  public void pieceAdded(GamePiece p) {
+    fireChanged(p);
+    if (invalid) {
+      return;
+    }
+    if (!entries.containsKey(p)) {
+      entries.put(p, null);
+    }
+    changed.add(p);
+    reshaped.add(p);
+  }
+
+  /**
+   * A piece or stack has been removed from the map.
+   * @param p the piece or stack
+   */
+  public void pieceRemoved(GamePiece p) {
+    fireChanged(p);
+    if (invalid) {
+      return;
+    }
+    final Keys old = entries.remove(p);
+    if (old != null) {
+      unbucket(p, old);
+    }
+    changed.remove(p);
+    unindexShape(p);
+    reshaped.remove(p);
+  }
+
+  /**
+   * A piece or stack on the map may have moved, or had its contents changed.
+   * @param p the top-level piece or stack
+   */
+  public void pieceChanged(GamePiece p) {
+    fireChanged(p);
+    if (!invalid && entries.containsKey(p)) {
+      changed.add(p);
+      reshaped.add(p);
+    }
+  }
+
+  /**
+   * The shape of a piece or stack on the map may have changed, without it having moved.
+   * @param p the top-level piece or stack
+   */
+  public void shapeChanged(GamePiece p) {
+    fireChanged(p);
+    if (!invalid && entries.containsKey(p)) {
+      reshaped.add(p);
+    }
+  }
+
+  /**
+   * @param zone Zone name
+   * @return the pieces and stacks on the map holding pieces in the Zone
+   */
+  public Set<GamePiece> getPiecesInZone(String zone) {
+    update();
+    return copy(byZone.get(zone));
+  }
+
+  /**
+   * @param location Location name
+   * @return the pieces and stacks on the map holding pieces at the Location
+   */
+  public Set<GamePiece> getPiecesAtLocation(String location) {
+    update();
+    return copy(byLocation.get(location));
+  }
+
+  /**
+   * @param pos position on the map
+   * @return the pieces and stacks on the map at exactly that position
+   */
+  public Set<GamePiece> getPiecesAt(Point pos) {
+    update();
+    return copy(byPosition.get(pos));
+  }
+
+  /**
+   * @param pt point on the map
+   * @return the pieces and stacks on the map whose shapes may contain the point; these are the only ones a
+   * {@link VASSAL.counters.PieceFinder} which selects by shape need consider
+   */
+  public Set<GamePiece> getPiecesNear(Point pt) {
+    updateShapes();
+    final Set<GamePiece> s = Collections.newSetFromMap(new IdentityHashMap<>());
+    addNear(byCell.get(new Point(Math.floorDiv(pt.x, CELL_SIZE), Math.floorDiv(pt.y, CELL_SIZE))), pt, s);
+    addNear(oversized, pt, s);
+    return s;
+  }
+
+  private void addNear(Set<GamePiece> cell, Point pt, Set<GamePiece> near) {
+    if (cell != null) {
+      for (final GamePiece p : cell) {
+        if (shapeBounds.get(p).contains(pt)) {
+          near.add(p);
+        }
+      }
+    }
+  }
+
+  private static Set<GamePiece> copy(Set<GamePiece> bucket) {
+    // A copy, since commands sent to the pieces may well move them between buckets
+    final Set<GamePiece> s = Collections.newSetFromMap(new IdentityHashMap<>());
+    if (bucket != null) {
+      s.addAll(bucket);
+    }
+    return s;
+  }
+
+  /**
+   * Re-buckets any pieces which have changed, or everything if the index has been invalidated.
+   */
+  private void update() {
+    if (invalid) {
+      invalid = false;
+      for (final GamePiece p : map.getAllPieces()) {
+        entries.put(p, bucket(p));
+      }
+      return;
+    }
+
+    if (changed.isEmpty()) {
+      return;
+    }
+
+    final List<GamePiece> toUpdate = new ArrayList<>(changed);
+    changed.clear();
+
+    for (final GamePiece p : toUpdate) {
+      if (!entries.containsKey(p)) {
+        continue;
+      }
+      final Keys old = entries.get(p);
+      if (old != null) {
+        unbucket(p, old);
+      }
+      entries.put(p, bucket(p));
+    }
+  }
+
+  /**
+   * Works out again the bounds of any shapes which have changed, or of all of them if they have been invalidated.
+   */
+  private void updateShapes() {
+    update();
+
+    final long n = MutableProperty.Impl.getChangeCount();
+    if (n != propertyChanges) {
+      propertyChanges = n;
+      invalidateShapes();
+    }
+
+    if (shapesInvalid) {
+      shapesInvalid = false;
+      reshaped.clear();
+      for (final GamePiece p : new ArrayList<>(entries.keySet())) {
+        indexShape(p);
+      }
+      return;
+    }
+
+    if (reshaped.isEmpty()) {
+      return;
+    }
+
+    final List<GamePiece> toUpdate = new ArrayList<>(reshaped);
+    reshaped.clear();
+
+    for (final GamePiece p : toUpdate) {
+      if (entries.containsKey(p)) {
+        unindexShape(p);
+        indexShape(p);
+      }
+    }
+  }
+
+  private void indexShape(GamePiece p) {
+    final Rectangle r = shapeBoundsOf(p);
+    if (r == null || r.isEmpty()) {
+      return;
+    }
+    // A point on the edge of a shape may fall just outside its integer bounds
+    r.grow(1, 1);
+    shapeBounds.put(p, r);
+
+    final int x0 = Math.floorDiv(r.x, CELL_SIZE);
+    final int y0 = Math.floorDiv(r.y, CELL_SIZE);
+    final int x1 = Math.floorDiv(r.x + r.width, CELL_SIZE);
+    final int y1 = Math.floorDiv(r.y + r.height, CELL_SIZE);
+    if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CELLS) {
+      oversized.add(p);
+      return;
+    }
+
+    for (int x = x0; x <= x1; ++x) {
+      for (int y = y0; y <= y1; ++y) {
+        add(byCell, new Point(x, y), p);
+      }
+    }
+  }
+
+  private void unindexShape(GamePiece p) {
+    final Rectangle r = shapeBounds.remove(p);
+    if (r == null || oversized.remove(p)) {
+      return;
+    }
+
+    final int x0 = Math.floorDiv(r.x, CELL_SIZE);
+    final int y0 = Math.floorDiv(r.y, CELL_SIZE);
+    final int x1 = Math.floorDiv(r.x + r.width, CELL_SIZE);
+    final int y1 = Math.floorDiv(r.y + r.height, CELL_SIZE);
+    for (int x = x0; x <= x1; ++x) {
+      for (int y = y0; y <= y1; ++y) {
+        remove(byCell, new Point(x, y), p);
+      }
+    }
+  }
+
+  /**
+   * @return the bounds on the map of the shape by which a {@link VASSAL.counters.PieceFinder} finds a piece or stack
+   */
+  private Rectangle shapeBoundsOf(GamePiece p) {
+    final Point pos = p.getPosition();
+    if (p instanceof Stack && !(p instanceof Deck)) {
+      // As PieceFinder does, use the shapes of the pieces as laid out in the stack
+      final Stack s = (Stack) p;
+      final Shape[] shapes = new Shape[s.getPieceCount()];
+      map.getStackMetrics().getContents(s, null, shapes, null, pos.x, pos.y);
+      Rectangle r = null;
+      for (final Shape shape : shapes) {
+        if (shape != null) {
+          if (r == null) {
+            r = shape.getBounds();
+          }
+          else {
+            r.add(shape.getBounds());
+          }
+        }
+      }
+      return r;
+    }
+
+    final Rectangle r = p.getShape().getBounds();
+    r.translate(pos.x, pos.y);
+    return r;
+  }
+
+  private Keys bucket(GamePiece p) {
+    final List<GamePiece> members = p instanceof Stack ? ((Stack) p).asList() : List.of(p);
+
+    // Each piece's own properties are used, since some (e.g. Mat Cargo) report a Zone other than that at their position
+    final Set<String> zones = new LinkedHashSet<>();
+    final Set<String> locations = new LinkedHashSet<>();
+    for (final GamePiece member : members) {
+      final Object zone = member.getProperty(BasicPiece.CURRENT_ZONE);
+      if (zone instanceof String) {
+        zones.add((String) zone);
+      }
+      final Object location = member.getProperty(BasicPiece.LOCATION_NAME);
+      if (location instanceof String) {
+        locations.add((String) location);
+      }
+    }
+
+    final Keys k = new Keys(zones, locations, p.getPosition());
+    for (final String zone : k.zones) {
+      add(byZone, zone, p);
+    }
+    for (final String location : k.locations) {
+      add(byLocation, location, p);
+    }
+    add(byPosition, k.position, p);
+    return k;
+  }
+
+  private void unbucket(GamePiece p, Keys k) {
+    for (final String zone : k.zones) {
+      remove(byZone, zone, p);
+    }
+    for (final String location : k.locations) {
+      remove(byLocation, location, p);
+    }
+    remove(byPosition, k.position, p);
+  }
+
+  private static <K> void add(java.util.Map<K, Set<GamePiece>> buckets, K key, GamePiece p) {
+    buckets.computeIfAbsent(key, x -> Collections.newSetFromMap(new IdentityHashMap<>())).add(p);
+  }
+
+  private static <K> void remove(java.util.Map<K, Set<GamePiece>> buckets, K key, GamePiece p) {
+    final Set<GamePiece> bucket = buckets.get(key);
+    if (bucket != null) {
+      bucket.remove(p);
+      if (bucket.isEmpty()) {
+        buckets.remove(key);
+      }
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module.map;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import VASSAL.build.module.Map;
+import VASSAL.build.module.properties.MutableProperty;
+import VASSAL.counters.GamePiece;
+import VASSAL.tools.image.ImageUtils;
+
+/**
+ * A picture of the pieces on a {@link Map} at the small scale of its {@link GlobalMap}, so that the overview
+ * need not draw every piece each time the map is repainted.
+ *
+ * The picture is kept up to date from the changes of which the map's {@link LocationIndex} hears: when a piece
+ * or stack moves or changes, only the parts of the picture where it was and where it now is are drawn again.
+ * The whole picture is drawn again when the pieces on the map are reordered, when a Global Property changes,
+ * or when the scale or size of the overview changes.
+ */
+public class OverviewImage implements LocationIndex.Listener {
+  /** Pictures larger than this, in either direction, are not kept */
+  public static final int MAX_DIMENSION = 4096;
+
+  /** If more parts than this need drawing again, the whole picture is drawn again instead */
+  private static final int MAX_REGIONS = 32;
+
+  // Allow for traits which round outward from their bounding box
+  private static final int MARGIN = 2;
+
+  private final Map map;
+
+  private BufferedImage image;
+  private double zoom;
+  private Point origin;
+
+  /**
+   * The pieces and stacks in the picture, in drawing order
+   */
+  private GamePiece[] pieces = new GamePiece[0];
+
+  /**
+   * Every piece or stack in the picture -> where it is drawn
+   */
+  private final java.util.Map<GamePiece, Rectangle> drawn = new IdentityHashMap<>();
+
+  // Changes heard of since the picture was last brought up to date; these may come from any thread
+  private final Set<GamePiece> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+  private boolean allChanged = true;
+
+  private long propertyChanges;
+  private long piecesDrawn;
+
+  public OverviewImage(Map map) {
+    this.map = map;
+  }
+
+  @Override
+  public synchronized void pieceChanged(GamePiece p) {
+    changed.add(p);
+  }
+
+  @Override
+  public synchronized void allChanged() {
+    allChanged = true;
+    changed.clear();
+  }
+
+  /**
+   * Draws the pieces on the map, as drawing each of them at the given zoom would.
+   *
+   * @param g where to draw
+   * @param width width of the overview, at the given zoom
+   * @param height height of the overview, at the given zoom
+   * @param origin the point on the map drawn at (0, 0)
+   * @param zoom scale at which to draw
+   * @return false if the overview is too large to keep a picture of, in which case nothing was drawn
+   */
+  public boolean draw(Graphics g, int width, int height, Point origin, double zoom) {
+    if (width > MAX_DIMENSION || height > MAX_DIMENSION || width <= 0 || height <= 0) {
+      image = null;
+      return false;
+    }
+
+    final List<GamePiece> changes;
+    boolean all;
+    synchronized (this) {
+      all = allChanged;
+      allChanged = false;
+      changes = new ArrayList<>(changed);
+      changed.clear();
+    }
+
+    final long n = MutableProperty.Impl.getChangeCount();
+    if (n != propertyChanges) {
+      propertyChanges = n;
+      all = true;
+    }
+
+    if (image == null || image.getWidth() != width || image.getHeight() != height ||
+        this.zoom != zoom || !origin.equals(this.origin)) {
+      image = ImageUtils.createCompatibleTranslucentImage(width, height);
+      this.zoom = zoom;
+      this.origin = new Point(origin);
+      all = true;
+    }
+
+    final GamePiece[] now = map.getPieces();
+    if (!all) {
+      all = !addReordered(now, changes);
+    }
+    pieces = now;
+
+    if (all) {
+      drawn.clear();
+      for (final GamePiece p : pieces) {
+        final Rectangle r = boundsOf(p);
+        if (r != null) {
+          drawn.put(p, r);
+        }
+      }
+      redraw(g, new Rectangle(0, 0, width, height), true);
+    }
+    else if (!changes.isEmpty()) {
+      final Set<GamePiece> present = identitySet(pieces);
+      final List<Rectangle> regions = new ArrayList<>();
+      for (final GamePiece p : changes) {
+        final Rectangle old = drawn.remove(p);
+        if (old != null) {
+          regions.add(old);
+        }
+        if (present.contains(p)) {
+          final Rectangle r = boundsOf(p);
+          if (r != null) {
+            drawn.put(p, r);
+            regions.add(r);
+          }
+        }
+      }
+
+      if (regions.size() > MAX_REGIONS) {
+        redraw(g, new Rectangle(0, 0, width, height), true);
+      }
+      else {
+        for (final Rectangle r : regions) {
+          redraw(g, r, false);
+        }
+      }
+    }
+
+    g.drawImage(image, 0, 0, null);
+    return true;
+  }
+
+  /**
+   * Notes the pieces added to or removed from the map since the picture was drawn
+   * @return false if the pieces which remain have been put in a different order
+   */
+  private boolean addReordered(GamePiece[] now, List<GamePiece> changes) {
+    final Set<GamePiece> before = identitySet(pieces);
+    final Set<GamePiece> after = identitySet(now);
+
+    int i = 0;
+    for (final GamePiece p : pieces) {
+      if (!after.contains(p)) {
+        changes.add(p);
+        continue;
+      }
+      while (i < now.length && !before.contains(now[i])) {
+        changes.add(now[i++]);
+      }
+      if (i == now.length || now[i++] != p) {
+        return false;
+      }
+    }
+    for (; i < now.length; ++i) {
+      changes.add(now[i]);
+    }
+    return true;
+  }
+
+  private static Set<GamePiece> identitySet(GamePiece[] pieces) {
+    final Set<GamePiece> s = Collections.newSetFromMap(new IdentityHashMap<>(pieces.length * 2));
+    Collections.addAll(s, pieces);
+    return s;
+  }
+
+  /**
+   * @return where a piece or stack is drawn in the picture, or null if nowhere
+   */
+  private Rectangle boundsOf(GamePiece p) {
+    final Rectangle b = p.boundingBox();
+    if (b.isEmpty()) {
+      return null;
+    }
+    final Point pos = p.getPosition();
+    final int x0 = (int) Math.floor((pos.x + b.x - origin.x) * zoom) - MARGIN;
+    final int y0 = (int) Math.floor((pos.y + b.y - origin.y) * zoom) - MARGIN;
+    final int x1 = (int) Math.ceil((pos.x + b.x + b.width - origin.x) * zoom) + MARGIN;
+    final int y1 = (int) Math.ceil((pos.y + b.y + b.height - origin.y) * zoom) + MARGIN;
+    return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+  }
+
+  /**
+   * Clears part of the picture, and draws again the pieces which overlap it
+   */
+  private void redraw(Graphics g, Rectangle region, boolean all) {
+    final Graphics2D g2d = image.createGraphics();
+    try {
+      if (g instanceof Graphics2D) {
+        g2d.setRenderingHints(((Graphics2D) g).getRenderingHints());
+      }
+      g2d.setClip(region);
+      g2d.setComposite(AlphaComposite.Clear);
+      g2d.fillRect(region.x, region.y, region.width, region.height);
+      g2d.setComposite(AlphaComposite.SrcOver);
+
+      for (final GamePiece p : pieces) {
+        final Rectangle r = drawn.get(p);
+        if (r != null && (all || r.intersects(region))) {
+          final Point pos = p.getPosition();
+          // As GlobalMap.mapToDrawing does
+          p.draw(g2d, (int) ((pos.x - origin.x) * zoom), (int) ((pos.y - origin.y) * zoom), null, zoom);
+          ++piecesDrawn;
+        }
+      }
+    }
+    finally {
+      g2d.dispose();
+    }
+  }
+
+  /**
+   * @return the number of times a piece or stack has been drawn into the picture
+   */
+  public long getPiecesDrawn() {
+    return piecesDrawn;
+  }
+}
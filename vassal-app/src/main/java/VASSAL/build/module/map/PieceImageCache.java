@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module.map;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import VASSAL.counters.Decorator;
+import VASSAL.counters.Footprint;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Properties;
+import VASSAL.tools.image.ImageUtils;
+
+/**
+ * Pre-rendered images of whole pieces, so that a piece which has not changed since it was last painted
+ * can be drawn with a single image copy rather than by having each of its traits draw itself.
+ *
+ * An image is kept for each piece and zoom level, and is rendered again whenever the piece's
+ * {@link Properties#VISIBLE_STATE} changes; traits whose appearance can change include what decides it in
+ * their visible state. The least recently drawn images are discarded once their total size exceeds the
+ * budget. Pieces leaving movement trails, and pieces too large to be worth keeping an image of, are
+ * always drawn directly.
+ *
+ * Every {@link VASSAL.build.module.Map} draws from the one instance given by {@link #getInstance}, so that
+ * the budget is for all of them together.
+ */
+public class PieceImageCache {
+  /** Pieces drawn larger than this, in either direction, are not cached */
+  public static final int MAX_DIMENSION = 1024;
+
+  // Allow for traits which round outward from their bounding box
+  private static final int MARGIN = 1;
+
+  private static final PieceImageCache instance = new PieceImageCache();
+
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // The keys of each piece's images, so that they can be removed without going through all of them
+  private final Map<GamePiece, Set<Key>> keysByPiece = new IdentityHashMap<>();
+  private final long budget;
+  private long size;
+
+  private long hits;
+  private long misses;
+
+  public PieceImageCache() {
+    this(Runtime.getRuntime().maxMemory() / 8);
+  }
+
+  /**
+   * @param budget the most bytes of images to keep
+   */
+  public PieceImageCache(long budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * @return the cache shared by all maps, which may keep up to an eighth of the maximum heap
+   */
+  public static PieceImageCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Draws a piece as {@link GamePiece#draw} would, from its cached image if it has not changed.
+   */
+  public void draw(GamePiece piece, Graphics g, int x, int y, Component obs, double zoom) {
+    if (Decorator.getDecorator(piece, Footprint.class) != null) {
+      piece.draw(g, x, y, obs, zoom);
+      return;
+    }
+
+    final String state = String.valueOf(piece.getProperty(Properties.VISIBLE_STATE));
+    final Key key = new Key(piece, zoom);
+    Entry e;
+    synchronized (this) {
+      e = entries.get(key);
+      if (e != null && e.state.equals(state)) {
+        ++hits;
+      }
+      else {
+        ++misses;
+        e = null;
+      }
+    }
+
+    if (e == null) {
+      // Render outside the lock, as it may mean loading images
+      e = render(piece, state, g, zoom);
+      if (e == null) {
+        piece.draw(g, x, y, obs, zoom);
+        return;
+      }
+      put(key, e);
+    }
+
+    g.drawImage(e.image, x + e.x, y + e.y, null);
+  }
+
+  private Entry render(GamePiece piece, String state, Graphics g, double zoom) {
+    final Rectangle b = piece.boundingBox();
+    if (b.isEmpty()) {
+      return null;
+    }
+
+    final int x0 = (int) Math.floor(b.x * zoom) - MARGIN;
+    final int y0 = (int) Math.floor(b.y * zoom) - MARGIN;
+    final int w = (int) Math.ceil((b.x + b.width) * zoom) + MARGIN - x0;
+    final int h = (int) Math.ceil((b.y + b.height) * zoom) + MARGIN - y0;
+    if (w > MAX_DIMENSION || h > MAX_DIMENSION) {
+      return null;
+    }
+
+    final BufferedImage image = ImageUtils.createCompatibleTranslucentImage(w, h);
+    final Graphics2D g2d = image.createGraphics();
+    if (g instanceof Graphics2D) {
+      g2d.setRenderingHints(((Graphics2D) g).getRenderingHints());
+    }
+    // No observer, so that the traits' images are ready before they are drawn
+    piece.draw(g2d, -x0, -y0, null, zoom);
+    g2d.dispose();
+
+    return new Entry(state, x0, y0, image);
+  }
+
+  private synchronized void put(Key key, Entry e) {
+    final Entry old = entries.put(key, e);
+    if (old != null) {
+      size -= old.getSize();
+    }
+    else {
+      keysByPiece.computeIfAbsent(key.piece, k -> new HashSet<>()).add(key);
+    }
+    size += e.getSize();
+
+    final Iterator<Map.Entry<Key, Entry>> i = entries.entrySet().iterator();
+    while (size > budget && i.hasNext()) {
+      final Map.Entry<Key, Entry> me = i.next();
+      size -= me.getValue().getSize();
+      i.remove();
+      unindex(me.getKey());
+    }
+  }
+
+  private void unindex(Key key) {
+    final Set<Key> keys = keysByPiece.get(key.piece);
+    if (keys != null && keys.remove(key) && keys.isEmpty()) {
+      keysByPiece.remove(key.piece);
+    }
+  }
+
+  /**
+   * Discards the images of a piece.
+   */
+  public synchronized void remove(GamePiece piece) {
+    final Set<Key> keys = keysByPiece.remove(piece);
+    if (keys != null) {
+      for (final Key k : keys) {
+        size -= entries.remove(k).getSize();
+      }
+    }
+  }
+
+  /**
+   * Discards all images.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    keysByPiece.clear();
+    size = 0;
+  }
+
+  /**
+   * @return the number of images held
+   */
+  public synchronized int getImageCount() {
+    return entries.size();
+  }
+
+  /**
+   * @return the bytes of images held
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the number of times a piece was drawn from its cached image
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of times a piece had to be drawn by its traits
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  private static class Key {
+    private final GamePiece piece;
+    private final double zoom;
+
+    Key(GamePiece piece, double zoom) {
+      this.piece = piece;
+      this.zoom = zoom;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key k = (Key) o;
+      return piece == k.piece && Double.compare(zoom, k.zoom) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(piece) + Double.hashCode(zoom);
+    }
+  }
+
+  private static class Entry {
+    private final String state;
+    private final int x;
+    private final int y;
+    private final BufferedImage image;
+
+    Entry(String state, int x, int y, BufferedImage image) {
+      this.state = state;
+      this.x = x;
+      this.y = y;
+      this.image = image;
+    }
+
+    long getSize() {
+      return 4L * image.getWidth() * image.getHeight();
+    }
+  }
+}
@@ -73,6 +73,7 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Cursor;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.Point;
 import java.awt.Rectangle;
@@ -303,6 +304,14 @@ public class PieceMover extends AbstractBuildable
       return mat;
     }
 
+    /**
+     * On a snapping grid, a piece or stack is selected by its position, which may lie outside its shape
+     */
+    @Override
+    public boolean selectsByShape() {
+      return false;
+    }
+
     /**
      * When a deck exists on the map, and we need to find out if our piece was dragged to the deck
      * @param d Potential target {@link Deck}
@@ -1537,6 +1546,11 @@ public class PieceMover extends AbstractBuildable
      * there can be only one "true" listener.
      */
     public static DropTarget makeDropTarget(Component theComponent, int dndContants, DropTargetListener dropTargetListener) {
+      // There is nothing to drop onto without a display
+      if (GraphicsEnvironment.isHeadless()) {
+        return null;
+      }
+
       if (dropTargetListener != null) {
         DragHandler.getTheDragHandler()
                    .dropTargetListeners.put(theComponent, dropTargetListener);
@@ -26,7 +26,12 @@ import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.event.KeyEvent;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.WeakHashMap;
 
 import javax.swing.KeyStroke;
 
@@ -36,6 +41,8 @@ import VASSAL.build.Buildable;
 import VASSAL.build.GameModule;
 import VASSAL.build.module.GameState;
 import VASSAL.build.module.Map;
+import VASSAL.build.module.PlayerRoster;
+import VASSAL.build.module.PropertyIndex;
 import VASSAL.build.module.documentation.HelpFile;
 import VASSAL.command.AddPiece;
 import VASSAL.command.Command;
@@ -53,6 +60,7 @@ import VASSAL.counters.Properties;
 import VASSAL.counters.Stack;
 import VASSAL.i18n.Resources;
 import VASSAL.tools.ErrorDialog;
+import VASSAL.tools.image.ImageUtils;
 
 /**
  * StackMetrics provides the [Stacking options] component of a {@link Map}. It encapsulates information on how to draw
@@ -91,8 +99,15 @@ public class StackMetrics extends AbstractConfigurable {
 
   protected Map map;
 
+  // Stack layouts, kept until the stack changes or the state of any piece may have changed
+  private final java.util.Map<Stack, Layout> layouts = Collections.synchronizedMap(new WeakHashMap<>());
+
+  // Whether drawUnexpanded() draws blanks as we do, so that they can be drawn from an image
+  private final boolean plainBlanks = !overridesDrawUnexpanded(getClass());
+
   @Override
   public void setAttribute(String name, Object value) {
+    layouts.clear();
     if (EXSEP_X.equals(name)) {
       if (value instanceof String) {
         try {
@@ -259,8 +274,7 @@ public class StackMetrics extends AbstractConfigurable {
    */
   public void draw(Stack stack, Graphics g, int x, int y, Component obs, double zoom) {
     final Highlighter highlighter = stack.getMap() == null ? BasicPiece.getHighlighter() : stack.getMap().getHighlighter();
-    final Point[] positions = new Point[stack.getPieceCount()];
-    getContents(stack, positions, null, null, x, y);
+    final Point[] positions = getLayout(stack).positions;
 
     for (final PieceIterator e = new PieceIterator(stack.getPiecesIterator(),
                                              unselectedVisible);
@@ -268,9 +282,9 @@ public class StackMetrics extends AbstractConfigurable {
 
       final GamePiece next = e.nextPiece();
       final int index = stack.indexOf(next);
-      if (index >= 0) { //BR// Bounds-check index as a bandaid against getting drawn during e.g. a screenshot or loadgame
-        final int nextX = x + (int) (zoom * (positions[index].x - x));
-        final int nextY = y + (int) (zoom * (positions[index].y - y));
+      if (index >= 0 && index < positions.length) { //BR// Bounds-check index as a bandaid against getting drawn during e.g. a screenshot or loadgame
+        final int nextX = x + (int) (zoom * positions[index].x);
+        final int nextY = y + (int) (zoom * positions[index].y);
         if (stack.isExpanded() || !e.hasMoreElements()) {
           next.draw(g, nextX, nextY, obs, zoom);
         }
@@ -284,9 +298,9 @@ public class StackMetrics extends AbstractConfigurable {
          .filter(gamePiece -> selectedVisible.accept(gamePiece))
          .forEach(gamePiece -> {
            final int index = stack.indexOf(gamePiece);
-           if (index >= 0) { //BR// Bounds-check index as a bandaid against getting drawn during e.g. a screenshot or loadgame
-             final int nextX = x + (int) (zoom * (positions[index].x - x));
-             final int nextY = y + (int) (zoom * (positions[index].y - y));
+           if (index >= 0 && index < positions.length) { //BR// Bounds-check index as a bandaid against getting drawn during e.g. a screenshot or loadgame
+             final int nextX = x + (int) (zoom * positions[index].x);
+             final int nextY = y + (int) (zoom * positions[index].y);
              gamePiece.draw(g, nextX, nextY, obs, zoom);
              highlighter.draw(gamePiece, g, nextX, nextY, obs, zoom);
            }
@@ -309,22 +323,35 @@ public class StackMetrics extends AbstractConfigurable {
     final Component view = map.getView();
     final Highlighter highlighter = map.getHighlighter();
     final Point mapLocation = map.drawingToMap(location, os_scale);
+    final Layout layout = getLayout(stack);
+    final Point[] positions = layout.positions;
+
+    // The visible region, relative to the stack
     final Rectangle region = visibleRect == null ? null : map.drawingToMap(visibleRect, os_scale);
-    final Point[] positions = new Point[stack.getPieceCount()];
-    final Rectangle[] bounds = region == null ? null : new Rectangle[stack.getPieceCount()];
-    getContents(stack, positions, null, bounds, mapLocation.x, mapLocation.y);
+    if (region != null) {
+      region.translate(-mapLocation.x, -mapLocation.y);
+    }
 
-    for (final PieceIterator e = new PieceIterator(stack.getPiecesIterator(),
-                                             unselectedVisible);
-         e.hasMoreElements();) {
+    // Underneath an unexpanded stack, the blanks are drawn all at once
+    final List<GamePiece> unselected = stack.asList();
+    unselected.removeIf(p -> !unselectedVisible.accept(p));
+    final boolean drawBlanks = !stack.isExpanded() && blankColor != null && plainBlanks && unselected.size() > 1;
+    if (drawBlanks) {
+      final int[] members = new int[unselected.size() - 1];
+      for (int i = 0; i < members.length; ++i) {
+        members[i] = stack.indexOf(unselected.get(i));
+      }
+      drawBlanks(layout, members, g, map, mapLocation, os_scale, zoom);
+    }
 
-      final GamePiece next = e.nextPiece();
+    for (int i = drawBlanks ? unselected.size() - 1 : 0; i < unselected.size(); ++i) {
+      final GamePiece next = unselected.get(i);
       final int index = stack.indexOf(next);
-      if (index >= 0) { //BR// Bounds-check index as a bandaid against getting drawn during e.g. a screenshot or loadgame
-        final Point pt = map.mapToDrawing(positions[index], os_scale);
-        if (bounds == null || isVisible(region, bounds[index])) {
-          if (stack.isExpanded() || !e.hasMoreElements()) {
-            next.draw(g, pt.x, pt.y, view, zoom);
+      if (index >= 0 && index < positions.length) { //BR// Bounds-check index as a bandaid against getting drawn during e.g. a screenshot or loadgame
+        if (region == null || isVisible(region, layout.bounds[index])) {
+          final Point pt = map.mapToDrawing(offset(mapLocation, positions[index]), os_scale);
+          if (stack.isExpanded() || i == unselected.size() - 1) {
+            map.drawPiece(next, g, pt.x, pt.y, view, zoom);
           }
           else {
             drawUnexpanded(next, g, pt.x, pt.y, view, zoom);
@@ -337,14 +364,153 @@ public class StackMetrics extends AbstractConfigurable {
          .filter(gamePiece -> selectedVisible.accept(gamePiece))
          .forEach(gamePiece -> {
            final int index = stack.indexOf(gamePiece);
-           if ((index >= 0) && (bounds == null || isVisible(region, bounds[index]))) {  //BR// Bounds-check index as a bandaid against getting drawn during e.g. a screenshot or loadgame
-             final Point pt = map.mapToDrawing(positions[index], os_scale);
-             gamePiece.draw(g, pt.x, pt.y, view, zoom);
+           if ((index >= 0 && index < positions.length) && (region == null || isVisible(region, layout.bounds[index]))) {  //BR// Bounds-check index as a bandaid against getting drawn during e.g. a screenshot or loadgame
+             final Point pt = map.mapToDrawing(offset(mapLocation, positions[index]), os_scale);
+             map.drawPiece(gamePiece, g, pt.x, pt.y, view, zoom);
              highlighter.draw(gamePiece, g, pt.x, pt.y, view, zoom);
            }
          });
   }
 
+  private static Point offset(Point p, Point offset) {
+    return new Point(p.x + offset.x, p.y + offset.y);
+  }
+
+  /**
+   * Draws the blanks for the given pieces of an unexpanded stack, from an image made the first time they
+   * are drawn at this position and zoom.
+   */
+  private void drawBlanks(Layout layout, int[] members, Graphics g, Map map, Point mapLocation, double os_scale, double zoom) {
+    final Point origin = map.mapToDrawing(mapLocation, os_scale);
+    Blanks blanks = layout.blanks;
+    if (blanks == null || !blanks.matches(members, origin, zoom, blankColor)) {
+      // Draw each blank as drawUnexpanded would, relative to the stack's position
+      final Shape[] shapes = new Shape[members.length];
+      Rectangle r = null;
+      for (int i = 0; i < members.length; ++i) {
+        final Point pt = map.mapToDrawing(offset(mapLocation, layout.positions[members[i]]), os_scale);
+        final AffineTransform t = AffineTransform.getScaleInstance(zoom, zoom);
+        t.translate((pt.x - origin.x) / zoom, (pt.y - origin.y) / zoom);
+        shapes[i] = t.createTransformedShape(layout.pieces[members[i]].getShape());
+        r = r == null ? shapes[i].getBounds() : r.union(shapes[i].getBounds());
+      }
+      // Leave room for the outlines
+      r.grow(1, 1);
+
+      final BufferedImage image = ImageUtils.createCompatibleTranslucentImage(Math.max(r.width, 1), Math.max(r.height, 1));
+      final Graphics2D ig = image.createGraphics();
+      ig.setRenderingHints(((Graphics2D) g).getRenderingHints());
+      ig.translate(-r.x, -r.y);
+      for (final Shape s : shapes) {
+        ig.setColor(blankColor);
+        ig.fill(s);
+        ig.setColor(Color.black);
+        ig.draw(s);
+      }
+      ig.dispose();
+
+      blanks = new Blanks(members, origin, zoom, blankColor, image, r.x, r.y);
+      layout.blanks = blanks;
+    }
+    g.drawImage(blanks.image, origin.x + blanks.x, origin.y + blanks.y, null);
+  }
+
+  /**
+   * @return where the pieces of the stack go relative to its position, worked out again only if the stack
+   * or the state of a piece may have changed since last asked
+   */
+  private Layout getLayout(Stack stack) {
+    final long changes = PropertyIndex.getStateChangeCount();
+    final String side = PlayerRoster.getMySide();
+    Layout layout = layouts.get(stack);
+    if (layout == null || !layout.isCurrent(stack, changes, side)) {
+      final int count = stack.getPieceCount();
+      final Point[] positions = new Point[count];
+      final Rectangle[] bounds = new Rectangle[count];
+      getContents(stack, positions, null, bounds, 0, 0);
+      layout = new Layout(stack, changes, side, positions, bounds);
+      layouts.put(stack, layout);
+    }
+    return layout;
+  }
+
+  private static boolean overridesDrawUnexpanded(Class<?> c) {
+    for (; c != StackMetrics.class; c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod("drawUnexpanded", GamePiece.class, Graphics.class, int.class, int.class, Component.class, double.class); //NON-NLS
+        return true;
+      }
+      catch (NoSuchMethodException e) {
+        // Not in this class
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The positions and bounding boxes of the pieces of a stack relative to its position, as found by
+   * {@link #getContents}, and what they were found from.
+   */
+  private static final class Layout {
+    private final GamePiece[] pieces;
+    private final boolean expanded;
+    private final long changes;
+    private final String side;
+    private final Point[] positions;
+    private final Rectangle[] bounds;
+    private volatile Blanks blanks;
+
+    private Layout(Stack stack, long changes, String side, Point[] positions, Rectangle[] bounds) {
+      pieces = stack.asList().toArray(new GamePiece[0]);
+      expanded = stack.isExpanded();
+      this.changes = changes;
+      this.side = side;
+      this.positions = positions;
+      this.bounds = bounds;
+    }
+
+    private boolean isCurrent(Stack stack, long changes, String side) {
+      if (this.changes != changes || expanded != stack.isExpanded() || !Objects.equals(this.side, side) ||
+          pieces.length != stack.getPieceCount()) {
+        return false;
+      }
+      for (int i = 0; i < pieces.length; ++i) {
+        if (pieces[i] != stack.getPieceAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The blanks for some of the pieces of an unexpanded stack, drawn at a position and zoom.
+   */
+  private static final class Blanks {
+    private final int[] members;
+    private final Point origin;
+    private final double zoom;
+    private final Color color;
+    private final BufferedImage image;
+    private final int x;
+    private final int y;
+
+    private Blanks(int[] members, Point origin, double zoom, Color color, BufferedImage image, int x, int y) {
+      this.members = members;
+      this.origin = origin;
+      this.zoom = zoom;
+      this.color = color;
+      this.image = image;
+      this.x = x;
+      this.y = y;
+    }
+
+    private boolean matches(int[] members, Point origin, double zoom, Color color) {
+      return this.zoom == zoom && this.origin.equals(origin) && this.color.equals(color) &&
+        Arrays.equals(this.members, members);
+    }
+  }
+
   private boolean isVisible(Rectangle region, Rectangle bounds) {
     boolean visible = true;
     if (region != null) {
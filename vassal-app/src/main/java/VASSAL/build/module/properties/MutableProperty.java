@@ -25,6 +25,7 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A container for a String property that can be updated
@@ -81,6 +82,16 @@ public interface MutableProperty {
       return allProperties;
     }
 
+    private static final AtomicLong changes = new AtomicLong();
+
+    /**
+     * @return a count which goes up whenever the value of any Global Property changes, so that what has been
+     * worked out from properties which may depend upon them can be checked for currency
+     */
+    public static long getChangeCount() {
+      return changes.get();
+    }
+
     /**
      * @param source will be the source of any {@link PropertyChangeEvent} fired by this object
      */
@@ -146,6 +157,9 @@ public interface MutableProperty {
       final String oldValue = value;
       final Command c = getChangeCommand(value, newValue);
       value = newValue;
+      if (!newValue.equals(oldValue)) {
+        changes.incrementAndGet();
+      }
       propSupport.firePropertyChange(propertyName, oldValue, newValue);
       GameModule.getGameModule().updateMutableButtonLabels();
       return c;
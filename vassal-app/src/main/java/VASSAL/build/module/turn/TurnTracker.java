@@ -403,17 +403,21 @@ public class TurnTracker extends TurnComponent implements CommandEncoder, GameCo
       )
     );
     if (dock) {
-      turnWindow.setWidget(null);
-      turnWindow.setVisible(false);
+      if (turnWindow != null) {
+        turnWindow.setWidget(null);
+        turnWindow.setVisible(false);
+      }
       launchWidget.add(turnWidget, BorderLayout.CENTER);
       launchWidget.setVisible(g.getGameState().isGameStarted());
     }
     else {
       launchWidget.setVisible(false);
       launchWidget.remove(turnWidget);
-      turnWindow.setWidget(turnWidget);
-      turnWindow.setVisible(g.getGameState().isGameStarted());
-      turnWindow.setFocusable(true);
+      if (turnWindow != null) {
+        turnWindow.setWidget(turnWidget);
+        turnWindow.setVisible(g.getGameState().isGameStarted());
+        turnWindow.setFocusable(true);
+      }
     }
   }
 
@@ -567,10 +571,12 @@ public class TurnTracker extends TurnComponent implements CommandEncoder, GameCo
 
   @Override
   public void addTo(Buildable b) {
-    //Create the turn window
-    turnWindow = new TurnWindow();
-    turnWindow.pack();
-    turnWindow.setVisible(false);
+    //Create the turn window, unless we have nowhere to show it
+    if (!GameModule.getGameModule().isHeadless()) {
+      turnWindow = new TurnWindow();
+      turnWindow.pack();
+      turnWindow.setVisible(false);
+    }
 
     launchWidget = new JPanel();
     launchWidget.setLayout(new BorderLayout());
@@ -801,9 +807,11 @@ public class TurnTracker extends TurnComponent implements CommandEncoder, GameCo
     lastTurn.setPropertyValue(getTurnString());
     turnWidget.setControls();
     turnWidget.repaint();
-    turnWindow.pack();
-    turnWindow.setFocusable(true);
-    turnWindow.requestFocus();
+    if (turnWindow != null) {
+      turnWindow.pack();
+      turnWindow.setFocusable(true);
+      turnWindow.requestFocus();
+    }
   }
 
   public void updateWidget() {
@@ -842,7 +850,9 @@ public class TurnTracker extends TurnComponent implements CommandEncoder, GameCo
   public void setup(boolean gameStarting) {
     launch.setEnabled(gameStarting);
 
-    turnWindow.setVisible(false);
+    if (turnWindow != null) {
+      turnWindow.setVisible(false);
+    }
 
     launchWidget.setVisible(isDocked() && gameStarting);
     if (gameStarting) {
@@ -2,6 +2,7 @@ package VASSAL.build.widget;
 
 import java.awt.BorderLayout;
 import java.awt.Component;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.dnd.DnDConstants;
 import java.awt.dnd.DropTarget;
@@ -70,7 +71,9 @@ public class MapWidget extends Widget {
       if (tab.getClientProperty(TabSwitcher.class) == null) {
         final TabSwitcher switcher = new TabSwitcher(tab);
         tab.putClientProperty(TabSwitcher.class, switcher);
-        tab.setDropTarget(new DropTarget(tab, DnDConstants.ACTION_MOVE, switcher));
+        if (!GraphicsEnvironment.isHeadless()) {
+          tab.setDropTarget(new DropTarget(tab, DnDConstants.ACTION_MOVE, switcher));
+        }
       }
     }
     return panel;
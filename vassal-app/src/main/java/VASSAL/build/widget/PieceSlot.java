@@ -62,6 +62,7 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.RenderingHints;
 import java.awt.dnd.DnDConstants;
@@ -553,6 +554,10 @@ public class PieceSlot extends Widget implements MouseListener, KeyListener {
       parent = (Widget)par;
     }
 
+    if (GraphicsEnvironment.isHeadless()) {
+      return;
+    }
+
     panel.setDropTarget(AbstractDragHandler.makeDropTarget(panel, DnDConstants.ACTION_MOVE, null));
 
     final DragGestureListener dragGestureListener = dge -> {
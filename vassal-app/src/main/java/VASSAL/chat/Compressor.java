@@ -20,28 +20,191 @@ package VASSAL.chat;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
+/**
+ * Compresses messages into, and decompresses them from, a ZIP archive holding a single entry, which is
+ * the format older clients send and expect.
+ *
+ * The archive is written and read directly, rather than with {@link java.util.zip.ZipOutputStream} and
+ * {@link ZipInputStream}, so that each thread can reuse one {@link Deflater} and one {@link Inflater}
+ * instead of creating, and leaving for finalization, new ones for every message.
+ */
 public class Compressor {
+  private static final String ENTRY_NAME = "Dummy"; //$NON-NLS-1$
+  private static final byte[] ENTRY_NAME_BYTES = ENTRY_NAME.getBytes(StandardCharsets.US_ASCII);
+
+  private static final int LOC_SIG = 0x04034b50;
+  private static final int CEN_SIG = 0x02014b50;
+  private static final int END_SIG = 0x06054b50;
+  private static final int EXT_SIG = 0x08074b50;
+  private static final int LOC_HEADER = 30;
+  private static final int CEN_HEADER = 46;
+  private static final int END_HEADER = 22;
+  private static final int VERSION = 20;
+  private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+  /** 1 January 1980, in MS-DOS format */
+  private static final int DOS_DATE = (1 << 5) | 1;
+
+  /** Scratch buffers larger than this are not kept for reuse */
+  private static final int MAX_POOLED_BUFFER = 64 * 1024;
+
+  private static final ThreadLocal<Deflater> DEFLATER =
+    ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+  private static final ThreadLocal<Inflater> INFLATER =
+    ThreadLocal.withInitial(() -> new Inflater(true));
+  private static final ThreadLocal<byte[]> BUFFER =
+    ThreadLocal.withInitial(() -> new byte[8192]);
+
   private Compressor() {
     // Helper class - not to be instantiated alone.
   }
 
   public static byte[] compress(byte[] in) throws IOException {
-    final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-    try (ZipOutputStream zipOut = new ZipOutputStream(byteOut)) {
-      zipOut.putNextEntry(new ZipEntry("Dummy")); //$NON-NLS-1$
-      zipOut.write(in);
+    final CRC32 crc = new CRC32();
+    crc.update(in);
+
+    final Deflater deflater = DEFLATER.get();
+    byte[] buf = BUFFER.get();
+    int len = 0;
+    try {
+      deflater.setInput(in);
+      deflater.finish();
+      while (!deflater.finished()) {
+        if (len == buf.length) {
+          buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        len += deflater.deflate(buf, len, buf.length - len);
+      }
+    }
+    finally {
+      deflater.reset();
+    }
+    if (buf.length <= MAX_POOLED_BUFFER) {
+      BUFFER.set(buf);
     }
-    return byteOut.toByteArray();
+
+    final int nameLen = ENTRY_NAME_BYTES.length;
+    final ByteBuffer out = ByteBuffer.allocate(LOC_HEADER + nameLen + len + CEN_HEADER + nameLen + END_HEADER)
+                                     .order(ByteOrder.LITTLE_ENDIAN);
+
+    // Local file header, with the sizes and checksum given up front
+    out.putInt(LOC_SIG)
+       .putShort((short) VERSION)
+       .putShort((short) 0)
+       .putShort((short) ZipEntry.DEFLATED)
+       .putShort((short) 0)
+       .putShort((short) DOS_DATE)
+       .putInt((int) crc.getValue())
+       .putInt(len)
+       .putInt(in.length)
+       .putShort((short) nameLen)
+       .putShort((short) 0)
+       .put(ENTRY_NAME_BYTES)
+       .put(buf, 0, len);
+
+    // Central directory, for the benefit of readers other than ZipInputStream
+    final int cenOffset = out.position();
+    out.putInt(CEN_SIG)
+       .putShort((short) VERSION)
+       .putShort((short) VERSION)
+       .putShort((short) 0)
+       .putShort((short) ZipEntry.DEFLATED)
+       .putShort((short) 0)
+       .putShort((short) DOS_DATE)
+       .putInt((int) crc.getValue())
+       .putInt(len)
+       .putInt(in.length)
+       .putShort((short) nameLen)
+       .putShort((short) 0)
+       .putShort((short) 0)
+       .putShort((short) 0)
+       .putShort((short) 0)
+       .putInt(0)
+       .putInt(0)
+       .put(ENTRY_NAME_BYTES);
+    final int cenSize = out.position() - cenOffset;
+
+    out.putInt(END_SIG)
+       .putShort((short) 0)
+       .putShort((short) 0)
+       .putShort((short) 1)
+       .putShort((short) 1)
+       .putInt(cenSize)
+       .putInt(cenOffset)
+       .putShort((short) 0);
+
+    return out.array();
   }
 
   public static byte[] decompress(byte[] in) throws IOException {
-    try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(in))) {
-      zipIn.getNextEntry();
-      return zipIn.readAllBytes();
+    final ByteBuffer bb = ByteBuffer.wrap(in).order(ByteOrder.LITTLE_ENDIAN);
+    if (in.length < LOC_HEADER || bb.getInt(0) != LOC_SIG || bb.getShort(8) != ZipEntry.DEFLATED) {
+      // Not what we or older clients write, so leave it to the general purpose reader
+      try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(in))) {
+        zipIn.getNextEntry();
+        return zipIn.readAllBytes();
+      }
+    }
+
+    final boolean descriptor = (bb.getShort(6) & DATA_DESCRIPTOR_FLAG) != 0;
+    final int offset = LOC_HEADER + (bb.getShort(26) & 0xffff) + (bb.getShort(28) & 0xffff);
+    if (offset > in.length) {
+      throw new ZipException("Truncated ZIP entry"); //$NON-NLS-1$
+    }
+
+    final Inflater inflater = INFLATER.get();
+    final int size = bb.getInt(22);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(!descriptor && size > 0 && size <= MAX_POOLED_BUFFER * 16 ? size : Math.max(32, in.length * 4));
+    final int remaining;
+    try {
+      final byte[] buf = BUFFER.get();
+      inflater.setInput(in, offset, in.length - offset);
+      while (!inflater.finished()) {
+        final int n = inflater.inflate(buf);
+        if (n == 0 && inflater.needsInput()) {
+          throw new ZipException("Truncated ZIP entry"); //$NON-NLS-1$
+        }
+        out.write(buf, 0, n);
+      }
+      remaining = inflater.getRemaining();
+    }
+    catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    }
+    finally {
+      inflater.reset();
+    }
+
+    // Older clients write the checksum in a data descriptor after the data, rather than in the header
+    long expected = bb.getInt(14) & 0xffffffffL;
+    if (descriptor) {
+      int pos = in.length - remaining;
+      if (pos + 4 <= in.length && bb.getInt(pos) == EXT_SIG) {
+        pos += 4;
+      }
+      if (pos + 4 > in.length) {
+        throw new ZipException("Truncated ZIP entry"); //$NON-NLS-1$
+      }
+      expected = bb.getInt(pos) & 0xffffffffL;
+    }
+
+    final byte[] result = out.toByteArray();
+    final CRC32 crc = new CRC32();
+    crc.update(result);
+    if (crc.getValue() != expected) {
+      throw new ZipException("Invalid ZIP entry CRC"); //$NON-NLS-1$
     }
+    return result;
   }
 }
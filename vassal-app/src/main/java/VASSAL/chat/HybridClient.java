@@ -23,15 +23,22 @@ import java.beans.PropertyChangeListenerProxy;
 import java.beans.PropertyChangeSupport;
 
 import javax.swing.Icon;
+import javax.swing.SwingUtilities;
 
 import VASSAL.chat.ui.ChatControlsInitializer;
 import VASSAL.chat.ui.ChatServerControls;
 import VASSAL.command.Command;
+import VASSAL.command.NullCommand;
 import VASSAL.i18n.Resources;
 
 /**
  * Delegates calls to another SvrConnection instance, which can be changed programmatically
  *
+ * Commands sent to others while handling an event on the Event Dispatch Thread are collected, and sent
+ * together as a single message once the event has been handled. A single action, such as moving a stack
+ * of pieces, thus costs one message and one fan-out by the server, rather than one for each Command.
+ * The receiving end decodes the batch as it would any compound Command.
+ *
  * @author rkinney
  *
  */
@@ -43,6 +50,10 @@ public class HybridClient implements ChatServerConnection, PlayerEncoder, ChatCo
   protected Icon currentIcon;
   protected String currentText;
 
+  private final Object batchLock = new Object();
+  private Command batch;
+  private boolean batching = true;
+
   public HybridClient() {
     setDelegate(new DummyClient());
   }
@@ -77,16 +88,56 @@ public class HybridClient implements ChatServerConnection, PlayerEncoder, ChatCo
 
   @Override
   public void sendTo(Player recipient, Command c) {
+    flush();
     delegate.sendTo(recipient, c);
   }
 
   @Override
   public void sendToOthers(Command c) {
-    delegate.sendToOthers(c);
+    synchronized (batchLock) {
+      if (batching && SwingUtilities.isEventDispatchThread() && delegate.isConnected()) {
+        if (batch == null) {
+          batch = new NullCommand();
+          SwingUtilities.invokeLater(this::flush);
+        }
+        batch.append(c);
+        return;
+      }
+      flush();
+      delegate.sendToOthers(c);
+    }
+  }
+
+  /**
+   * Sends the Commands collected while handling the current event, if any
+   */
+  public void flush() {
+    final Command c;
+    synchronized (batchLock) {
+      c = batch;
+      batch = null;
+      if (c != null) {
+        delegate.sendToOthers(c);
+      }
+    }
+  }
+
+  /**
+   * @param batching If true (the default), Commands sent while handling an event are sent together
+   * once it has been handled. If false, each is sent at once.
+   */
+  public void setBatching(boolean batching) {
+    synchronized (batchLock) {
+      this.batching = batching;
+    }
+    if (!batching) {
+      flush();
+    }
   }
 
   @Override
   public void setConnected(boolean connect) {
+    flush();
     delegate.setConnected(connect);
   }
 
@@ -96,6 +147,7 @@ public class HybridClient implements ChatServerConnection, PlayerEncoder, ChatCo
 
   @Override
   public void setRoom(Room r) {
+    flush();
     delegate.setRoom(r);
   }
 
@@ -128,6 +180,7 @@ public class HybridClient implements ChatServerConnection, PlayerEncoder, ChatCo
     if (delegate != null && delegate.isConnected()) {
       throw new IllegalStateException(Resources.getString("Server.error1")); //$NON-NLS-1$
     }
+    flush();
     final ChatServerConnection oldDelegate = delegate;
     if (oldDelegate != null) {
       newDelegate.setUserInfo(oldDelegate.getUserInfo());
@@ -23,8 +23,10 @@ package VASSAL.chat.node;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -43,14 +45,29 @@ import VASSAL.tools.PropertiesEncoder;
 public class AsynchronousServerNode extends ServerNode {
   private static final Logger logger =
     Logger.getLogger(AsynchronousServerNode.class.getName());
+  /** Default time for which changes are collected before the contents of modules are sent */
+  public static final long DEFAULT_COALESCE_MILLIS = 250L;
+
   private StatusReporter statusReporter;
   private ReportContentsThread contentsReporter;
+  private long coalesceMillis = DEFAULT_COALESCE_MILLIS;
 
   public AsynchronousServerNode(String url) {
     super();
     init(url);
   }
 
+  /**
+   * @param url URL to which server status is reported, or null
+   * @param coalesceMillis time for which changes to modules are collected before their contents are sent,
+   * so that players joining or leaving at nearly the same time generate only one update
+   */
+  public AsynchronousServerNode(String url, long coalesceMillis) {
+    super();
+    this.coalesceMillis = coalesceMillis;
+    init(url);
+  }
+
   protected void init(String url) {
     statusReporter = new StatusReporter(
       url == null ? null : new HttpRequestWrapper(url), this);
@@ -58,15 +75,24 @@ public class AsynchronousServerNode extends ServerNode {
   }
 
   @Override
-  protected synchronized void sendContents(Node node) {
+  protected void sendContents(Node node) {
     contentsReporter.markChanged(node);
   }
 
+  @Override
+  public void shutDown() {
+    super.shutDown();
+    contentsReporter.shutDown();
+    statusReporter.shutDown();
+  }
+
   public static class ReportContentsThread extends Thread {
     private final AsynchronousServerNode server;
     private final Set<Node> changed;
+    private final Map<String, ModuleRoster> rosters = new HashMap<>();
     private long lastGlobalUpdate;
     private static final long GLOBAL_UPDATE_INTERVAL = 1000L * 120L;
+    private volatile boolean running = true;
 
     public ReportContentsThread(AsynchronousServerNode server) {
       this.server = server;
@@ -74,14 +100,25 @@ public class AsynchronousServerNode extends ServerNode {
       start();
     }
 
+    public void shutDown() {
+      running = false;
+      interrupt();
+    }
+
     @Override
     public void run() {
-      while (true) {
+      while (running) {
         try {
           synchronized (this) {
-            wait();
-            sendContents();
+            while (changed.isEmpty()) {
+              wait();
+            }
           }
+          if (server.coalesceMillis > 0) {
+            // Let further changes accumulate
+            sleep(server.coalesceMillis);
+          }
+          sendContents();
         }
         catch (final InterruptedException e) {
         }
@@ -125,9 +162,36 @@ public class AsynchronousServerNode extends ServerNode {
           }
         }
 
-        final String listCommand = Protocol.encodeListCommand(players);
-        logger.finer(listCommand);
-        module.send(listCommand);
+        // Clients which accept deltas are sent only what has changed since the last update, and
+        // a snapshot when they ask for one. Older clients are sent the whole list each time.
+        final ModuleRoster roster = rosters.computeIfAbsent(module.getId(), k -> new ModuleRoster());
+        final String delta = roster.update(players);
+        String listCommand = null;
+        String snapshot = null;
+        for (final Node player : players) {
+          if (player instanceof PlayerNode && ((PlayerNode) player).isAcceptingListDeltas()) {
+            if (((PlayerNode) player).takeSnapshotRequest()) {
+              if (snapshot == null) {
+                snapshot = roster.getSnapshot();
+              }
+              player.send(snapshot);
+            }
+            else if (delta != null) {
+              player.send(delta);
+            }
+          }
+          else {
+            if (listCommand == null) {
+              listCommand = Protocol.encodeListCommand(players);
+              logger.finer(listCommand);
+            }
+            player.send(listCommand);
+          }
+        }
+        if (players.length == 0) {
+          rosters.remove(module.getId());
+        }
+
         final String roomInfo = Protocol.encodeRoomsInfo(rooms);
         module.send(roomInfo);
       }
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Base64;
+
+import VASSAL.chat.ChatServerConnection;
+import VASSAL.chat.Compressor;
+import VASSAL.chat.SimpleStatus;
+import VASSAL.tools.ArgsParser;
+import VASSAL.tools.PropertiesEncoder;
+import VASSAL.tools.SequenceEncoder;
+
+/**
+ * Headless load generator for the chat server. Connects a number of simulated clients, which speak the same
+ * protocol as {@link NodeClient}, spreads them over modules and rooms, and has each of them forward messages
+ * to the others in its room at a steady rate. Messages longer than the compression limit are compressed
+ * just as {@link NodeClient} does. Reports the throughput and the latency from a message being sent to its
+ * being received by each player in the room.
+ *
+ * Run against an existing server with <code>-host</code> and <code>-port</code>, or without <code>-port</code>
+ * to start a server in this process. Other options, with their defaults:
+ * <pre>
+ *   -clients 100     number of simulated clients
+ *   -modules 1       number of modules over which the clients are spread
+ *   -rooms 10        number of rooms per module
+ *   -rate 1          messages per second sent by each client
+ *   -size 400        average length of a message, in characters
+ *   -zip 1000        messages longer than this are compressed
+ *   -warmup 2        seconds before measurement starts
+ *   -duration 30     seconds for which messages are measured
+ *   -nio false       whether a local server uses {@link NioServer}
+ * </pre>
+ */
+public class LoadTest {
+  /** Start of each generated message, followed by the time at which it was sent */
+  private static final String HEADER = "LOADTEST\t"; //NON-NLS
+
+  /** Pieces of typical game commands, from which message bodies are made */
+  private static final String[] FRAGMENTS = {
+    "\u001b", "D\t", "+/", "-/", "/", ";", "\\", //NON-NLS
+    "piece;;;Counter.png;Infantry", //NON-NLS
+    "emb2;Activate;2;A;;0;;;;1;;0;0;,", //NON-NLS
+    "mark;Side\tGerman", //NON-NLS
+    "prototype;Unit", //NON-NLS
+    "Main Map;412;1078;", //NON-NLS
+    "LOG\tM;", //NON-NLS
+    "UNDO\t", //NON-NLS
+  };
+
+  private final String host;
+  private final int port;
+  private final int clients;
+  private final int modules;
+  private final int rooms;
+  private final double rate;
+  private final int size;
+  private final int compressionLimit;
+
+  private final List<Session> sessions = new ArrayList<>();
+  private final AtomicLong sent = new AtomicLong();
+  private final AtomicLong expected = new AtomicLong();
+  private volatile long measureFrom = Long.MAX_VALUE;
+  private volatile long measureUntil = Long.MAX_VALUE;
+
+  public LoadTest(String host, int port, int clients, int modules, int rooms, double rate, int size, int compressionLimit) {
+    this.host = host;
+    this.port = port;
+    this.clients = clients;
+    this.modules = modules;
+    this.rooms = rooms;
+    this.rate = rate;
+    this.size = size;
+    this.compressionLimit = compressionLimit;
+  }
+
+  /**
+   * Connects the clients, sends messages for the given time, and disconnects them again.
+   *
+   * @param warmupMillis time after connecting before measurement starts
+   * @param durationMillis time for which messages are measured
+   * @return the results
+   */
+  public Report run(long warmupMillis, long durationMillis) throws IOException, InterruptedException {
+    for (int i = 0; i < clients; ++i) {
+      sessions.add(new Session(i));
+    }
+
+    final ScheduledExecutorService senders =
+      Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    final Random rng = new Random();
+    final long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    try {
+      for (final Session s : sessions) {
+        senders.scheduleAtFixedRate(s::sendMessage, (long) (rng.nextDouble() * period) + TimeUnit.MILLISECONDS.toNanos(warmupMillis) / 2, period, TimeUnit.NANOSECONDS);
+      }
+
+      Thread.sleep(warmupMillis);
+      measureFrom = System.nanoTime();
+      Thread.sleep(durationMillis);
+      measureUntil = System.nanoTime();
+    }
+    finally {
+      senders.shutdownNow();
+    }
+
+    // Give the messages still in flight time to arrive
+    Thread.sleep(Math.min(2000L, durationMillis));
+
+    for (final Session s : sessions) {
+      s.handler.close();
+    }
+
+    final Report r = new Report();
+    r.clients = clients;
+    r.seconds = (measureUntil - measureFrom) / 1e9;
+    r.sent = sent.get();
+    r.expected = expected.get();
+    final List<long[]> all = new ArrayList<>();
+    int n = 0;
+    for (final Session s : sessions) {
+      final long[] l = s.getLatencies();
+      all.add(l);
+      n += l.length;
+      r.bytes += s.bytes.get();
+    }
+    r.latencies = new long[n];
+    n = 0;
+    for (final long[] l : all) {
+      System.arraycopy(l, 0, r.latencies, n, l.length);
+      n += l.length;
+    }
+    Arrays.sort(r.latencies);
+    return r;
+  }
+
+  private String getModule(int i) {
+    return "loadtest" + (i % modules); //NON-NLS
+  }
+
+  private String getRoom(int i) {
+    return "Room" + ((i / modules) % rooms); //NON-NLS
+  }
+
+  /**
+   * @return the number of clients which share a room with the given one, including itself
+   */
+  private int getRoomSize(int i) {
+    int n = 0;
+    for (int j = i % (modules * rooms); j < clients; j += modules * rooms) {
+      ++n;
+    }
+    return n;
+  }
+
+  private String createBody(Random rng) {
+    final int length = size / 2 + rng.nextInt(size + 1);
+    final StringBuilder buffer = new StringBuilder(length + 40);
+    while (buffer.length() < length) {
+      final String f = FRAGMENTS[rng.nextInt(FRAGMENTS.length)];
+      buffer.append(f);
+      if ("/".equals(f)) { //NON-NLS
+        buffer.append(rng.nextInt(Integer.MAX_VALUE));
+      }
+    }
+    buffer.setLength(length);
+    return buffer.toString();
+  }
+
+  /** One simulated client */
+  private class Session implements SocketWatcher {
+    private final String id;
+    private final String module;
+    private final String room;
+    private final int recipients;
+    private final Random rng = new Random();
+    private final SocketHandler handler;
+    private final AtomicLong bytes = new AtomicLong();
+    private long[] latencies = new long[256];
+    private int count;
+
+    Session(int i) throws IOException {
+      id = "loadtest-" + i; //NON-NLS
+      module = getModule(i);
+      room = getRoom(i);
+      recipients = getRoomSize(i) - 1;
+      handler = new SocketHandler(new Socket(host, port), this);
+      handler.start();
+      register();
+    }
+
+    private void register() {
+      final Properties p = new Properties();
+      p.put(SimpleStatus.NAME, id);
+      p.put(SimpleStatus.LOOKING, "false"); //NON-NLS
+      p.put(SimpleStatus.AWAY, "false"); //NON-NLS
+      p.put(NodePlayer.ID, id);
+      handler.writeLine(Protocol.encodeRegisterCommand(id, module + "/" + ChatServerConnection.DEFAULT_ROOM_NAME, //NON-NLS
+        new PropertiesEncoder(p).getStringValue()));
+      handler.writeLine(Protocol.encodeListDeltasRequest());
+      handler.writeLine(Protocol.encodeJoinCommand(module + "/" + room)); //NON-NLS
+    }
+
+    void sendMessage() {
+      final String path = new SequenceEncoder(module, '/').append(room).append("~" + id).getValue(); //NON-NLS
+      String msg = HEADER + System.nanoTime() + '\t' + createBody(rng);
+      if (msg.length() > compressionLimit) {
+        try {
+          msg = NodeClient.ZIP_HEADER + Base64.encodeBase64String(
+            Compressor.compress(msg.getBytes(StandardCharsets.UTF_8))
+          );
+        }
+        catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+      handler.writeLine(Protocol.encodeForwardCommand(path, msg));
+
+      final long now = System.nanoTime();
+      if (now >= measureFrom && now < measureUntil) {
+        sent.incrementAndGet();
+        expected.addAndGet(recipients);
+      }
+    }
+
+    @Override
+    public void handleMessage(String msg) {
+      final long now = System.nanoTime();
+      bytes.addAndGet(msg.length() + 1);
+
+      if (Protocol.decodeRegisterRequest(msg)) {
+        register();
+        return;
+      }
+
+      if (msg.startsWith(NodeClient.ZIP_HEADER)) {
+        try {
+          msg = new String(
+            Compressor.decompress(Base64.decodeBase64(msg.substring(NodeClient.ZIP_HEADER.length()))),
+            StandardCharsets.UTF_8
+          );
+        }
+        catch (IOException e) {
+          e.printStackTrace();
+          return;
+        }
+      }
+
+      if (msg.startsWith(HEADER)) {
+        final int end = msg.indexOf('\t', HEADER.length());
+        final long sentAt = Long.parseLong(msg.substring(HEADER.length(), end));
+        if (sentAt >= measureFrom && sentAt < measureUntil) {
+          addLatency(now - sentAt);
+        }
+      }
+    }
+
+    private synchronized void addLatency(long nanos) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = nanos;
+    }
+
+    synchronized long[] getLatencies() {
+      return Arrays.copyOf(latencies, count);
+    }
+
+    @Override
+    public void socketClosed(SocketHandler h) {
+    }
+  }
+
+  /** The results of a run */
+  public static class Report {
+    int clients;
+    double seconds;
+    long sent;
+    long expected;
+    long bytes;
+    /** Latency of each delivered message, in nanoseconds, in ascending order */
+    long[] latencies;
+
+    public long getSent() {
+      return sent;
+    }
+
+    public long getExpected() {
+      return expected;
+    }
+
+    public long getDelivered() {
+      return latencies.length;
+    }
+
+    /**
+     * @param p percentile, between 0 and 100
+     * @return the latency, in nanoseconds, within which the given percentage of messages were delivered
+     */
+    public long getLatency(double p) {
+      return percentile(latencies, p);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+        "clients: %d%n" + //NON-NLS
+        "sent: %d (%.1f/s)%n" + //NON-NLS
+        "delivered: %d of %d (%.1f/s, %.1f KB/s received)%n" + //NON-NLS
+        "latency ms: p50 %.2f  p90 %.2f  p99 %.2f  max %.2f%n", //NON-NLS
+        clients,
+        sent, sent / seconds,
+        getDelivered(), expected, getDelivered() / seconds, bytes / seconds / 1024,
+        getLatency(50) / 1e6, getLatency(90) / 1e6, getLatency(99) / 1e6, getLatency(100) / 1e6
+      );
+    }
+  }
+
+  /**
+   * @param sorted values in ascending order
+   * @param p percentile, between 0 and 100
+   * @return the smallest value no smaller than the given percentage of the values, or 0 if there are none
+   */
+  static long percentile(long[] sorted, double p) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    final int rank = (int) Math.ceil(p / 100 * sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+  }
+
+  public static void main(String[] args) throws Exception {
+    final Properties p = new ArgsParser(args).getProperties();
+
+    final String host = p.getProperty("host", "localhost"); //NON-NLS
+    int port = Integer.parseInt(p.getProperty("port", "0")); //NON-NLS
+    final int clients = Integer.parseInt(p.getProperty("clients", "100")); //NON-NLS
+    final int modules = Integer.parseInt(p.getProperty("modules", "1")); //NON-NLS
+    final int rooms = Integer.parseInt(p.getProperty("rooms", "10")); //NON-NLS
+    final double rate = Double.parseDouble(p.getProperty("rate", "1")); //NON-NLS
+    final int size = Integer.parseInt(p.getProperty("size", "400")); //NON-NLS
+    final int zip = Integer.parseInt(p.getProperty("zip", "1000")); //NON-NLS
+    final long warmup = (long) (Double.parseDouble(p.getProperty("warmup", "2")) * 1000); //NON-NLS
+    final long duration = (long) (Double.parseDouble(p.getProperty("duration", "30")) * 1000); //NON-NLS
+
+    if (port == 0) {
+      final AsynchronousServerNode rootNode = new AsynchronousServerNode(null);
+      if ("true".equals(p.getProperty("nio"))) { //NON-NLS
+        port = new NioServer(rootNode, 0).getPort();
+      }
+      else {
+        port = new Server(rootNode, 0).getPort();
+      }
+    }
+
+    final Report r = new LoadTest(host, port, clients, modules, rooms, rate, size, zip).run(warmup, duration);
+    System.out.print(r);
+    System.exit(0);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the {@link ServerMetrics} of a server over HTTP, to the local machine only:
+ * as text at {@code /metrics}, and as JSON at {@code /metrics.json}.
+ */
+public class MetricsEndpoint {
+  private final HttpServer http;
+
+  /**
+   * Starts serving.
+   * @param metrics what to serve
+   * @param port port to listen on, or 0 for any free port
+   */
+  public MetricsEndpoint(ServerMetrics metrics, int port) throws IOException {
+    http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    http.createContext("/metrics", exchange -> { //NON-NLS
+      if (exchange.getRequestURI().getPath().endsWith(".json")) { //NON-NLS
+        respond(exchange, "application/json", metrics.toJson()); //NON-NLS
+      }
+      else {
+        respond(exchange, "text/plain; version=0.0.4", metrics.toText()); //NON-NLS
+      }
+    });
+    http.start();
+    System.err.println("Serving metrics on port " + getPort()); //NON-NLS
+  }
+
+  /**
+   * @return the port on which we are listening
+   */
+  public int getPort() {
+    return http.getAddress().getPort();
+  }
+
+  public void stop() {
+    http.stop(0);
+  }
+
+  private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+    final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8"); //NON-NLS
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The players in a module as they were last sent to its clients, so that clients which accept them can be
+ * sent only what has changed since, as a {@link Protocol#encodeListDelta delta}.
+ */
+public class ModuleRoster {
+  private Map<String, String> players = new LinkedHashMap<>();
+  private long seq;
+
+  /**
+   * Brings the roster up to date with the players now in the module.
+   *
+   * @param nodes the player nodes in the module
+   * @return the delta to send to clients which are up to date, or null if nothing has changed
+   */
+  public String update(Node[] nodes) {
+    final Map<String, String> current = new LinkedHashMap<>();
+    for (final Node node : nodes) {
+      final String path = node.getPath();
+      final String info = node.getInfo();
+      if (path != null && info != null) {
+        current.put(path, info);
+      }
+    }
+
+    final List<String> left = new ArrayList<>();
+    for (final String path : players.keySet()) {
+      if (!current.containsKey(path)) {
+        left.add(path);
+      }
+    }
+
+    final Map<String, String> joined = new LinkedHashMap<>();
+    for (final Map.Entry<String, String> e : current.entrySet()) {
+      if (!Objects.equals(players.get(e.getKey()), e.getValue())) {
+        joined.put(e.getKey(), e.getValue());
+      }
+    }
+
+    players = current;
+
+    if (left.isEmpty() && joined.isEmpty()) {
+      return null;
+    }
+    return Protocol.encodeListDelta(++seq, joined, left);
+  }
+
+  /**
+   * @return the whole roster, for clients which are not up to date
+   */
+  public String getSnapshot() {
+    return Protocol.encodeListSnapshot(seq, players);
+  }
+
+  /**
+   * @return sequence number of the last delta
+   */
+  public long getSequence() {
+    return seq;
+  }
+}
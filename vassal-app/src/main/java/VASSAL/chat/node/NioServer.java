@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An alternative to {@link Server} which serves every connection from a single thread using an NIO
+ * {@link Selector}, instead of giving each connection a read thread and a write thread of its own.
+ * Each connection is a {@link NioSocketHandler}, which delivers messages to its {@link SocketWatcher}
+ * (normally a {@link PlayerNode}) just as a {@link SocketHandler} does, and has a bounded write queue.
+ *
+ * Messages are handled on the selector thread, one at a time, in the order in which they arrive.
+ */
+public class NioServer extends Thread {
+  private static final Logger logger =
+    Logger.getLogger(NioServer.class.getName());
+
+  /** Default limit on the bytes queued to be sent to one connection */
+  public static final int DEFAULT_MAX_QUEUED_BYTES = 16 * 1024 * 1024;
+
+  private static final long KEEP_ALIVE_INTERVAL = 1000L * 60 * 2;
+  private static final long CHECK_INTERVAL = 1000L * 10;
+
+  private final Selector selector;
+  private final ServerSocketChannel serverChannel;
+  private final Consumer<Function<SocketWatcher, SocketHandler>> acceptor;
+  private final int maxQueuedBytes;
+  private final Queue<NioSocketHandler> pending = new ConcurrentLinkedQueue<>();
+  private volatile boolean running = true;
+
+  public NioServer(AsynchronousServerNode rootNode, int port) throws IOException {
+    this(port, DEFAULT_MAX_QUEUED_BYTES, connection -> new PlayerNode(connection, rootNode));
+  }
+
+  /**
+   * @param port port to listen on, or 0 for any free port
+   * @param maxQueuedBytes limit on the bytes queued to be sent to a connection, and on the length of a message received
+   * @param acceptor called for each accepted connection with a function which creates the connection's
+   * {@link SocketHandler} for a given {@link SocketWatcher}. The acceptor must start the handler.
+   */
+  public NioServer(int port, int maxQueuedBytes, Consumer<Function<SocketWatcher, SocketHandler>> acceptor) throws IOException {
+    super("NIO server " + port); //NON-NLS
+    this.acceptor = acceptor;
+    this.maxQueuedBytes = maxQueuedBytes;
+
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(port));
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+    System.err.println("Started NIO server on port " + getPort()); //NON-NLS
+    start();
+  }
+
+  /**
+   * @return the port on which we are listening
+   */
+  public int getPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /**
+   * @return limit on the bytes queued to be sent to a connection
+   */
+  public int getMaxQueuedBytes() {
+    return maxQueuedBytes;
+  }
+
+  /**
+   * @return the open connections; to be called on the selector thread only
+   */
+  private List<NioSocketHandler> getConnections() {
+    final List<NioSocketHandler> l = new ArrayList<>();
+    for (final SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof NioSocketHandler) {
+        l.add((NioSocketHandler) key.attachment());
+      }
+    }
+    return l;
+  }
+
+  /**
+   * Stops listening and closes all connections.
+   */
+  public void shutDown() {
+    running = false;
+    selector.wakeup();
+  }
+
+  /**
+   * Has the selector thread register or update a connection.
+   */
+  void update(NioSocketHandler handler) {
+    pending.add(handler);
+    if (Thread.currentThread() != this) {
+      selector.wakeup();
+    }
+  }
+
+  @Override
+  public void run() {
+    int consecutiveFailures = 0;
+    long lastCheck = System.currentTimeMillis();
+
+    while (running && consecutiveFailures < 10) {
+      try {
+        selector.select(CHECK_INTERVAL);
+
+        final Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+        while (i.hasNext()) {
+          final SelectionKey key = i.next();
+          i.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+
+          if (key.isAcceptable()) {
+            accept();
+          }
+          else {
+            final NioSocketHandler handler = (NioSocketHandler) key.attachment();
+            if (key.isReadable()) {
+              handler.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+              handler.write();
+            }
+          }
+        }
+
+        final long now = System.currentTimeMillis();
+        if (now - lastCheck >= CHECK_INTERVAL) {
+          lastCheck = now;
+          for (final NioSocketHandler handler : getConnections()) {
+            handler.keepAlive(now, KEEP_ALIVE_INTERVAL);
+          }
+        }
+
+        NioSocketHandler handler;
+        while ((handler = pending.poll()) != null) {
+          handler.update(selector);
+        }
+
+        consecutiveFailures = 0;
+      }
+      catch (final IOException e) {
+        logger.log(Level.WARNING, "Caught " + e.getClass().getName() + " in NIO server", e); //NON-NLS
+        consecutiveFailures++;
+      }
+    }
+
+    for (final NioSocketHandler handler : getConnections()) {
+      handler.closeConnection();
+    }
+    try {
+      serverChannel.close();
+      selector.close();
+    }
+    catch (IOException ignore) {
+      // We're done with them anyway
+    }
+
+    if (running) {
+      System.err.println("Exiting due to consecutiveFailures"); //NON-NLS
+      System.exit(1);
+    }
+  }
+
+  private void accept() throws IOException {
+    final SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+
+    channel.configureBlocking(false);
+    try {
+      acceptor.accept(watcher -> new NioSocketHandler(channel, watcher, this));
+    }
+    catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Caught " + e.getClass().getName() + " accepting connection", e); //NON-NLS
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A connection accepted by a {@link NioServer}. Rather than having a pair of threads of its own, as a
+ * {@link SocketHandler} does, all of its reading and writing is done by the server's selector thread,
+ * and the messages it receives are passed to its {@link SocketWatcher} on that thread.
+ *
+ * Messages to be sent are queued up to the server's limit on queued bytes. A connection whose own queue is
+ * more than half full is not read from until the queue drains; this bounds only what a client's requests
+ * queue for that same client, such as replies to it. Messages a client sends to others are queued for
+ * them, so a client flooding its room is not slowed by this; it is the recipients' queues which fill. A
+ * connection whose queue overflows, because its client is not reading fast enough, is disconnected.
+ * Queued messages are written in batches, up to the {@link #getMaxBatchSize batch size}, with a single
+ * gathering write each.
+ */
+public class NioSocketHandler extends SocketHandler {
+  private static final Logger logger =
+    Logger.getLogger(NioSocketHandler.class.getName());
+
+  private static final int READ_BUFFER_SIZE = 8192;
+  private static final int LINE_BUFFER_SIZE = 256;
+  private static final int LINE_BUFFER_RETAIN = 65536;
+  private static final int MAX_GATHER = 64;
+
+  private final SocketChannel channel;
+  private final SocketWatcher watcher;
+  private final NioServer server;
+  private final InetAddress address;
+
+  // The write queue may be added to by any thread
+  private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+  private long queuedBytes;
+  private boolean signingOff;
+  private boolean overflowed;
+  private volatile boolean closed;
+
+  // Everything else belongs to the selector thread
+  private SelectionKey key;
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+  private byte[] line = new byte[LINE_BUFFER_SIZE];
+  private int lineLength;
+  private long lastWrite = System.currentTimeMillis();
+  private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+  NioSocketHandler(SocketChannel channel, SocketWatcher watcher, NioServer server) {
+    super(watcher);
+    this.channel = channel;
+    this.watcher = watcher;
+    this.server = server;
+    address = channel.socket().getInetAddress();
+  }
+
+  @Override
+  public void start() {
+    server.update(this);
+  }
+
+  @Override
+  public void writeLine(String msg) {
+    final byte[] bytes = (msg + '\n').getBytes(StandardCharsets.UTF_8);
+    synchronized (this) {
+      if (closed || signingOff || overflowed) {
+        return;
+      }
+
+      if (queuedBytes + bytes.length > server.getMaxQueuedBytes()) {
+        // The client isn't keeping up; it will be disconnected
+        overflowed = true;
+        writeQueue.clear();
+        queuedBytes = 0;
+      }
+      else {
+        writeQueue.add(ByteBuffer.wrap(bytes));
+        queuedBytes += bytes.length;
+      }
+    }
+    server.update(this);
+  }
+
+  /**
+   * Sends the sign-off message, then closes the connection once everything queued has been sent.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed || signingOff || overflowed) {
+        return;
+      }
+
+      final byte[] bytes = (SIGN_OFF + '\n').getBytes(StandardCharsets.UTF_8);
+      writeQueue.add(ByteBuffer.wrap(bytes));
+      queuedBytes += bytes.length;
+      signingOff = true;
+    }
+    server.update(this);
+  }
+
+  @Override
+  public InetAddress getInetAddress() {
+    return address;
+  }
+
+  /**
+   * @return the number of bytes waiting to be sent
+   */
+  @Override
+  public synchronized long getQueuedBytes() {
+    return queuedBytes;
+  }
+
+  @Override
+  public synchronized int getQueueDepth() {
+    return writeQueue.size();
+  }
+
+  @Override
+  public synchronized boolean isOverflowed() {
+    return overflowed;
+  }
+
+  /**
+   * @return true once the connection has been closed
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Registers with the selector, or updates what we are waiting for from it.
+   * Called on the selector thread.
+   */
+  void update(Selector selector) {
+    if (closed) {
+      return;
+    }
+
+    final boolean overflow;
+    final boolean writing;
+    final boolean reading;
+    synchronized (this) {
+      overflow = overflowed;
+      writing = !writeQueue.isEmpty();
+      // Only holds back a client's requests for more to be sent to itself; see the class comment
+      reading = !signingOff && queuedBytes <= server.getMaxQueuedBytes() / 2;
+    }
+
+    if (overflow) {
+      logger.warning("Disconnecting " + address + ": write queue overflowed"); //NON-NLS
+      closeConnection();
+      return;
+    }
+
+    final int ops = (reading ? SelectionKey.OP_READ : 0) | (writing ? SelectionKey.OP_WRITE : 0);
+    try {
+      if (key == null) {
+        key = channel.register(selector, ops, this);
+      }
+      else {
+        key.interestOps(ops);
+      }
+    }
+    catch (ClosedChannelException | CancelledKeyException e) {
+      closeConnection();
+    }
+  }
+
+  /**
+   * Reads what is available, passing each complete line to the watcher.
+   * Called on the selector thread.
+   */
+  void read() {
+    final int n;
+    try {
+      n = channel.read(readBuffer);
+    }
+    catch (IOException e) {
+      logger.fine("Caught " + e + " reading from " + address); //NON-NLS
+      closeConnection();
+      return;
+    }
+
+    if (n < 0) {
+      closeConnection();
+      return;
+    }
+
+    bytesReceived.addAndGet(n);
+    readBuffer.flip();
+    try {
+      while (readBuffer.hasRemaining() && !closed) {
+        final byte b = readBuffer.get();
+        if (b == '\n') {
+          handleLine();
+        }
+        else {
+          if (lineLength == line.length) {
+            if (lineLength >= server.getMaxQueuedBytes()) {
+              logger.warning("Disconnecting " + address + ": message too long"); //NON-NLS
+              closeConnection();
+              return;
+            }
+            line = Arrays.copyOf(line, Math.min(line.length * 2, server.getMaxQueuedBytes()));
+          }
+          line[lineLength++] = b;
+        }
+      }
+    }
+    finally {
+      readBuffer.clear();
+    }
+  }
+
+  private void handleLine() {
+    int len = lineLength;
+    if (len > 0 && line[len - 1] == '\r') {
+      --len;
+    }
+    final String msg = new String(line, 0, len, StandardCharsets.UTF_8);
+    messagesReceived.incrementAndGet();
+
+    lineLength = 0;
+    if (line.length > LINE_BUFFER_RETAIN) {
+      line = new byte[LINE_BUFFER_SIZE];
+    }
+
+    if (SIGN_OFF.equals(msg)) {
+      closeConnection();
+    }
+    else if (!msg.isEmpty()) {
+      try {
+        watcher.handleMessage(msg);
+      }
+      catch (Exception e) {
+        // Handler threw an exception. Keep reading.
+        logger.log(Level.WARNING, "Caught " + e.getClass().getName() + " handling " + msg, e); //NON-NLS
+      }
+    }
+  }
+
+  /**
+   * Writes as much of the queue as the socket will take, gathering up to a batch of messages into each write.
+   * Called on the selector thread.
+   */
+  void write() {
+    final boolean done;
+    try {
+      synchronized (this) {
+        while (!writeQueue.isEmpty()) {
+          int n = 0;
+          long size = 0;
+          for (final ByteBuffer buf : writeQueue) {
+            gather[n++] = buf;
+            size += buf.remaining();
+            if (n == MAX_GATHER || size >= getMaxBatchSize()) {
+              break;
+            }
+          }
+
+          final boolean full;
+          try {
+            bytesSent.addAndGet(channel.write(gather, 0, n));
+            batchesSent.incrementAndGet();
+            full = gather[n - 1].hasRemaining();
+          }
+          finally {
+            Arrays.fill(gather, 0, n, null);
+          }
+
+          while (!writeQueue.isEmpty() && !writeQueue.peek().hasRemaining()) {
+            queuedBytes -= writeQueue.poll().limit();
+            messagesSent.incrementAndGet();
+          }
+          if (full) {
+            break;
+          }
+        }
+        done = signingOff && writeQueue.isEmpty();
+      }
+    }
+    catch (IOException e) {
+      logger.fine("Caught " + e + " writing to " + address); //NON-NLS
+      closeConnection();
+      return;
+    }
+
+    lastWrite = System.currentTimeMillis();
+    if (done) {
+      closeConnection();
+    }
+    else {
+      update(key.selector());
+    }
+  }
+
+  /**
+   * Sends a keep-alive if nothing has been sent for a while.
+   * Called on the selector thread.
+   */
+  void keepAlive(long now, long interval) {
+    if (now - lastWrite >= interval) {
+      lastWrite = now;
+      writeLine("");
+    }
+  }
+
+  /**
+   * Closes the connection without sending anything further, and tells the watcher.
+   * Called on the selector thread.
+   */
+  void closeConnection() {
+    if (closed) {
+      return;
+    }
+
+    synchronized (this) {
+      closed = true;
+      writeQueue.clear();
+      queuedBytes = 0;
+    }
+
+    if (key != null) {
+      key.cancel();
+    }
+    try {
+      channel.close();
+    }
+    catch (IOException ignore) {
+      // Nothing more we can do with it
+    }
+
+    try {
+      watcher.socketClosed(this);
+    }
+    catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Caught " + e.getClass().getName() + " closing " + address, e); //NON-NLS
+    }
+  }
+}
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 import VASSAL.tools.PropertiesEncoder;
@@ -41,9 +42,10 @@ import VASSAL.tools.SequenceEncoder;
 public class Node implements MsgSender {
   private static final Logger logger = Logger.getLogger(MsgSender.class.getName());
   private final String id;
-  private String info;
-  private Node parent;
-  private final List<Node> children = new ArrayList<>();
+  private volatile String info;
+  private volatile Node parent;
+  // Copy-on-write, since nodes are read, e.g. to route messages, far more often than they change
+  private final List<Node> children = new CopyOnWriteArrayList<>();
 
   public Node(Node parent, String id, String info) {
     this.parent = parent;
@@ -122,7 +124,7 @@ public class Node implements MsgSender {
    * @return node with that id
    */
   public Node getChild(String id) {
-    for (final Node n : getChildren()) {
+    for (final Node n : children) {
       if (id.equals(n.getId())) {
         return n;
       }
@@ -147,7 +149,7 @@ public class Node implements MsgSender {
 
   @Override
   public void send(String msg) {
-    for (final Node n : getChildren()) {
+    for (final Node n : children) {
       n.send(msg);
     }
   }
@@ -163,7 +165,7 @@ public class Node implements MsgSender {
       l.add(base);
     }
     else {
-      for (final Node n : base.getChildren()) {
+      for (final Node n : base.children) {
         addLeaves(n, l);
       }
     }
@@ -174,9 +176,7 @@ public class Node implements MsgSender {
   }
 
   public Node[] getChildren() {
-    synchronized (children) {
-      return children.toArray(new Node[0]);
-    }
+    return children.toArray(new Node[0]);
   }
 
   /**
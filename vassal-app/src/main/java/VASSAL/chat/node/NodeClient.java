@@ -18,6 +18,7 @@ package VASSAL.chat.node;
 
 import VASSAL.Info;
 import VASSAL.build.GameModule;
+import VASSAL.build.module.BasicCommandEncoder;
 import VASSAL.build.module.Chatter;
 import VASSAL.chat.Compressor;
 import VASSAL.chat.InviteCommand;
@@ -27,6 +28,7 @@ import VASSAL.chat.LockableRoom;
 import VASSAL.chat.MainRoomChecker;
 import VASSAL.chat.Player;
 import VASSAL.chat.PlayerEncoder;
+import VASSAL.chat.PlayerStatus;
 import VASSAL.chat.PrivateChatEncoder;
 import VASSAL.chat.PrivateChatManager;
 import VASSAL.chat.Room;
@@ -95,6 +97,11 @@ public class NodeClient implements LockableChatServerConnection,
 
   private SocketHandler sender;
 
+  // The players on the server, kept up to date by deltas from servers which send them
+  private Node roster;
+  private long rosterSeq;
+  private boolean resyncRequested;
+
   protected final String host;
   protected final int port;
 
@@ -179,6 +186,8 @@ public class NodeClient implements LockableChatServerConnection,
       }
       currentRoom = null;
       allRooms = new NodeRoom[0];
+      roster = null;
+      resyncRequested = false;
     }
     propSupport.firePropertyChange(CONNECTED, null,
         isConnected() ? Boolean.TRUE : Boolean.FALSE);
@@ -193,6 +202,8 @@ public class NodeClient implements LockableChatServerConnection,
         .getValue();
       send(Protocol.encodeRegisterCommand(me.getId(), path,
         new PropertiesEncoder(me.toProperties()).getStringValue()));
+      // Ask to be sent changes to the list of players, rather than the whole list each time
+      send(Protocol.encodeListDeltasRequest());
       if (GameModule.getGameModule() != null) {
         final String username = (String) GameModule.getGameModule().getPrefs()
           .getValue("Login"); //$NON-NLS-1$
@@ -267,7 +278,26 @@ public class NodeClient implements LockableChatServerConnection,
 
   @Override
   public void sendToOthers(Command c) {
-    sendToOthers(encoder.encode(c));
+    sendToOthers(othersDecodeDeltas() ? BasicCommandEncoder.encodeWithDeltas(encoder, c) : encoder.encode(c));
+  }
+
+  /**
+   * @return true if everyone else in our room runs a version which can decode changes to pieces sent as deltas
+   */
+  protected boolean othersDecodeDeltas() {
+    final Room room = currentRoom;
+    if (room == null) {
+      return false;
+    }
+    for (final Player p : room.getPlayerList()) {
+      if (!p.equals(me)) {
+        final PlayerStatus s = p.getStatus();
+        if (!(s instanceof SimpleStatus) || !BasicCommandEncoder.decodesDeltas(((SimpleStatus) s).getClient())) {
+          return false;
+        }
+      }
+    }
+    return true;
   }
 
   public void sendToAll(String msg) {
@@ -281,11 +311,15 @@ public class NodeClient implements LockableChatServerConnection,
   public void forward(String receipientPath, String msg) {
     if (isConnected() && currentRoom != null && msg != null) {
       msg = checker.filter(msg, defaultRoomName, currentRoom.getName());
+      // Short messages are sent as they are, and so are longer ones which don't compress
       if (msg.length() > compressionLimit) {
         try {
-          msg = ZIP_HEADER + Base64.encodeBase64String(
+          final String zipped = ZIP_HEADER + Base64.encodeBase64String(
             Compressor.compress(msg.getBytes(StandardCharsets.UTF_8))
           );
+          if (zipped.length() < msg.length()) {
+            msg = zipped;
+          }
         }
         // FIXME: review error message
         catch (final IOException e) {
@@ -486,44 +520,30 @@ public class NodeClient implements LockableChatServerConnection,
    *          Encoded message
    */
   public void handleMessageFromServer(String msg) {
-    final Node n;
+    Node n;
     final Properties p;
-    if ((n = Protocol.decodeListCommand(msg)) != null) {
-      final Node mod = n.getChild(moduleName);
-      if (mod != null) {
-        updateRooms(mod);
+    final List<String[]> changes;
+    if ((n = Protocol.decodeListSnapshot(msg)) != null) {
+      roster = n;
+      rosterSeq = Protocol.decodeListSequence(msg);
+      resyncRequested = false;
+      playersChanged(roster);
+    }
+    else if ((changes = Protocol.decodeListDelta(msg)) != null) {
+      if (roster != null && Protocol.decodeListSequence(msg) == rosterSeq + 1) {
+        applyListDelta(roster, changes);
+        ++rosterSeq;
+        playersChanged(roster);
       }
-      // Rooms have been updated with any new players (including us), so perform
-      // a Synchronize
-      // for a move to a new room if needed.
-      if (pendingSynchToRoom != null) {
-
-        new SynchAction(pendingSynchToRoom.getOwningPlayer(), this)
-          .actionPerformed(null);
-
-        GameModule.getGameModule().warn(Resources.getString("Chat.synchronize_complete"));
-
-        final GameModule gm = GameModule.getGameModule();
-        final Chatter chatter = gm.getChatter();
-        final String playerName = getUserInfo().getName();
-        final List<String> errors = new ArrayList<>();
-
-        final boolean compatible = checkCompatibility(pendingSynchToRoom, errors);
-
-        Command chat = new Chatter.DisplayText(chatter, "-!<b> &lt;" + playerName + "&gt; " + Resources.getString("Chat.joining_room_chat", pendingSynchToRoom.getName()));
-        pendingSynchToRoom = null;
-        if (!compatible) {
-          for (final String error : errors) {
-            chat = chat.append(new Chatter.DisplayText(chatter, "-?<b> &lt;" + playerName + "&gt;  " + error));
-          }
-        }
-        chat = chat.append(new Chatter.DisplayText(chatter, compatible ? "-!<b> " + Resources.getString("Chat.join_ok", playerName)  : "-!<b> " + Resources.getString("Chat.join_not_ok", playerName)));
-
-        chat.execute();
-        gm.sendAndLog(chat);
-
+      else if (!resyncRequested) {
+        // We have missed a change, so ask for the whole list again
+        resyncRequested = true;
+        send(Protocol.encodeListDeltasRequest());
       }
     }
+    else if ((n = Protocol.decodeListCommand(msg)) != null) {
+      playersChanged(n);
+    }
     else if ((p = Protocol.decodeRoomsInfo(msg)) != null) {
       for (final NodeRoom aRoom : allRooms) {
         final String infoString = p.getProperty(aRoom.getName());
@@ -565,6 +585,76 @@ public class NodeClient implements LockableChatServerConnection,
     }
   }
 
+  /**
+   * The list of players on the server has changed
+   *
+   * @param n the root of the list
+   */
+  protected void playersChanged(Node n) {
+    final Node mod = n.getChild(moduleName);
+
+    if (mod != null) {
+      updateRooms(mod);
+    }
+    // Rooms have been updated with any new players (including us), so perform
+    // a Synchronize
+    // for a move to a new room if needed.
+    if (pendingSynchToRoom != null) {
+
+      new SynchAction(pendingSynchToRoom.getOwningPlayer(), this)
+        .actionPerformed(null);
+
+      GameModule.getGameModule().warn(Resources.getString("Chat.synchronize_complete"));
+
+      final GameModule gm = GameModule.getGameModule();
+      final Chatter chatter = gm.getChatter();
+      final String playerName = getUserInfo().getName();
+      final List<String> errors = new ArrayList<>();
+
+      final boolean compatible = checkCompatibility(pendingSynchToRoom, errors);
+
+      Command chat = new Chatter.DisplayText(chatter, "-!<b> &lt;" + playerName + "&gt; " + Resources.getString("Chat.joining_room_chat", pendingSynchToRoom.getName()));
+      pendingSynchToRoom = null;
+      if (!compatible) {
+        for (final String error : errors) {
+          chat = chat.append(new Chatter.DisplayText(chatter, "-?<b> &lt;" + playerName + "&gt;  " + error));
+        }
+      }
+      chat = chat.append(new Chatter.DisplayText(chatter, compatible ? "-!<b> " + Resources.getString("Chat.join_ok", playerName)  : "-!<b> " + Resources.getString("Chat.join_not_ok", playerName)));
+
+      chat.execute();
+      gm.sendAndLog(chat);
+
+    }
+  }
+
+  /**
+   * Applies changes to the list of players
+   *
+   * @param root the root of the list
+   * @param changes path and info of each player added, moved or changed, or path and null for each one removed
+   */
+  private static void applyListDelta(Node root, List<String[]> changes) {
+    for (final String[] change : changes) {
+      if (change[1] != null) {
+        Node.build(root, change[0]).setInfo(change[1]);
+        continue;
+      }
+
+      final Node node = root.getDescendant(change[0]);
+      if (node != null && node != root) {
+        // Remove any rooms left empty too, as they would not appear in a full list
+        Node parent = node.getParent();
+        parent.remove(node);
+        while (parent != root && parent.getChildren().length == 0) {
+          final Node grandparent = parent.getParent();
+          grandparent.remove(parent);
+          parent = grandparent;
+        }
+      }
+    }
+  }
+
   @Override
   public void handleMessage(String msg) {
     handleMessageFromServer(msg);
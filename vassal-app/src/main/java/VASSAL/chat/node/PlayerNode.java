@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.net.Socket;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import VASSAL.tools.SequenceEncoder;
 
@@ -36,11 +38,27 @@ public class PlayerNode extends Node implements SocketWatcher {
   protected String info;
   private final AsynchronousServerNode server;
   private static ConnectionLimiter connLimiter = new ConnectionLimiter();
+  private volatile boolean listDeltas;
+  private final AtomicBoolean snapshotRequested = new AtomicBoolean();
 
   public PlayerNode(Socket socket, AsynchronousServerNode server) throws IOException {
     super(null, null, null);
     this.server = server;
     input = new SocketHandler(socket, this);
+    server.getMetrics().connectionOpened(input);
+    input.start();
+  }
+
+  /**
+   * Creates a node for a connection which has been accepted by a {@link NioServer}
+   * @param connection creates the handler for the connection, which will deliver messages to this node
+   * @param server the server node
+   */
+  public PlayerNode(Function<SocketWatcher, SocketHandler> connection, AsynchronousServerNode server) {
+    super(null, null, null);
+    this.server = server;
+    input = connection.apply(this);
+    server.getMetrics().connectionOpened(input);
     input.start();
   }
 
@@ -131,10 +149,30 @@ public class PlayerNode extends Node implements SocketWatcher {
     else if ((cmd = Protocol.decodeLoginCommand(line)) != null) {
       connLimiter.register(cmd, input);
     }
+    else if (Protocol.decodeListDeltasRequest(line)) {
+      listDeltas = true;
+      snapshotRequested.set(true);
+      server.updateInfo(this);
+    }
+  }
+
+  /**
+   * @return true if our client has asked to be sent changes to the list of players rather than the whole list
+   */
+  public boolean isAcceptingListDeltas() {
+    return listDeltas;
+  }
+
+  /**
+   * @return true if our client has asked for a snapshot of the list of players since this was last called
+   */
+  public boolean takeSnapshotRequest() {
+    return snapshotRequested.getAndSet(false);
   }
 
   @Override
   public void socketClosed(SocketHandler handler) {
+    server.getMetrics().connectionClosed(handler);
     server.disconnect(this);
   }
 }
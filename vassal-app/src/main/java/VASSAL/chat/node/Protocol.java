@@ -18,6 +18,10 @@
 package VASSAL.chat.node;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import VASSAL.tools.PropertiesEncoder;
@@ -40,6 +44,12 @@ public class Protocol {
   public static final String ROOM_INFO = "ROOM_INFO\t"; //$NON-NLS-1$
   public static final String LOGIN = "LOGIN\t"; //$NON-NLS-1$
   public static final String KICK = "KICK\t"; //$NON-NLS-1$
+  public static final String LIST_DELTAS = "LIST_DELTAS\t"; //$NON-NLS-1$
+  public static final String LIST_SNAPSHOT = "LIST_SNAPSHOT\t"; //$NON-NLS-1$
+  public static final String LIST_DELTA = "LIST_DELTA\t"; //$NON-NLS-1$
+
+  private static final String JOINED = "+"; //$NON-NLS-1$
+  private static final String LEFT = "-"; //$NON-NLS-1$
 
   /**
    * Contains registration information sent when a client initially connects to
@@ -239,6 +249,31 @@ public class Protocol {
     return value == null ? LIST : LIST + value;
   }
 
+  private static String encodeList(Map<String, String> players) {
+    final SequenceEncoder list = new SequenceEncoder('\t');
+    for (final Map.Entry<String, String> e : players.entrySet()) {
+      list.append(new SequenceEncoder(e.getKey(), '=').append(e.getValue()).getValue());
+    }
+    final String value = list.getValue();
+    return value == null ? "" : value;
+  }
+
+  private static Node decodeList(String list) {
+    final Node root = new Node(null, null, null);
+    if (list.isEmpty()) {
+      return root;
+    }
+    final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(list, '\t');
+    while (st.hasMoreTokens()) {
+      final String nodeInfo = st.nextToken();
+      final SequenceEncoder.Decoder st2 = new SequenceEncoder.Decoder(nodeInfo, '=');
+      final String path = st2.nextToken();
+      final String info = st2.nextToken();
+      Node.build(root, path).setInfo(info);
+    }
+    return root;
+  }
+
   /**
    * @see #encodeListCommand
    * @param cmd
@@ -247,18 +282,111 @@ public class Protocol {
   public static Node decodeListCommand(String cmd) {
     Node node = null;
     if (cmd.startsWith(LIST)) {
-      final Node root = new Node(null, null, null);
-      final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(cmd.substring(LIST.length()), '\t');
+      node = decodeList(cmd.substring(LIST.length()));
+    }
+    return node;
+  }
+
+  /**
+   * Sent by a client which can apply changes to the list of connections, in place of receiving the full
+   * list each time it changes. The server replies with a {@link #encodeListSnapshot snapshot}, and thereafter
+   * sends {@link #encodeListDelta deltas}. Sent again by the client to resynchronize should it miss a delta.
+   * Older servers ignore it, and continue to send {@link #encodeListCommand lists}.
+   */
+  public static String encodeListDeltasRequest() {
+    return LIST_DELTAS;
+  }
+
+  public static boolean decodeListDeltasRequest(String cmd) {
+    return cmd.startsWith(LIST_DELTAS);
+  }
+
+  /**
+   * The current connections to the server, in the format of {@link #encodeListCommand}, as of a sequence number
+   *
+   * @param seq sequence number of the last delta included
+   * @param players path -> info for each player node
+   * @return
+   */
+  public static String encodeListSnapshot(long seq, Map<String, String> players) {
+    return LIST_SNAPSHOT + seq + '\t' + encodeList(players);
+  }
+
+  /**
+   * @see #encodeListSnapshot
+   * @param cmd
+   * @return
+   */
+  public static Node decodeListSnapshot(String cmd) {
+    Node node = null;
+    if (cmd.startsWith(LIST_SNAPSHOT)) {
+      final int tab = cmd.indexOf('\t', LIST_SNAPSHOT.length());
+      node = decodeList(tab < 0 ? "" : cmd.substring(tab + 1));
+    }
+    return node;
+  }
+
+  /**
+   * The changes to the connections to the server since the previous sequence number
+   *
+   * @param seq sequence number, one more than that of the previous delta
+   * @param joined path -> info for each player node which has been added, moved or whose info has changed
+   * @param left path of each player node which has been removed or moved
+   * @return
+   */
+  public static String encodeListDelta(long seq, Map<String, String> joined, Collection<String> left) {
+    final SequenceEncoder se = new SequenceEncoder(Long.toString(seq), '\t');
+    for (final String path : left) {
+      se.append(new SequenceEncoder(LEFT, '=').append(path).getValue());
+    }
+    for (final Map.Entry<String, String> e : joined.entrySet()) {
+      se.append(new SequenceEncoder(JOINED, '=').append(e.getKey()).append(e.getValue()).getValue());
+    }
+    return LIST_DELTA + se.getValue();
+  }
+
+  /**
+   * @see #encodeListDelta
+   * @param cmd
+   * @return path and info of each change, in order, with a null info for a removal
+   */
+  public static List<String[]> decodeListDelta(String cmd) {
+    List<String[]> changes = null;
+    if (cmd.startsWith(LIST_DELTA)) {
+      changes = new ArrayList<>();
+      final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(cmd.substring(LIST_DELTA.length()), '\t');
+      st.nextToken(); // Sequence number
       while (st.hasMoreTokens()) {
-        final String nodeInfo = st.nextToken();
-        final SequenceEncoder.Decoder st2 = new SequenceEncoder.Decoder(nodeInfo, '=');
-        final String path = st2.nextToken();
-        final String info = st2.nextToken();
-        Node.build(root, path).setInfo(info);
+        final SequenceEncoder.Decoder st2 = new SequenceEncoder.Decoder(st.nextToken(), '=');
+        final String op = st2.nextToken("");
+        final String path = st2.nextToken(null);
+        if (path != null) {
+          changes.add(new String[] {path, JOINED.equals(op) ? st2.nextToken("") : null});
+        }
       }
-      node = root;
     }
-    return node;
+    return changes;
+  }
+
+  /**
+   * @param cmd a {@link #encodeListSnapshot snapshot} or {@link #encodeListDelta delta}
+   * @return its sequence number, or -1 if none
+   */
+  public static long decodeListSequence(String cmd) {
+    final String prefix = cmd.startsWith(LIST_SNAPSHOT) ? LIST_SNAPSHOT : cmd.startsWith(LIST_DELTA) ? LIST_DELTA : null;
+    if (prefix != null) {
+      int end = cmd.indexOf('\t', prefix.length());
+      if (end < 0) {
+        end = cmd.length();
+      }
+      try {
+        return Long.parseLong(cmd.substring(prefix.length(), end));
+      }
+      catch (NumberFormatException e) {
+        // Fall through
+      }
+    }
+    return -1;
   }
 
   public static boolean decodeRegisterRequest(String cmd) {
@@ -36,10 +36,17 @@ public class Server extends Thread {
   public Server(AsynchronousServerNode rootNode, int port) throws IOException {
     this.rootNode = rootNode;
     socket = new ServerSocket(port);
-    System.err.println("Started server on port " + port); //$NON-NLS-1$
+    System.err.println("Started server on port " + getPort()); //$NON-NLS-1$
     start();
   }
 
+  /**
+   * @return the port on which we are listening
+   */
+  public int getPort() {
+    return socket.getLocalPort();
+  }
+
   @Override
   public void run() {
     int consecutiveFailures = 0;
@@ -68,8 +75,24 @@ public class Server extends Thread {
     if ("null".equals(reportURL)) { //$NON-NLS-1$
       reportURL = null;
     }
+    final long coalesce = Long.parseLong(p.getProperty("coalesce", String.valueOf(AsynchronousServerNode.DEFAULT_COALESCE_MILLIS))); //NON-NLS
+    SocketHandler.setDefaultBatching(
+      Integer.parseInt(p.getProperty("batchSize", String.valueOf(SocketHandler.DEFAULT_MAX_BATCH_SIZE))), //NON-NLS
+      Long.parseLong(p.getProperty("batchDelay", "0")) //NON-NLS
+    );
     if (!"true".equals(p.getProperty("test"))) { //$NON-NLS-1$ //$NON-NLS-2$
-      new Server(new AsynchronousServerNode(reportURL), port);
+      final AsynchronousServerNode rootNode = new AsynchronousServerNode(reportURL, coalesce);
+      rootNode.getMetrics().registerMBean();
+      final String metricsPort = p.getProperty("metricsPort"); //NON-NLS
+      if (metricsPort != null) {
+        new MetricsEndpoint(rootNode.getMetrics(), Integer.parseInt(metricsPort));
+      }
+      if ("true".equals(p.getProperty("nio"))) { //NON-NLS
+        new NioServer(rootNode, port);
+      }
+      else {
+        new Server(rootNode, port);
+      }
       new LockWatcher(1000L * 60 * 30, 1000L * 60, port).start();
     }
     if (p.getProperty("test") != null) { //$NON-NLS-1$
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Measures the performance of a {@link ServerNode}: its connections, the traffic over them, the messages
+ * forwarded to each room, the messages waiting to be sent, and the time spent waiting for the locks which
+ * guard changes to its modules.
+ *
+ * Operators can read these through JMX, once {@link #registerMBean} has been called, or from a
+ * {@link MetricsEndpoint}, as text or JSON.
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+  private static final Logger logger =
+    Logger.getLogger(ServerMetrics.class.getName());
+
+  /** The name under which we are registered with the platform MBean server */
+  public static final String OBJECT_NAME = "VASSAL.chat.node:type=Server"; //NON-NLS
+
+  /** Time in milliseconds over which rates are measured */
+  public static final long SAMPLE_INTERVAL = 1000L * 10;
+
+  private final Set<SocketHandler> connections = ConcurrentHashMap.newKeySet();
+  private final AtomicLong connectionsAccepted = new AtomicLong();
+  private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+
+  // Traffic over connections which have closed
+  private final AtomicLong closedBytesReceived = new AtomicLong();
+  private final AtomicLong closedBytesSent = new AtomicLong();
+  private final AtomicLong closedMessagesReceived = new AtomicLong();
+  private final AtomicLong closedMessagesSent = new AtomicLong();
+
+  private final LongAdder forwarded = new LongAdder();
+  // Messages to each room since the last sample; a room is taken out, count and all, when sampled
+  private final Map<String, Long> forwardedToRoom = new ConcurrentHashMap<>();
+
+  private final LongAdder lockAcquisitions = new LongAdder();
+  private final LongAdder lockWaitNanos = new LongAdder();
+  private final AtomicLong maxLockWaitNanos = new AtomicLong();
+
+  // Updated by sample()
+  private long lastSample = System.nanoTime();
+  private long lastForwarded;
+  private volatile double forwardedPerSecond;
+  private volatile Map<String, Double> roomRates = Collections.emptyMap();
+
+  /**
+   * Starts keeping track of a connection, until {@link #connectionClosed} is called for it.
+   */
+  public void connectionOpened(SocketHandler handler) {
+    connections.add(handler);
+    connectionsAccepted.incrementAndGet();
+  }
+
+  public void connectionClosed(SocketHandler handler) {
+    if (!connections.remove(handler)) {
+      return;
+    }
+    closedBytesReceived.addAndGet(handler.getBytesReceived());
+    closedBytesSent.addAndGet(handler.getBytesSent());
+    closedMessagesReceived.addAndGet(handler.getMessagesReceived());
+    closedMessagesSent.addAndGet(handler.getMessagesSent());
+    if (handler.isOverflowed()) {
+      slowConsumerDisconnects.incrementAndGet();
+    }
+  }
+
+  /**
+   * Counts a message forwarded to a room.
+   * @param room the module and room, as given by {@link #getRoom}
+   */
+  public void messageForwarded(String room) {
+    forwarded.increment();
+    forwardedToRoom.merge(room, 1L, Long::sum);
+  }
+
+  /**
+   * @return the module and room to which a message forwarded to the given path goes, for counting by room
+   */
+  public static String getRoom(String path) {
+    final int module = path.indexOf('/');
+    if (module < 0) {
+      return path;
+    }
+    final int room = path.indexOf('/', module + 1);
+    return room < 0 ? path : path.substring(0, room);
+  }
+
+  /**
+   * Records the time spent waiting for a lock.
+   * @param nanos the time from asking for the lock until it was held
+   */
+  public void lockAcquired(long nanos) {
+    lockAcquisitions.increment();
+    lockWaitNanos.add(nanos);
+    maxLockWaitNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * Measures rates since the last sample. Called every {@link #SAMPLE_INTERVAL}.
+   */
+  public synchronized void sample() {
+    final long now = System.nanoTime();
+    final double seconds = (now - lastSample) / 1e9;
+    if (seconds <= 0) {
+      return;
+    }
+    lastSample = now;
+
+    final long f = forwarded.sum();
+    forwardedPerSecond = (f - lastForwarded) / seconds;
+    lastForwarded = f;
+
+    final Map<String, Double> rates = new TreeMap<>();
+    // Removing a room's count takes it atomically with respect to messageForwarded, so none are lost. A room
+    // which has gone quiet, and may be gone altogether, has no count to take, and so is forgotten.
+    for (final String room : forwardedToRoom.keySet()) {
+      final Long count = forwardedToRoom.remove(room);
+      if (count != null) {
+        rates.put(room, count / seconds);
+      }
+    }
+    roomRates = Collections.unmodifiableMap(rates);
+  }
+
+  /**
+   * Registers with the platform MBean server as {@link #OBJECT_NAME}.
+   */
+  public void registerMBean() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+    catch (JMException e) {
+      logger.log(Level.WARNING, "Unable to register " + OBJECT_NAME, e); //NON-NLS
+    }
+  }
+
+  @Override
+  public int getConnections() {
+    return connections.size();
+  }
+
+  @Override
+  public long getConnectionsAccepted() {
+    return connectionsAccepted.get();
+  }
+
+  @Override
+  public long getSlowConsumerDisconnects() {
+    return slowConsumerDisconnects.get();
+  }
+
+  @Override
+  public long getBytesReceived() {
+    long n = closedBytesReceived.get();
+    for (final SocketHandler h : connections) {
+      n += h.getBytesReceived();
+    }
+    return n;
+  }
+
+  @Override
+  public long getBytesSent() {
+    long n = closedBytesSent.get();
+    for (final SocketHandler h : connections) {
+      n += h.getBytesSent();
+    }
+    return n;
+  }
+
+  @Override
+  public long getMessagesReceived() {
+    long n = closedMessagesReceived.get();
+    for (final SocketHandler h : connections) {
+      n += h.getMessagesReceived();
+    }
+    return n;
+  }
+
+  @Override
+  public long getMessagesSent() {
+    long n = closedMessagesSent.get();
+    for (final SocketHandler h : connections) {
+      n += h.getMessagesSent();
+    }
+    return n;
+  }
+
+  @Override
+  public long getMessagesForwarded() {
+    return forwarded.sum();
+  }
+
+  @Override
+  public double getMessagesForwardedPerSecond() {
+    return forwardedPerSecond;
+  }
+
+  @Override
+  public Map<String, Double> getRoomMessagesPerSecond() {
+    return roomRates;
+  }
+
+  @Override
+  public long getQueueDepth() {
+    long n = 0;
+    for (final SocketHandler h : connections) {
+      n += h.getQueueDepth();
+    }
+    return n;
+  }
+
+  @Override
+  public long getMaxQueueDepth() {
+    long n = 0;
+    for (final SocketHandler h : connections) {
+      n = Math.max(n, h.getQueueDepth());
+    }
+    return n;
+  }
+
+  @Override
+  public long getQueuedBytes() {
+    long n = 0;
+    for (final SocketHandler h : connections) {
+      n += h.getQueuedBytes();
+    }
+    return n;
+  }
+
+  @Override
+  public long getLockAcquisitions() {
+    return lockAcquisitions.sum();
+  }
+
+  @Override
+  public double getLockWaitMillis() {
+    return lockWaitNanos.sum() / 1e6;
+  }
+
+  @Override
+  public double getMaxLockWaitMillis() {
+    return maxLockWaitNanos.get() / 1e6;
+  }
+
+  /**
+   * @return the measurements by name, in the order in which they are reported
+   */
+  public Map<String, Number> getValues() {
+    final Map<String, Number> m = new LinkedHashMap<>();
+    m.put("connections", getConnections()); //NON-NLS
+    m.put("connections_accepted", getConnectionsAccepted()); //NON-NLS
+    m.put("slow_consumer_disconnects", getSlowConsumerDisconnects()); //NON-NLS
+    m.put("bytes_received", getBytesReceived()); //NON-NLS
+    m.put("bytes_sent", getBytesSent()); //NON-NLS
+    m.put("messages_received", getMessagesReceived()); //NON-NLS
+    m.put("messages_sent", getMessagesSent()); //NON-NLS
+    m.put("messages_forwarded", getMessagesForwarded()); //NON-NLS
+    m.put("messages_forwarded_per_second", getMessagesForwardedPerSecond()); //NON-NLS
+    m.put("queue_depth", getQueueDepth()); //NON-NLS
+    m.put("max_queue_depth", getMaxQueueDepth()); //NON-NLS
+    m.put("queued_bytes", getQueuedBytes()); //NON-NLS
+    m.put("lock_acquisitions", getLockAcquisitions()); //NON-NLS
+    m.put("lock_wait_millis", getLockWaitMillis()); //NON-NLS
+    m.put("max_lock_wait_millis", getMaxLockWaitMillis()); //NON-NLS
+    return m;
+  }
+
+  /**
+   * @return the measurements as lines of text, one per value, in the Prometheus text format
+   */
+  public String toText() {
+    final StringBuilder sb = new StringBuilder();
+    for (final Map.Entry<String, Number> e : getValues().entrySet()) {
+      sb.append("vassal_").append(e.getKey()).append(' ').append(e.getValue()).append('\n'); //NON-NLS
+    }
+    for (final Map.Entry<String, Double> e : getRoomMessagesPerSecond().entrySet()) {
+      sb.append("vassal_room_messages_per_second{room=\"") //NON-NLS
+        .append(e.getKey().replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")) //NON-NLS
+        .append("\"} ") //NON-NLS
+        .append(e.getValue())
+        .append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return the measurements as a JSON object, with the rates of each room in an object named "rooms"
+   */
+  public String toJson() {
+    final StringBuilder sb = new StringBuilder("{"); //NON-NLS
+    for (final Map.Entry<String, Number> e : getValues().entrySet()) {
+      appendJsonString(sb, e.getKey());
+      sb.append(':').append(e.getValue()).append(',');
+    }
+    sb.append("\"rooms\":{"); //NON-NLS
+    String sep = ""; //NON-NLS
+    for (final Map.Entry<String, Double> e : getRoomMessagesPerSecond().entrySet()) {
+      sb.append(sep);
+      appendJsonString(sb, e.getKey());
+      sb.append(':').append(e.getValue());
+      sep = ","; //NON-NLS
+    }
+    return sb.append("}}").toString(); //NON-NLS
+  }
+
+  private static void appendJsonString(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); ++i) {
+      final char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      }
+      else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c)); //NON-NLS
+      }
+      else {
+        sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+}
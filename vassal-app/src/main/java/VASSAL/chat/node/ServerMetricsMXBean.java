@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.util.Map;
+
+/**
+ * The measurements of a server's performance made by {@link ServerMetrics}, as seen through JMX.
+ * Counts are since the server started; rates are over the last {@link ServerMetrics#SAMPLE_INTERVAL}.
+ */
+public interface ServerMetricsMXBean {
+  /** @return the number of open connections */
+  int getConnections();
+
+  /** @return the number of connections accepted */
+  long getConnectionsAccepted();
+
+  /** @return the number of connections closed because the client stopped reading what was sent to it */
+  long getSlowConsumerDisconnects();
+
+  long getBytesReceived();
+
+  long getBytesSent();
+
+  long getMessagesReceived();
+
+  long getMessagesSent();
+
+  /** @return the number of messages forwarded from one client to others */
+  long getMessagesForwarded();
+
+  double getMessagesForwardedPerSecond();
+
+  /** @return the messages per second forwarded to each room which had any, by module and room name */
+  Map<String, Double> getRoomMessagesPerSecond();
+
+  /** @return the number of messages waiting to be sent, over all connections */
+  long getQueueDepth();
+
+  /** @return the most messages waiting to be sent to any one connection */
+  long getMaxQueueDepth();
+
+  /** @return the size of the messages waiting to be sent, over all connections */
+  long getQueuedBytes();
+
+  /** @return the number of times a lock on the server or one of its modules was taken */
+  long getLockAcquisitions();
+
+  /** @return the total time spent waiting for those locks */
+  double getLockWaitMillis();
+
+  /** @return the longest wait for one of those locks */
+  double getMaxLockWaitMillis();
+}
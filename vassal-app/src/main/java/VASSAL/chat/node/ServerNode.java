@@ -21,9 +21,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import VASSAL.tools.PropertiesEncoder;
@@ -31,25 +35,121 @@ import VASSAL.tools.SequenceEncoder;
 
 public class ServerNode extends Node {
   private static final Logger logger = Logger.getLogger(ServerNode.class.getName());
+  private static final int MAX_ROUTES = 10000;
   private final SendContentsTask sendContents;
+  private final Timer timer = new Timer();
+  private final ServerMetrics metrics = new ServerMetrics();
+
+  /**
+   * Changes to the nodes within a module are made holding the module's lock, so that busy modules don't
+   * hold up others. Messages are routed without locking, since the children of a {@link Node} may be
+   * read while they are being changed.
+   */
+  private static class ModuleNode extends Node {
+    // Incremented, holding this module's lock, whenever the nodes within it change
+    private volatile long version;
+
+    ModuleNode(Node parent, String id) {
+      super(parent, id, null);
+    }
+  }
+
+  /**
+   * The targets of messages forwarded to a path, valid as long as the version of their module is unchanged
+   */
+  private static class Route {
+    final ModuleNode module;
+    final long version;
+    final MsgSender sender;
+    final String room;
+
+    Route(ModuleNode module, long version, MsgSender sender, String room) {
+      this.module = module;
+      this.version = version;
+      this.sender = sender;
+      this.room = room;
+    }
+  }
+
+  private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+  // Incremented whenever any module changes, for routes not within a single module
+  private final AtomicLong version = new AtomicLong();
 
   public ServerNode() {
     super(null, null, null);
     sendContents = new SendContentsTask();
-    final Timer t = new Timer();
-    t.schedule(sendContents, 0, 1000);
+    timer.schedule(sendContents, 0, 1000);
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        metrics.sample();
+      }
+    }, ServerMetrics.SAMPLE_INTERVAL, ServerMetrics.SAMPLE_INTERVAL);
+  }
+
+  /**
+   * Stops the threads which send out the contents of modules and sample our metrics.
+   */
+  public void shutDown() {
+    timer.cancel();
+  }
+
+  /**
+   * @return the measurements of our performance
+   */
+  public ServerMetrics getMetrics() {
+    return metrics;
   }
 
-  public synchronized void forward(String senderPath, String msg) {
-    final MsgSender target = getMsgSender(senderPath);
-    target.send(msg);
+  public void forward(String senderPath, String msg) {
+    final Route route = getRoute(senderPath);
+    route.sender.send(msg);
+    metrics.messageForwarded(route.room);
   }
 
-  public synchronized MsgSender getMsgSender(String path) {
+  public MsgSender getMsgSender(String path) {
+    return getRoute(path).sender;
+  }
+
+  private Route getRoute(String path) {
+    final Route cached = routes.get(path);
+    if (cached != null && isCurrent(cached)) {
+      return cached;
+    }
+
+    final List<String> ids = parsePath(path);
+
+    // Note the version before finding the targets, so that any change while we do so invalidates the route
+    final Node first = ids.isEmpty() ? null : getChild(ids.get(0));
+    final ModuleNode module = (first instanceof ModuleNode) ? (ModuleNode) first : null;
+    final long v = (module != null) ? module.version : version.get();
+
+    final MsgSender sender = findTargets(ids);
+    if (routes.size() >= MAX_ROUTES) {
+      routes.clear();
+    }
+    final Route route = new Route(module, v, sender, ServerMetrics.getRoom(path));
+    routes.put(path, route);
+    return route;
+  }
+
+  /**
+   * A route within a module is current only while that module is unchanged and still ours; a route found
+   * while its module was being removed would otherwise never go stale, as a removed module never changes
+   * again, and would hide a new module of the same name.
+   */
+  private boolean isCurrent(Route route) {
+    if (route.module == null) {
+      return version.get() == route.version;
+    }
+    // Read the version first; the write to it publishes the module's removal
+    return route.module.version == route.version && route.module.getParent() == this;
+  }
+
+  private MsgSender findTargets(List<String> ids) {
     Node[] target = {this};
-    final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(path, '/');
-    while (st.hasMoreTokens()) {
-      String childId = st.nextToken();
+    for (String childId : ids) {
       if ("*".equals(childId)) { //$NON-NLS-1$
         final ArrayList<Node> l = new ArrayList<>();
         for (final Node node : target) {
@@ -85,6 +185,10 @@ public class ServerNode extends Node {
       }
     }
 
+    if (target.length == 1) {
+      return target[0];
+    }
+
     final MsgSender[] senders = Arrays.copyOf(target, target.length);
 
     return msg -> {
@@ -94,32 +198,109 @@ public class ServerNode extends Node {
     };
   }
 
-  public synchronized void disconnect(Node target) {
-    final Node mod = getModule(target);
-    if (mod != null) {
-      final Node room = target.getParent();
-      room.remove(target);
-      if (room.getChildren().length == 0) {
-        room.getParent().remove(room);
+  private static List<String> parsePath(String path) {
+    final List<String> ids = new ArrayList<>();
+    final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(path, '/');
+    while (st.hasMoreTokens()) {
+      ids.add(st.nextToken());
+    }
+    return ids;
+  }
+
+  /**
+   * @return the module with the given id, which is created if necessary
+   */
+  private ModuleNode getOrCreateModule(String id) {
+    final Node n = getChild(id);
+    if (n instanceof ModuleNode) {
+      return (ModuleNode) n;
+    }
+
+    final long waitStart = System.nanoTime();
+    synchronized (this) {
+      metrics.lockAcquired(System.nanoTime() - waitStart);
+      final Node existing = getChild(id);
+      if (existing instanceof ModuleNode) {
+        return (ModuleNode) existing;
+      }
+      final ModuleNode mod = new ModuleNode(this, id);
+      add(mod);
+      version.incrementAndGet();
+      return mod;
+    }
+  }
+
+  /**
+   * Removes an empty module. Must be called holding the module's lock.
+   */
+  private void removeModule(ModuleNode mod) {
+    synchronized (this) {
+      remove(mod);
+      mod.setParent(null);
+    }
+  }
+
+  /**
+   * Records a change within a module. Must be called holding the module's lock.
+   */
+  private void changed(ModuleNode mod) {
+    mod.version++;
+    version.incrementAndGet();
+  }
+
+  /**
+   * Finds or builds the descendant of a module with the given path. Must be called holding the module's lock.
+   */
+  private static Node build(ModuleNode mod, List<String> ids) {
+    Node node = mod;
+    for (final String childId : ids) {
+      Node child = node.getChild(childId);
+      if (child == null) {
+        child = new Node(node, childId, null);
+        node.add(child);
+      }
+      node = child;
+    }
+    return node;
+  }
+
+  public void disconnect(Node target) {
+    while (true) {
+      final Node m = getModule(target);
+      if (!(m instanceof ModuleNode)) {
+        return;
       }
-      if (mod.getChildren().length == 0) {
-        remove(mod);
+
+      final ModuleNode mod = (ModuleNode) m;
+      final long waitStart = System.nanoTime();
+      synchronized (mod) {
+        metrics.lockAcquired(System.nanoTime() - waitStart);
+        if (mod.getParent() != this || getModule(target) != mod) {
+          continue; // It moved while we were waiting
+        }
+
+        final Node room = target.getParent();
+        room.remove(target);
+        target.setParent(null);
+        if (room != mod && room.getChildren().length == 0) {
+          room.getParent().remove(room);
+        }
+        if (mod.getChildren().length == 0) {
+          removeModule(mod);
+        }
+        changed(mod);
       }
       sendContents(mod);
+      return;
     }
   }
 
-  protected synchronized void sendContents(Node module) {
+  protected void sendContents(Node module) {
     sendContents.markChanged(module);
   }
 
-  public synchronized void registerNode(String parentPath, Node newNode) {
-    final Node newParent = Node.build(this, parentPath);
-    newParent.add(newNode);
-    final Node module = getModule(newParent);
-    if (module != null) {
-      sendContents(module);
-    }
+  public void registerNode(String parentPath, Node newNode) {
+    move(newNode, parentPath);
   }
 
   public Node getModule(Node n) {
@@ -130,20 +311,48 @@ public class ServerNode extends Node {
     return module;
   }
 
-  public synchronized void move(Node target, String newParentPath) {
-    final Node oldMod = getModule(target);
-    final Node newParent = Node.build(this, newParentPath);
-    newParent.add(target);
-    final Node mod = getModule(newParent);
-    if (mod != null) {
-      sendContents(mod);
+  public void move(Node target, String newParentPath) {
+    final List<String> ids = parsePath(newParentPath);
+    if (ids.isEmpty()) {
+      return;
     }
-    if (oldMod != mod && oldMod != null) {
-      sendContents(oldMod);
+
+    while (true) {
+      final Node m = getModule(target);
+      final ModuleNode oldMod = (m instanceof ModuleNode) ? (ModuleNode) m : null;
+      final ModuleNode mod = getOrCreateModule(ids.get(0));
+      if (oldMod != null && oldMod != mod && oldMod.getParent() != this) {
+        continue; // Its old module was removed as we looked
+      }
+
+      // When moving between modules, lock both, always in the same order
+      final ModuleNode first = (oldMod == null || oldMod.getId().compareTo(mod.getId()) > 0) ? mod : oldMod;
+      final ModuleNode second = (first == mod && oldMod != null) ? oldMod : mod;
+      final long waitStart = System.nanoTime();
+      synchronized (first) {
+        synchronized (second) {
+          metrics.lockAcquired(System.nanoTime() - waitStart);
+          if (mod.getParent() != this || getModule(target) != oldMod || (oldMod != null && oldMod.getParent() != this)) {
+            continue; // Something changed while we were waiting
+          }
+
+          build(mod, ids.subList(1, ids.size())).add(target);
+          changed(mod);
+          if (oldMod != null && oldMod != mod) {
+            changed(oldMod);
+          }
+        }
+      }
+
+      sendContents(mod);
+      if (oldMod != mod && oldMod != null) {
+        sendContents(oldMod);
+      }
+      return;
     }
   }
 
-  public synchronized void updateInfo(Node target) {
+  public void updateInfo(Node target) {
     final Node mod = getModule(target);
     if (mod != null) {
       sendContents(mod);
@@ -157,7 +366,7 @@ public class ServerNode extends Node {
    * @param kicker Id of Kicking player
    * @param kickeeId Id of Player to be kicked
    */
-  public synchronized void kick(PlayerNode kicker, String kickeeId) {
+  public void kick(PlayerNode kicker, String kickeeId) {
     // Check the kicker owns the room he is in
     final Node roomNode = kicker.getParent();
     final String roomOwnerId;
@@ -19,8 +19,12 @@ package VASSAL.chat.node;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.InetAddress;
 import java.net.Socket;
@@ -28,8 +32,32 @@ import java.nio.charset.StandardCharsets;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
+/**
+ * Sends and receives the lines of text of the node protocol over a socket.
+ *
+ * Lines to be sent are queued, and written by a thread of our own. Whatever has been queued by the time the
+ * thread gets to it is written in a single batch, up to a limit on the size of a batch, and flushed once,
+ * so that a burst of messages goes out in a few large writes rather than a great many small ones. The
+ * thread can also be allowed to wait a little for more lines before flushing a batch.
+ *
+ * If the lines waiting to be sent grow beyond a limit, because the other end has stopped reading, the
+ * connection is closed.
+ */
 public class SocketHandler {
+  private static final Logger logger =
+    Logger.getLogger(SocketHandler.class.getName());
+
+  /** Default limit on the size of a batch of lines written at once, in characters */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 64 * 1024;
+  /** Default limit on the characters waiting to be sent before the connection is closed */
+  public static final long DEFAULT_MAX_QUEUED = 16L * 1024 * 1024;
+
+  private static volatile int defaultMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private static volatile long defaultMaxBatchDelay;
+
   private final Socket sock;
   private final SocketWatcher handler;
   private final BufferedReader reader;
@@ -39,13 +67,36 @@ public class SocketHandler {
   private Thread readThread = null;
   private Thread writeThread = null;
 
-  private static final String SIGN_OFF = "!BYE"; //$NON-NLS-1$
+  private volatile int maxBatchSize = defaultMaxBatchSize;
+  private volatile long maxBatchDelay = defaultMaxBatchDelay;
+  private final AtomicLong queued = new AtomicLong();
+  private volatile boolean overflowed;
+
+  protected final AtomicLong bytesSent = new AtomicLong();
+  protected final AtomicLong messagesSent = new AtomicLong();
+  protected final AtomicLong batchesSent = new AtomicLong();
+  protected final AtomicLong bytesReceived = new AtomicLong();
+  protected final AtomicLong messagesReceived = new AtomicLong();
+
+  protected static final String SIGN_OFF = "!BYE"; //$NON-NLS-1$
 
   public SocketHandler(Socket sock, SocketWatcher handler) throws IOException {
     this.sock = sock;
     this.handler = handler;
-    reader = new BufferedReader(new InputStreamReader(sock.getInputStream(), StandardCharsets.UTF_8));
-    writer = new BufferedWriter(new OutputStreamWriter(sock.getOutputStream(), StandardCharsets.UTF_8));
+    reader = new BufferedReader(new InputStreamReader(new CountingInputStream(sock.getInputStream()), StandardCharsets.UTF_8));
+    writer = new BufferedWriter(new OutputStreamWriter(new CountingOutputStream(sock.getOutputStream()), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * For subclasses which manage their own connection, such as {@link NioSocketHandler}.
+   * They must override {@link #start}, {@link #writeLine}, {@link #close} and {@link #getInetAddress}.
+   * @param handler receives messages and is told when the connection closes
+   */
+  protected SocketHandler(SocketWatcher handler) {
+    this.sock = null;
+    this.handler = handler;
+    reader = null;
+    writer = null;
   }
 
   public void start() {
@@ -62,6 +113,7 @@ public class SocketHandler {
       String line;
       try {
         while ((line = reader.readLine()) != null) {
+          messagesReceived.incrementAndGet();
           if (SIGN_OFF.equals(line)) {
             break;
           }
@@ -109,9 +161,8 @@ public class SocketHandler {
           }
 
           if (line != null) {
-            // send the message we took off the queue
-            writeNext(line);
-            if (SIGN_OFF.equals(line)) {
+            // send the message we took off the queue, and whatever follows it
+            if (writeBatch(line)) {
               break;
             }
           }
@@ -138,12 +189,71 @@ public class SocketHandler {
     return t;
   }
 
-  private void writeNext(String line) throws IOException {
-    writer.write(line + '\n');
+  /**
+   * Writes the given line, followed by as many more from the queue as will fit in a batch, then flushes them.
+   * @return true if the sign-off was written
+   */
+  private boolean writeBatch(String line) throws IOException {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBatchDelay);
+    long size = 0;
+    int count = 0;
+    boolean signOff = false;
+    while (line != null) {
+      queued.addAndGet(-(line.length() + 1));
+      writer.write(line);
+      writer.write('\n');
+      size += line.length() + 1;
+      ++count;
+
+      if (SIGN_OFF.equals(line)) {
+        signOff = true;
+        break;
+      }
+      if (size >= maxBatchSize) {
+        break;
+      }
+
+      line = writeQueue.poll();
+      if (line == null) {
+        final long wait = deadline - System.nanoTime();
+        if (wait > 0) {
+          try {
+            line = writeQueue.poll(wait, TimeUnit.NANOSECONDS);
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    }
+
     writer.flush();
+    messagesSent.addAndGet(count);
+    batchesSent.incrementAndGet();
+    return signOff;
   }
 
   public void writeLine(String pMessage) {
+    if (overflowed) {
+      return;
+    }
+
+    if (queued.addAndGet(pMessage.length() + 1) > DEFAULT_MAX_QUEUED && sock != null) {
+      // The other end isn't reading. Closing the socket gets the write thread unstuck, if it is.
+      overflowed = true;
+      logger.warning("Disconnecting " + sock.getInetAddress() + ": write queue overflowed"); //NON-NLS
+      writeQueue.clear();
+      queued.set(0);
+      writeQueue.add(SIGN_OFF);
+      try {
+        sock.close();
+      }
+      catch (IOException ignore) {
+        // We're closing it anyway
+      }
+      return;
+    }
+
     try {
       writeQueue.put(pMessage);
     }
@@ -190,4 +300,131 @@ public class SocketHandler {
   public InetAddress getInetAddress() {
     return sock.getInetAddress();
   }
+
+  /**
+   * Sets the limits on batches of lines written for connections created from now on.
+   * @param maxBatchSize limit on the size of a batch, in characters
+   * @param maxBatchDelay time in milliseconds for which to wait for more lines before flushing a batch
+   */
+  public static void setDefaultBatching(int maxBatchSize, long maxBatchDelay) {
+    defaultMaxBatchSize = maxBatchSize;
+    defaultMaxBatchDelay = maxBatchDelay;
+  }
+
+  /**
+   * Sets the limits on batches of lines written for this connection.
+   * @param maxBatchSize limit on the size of a batch, in characters
+   * @param maxBatchDelay time in milliseconds for which to wait for more lines before flushing a batch
+   */
+  public void setBatching(int maxBatchSize, long maxBatchDelay) {
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchDelay = maxBatchDelay;
+  }
+
+  /**
+   * @return limit on the size of a batch of lines written at once
+   */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * @return the number of lines waiting to be sent
+   */
+  public int getQueueDepth() {
+    return writeQueue.size();
+  }
+
+  /**
+   * @return the size of the lines waiting to be sent
+   */
+  public long getQueuedBytes() {
+    return Math.max(0, queued.get());
+  }
+
+  /**
+   * @return the number of bytes sent
+   */
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  /**
+   * @return the number of lines sent
+   */
+  public long getMessagesSent() {
+    return messagesSent.get();
+  }
+
+  /**
+   * @return the number of batches in which the lines were sent, each of which was written and flushed at once
+   */
+  public long getBatchesSent() {
+    return batchesSent.get();
+  }
+
+  /**
+   * @return the number of bytes received
+   */
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  /**
+   * @return the number of lines received
+   */
+  public long getMessagesReceived() {
+    return messagesReceived.get();
+  }
+
+  /**
+   * @return true if the connection was closed because the other end was not reading what we sent
+   */
+  public boolean isOverflowed() {
+    return overflowed;
+  }
+
+  /** Counts the bytes read from the socket */
+  private class CountingInputStream extends FilterInputStream {
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = in.read();
+      if (b >= 0) {
+        bytesReceived.incrementAndGet();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      final int n = in.read(b, off, len);
+      if (n > 0) {
+        bytesReceived.addAndGet(n);
+      }
+      return n;
+    }
+  }
+
+  /** Counts the bytes written to the socket */
+  private class CountingOutputStream extends FilterOutputStream {
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      bytesSent.incrementAndGet();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      bytesSent.addAndGet(len);
+    }
+  }
 }
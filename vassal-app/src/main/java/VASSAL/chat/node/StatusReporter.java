@@ -36,11 +36,19 @@ public class StatusReporter implements Runnable {
   private static final long MIN_SLEEP = 2000;
   private static final long MAX_SLEEP = 1000 * 60 * 60 * 2;
   private final AsynchronousServerNode server;
+  private final Thread thread;
+  private volatile boolean running = true;
 
   public StatusReporter(HttpRequestWrapper reportStatus, AsynchronousServerNode server) {
     this.reportStatus = reportStatus;
     this.server = server;
-    new Thread(this, "status reporter").start();
+    thread = new Thread(this, "status reporter");
+    thread.start();
+  }
+
+  public void shutDown() {
+    running = false;
+    thread.interrupt();
   }
 
   public void updateContents(Node[] players) {
@@ -92,14 +100,16 @@ public class StatusReporter implements Runnable {
 
   @Override
   public void run() {
-    while (true) {
+    while (running) {
       try {
         Thread.sleep(sleepInterval);
         sendContents();
       }
       // FIXME: review error message
       catch (InterruptedException e) {
-        e.printStackTrace();
+        if (running) {
+          e.printStackTrace();
+        }
       }
     }
   }
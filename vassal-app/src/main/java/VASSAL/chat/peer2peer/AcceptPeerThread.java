@@ -1,7 +1,9 @@
 package VASSAL.chat.peer2peer;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 
 import org.litesoft.p2pchat.PendingPeerManager;
 
@@ -19,12 +21,16 @@ public class AcceptPeerThread extends Thread {
     this.ppm = ppm;
     for (int i = 0; i < MAX_ATTEMPTS; ++i) {
       port = initialPort + i;
+      // Accepted sockets have channels, for the PendingPeerManager's PeerSelector
+      final ServerSocketChannel channel = ServerSocketChannel.open();
       try {
-        socket = new ServerSocket(port);
+        channel.bind(new InetSocketAddress(port));
+        socket = channel.socket();
         break;
       }
       // FIXME: review error message
       catch (Exception ex) {
+        channel.close();
         if (i == MAX_ATTEMPTS - 1) {
           throw new IOException(ex);
         }
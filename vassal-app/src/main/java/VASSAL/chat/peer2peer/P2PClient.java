@@ -27,6 +27,7 @@ import org.litesoft.p2pchat.ActivePeer;
 import org.litesoft.p2pchat.ActivePeerManager;
 import org.litesoft.p2pchat.MyInfo;
 import org.litesoft.p2pchat.PeerInfo;
+import org.litesoft.p2pchat.PeerSelector;
 import org.litesoft.p2pchat.PendingPeerManager;
 import org.litesoft.p2pchat.UserDialog;
 
@@ -57,6 +58,7 @@ import VASSAL.tools.PropertiesEncoder;
 public class P2PClient implements ChatServerConnection, ChatControlsInitializer, UserDialog, PlayerEncoder {
   private SimplePlayer me;
   private PendingPeerManager ppm;
+  private PeerSelector peerSelector;
   protected ActivePeerManager peerMgr;
   private final PeerPool pool;
   private final WelcomeMessageServer welcomeMessageServer;
@@ -207,6 +209,11 @@ public class P2PClient implements ChatServerConnection, ChatControlsInitializer,
         p.setRoom(roomMgr.getDefaultRoom().getName());
         p.setId(GameModule.getUserId() + "." + System.currentTimeMillis()); //$NON-NLS-1$
         setUserInfo(p);
+        if (peerSelector == null) {
+          peerSelector = new PeerSelector();
+          peerSelector.start();
+          ppm.setPeerSelector(peerSelector);
+        }
         pool.initialize(p, ppm);
         if (peerMgr == null) {
           peerMgr = new ActivePeerManager(info, this, ppm);
@@ -233,6 +240,11 @@ public class P2PClient implements ChatServerConnection, ChatControlsInitializer,
       }
       roomMgr.clear();
       pool.disconnect();
+      if (peerSelector != null) {
+        ppm.setPeerSelector(null);
+        peerSelector.shutDown();
+        peerSelector = null;
+      }
       propSupport.firePropertyChange(AVAILABLE_ROOMS, null, new Room[0]);
       propSupport.firePropertyChange(ROOM, new SimpleRoom(), null);
       connected = false;
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.command;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import VASSAL.build.GameModule;
+import VASSAL.counters.Deck;
+import VASSAL.counters.GamePiece;
+import VASSAL.tools.SequenceEncoder;
+
+/**
+ * A {@link ChangePiece} to a {@link Deck} which describes how its contents changed, rather than listing all of them.
+ *
+ * The state of a Deck lists the id of every piece in it, so a shuffle of, or a draw from, a large Deck otherwise
+ * means sending every id, twice. Instead, a change is described as one of:
+ * <ul>
+ *   <li>a reordering, such as a shuffle, by the ids of the pieces in their new order;</li>
+ *   <li>an edit, by the ids of the pieces removed, and the ids and new positions of those inserted.</li>
+ * </ul>
+ * When executed, the new state is rebuilt from the Deck's current contents. A reordering names every piece, so
+ * it gives the same contents as the full state would, even if ours differ from those of the player who made it.
+ */
+public class ChangeDeckDelta extends ChangePiece {
+  public static final char REORDER = 'R';
+  public static final char EDIT = 'E';
+
+  private static final int HEADER_TOKENS = 4;
+
+  private final char mode;
+  private final String header;
+  private final String[] order;
+  private final String[] removed;
+  private final int[] insertedAt;
+  private final String[] inserted;
+
+  private ChangeDeckDelta(String id, char mode, String header, String[] order, String[] removed, int[] insertedAt, String[] inserted) {
+    super(id, null, null);
+    this.mode = mode;
+    this.header = header;
+    this.order = order;
+    this.removed = removed;
+    this.insertedAt = insertedAt;
+    this.inserted = inserted;
+  }
+
+  /**
+   * @param header the new state of the Deck, less its contents
+   * @param order the id of each piece, in the new order
+   */
+  public static ChangeDeckDelta reordered(String id, String header, String[] order) {
+    return new ChangeDeckDelta(id, REORDER, header, order, null, null, null);
+  }
+
+  /**
+   * @param removed the ids of the pieces removed
+   * @param insertedAt the position in the new contents of each piece inserted, in increasing order
+   * @param inserted the id of each piece inserted
+   */
+  public static ChangeDeckDelta edited(String id, String header,
+                                       String[] removed, int[] insertedAt, String[] inserted) {
+    return new ChangeDeckDelta(id, EDIT, header, null, removed, insertedAt, inserted);
+  }
+
+  /**
+   * Describes a change to a Deck as a delta.
+   *
+   * @param cp a change whose old and new states are known
+   * @return the delta, with neither state set, or null if the change can't be described as one
+   */
+  public static ChangeDeckDelta diff(ChangePiece cp) {
+    final String oldState = cp.getOldState();
+    final String newState = cp.getNewState();
+    if (oldState == null || newState == null) {
+      return null;
+    }
+
+    // Only if we can rebuild the states exactly; a custom Deck might encode its state differently
+    final String header = getHeader(newState);
+    final List<String> o = getContents(oldState);
+    final List<String> n = getContents(newState);
+    if (!joinState(getHeader(oldState), o).equals(oldState) || !joinState(header, n).equals(newState)) {
+      return null;
+    }
+
+    final Map<String, Integer> oldPositions = new HashMap<>();
+    for (int i = 0; i < o.size(); ++i) {
+      oldPositions.put(o.get(i), i);
+    }
+    final Set<String> newIds = new HashSet<>(n);
+    if (oldPositions.size() != o.size() || newIds.size() != n.size()) {
+      // The same piece twice; there's no telling which is which
+      return null;
+    }
+
+    // Pieces removed and inserted, with the rest left in the same order
+    final List<String> r = new ArrayList<>();
+    for (final String s : o) {
+      if (!newIds.contains(s)) {
+        r.add(s);
+      }
+    }
+    final List<Integer> at = new ArrayList<>();
+    final List<String> ins = new ArrayList<>();
+    int kept = -1;
+    boolean inOrder = true;
+    for (int i = 0; i < n.size(); ++i) {
+      final Integer was = oldPositions.get(n.get(i));
+      if (was == null) {
+        at.add(i);
+        ins.add(n.get(i));
+      }
+      else if (was < kept) {
+        inOrder = false;
+      }
+      else {
+        kept = was;
+      }
+    }
+    if (inOrder) {
+      return edited(cp.getId(), header, r.toArray(new String[0]),
+        at.stream().mapToInt(Integer::intValue).toArray(), ins.toArray(new String[0]));
+    }
+
+    // The same pieces in a new order
+    if (r.isEmpty() && ins.isEmpty()) {
+      return reordered(cp.getId(), header, n.toArray(new String[0]));
+    }
+
+    return null;
+  }
+
+  @Override
+  protected void executeCommand() {
+    if (newState == null) {
+      final GamePiece target = GameModule.getGameModule().getGameState().getPieceForId(getId());
+      if (!(target instanceof Deck)) {
+        return;
+      }
+
+      final String current = target.getState();
+      final List<String> l;
+      if (mode == REORDER) {
+        l = List.of(order);
+      }
+      else {
+        // Pieces are removed by id, so as to remove the right ones even if our contents differ
+        l = getContents(current);
+        final Set<String> r = new HashSet<>(List.of(removed));
+        l.removeIf(r::contains);
+        for (int i = 0; i < inserted.length; ++i) {
+          l.add(Math.min(insertedAt[i], l.size()), inserted[i]);
+        }
+      }
+
+      oldState = current;
+      newState = joinState(header, l);
+    }
+    super.executeCommand();
+  }
+
+  @Override
+  public boolean isNull() {
+    return newState != null && super.isNull();
+  }
+
+  public char getMode() {
+    return mode;
+  }
+
+  public String getHeader() {
+    return header;
+  }
+
+  public String[] getOrder() {
+    return order;
+  }
+
+  public String[] getRemoved() {
+    return removed;
+  }
+
+  public int[] getInsertedAt() {
+    return insertedAt;
+  }
+
+  public String[] getInserted() {
+    return inserted;
+  }
+
+  /**
+   * @return the state of a Deck, as given by {@link Deck#getState}, without the ids of the pieces in it
+   */
+  public static String getHeader(String state) {
+    final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(state, ';');
+    final SequenceEncoder se = new SequenceEncoder(';');
+    for (int i = 0; i < HEADER_TOKENS; ++i) {
+      se.append(st.nextToken(""));
+    }
+    return se.getValue();
+  }
+
+  /**
+   * @return the ids of the pieces in a state of a Deck, bottom first
+   */
+  public static List<String> getContents(String state) {
+    final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(state, ';');
+    for (int i = 0; i < HEADER_TOKENS; ++i) {
+      st.nextToken("");
+    }
+    final List<String> l = new ArrayList<>();
+    if (st.hasMoreTokens()) {
+      final SequenceEncoder.Decoder st2 = new SequenceEncoder.Decoder(st.nextToken(), ',');
+      while (st2.hasMoreTokens()) {
+        l.add(st2.nextToken());
+      }
+    }
+    return l;
+  }
+
+  /**
+   * Rebuilds the state of a Deck, the inverse of {@link #getHeader} and {@link #getContents}
+   */
+  public static String joinState(String header, List<String> contents) {
+    final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(header, ';');
+    final SequenceEncoder se = new SequenceEncoder(';');
+    for (int i = 0; i < HEADER_TOKENS; ++i) {
+      se.append(st.nextToken(""));
+    }
+    if (!contents.isEmpty()) {
+      final SequenceEncoder se2 = new SequenceEncoder(',');
+      contents.forEach(se2::append);
+      se.append(se2.getValue());
+    }
+    return se.getValue();
+  }
+
+  @Override
+  public String getDetails() {
+    return newState == null ? "id=" + getId() + ",mode=" + mode : super.getDetails(); //NON-NLS
+  }
+}
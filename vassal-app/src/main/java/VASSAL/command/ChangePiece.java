@@ -92,6 +92,7 @@ public class ChangePiece extends Command {
     }
     if (c instanceof ChangePiece
       && last instanceof ChangePiece
+      && ((ChangePiece) last).newState != null
       && ((ChangePiece) c).id != null
       && ((ChangePiece) c).id.equals(((ChangePiece) last).id)
       && ((ChangePiece) c).newState != null) {
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.command;
+
+import java.util.NoSuchElementException;
+
+import VASSAL.build.GameModule;
+import VASSAL.counters.Decorator;
+import VASSAL.counters.GamePiece;
+import VASSAL.tools.ProblemDialog;
+import VASSAL.tools.SequenceEncoder;
+
+/**
+ * A {@link ChangePiece} which carries the old and new states of only those traits whose state changed.
+ *
+ * The state of a piece nests the state of each trait inside that of the trait outside it, so a change to
+ * a single trait of a large piece otherwise means sending the whole of its state, twice. When executed,
+ * the full old and new states are rebuilt from the piece's current state, replacing the traits which
+ * changed. Since {@link Decorator#mergeState} applies only the traits whose old and new states differ,
+ * this has the same effect as the full {@link ChangePiece} would have had.
+ */
+public class ChangePieceDelta extends ChangePiece {
+  private final int levels;
+  private final int[] changed;
+  private final String[] newStates;
+  private final String[] oldStates;
+
+  /**
+   * @param id the id of the {@link GamePiece} to change
+   * @param levels the number of levels in the piece's state, as given by {@link #getStateLevels}
+   * @param changed the level of each trait whose state changed, outermost being 0
+   * @param newStates the new state of each of those traits
+   * @param oldStates the previous state of each of those traits
+   */
+  public ChangePieceDelta(String id, int levels, int[] changed, String[] newStates, String[] oldStates) {
+    super(id, null, null);
+    this.levels = levels;
+    this.changed = changed;
+    this.newStates = newStates;
+    this.oldStates = oldStates;
+  }
+
+  @Override
+  protected void executeCommand() {
+    if (newState == null) {
+      final GamePiece target = GameModule.getGameModule().getGameState().getPieceForId(getId());
+      if (target == null) {
+        return;
+      }
+
+      final String[] n;
+      try {
+        if (getStateLevels(target) != levels) {
+          throw new NoSuchElementException();
+        }
+        n = splitState(target.getState(), levels);
+      }
+      catch (NoSuchElementException e) {
+        ProblemDialog.showOutdatedModule("Piece: " + target.getName()); //NON-NLS
+        return;
+      }
+
+      final String[] o = n.clone();
+      for (int i = 0; i < changed.length; ++i) {
+        n[changed[i]] = newStates[i];
+        o[changed[i]] = oldStates[i];
+      }
+      newState = joinState(n);
+      oldState = joinState(o);
+    }
+    super.executeCommand();
+  }
+
+  @Override
+  public boolean isNull() {
+    return newState == null ? changed.length == 0 && isAtomic() : super.isNull();
+  }
+
+  public int getLevels() {
+    return levels;
+  }
+
+  public int[] getChanged() {
+    return changed;
+  }
+
+  public String[] getNewStates() {
+    return newStates;
+  }
+
+  public String[] getOldStates() {
+    return oldStates;
+  }
+
+  /**
+   * @return the number of levels in the state of a piece: one for each trait, plus one for the basic piece
+   * inside them. Pieces which are not made of traits have one.
+   */
+  public static int getStateLevels(GamePiece p) {
+    int levels = 1;
+    for (; p instanceof Decorator; p = ((Decorator) p).getInner()) {
+      ++levels;
+    }
+    return levels;
+  }
+
+  /**
+   * Splits the state of a piece into the state of each trait, outermost first, followed by that of the basic piece.
+   *
+   * @throws NoSuchElementException if the state has fewer levels than given
+   */
+  public static String[] splitState(String state, int levels) {
+    final String[] states = new String[levels];
+    for (int i = 0; i < levels - 1; ++i) {
+      final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(state, '\t');
+      states[i] = st.nextToken();
+      state = st.nextToken();
+    }
+    states[levels - 1] = state;
+    return states;
+  }
+
+  /**
+   * Rebuilds the state of a piece from the states of its levels, the inverse of {@link #splitState}
+   */
+  public static String joinState(String[] states) {
+    String state = states[states.length - 1];
+    for (int i = states.length - 2; i >= 0; --i) {
+      state = new SequenceEncoder(states[i], '\t').append(state).getValue();
+    }
+    return state;
+  }
+
+  @Override
+  public String getDetails() {
+    return newState == null ? "id=" + getId() + ",levels=" + levels + ",changed=" + changed.length : super.getDetails(); //NON-NLS
+  }
+}
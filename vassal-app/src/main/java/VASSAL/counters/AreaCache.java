@@ -16,16 +16,262 @@
  */
 package VASSAL.counters;
 
+import java.awt.Rectangle;
 import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import VASSAL.tools.concurrent.ConcurrentSoftHashMap;
-
+/**
+ * Shares the {@link Area}s made from shapes of the same geometry. Since few Shapes compare equal by value,
+ * they are looked up by the coordinates of their outlines. The most recently used {@link #MAX_SIZE} are kept.
+ *
+ * The Areas returned are shared, so cannot be changed; make a new Area from one to change it.
+ */
 public class AreaCache {
-  private static final Map<Shape, Area> CACHE = new ConcurrentSoftHashMap<>();
+  public static final int MAX_SIZE = 1000;
+
+  private static final Map<Key, Area> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Area> eldest) {
+      return size() > MAX_SIZE;
+    }
+  };
 
+  private static long hits;
+  private static long misses;
+
+  /**
+   * @param s a shape
+   * @return an unchangeable Area with the same outline as the shape
+   */
   public static Area get(Shape s) {
-    return CACHE.computeIfAbsent(s, k -> new Area(k));
+    if (s instanceof SharedArea) {
+      return (Area) s;
+    }
+
+    final Key key = new Key(s);
+    synchronized (CACHE) {
+      final Area a = CACHE.get(key);
+      if (a != null) {
+        ++hits;
+        return a;
+      }
+      ++misses;
+    }
+
+    // Make the Area outside the lock, as it may take a while
+    final Area a = new SharedArea(s);
+    synchronized (CACHE) {
+      final Area old = CACHE.putIfAbsent(key, a);
+      return old == null ? a : old;
+    }
+  }
+
+  /**
+   * Empties the cache, and resets the counts of hits and misses
+   */
+  public static void clear() {
+    synchronized (CACHE) {
+      CACHE.clear();
+      hits = 0;
+      misses = 0;
+    }
+  }
+
+  /**
+   * @return the number of Areas kept
+   */
+  public static int getSize() {
+    synchronized (CACHE) {
+      return CACHE.size();
+    }
+  }
+
+  /**
+   * @return the number of times an Area has been found in the cache
+   */
+  public static long getHits() {
+    synchronized (CACHE) {
+      return hits;
+    }
+  }
+
+  /**
+   * @return the number of times an Area has had to be made
+   */
+  public static long getMisses() {
+    synchronized (CACHE) {
+      return misses;
+    }
+  }
+
+  /**
+   * The winding rule, segment types and coordinates of the outline of a shape. A line back to the start of a
+   * subpath just before it is closed is left out, so that e.g. a Rectangle and a path drawn around the same
+   * corners have the same Key.
+   */
+  private static final class Key {
+    private final int windingRule;
+    private final byte[] types;
+    private final double[] coords;
+    private final int hash;
+
+    Key(Shape s) {
+      final PathIterator i = s.getPathIterator(null);
+      windingRule = i.getWindingRule();
+
+      byte[] t = new byte[8];
+      double[] c = new double[32];
+      int nt = 0;
+      int nc = 0;
+      final double[] seg = new double[6];
+      double startX = 0;
+      double startY = 0;
+      for (; !i.isDone(); i.next()) {
+        final int type = i.currentSegment(seg);
+        if (type == PathIterator.SEG_MOVETO) {
+          startX = seg[0];
+          startY = seg[1];
+        }
+        else if (type == PathIterator.SEG_CLOSE && nt > 0 && t[nt - 1] == PathIterator.SEG_LINETO &&
+                 c[nc - 2] == startX && c[nc - 1] == startY) {
+          --nt;
+          nc -= 2;
+        }
+
+        final int n = coordCount(type);
+        if (nt == t.length) {
+          t = Arrays.copyOf(t, nt * 2);
+        }
+        if (nc + n > c.length) {
+          c = Arrays.copyOf(c, Math.max(c.length * 2, nc + n));
+        }
+        t[nt++] = (byte) type;
+        System.arraycopy(seg, 0, c, nc, n);
+        nc += n;
+      }
+      types = Arrays.copyOf(t, nt);
+      coords = Arrays.copyOf(c, nc);
+      hash = 31 * (31 * windingRule + Arrays.hashCode(types)) + Arrays.hashCode(coords);
+    }
+
+    private static int coordCount(int type) {
+      switch (type) {
+      case PathIterator.SEG_MOVETO:
+      case PathIterator.SEG_LINETO:
+        return 2;
+      case PathIterator.SEG_QUADTO:
+        return 4;
+      case PathIterator.SEG_CUBICTO:
+        return 6;
+      default:
+        return 0;
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key k = (Key) o;
+      return hash == k.hash && windingRule == k.windingRule &&
+        Arrays.equals(types, k.types) && Arrays.equals(coords, k.coords);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * An Area which is shared, and so which cannot be changed
+   */
+  private static final class SharedArea extends Area {
+    SharedArea(Shape s) {
+      super(s);
+    }
+
+    @Override
+    public void add(Area rhs) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void subtract(Area rhs) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void intersect(Area rhs) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void exclusiveOr(Area rhs) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void reset() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void transform(AffineTransform t) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Remembers the last Area a trait made by adding a shape of its own to the shape of the traits inside it, so that
+   * it need not be made again on every call to {@link GamePiece#getShape}. Since the same Area is returned until
+   * either shape changes, the traits outside can remember theirs in turn.
+   */
+  public static class Union {
+    private Shape inner;
+    private Object key;
+    private Shape union;
+
+    /**
+     * @param inner the shape of the traits inside
+     * @param key identifies the added shape; must be equal to the last one only if the added shape is the same
+     * @param added the shape to add
+     * @return the union of the two shapes
+     */
+    public synchronized Shape get(Shape inner, Object key, Shape added) {
+      if (union == null || !key.equals(this.key) || !sameShape(inner, this.inner)) {
+        final Area a = new Area(inner);
+        a.add(AreaCache.get(added));
+        this.inner = inner;
+        this.key = key;
+        union = a;
+      }
+      return union;
+    }
+
+    /**
+     * Forgets the last Area
+     */
+    public synchronized void clear() {
+      inner = null;
+      key = null;
+      union = null;
+    }
+
+    private static boolean sameShape(Shape a, Shape b) {
+      // A BasicPiece makes a new Rectangle each time, which is cheap to compare; an Area is compared by identity
+      return a == b || (a instanceof Rectangle && a.equals(b));
+    }
   }
 }
@@ -17,6 +17,7 @@
 package VASSAL.counters;
 
 import VASSAL.build.GameModule;
+import VASSAL.build.module.AttachmentManager;
 import VASSAL.build.module.GameState;
 import VASSAL.build.module.Map;
 import VASSAL.build.module.documentation.HelpFile;
@@ -626,8 +627,18 @@ public class Attachment extends Decorator implements TranslatablePiece, Recursio
   }
 
   void setAttachName(String name) {
+    final String oldName = attachName;
     attachName = name;
     attachCountName = name + "_" + ATTACH_COUNT;
+
+    if (oldName != null && !oldName.equals(name)) {
+      final GameModule g = GameModule.getGameModule();
+      final GameState gs = g == null ? null : g.getGameState();
+      final AttachmentManager manager = gs == null ? null : gs.getAttachmentManager();
+      if (manager != null) {
+        manager.attachNameChanged(this, oldName);
+      }
+    }
   }
 
   /**
@@ -29,6 +29,8 @@ import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.Shape;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -100,6 +102,11 @@ public class BasicName extends Decorator implements TranslatablePiece {
     return super.getLocalizedProperty(key);
   }
 
+  @Override
+  protected Collection<?> getOwnedPropertyKeys() {
+    return List.of(BasicPiece.BASIC_NAME, BasicPiece.LOCALIZED_BASIC_NAME);
+  }
+
   @Override
   public PieceI18nData getI18nData() {
     return getI18nData(
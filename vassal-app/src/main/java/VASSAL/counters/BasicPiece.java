@@ -23,7 +23,9 @@ import VASSAL.build.module.Chatter;
 import VASSAL.build.module.GameState;
 import VASSAL.build.module.GlobalOptions;
 import VASSAL.build.module.Map;
+import VASSAL.build.module.PropertyIndex;
 import VASSAL.build.module.documentation.HelpFile;
+import VASSAL.build.module.map.LocationIndex;
 import VASSAL.build.module.map.boardPicker.Board;
 import VASSAL.build.module.map.boardPicker.board.mapgrid.Zone;
 import VASSAL.build.module.properties.PropertyNameSource;
@@ -499,6 +501,7 @@ public class BasicPiece extends AbstractImageFinder implements TranslatablePiece
     else {
       props.put(key, val);
     }
+    PropertyIndex.changed(this);
   }
 
   /**
@@ -527,6 +530,7 @@ public class BasicPiece extends AbstractImageFinder implements TranslatablePiece
     }
 
     final Object oldValue = newValue == null ? persistentProps.remove(key) : persistentProps.put(key, newValue);
+    PropertyIndex.stateChanged(this);
     return Objects.equals(oldValue, newValue) ? null : new SetPersistentPropertyCommand(getId(), key, oldValue, newValue);
   }
 
@@ -644,6 +648,10 @@ public class BasicPiece extends AbstractImageFinder implements TranslatablePiece
     pos = p;
     if (getMap() != null && getParent() == null) {
       getMap().repaint(getMap().boundingBoxOf(Decorator.getOutermost(this)));
+      final LocationIndex index = getMap().getLocationIndex();
+      if (index != null) {
+        index.pieceChanged(Decorator.getOutermost(this));
+      }
     }
   }
 
@@ -955,6 +963,8 @@ public class BasicPiece extends AbstractImageFinder implements TranslatablePiece
       final String val = st.nextToken("");
       persistentProps.put(key, val);
     }
+
+    PropertyIndex.stateChanged(this);
   }
 
   /**
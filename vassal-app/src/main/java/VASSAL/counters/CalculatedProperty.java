@@ -35,6 +35,7 @@ import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
@@ -136,6 +137,7 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
     final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(type, ';');
     st.nextToken();
     name = st.nextToken("");
+    invalidatePropertyDispatch();
     expression = BeanShellExpression.createExpression(st.nextToken(""), true);
     description = st.nextToken("");
   }
@@ -289,4 +291,9 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
     return l;
   }
 
+  @Override
+  protected Collection<?> getOwnedPropertyKeys() {
+    return List.of(name);
+  }
+
 }
@@ -21,6 +21,7 @@ import VASSAL.build.BadDataReport;
 import VASSAL.build.GameModule;
 import VASSAL.build.module.GameState;
 import VASSAL.build.module.Map;
+import VASSAL.build.module.PropertyIndex;
 import VASSAL.build.module.map.boardPicker.Board;
 import VASSAL.build.module.map.boardPicker.board.mapgrid.Zone;
 import VASSAL.build.module.properties.PropertyNameSource;
@@ -75,9 +76,15 @@ public abstract class Decorator extends AbstractImageFinder implements EditableP
   protected GamePiece piece;
   private Decorator dec;
   private boolean selected = false;
+  private volatile PropertyDispatchTable propertyDispatch;
+  private int propertyDepth;
 
   /** @param p Set the inner GamePiece -- usually the next Trait (Decorator) inward, or the BasicPiece itself. */
   public void setInner(GamePiece p) {
+    invalidatePropertyDispatch();
+    if (p instanceof Decorator) {
+      ((Decorator) p).invalidatePropertyDispatch();
+    }
     piece = p;
     if (p != null) {
       p.setProperty(Properties.OUTER, this);
@@ -170,7 +177,7 @@ public abstract class Decorator extends AbstractImageFinder implements EditableP
       return piece;
     }
     else {
-      return piece.getProperty(key);
+      return getPropertyOwner(key).getProperty(key);
     }
   }
 
@@ -197,10 +204,67 @@ public abstract class Decorator extends AbstractImageFinder implements EditableP
       return isSelected();
     }
     else {
-      return piece.getLocalizedProperty(key);
+      return getPropertyOwner(key).getLocalizedProperty(key);
     }
   }
 
+  /**
+   * A trait whose getProperty and getLocalizedProperty answer only for a known set of property names, passing
+   * every other request inward, may list those names here. Requests for other properties will then go straight
+   * past it, rather than through it, on their way inward. A trait which lists its names must call
+   * {@link #invalidatePropertyDispatch} whenever they change (e.g. in {@link #mySetType}).
+   *
+   * <br><br>The properties handled by {@link Decorator#getProperty} itself, such as {@link Properties#VISIBLE_STATE},
+   * are always passed to every trait, and need not be listed.
+   *
+   * @return the names of the properties this trait answers for, or null if it may answer for any property
+   */
+  protected Collection<?> getOwnedPropertyKeys() {
+    return null;
+  }
+
+  /**
+   * Discards the table saying which traits of this piece answer for which properties, so that it is rebuilt
+   * the next time it is needed. Called when the traits of the piece, or the names they answer for, change.
+   */
+  protected void invalidatePropertyDispatch() {
+    final PropertyDispatchTable table = propertyDispatch;
+    if (table != null) {
+      table.invalidate();
+      propertyDispatch = null;
+    }
+  }
+
+  void setPropertyDispatch(PropertyDispatchTable table, int depth) {
+    propertyDepth = depth;
+    propertyDispatch = table;
+  }
+
+  /**
+   * @return the next member of this piece inward which may answer for the given property; the requests
+   * passed inward by traits which couldn't answer for it would only have arrived there anyway
+   */
+  private GamePiece getPropertyOwner(Object key) {
+    PropertyDispatchTable table = propertyDispatch;
+    if (table == null || table.isStale()) {
+      Decorator outermost = this;
+      while (outermost.dec != null) {
+        outermost = outermost.dec;
+      }
+      table = PropertyDispatchTable.build(outermost);
+      if (table != null && propertyDispatch != table) {
+        // Our outer links lead elsewhere, as with the traits of a prototype; start from here instead
+        table = PropertyDispatchTable.build(this);
+      }
+      if (table == null) {
+        // Not yet part of a complete piece
+        return piece;
+      }
+    }
+    final GamePiece owner = table.next(propertyDepth, key);
+    return owner == null ? piece : owner;
+  }
+
   /**
    * Within a Trait/Decorator, the default behavior when setting a property is to handle
    * changing our own inner/outer links directly, to cache the selection state (while also
@@ -345,6 +409,10 @@ public abstract class Decorator extends AbstractImageFinder implements EditableP
     catch (NoSuchElementException e) {
       throw new IllegalStateException(Resources.getString("Decorator.no_state_for_trait") + myGetType());
     }
+
+    if (dec == null) {
+      PropertyIndex.stateChanged(this);
+    }
   }
 
   /**
@@ -376,6 +444,10 @@ public abstract class Decorator extends AbstractImageFinder implements EditableP
     else {
       piece.setState(innerNewState);
     }
+
+    if (dec == null) {
+      PropertyIndex.stateChanged(this);
+    }
   }
 
   /**
@@ -509,8 +581,14 @@ public abstract class Decorator extends AbstractImageFinder implements EditableP
   @Override
   public Command keyEvent(KeyStroke stroke) {
     final Command c = myKeyEvent(stroke);
-    return c == null ? piece.keyEvent(stroke)
+    final Command result = c == null ? piece.keyEvent(stroke)
       : c.append(piece.keyEvent(stroke));
+
+    // Any trait may have changed its properties
+    if (dec == null) {
+      PropertyIndex.stateChanged(this);
+    }
+    return result;
   }
 
   /**
@@ -19,6 +19,7 @@ package VASSAL.counters;
 
 import VASSAL.build.GameModule;
 import VASSAL.build.module.Map;
+import VASSAL.build.module.PropertyIndex;
 import VASSAL.build.module.documentation.HelpFile;
 import VASSAL.build.module.properties.EnumeratedPropertyPrompt;
 import VASSAL.build.module.properties.IncrementProperty;
@@ -58,6 +59,7 @@ import java.awt.event.InputEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -104,6 +106,7 @@ public class DynamicProperty extends Decorator implements TranslatablePiece, Pro
     final SequenceEncoder.Decoder sd = new SequenceEncoder.Decoder(s, ';');
     sd.nextToken(); // Skip over command prefix
     key = sd.nextToken("name");
+    invalidatePropertyDispatch();
     decodeConstraints(sd.nextToken(""));
     keyCommandListConfig.setValue(sd.nextToken(""));
     keyCommands = keyCommandListConfig.getListValue().toArray(new DynamicKeyCommand[0]);
@@ -237,6 +240,8 @@ public class DynamicProperty extends Decorator implements TranslatablePiece, Pro
     else {
       this.value = value;
     }
+
+    PropertyIndex.stateChanged(this);
   }
 
   private String formatValue(String value) {
@@ -416,6 +421,11 @@ public class DynamicProperty extends Decorator implements TranslatablePiece, Pro
     return l;
   }
 
+  @Override
+  protected Collection<?> getOwnedPropertyKeys() {
+    return Collections.singletonList(getKey());
+  }
+
   @Override
   public PropertySource getPropertySource() {
     return Decorator.getOutermost(this);
@@ -143,6 +143,7 @@ public class Embellishment extends Decorator implements TranslatablePiece, Recur
   protected Rectangle lastBounds = null;
   @Deprecated(since = "2021-03-14", forRemoval = true)
   protected Area lastShape = null;
+  private final AreaCache.Union shapeCache = new AreaCache.Union();
 
   // Version control
   // Version 0 = Original multi-keystroke support for Activate/Increase/Decrease
@@ -293,6 +294,7 @@ public class Embellishment extends Decorator implements TranslatablePiece, Recur
     }
 
     commands = null;
+    invalidatePropertyDispatch();
   }
 
   /**
@@ -789,9 +791,7 @@ public class Embellishment extends Decorator implements TranslatablePiece, Recur
         return innerShape;
       }
       else {
-        final Area a = new Area(innerShape);
-        a.add(AreaCache.get(r));
-        return a;
+        return shapeCache.get(innerShape, r, r);
       }
     }
     else {
@@ -1016,6 +1016,11 @@ public class Embellishment extends Decorator implements TranslatablePiece, Recur
     return l;
   }
 
+  @Override
+  protected Collection<?> getOwnedPropertyKeys() {
+    return getPropertyNames();
+  }
+
   @Override
   public boolean testEquals(Object o) {
     if (! (o instanceof Embellishment)) return false;
@@ -37,11 +37,13 @@ import VASSAL.script.expression.AuditableException;
 import VASSAL.tools.FormattedString;
 import VASSAL.tools.NamedKeyStroke;
 import VASSAL.tools.SequenceEncoder;
+import VASSAL.tools.concurrent.ConcurrentSoftHashMap;
 import VASSAL.tools.imageop.GamePieceOp;
 import VASSAL.tools.imageop.Op;
 import VASSAL.tools.imageop.RotateScaleOp;
 import VASSAL.tools.swing.SwingUtils;
 import net.miginfocom.swing.MigLayout;
+import org.apache.commons.lang3.tuple.Triple;
 
 import javax.swing.JComponent;
 import javax.swing.JLabel;
@@ -91,6 +93,15 @@ public class FreeRotator extends Decorator
 
   public static final double PI_180 = Math.PI / 180.0;
 
+  /** Rotated images are drawn at multiples of this many degrees, so that pieces at nearly the same angle share them */
+  public static final double ANGLE_QUANTUM = 0.1;
+
+  /**
+   * Rotated images shared by all pieces which look the same: keyed by the type and visible state of the
+   * rotated piece, the angle and the zoom
+   */
+  private static final java.util.Map<Triple<String, Double, Double>, Image> ROTATED_IMAGES = new ConcurrentSoftHashMap<>();
+
   protected KeyCommand setAngleCommand;
   protected KeyCommand rotateCWCommand;
   protected KeyCommand rotateCCWCommand;
@@ -126,6 +137,7 @@ public class FreeRotator extends Decorator
 
   protected GamePieceOp gpOp;
   protected java.util.Map<Double, RotateScaleOp> rotOp = new HashMap<>();
+  private String appearance; // type and visible state of the inner piece, when gpOp was made
 
   protected double tempAngle, startAngle;
   protected Point pivot;
@@ -154,6 +166,7 @@ public class FreeRotator extends Decorator
     // The GamePiece stack can be in an invalid state during a setInner()
     // call, so cannot regenerate gpOp now.
     gpOp = null;
+    appearance = null;
     super.setInner(p);
   }
 
@@ -303,27 +316,36 @@ public class FreeRotator extends Decorator
       piece.draw(g, x, y, obs, zoom);
     }
     else {
-      final double angle = getAngle();
-      RotateScaleOp op;
+      final double angle = Math.round(getAngle() / ANGLE_QUANTUM) * ANGLE_QUANTUM;
 
       if (getGpOp() != null && getGpOp().isChanged()) {
         gpOp = Op.piece(piece);
+        appearance = null;
         bounds.clear();
         rotOp.clear();
-        op = Op.rotateScale(gpOp, angle, zoom);
-        rotOp.put(angle, op);
       }
-      else {
-        op = rotOp.get(angle);
+      if (appearance == null) {
+        appearance = piece.getType() + '\n' + gpOp.getState();
+      }
+
+      // Identical pieces at the same angle share one rotated image
+      final Triple<String, Double, Double> key = Triple.of(appearance, angle, zoom);
+      Image img = ROTATED_IMAGES.get(key);
+      if (img == null) {
+        RotateScaleOp op = rotOp.get(angle);
         if (op == null || op.getScale() != zoom) {
           op = Op.rotateScale(gpOp, angle, zoom);
           rotOp.put(angle, op);
         }
+
+        img = op.getImage();
+        if (img != null) {
+          ROTATED_IMAGES.put(key, img);
+        }
       }
 
       final Rectangle r = boundingBox();
 
-      final Image img = op.getImage();
       if (img != null) {
         g.drawImage(img, x + (int) (zoom * r.x), y + (int) (zoom * r.y), obs);
       }
@@ -20,8 +20,10 @@ package VASSAL.counters;
 import VASSAL.build.BadDataReport;
 import VASSAL.build.GameModule;
 import VASSAL.build.module.Chatter;
+import VASSAL.build.module.GameState;
 import VASSAL.build.module.Map;
 import VASSAL.build.module.map.DrawPile;
+import VASSAL.build.module.map.LocationIndex;
 import VASSAL.build.module.properties.PropertySource;
 import VASSAL.command.Command;
 import VASSAL.command.NullCommand;
@@ -42,9 +44,13 @@ import VASSAL.tools.RecursionLimiter.Loopable;
 import javax.swing.KeyStroke;
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -79,6 +85,7 @@ public class GlobalCommand implements Auditable {
   private boolean fastIsNumber = false; // Used during property Fast Match to remember if value is numeric
   private double fastNumber = 0;        // Used during property Fast Match to hold evaluated numerical value
   private Pattern fastPattern;          // Fast Match regex pattern
+  private Set<GamePiece> fastCandidates; // Pieces which can pass an indexed property Fast Match, or null if not indexed
 
   private static final Pattern fastCheckNumber = Pattern.compile("(\\+-)?\\d+(\\.\\d+)?");  //match a number with optional +/- and decimal.
 
@@ -166,6 +173,10 @@ public class GlobalCommand implements Auditable {
   private boolean passesPropertyFastMatch(GamePiece gamePiece) {
     if (!target.fastMatchProperty || fastProperty.isEmpty()) return true;
 
+    if (fastCandidates != null) {
+      return fastCandidates.contains(gamePiece);
+    }
+
     final Object prop = gamePiece.getProperty(fastProperty);
     final String value = (prop == null) ? null : prop.toString();
 
@@ -220,6 +231,36 @@ public class GlobalCommand implements Auditable {
     return false; // Never gets here, but checkStyle doesn't understand that.
   }
 
+  /**
+   * For a Zone, Location or X/Y Fast Match, looks up the pieces and stacks on a map which are at the target location
+   * in the map's {@link LocationIndex}, so that we needn't check every piece on the map.
+   * @return the pieces and stacks at the location, or null if the target type can't be looked up this way
+   */
+  private Set<GamePiece> getLocatedPieces(Map map, String fastZone, String fastLocation, String fastX, String fastY) {
+    final LocationIndex index = map.getLocationIndex();
+    if (index == null) {
+      return null;
+    }
+
+    switch (target.targetType) {
+    case ZONE:
+    case CURZONE:
+      return (fastZone == null) ? null : index.getPiecesInZone(fastZone);
+    case LOCATION:
+    case CURLOC:
+      return (fastLocation == null) ? null : index.getPiecesAtLocation(fastLocation);
+    case XY:
+      try {
+        return index.getPiecesAt(new Point(Integer.parseInt(fastX), Integer.parseInt(fastY)));
+      }
+      catch (NumberFormatException e) {
+        return null;
+      }
+    default:
+      return null;
+    }
+  }
+
   /**
    * Need a super-fast (i.e. not dependent on exception-throwing) plan for detecting valid numbers
    * @param s string to check
@@ -253,6 +294,7 @@ public class GlobalCommand implements Auditable {
   public Command apply(Map[] maps, PieceFilter filter, GlobalCommandTarget fastMatch, AuditTrail audit) {
     Command command = new NullCommand(); // We will chronicle our exploits in this command, so that others may repeat them later.
     setTarget((fastMatch != null) ? fastMatch : new GlobalCommandTarget()); // Set our Fast Match parameters
+    fastCandidates = null;
 
     // WARNING! DeckGlobalKeyCommand does *not* use this version of apply.
 
@@ -383,6 +425,16 @@ public class GlobalCommand implements Auditable {
           fastIsNumber = isNumeric(fastValue);
           fastNumber = fastIsNumber ? Double.parseDouble(fastValue) : 0;
         }
+
+        // If the property is indexed, we can look up the pieces which have the value we want
+        if ((target.targetCompare == GlobalCommandTarget.CompareMode.EQUALS) && !fastProperty.isEmpty()) {
+          final GameState gs = GameModule.getGameModule().getGameState();
+          final List<GamePiece> indexed = (gs == null) ? null : gs.getPropertyIndex().getPieces(fastProperty, fastValue);
+          if (indexed != null) {
+            fastCandidates = Collections.newSetFromMap(new IdentityHashMap<>());
+            fastCandidates.addAll(indexed);
+          }
+        }
       }
 
       // This dispatcher will eventually handle applying the Beanshell filter and actually issuing the command to any pieces that match
@@ -522,7 +574,21 @@ public class GlobalCommand implements Auditable {
         // Make a lists of pieces for each of the maps we're interested in. We need to do this in advance so that a
         // piece doesn't potentially receive multiple GKCs if it is moved from one map to another.
         final List<GamePiece[]> gkcMapPieces = new ArrayList<>();
+
+        // With an indexed property Fast Match, only the maps holding matching pieces need to be searched
+        Set<Map> candidateMaps = null;
+        if (fastCandidates != null) {
+          candidateMaps = new HashSet<>();
+          for (final GamePiece p : fastCandidates) {
+            candidateMaps.add(p.getMap());
+          }
+        }
+
         for (final Map map : maps) {
+          if ((candidateMaps != null) && !candidateMaps.contains(map)) {
+            continue;
+          }
+
           // First check that this is a map we're even interested in
           if (target.fastMatchLocation) {
             // "Current Map" only cares about the map the issuing piece is on
@@ -536,7 +602,15 @@ public class GlobalCommand implements Auditable {
               continue;
             }
           }
-          gkcMapPieces.add(map.getPieces());
+
+          // For a Zone, Location or X/Y Fast Match we need only check the pieces at that location, kept in visual order
+          final Set<GamePiece> located = target.fastMatchLocation ? getLocatedPieces(map, fastZone, fastLocation, fastX, fastY) : null;
+          if (located == null) {
+            gkcMapPieces.add(map.getPieces());
+          }
+          else if (!located.isEmpty()) {
+            gkcMapPieces.add(Arrays.stream(map.getPieces()).filter(located::contains).toArray(GamePiece[]::new));
+          }
         }
 
         // Now we go through all the pieces/stacks/decks on each map
@@ -690,6 +764,7 @@ public class GlobalCommand implements Auditable {
       RecursionLimiter.infiniteLoop(e);
     }
     finally {
+      fastCandidates = null;
       RecursionLimiter.endExecution();
       if (reportSingle) {
         Map.setChangeReportingEnabled(true); // Restore normal reporting behavior (if we'd disabled all individual reports)
@@ -118,6 +118,7 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
   protected boolean alwaysUseFormat;
 
   private Point position = null; // Label position cache
+  private final AreaCache.Union shapeCache = new AreaCache.Union();
 
   public Labeler() {
     this(ID, null);
@@ -135,6 +136,7 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
   @Override
   public void mySetType(String type) {
     commands = null;
+    shapeCache.clear();
     final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(type, ';');
     st.nextToken();
     labelKey = st.nextNamedKeyStroke(null);
@@ -154,6 +156,7 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
     font = new Font(fontFamily, fontStyle, fontSize);
     rotateDegrees = st.nextInt(0);
     propertyName = st.nextToken("TextLabel"); // NON-NLS
+    invalidatePropertyDispatch();
     description = st.nextToken("");
     alwaysUseFormat = st.nextBoolean(false);
   }
@@ -721,9 +724,7 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
       return innerShape;
     }
 
-    final Area a = new Area(innerShape);
-    a.add(AreaCache.get(labelShape));
-    return a;
+    return shapeCache.get(innerShape, labelRect, labelShape);
   }
 
   @Override
@@ -834,6 +835,11 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
     return l;
   }
 
+  @Override
+  protected Collection<?> getOwnedPropertyKeys() {
+    return Collections.singletonList(propertyName);
+  }
+
   private static class Ed implements PieceEditor {
     private final NamedHotKeyConfigurer labelKeyInput;
     private final TraitConfigPanel controls;
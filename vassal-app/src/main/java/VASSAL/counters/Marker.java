@@ -24,6 +24,7 @@ import java.awt.Rectangle;
 import java.awt.Shape;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -70,6 +71,7 @@ public class Marker extends Decorator implements EditablePiece {
     keys = l.toArray(new String[0]);
     values = new String[keys.length];
     Arrays.fill(values, "");
+    invalidatePropertyDispatch();
   }
 
   @Override
@@ -203,6 +205,11 @@ public class Marker extends Decorator implements EditablePiece {
     return l;
   }
 
+  @Override
+  protected Collection<?> getOwnedPropertyKeys() {
+    return Arrays.asList(keys);
+  }
+
   @Override
   public boolean testEquals(Object o) {
     if (! (o instanceof Marker)) return false;
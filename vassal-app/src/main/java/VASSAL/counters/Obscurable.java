@@ -254,7 +254,7 @@ public class Obscurable extends Decorator implements TranslatablePiece {
           area.add((Area) innerShape);
         }
         else {
-          area.add(new Area(innerShape));
+          area.add(AreaCache.get(innerShape));
         }
         return area;
       default:
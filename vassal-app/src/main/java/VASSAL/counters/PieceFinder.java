@@ -31,6 +31,14 @@ public interface PieceFinder {
   /** Return the argument GamePiece (or one of its children if a Stack) found at the given point on the given Map */
   GamePiece select(Map map, GamePiece piece, Point pt);
 
+  /**
+   * @return true if this finder only ever selects a piece, or a piece in a Stack, whose shape contains the point,
+   * so that it need only be offered the pieces near the point
+   */
+  default boolean selectsByShape() {
+    return false;
+  }
+
   /** Return a Stack overlapping the given point */
   PieceFinder STACK_ONLY = new StackOnly();
 
@@ -173,6 +181,14 @@ public interface PieceFinder {
       return selected;
     }
 
+    /**
+     * Subclasses which select pieces by anything other than their shapes should override this to return false
+     */
+    @Override
+    public boolean selectsByShape() {
+      return true;
+    }
+
     @Override
     public GamePiece select(Map map, GamePiece piece, Point pt) {
       this.map = map;
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.counters;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * For each property name, the members of a piece which may answer {@link GamePiece#getProperty} for it, so that
+ * a request which one trait passes inward goes straight to the next member which may answer it, rather than
+ * through every trait in between.
+ *
+ * A trait which overrides neither getProperty nor getLocalizedProperty answers only for the properties
+ * {@link Decorator} handles for every trait, and so is never a destination. A trait which declares the names it
+ * answers for, via {@link Decorator#getOwnedPropertyKeys}, is a destination for those names only. Any other trait,
+ * and the innermost member of the piece, is a destination for every name.
+ *
+ * A table is shared by the traits of the piece it was built for, and is built on first use. It goes
+ * {@link #isStale stale} when the traits of the piece change, or when the names a trait answers for change.
+ */
+final class PropertyDispatchTable {
+
+  private enum Dispatch {
+    NONE,
+    DECLARED,
+    ANY
+  }
+
+  private static final ClassValue<Dispatch> DISPATCH = new ClassValue<>() {
+    @Override
+    protected Dispatch computeValue(Class<?> type) {
+      return dispatchFor(type);
+    }
+  };
+
+  /** The members which may answer for a property, outermost first, with their depth in the piece */
+  private static final class Owners {
+    private final GamePiece[] pieces;
+    private final int[] depths;
+
+    private Owners(List<GamePiece> pieces, List<Integer> depths) {
+      this.pieces = pieces.toArray(new GamePiece[0]);
+      this.depths = depths.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private GamePiece next(int depth) {
+      for (int i = 0; i < depths.length; ++i) {
+        if (depths[i] > depth) {
+          return pieces[i];
+        }
+      }
+      return null;
+    }
+  }
+
+  private final Owners anyKey;
+  private final Map<Object, Owners> declaredKeys;
+  private volatile boolean stale;
+
+  private PropertyDispatchTable(Owners anyKey, Map<Object, Owners> declaredKeys) {
+    this.anyKey = anyKey;
+    this.declaredKeys = declaredKeys;
+  }
+
+  /**
+   * Builds the table for the piece of which the given trait is the outermost, and hands it to each trait of the piece.
+   *
+   * @return the new table, or null if the piece is not yet complete
+   */
+  static PropertyDispatchTable build(Decorator outermost) {
+    final List<Decorator> traits = new ArrayList<>();
+    GamePiece p = outermost;
+    while (p instanceof Decorator) {
+      traits.add((Decorator) p);
+      p = ((Decorator) p).getInner();
+    }
+    if (p == null) {
+      return null;
+    }
+    final GamePiece innermost = p;
+    final int innermostDepth = traits.size();
+
+    // Those asked about every property, and those asked about particular ones
+    final List<GamePiece> anyPieces = new ArrayList<>();
+    final List<Integer> anyDepths = new ArrayList<>();
+    final Map<Object, List<Integer>> declared = new HashMap<>();
+    for (int depth = 0; depth < traits.size(); ++depth) {
+      final Decorator trait = traits.get(depth);
+      final Dispatch dispatch = DISPATCH.get(trait.getClass());
+      final Collection<?> keys = dispatch == Dispatch.DECLARED ? trait.getOwnedPropertyKeys() : null;
+      if (dispatch == Dispatch.ANY || (dispatch == Dispatch.DECLARED && keys == null)) {
+        anyPieces.add(trait);
+        anyDepths.add(depth);
+      }
+      else if (keys != null) {
+        for (final Object key : keys) {
+          declared.computeIfAbsent(key, k -> new ArrayList<>()).add(depth);
+        }
+      }
+    }
+    anyPieces.add(innermost);
+    anyDepths.add(innermostDepth);
+
+    final Map<Object, Owners> declaredKeys = new HashMap<>();
+    for (final Map.Entry<Object, List<Integer>> e : declared.entrySet()) {
+      final List<GamePiece> pieces = new ArrayList<>();
+      final List<Integer> depths = new ArrayList<>();
+      final List<Integer> own = e.getValue();
+      int i = 0;
+      int j = 0;
+      while (i < anyDepths.size()) {
+        if (j < own.size() && own.get(j) < anyDepths.get(i)) {
+          pieces.add(traits.get(own.get(j)));
+          depths.add(own.get(j++));
+        }
+        else {
+          pieces.add(anyPieces.get(i));
+          depths.add(anyDepths.get(i++));
+        }
+      }
+      declaredKeys.put(e.getKey(), new Owners(pieces, depths));
+    }
+
+    final PropertyDispatchTable table = new PropertyDispatchTable(new Owners(anyPieces, anyDepths), declaredKeys);
+    for (int depth = 0; depth < traits.size(); ++depth) {
+      traits.get(depth).setPropertyDispatch(table, depth);
+    }
+    return table;
+  }
+
+  /**
+   * @return the first member of the piece inward of the given depth which may answer for the property, or null
+   * if the table can't say
+   */
+  GamePiece next(int depth, Object key) {
+    final Owners owners = key == null ? null : declaredKeys.get(key);
+    return (owners == null ? anyKey : owners).next(depth);
+  }
+
+  boolean isStale() {
+    return stale;
+  }
+
+  void invalidate() {
+    stale = true;
+  }
+
+  private static Dispatch dispatchFor(Class<?> type) {
+    final Class<?> get;
+    final Class<?> getLocalized;
+    try {
+      get = type.getMethod("getProperty", Object.class).getDeclaringClass(); //NON-NLS
+      getLocalized = type.getMethod("getLocalizedProperty", Object.class).getDeclaringClass(); //NON-NLS
+    }
+    catch (NoSuchMethodException e) {
+      return Dispatch.ANY;
+    }
+    if (get == Decorator.class && getLocalized == Decorator.class) {
+      return Dispatch.NONE;
+    }
+
+    // getOwnedPropertyKeys is protected, so look for it class by class
+    Class<?> owned = type;
+    while (owned != Decorator.class && !declares(owned)) {
+      owned = owned.getSuperclass();
+    }
+
+    // The names only speak for lookups declared alongside them or further up
+    return owned != Decorator.class && get.isAssignableFrom(owned) && getLocalized.isAssignableFrom(owned) ?
+      Dispatch.DECLARED : Dispatch.ANY;
+  }
+
+  private static boolean declares(Class<?> type) {
+    try {
+      type.getDeclaredMethod("getOwnedPropertyKeys"); //NON-NLS
+      return true;
+    }
+    catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+}
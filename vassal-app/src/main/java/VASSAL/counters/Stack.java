@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 
@@ -35,6 +36,7 @@ import VASSAL.build.GameModule;
 import VASSAL.build.module.GameState;
 import VASSAL.build.module.Map;
 import VASSAL.build.module.map.CompoundPieceCollection;
+import VASSAL.build.module.map.LocationIndex;
 import VASSAL.build.module.map.PieceCollection;
 import VASSAL.build.module.map.StackMetrics;
 import VASSAL.command.Command;
@@ -68,10 +70,16 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
   public static final String HAS_LAYER_MARKER = "@@"; // Horrific encoding hack necessitated by equally horrific legacy encoder
   public static final int LAYER_NOT_SET = -1; // Brand new stacks with no pieces do not yet know their visual layer
   protected static final int INCR = 5;
+  private static final int INDEXED_SIZE = 16; // Stacks larger than this keep an index of their pieces' positions
 
   protected GamePiece[] contents = new GamePiece[INCR]; // array of GamePieces contained by the stack
   protected int pieceCount = 0;        // Number of pieces currently in the stack
 
+  // Positions of the pieces in contents, for indexOf; those below positionsChecked are known to be current.
+  // Kept up to date by insertPieceAt and removePieceAt, so anything else which changes contents must call clearPositions.
+  private IdentityHashMap<GamePiece, Integer> positions;
+  private int positionsChecked = 0;
+
   protected Map map;                   // Map that the stack is on
   protected Point pos = new Point(0, 0); // X/Y position of the stack on its map. All pieces in a stack always share the same X/Y position
   protected int layer = LAYER_NOT_SET; // Visual layer for this stack. Once the first piece is added, it is bound permanently.
@@ -170,11 +178,15 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
    */
   protected void removePieceAt(int index, boolean suppressDeckCounts) {
     if (index >= 0 && index < pieceCount) {
-      pieceCount--;
-      for (int i = index; i < pieceCount; ++i) {
-        contents[i] = contents[i + 1];
+      if (positions != null) {
+        positions.remove(contents[index]);
+        positionsChecked = Math.min(positionsChecked, index);
       }
+      pieceCount--;
+      System.arraycopy(contents, index + 1, contents, index, pieceCount - index);
+      contents[pieceCount] = null;
       expanded = expanded && pieceCount > 1;
+      locationChanged();
     }
   }
 
@@ -218,12 +230,11 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
       contents = newContents;
     }
 
-    for (int i = pieceCount; i > index; --i) {
-      contents[i] = contents[i - 1];
-    }
-
+    System.arraycopy(contents, index, contents, index + 1, pieceCount - index);
     contents[index] = p;
     pieceCount++;
+    positionsChecked = Math.min(positionsChecked, index);
+    locationChanged();
   }
 
 
@@ -232,7 +243,21 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
    */
   public void removeAll() {
     pieceCount = 0;
+    clearPositions();
     expanded = false;
+    locationChanged();
+  }
+
+  /**
+   * Notes in our map's {@link LocationIndex} that we have moved or our contents have changed
+   */
+  private void locationChanged() {
+    if (map != null) {
+      final LocationIndex index = map.getLocationIndex();
+      if (index != null) {
+        index.pieceChanged(this);
+      }
+    }
   }
 
   /**
@@ -241,12 +266,40 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
    * @return The index of the piece, or -1 if it is not present in the stack
    */
   public int indexOf(GamePiece p) {
-    for (int i = 0; i < pieceCount; ++i) {
-      if (p == contents[i]) {
-        return i;
+    if (pieceCount <= INDEXED_SIZE) {
+      for (int i = 0; i < pieceCount; ++i) {
+        if (p == contents[i]) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    if (positions == null) {
+      positions = new IdentityHashMap<>(pieceCount * 2);
+      positionsChecked = 0;
+    }
+
+    Integer index = positions.get(p);
+    if (index == null || index >= positionsChecked || index >= pieceCount || contents[index] != p) {
+      // Renumber whatever has moved since we last looked, or everything if contents was changed behind our back
+      final boolean misled = index != null && index < positionsChecked;
+      for (int i = misled ? 0 : Math.min(positionsChecked, pieceCount); i < pieceCount; ++i) {
+        positions.put(contents[i], i);
       }
+      positionsChecked = pieceCount;
+      index = positions.get(p);
     }
-    return -1;
+    return index != null && index < pieceCount && contents[index] == p ? index : -1;
+  }
+
+  /**
+   * Forgets the positions of our pieces, for when {@link #contents} has been changed other than by
+   * {@link #insertPieceAt} and {@link #removePieceAt}. They will be found again when next needed.
+   */
+  protected void clearPositions() {
+    positions = null;
+    positionsChecked = 0;
   }
 
   /**
@@ -446,7 +499,7 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
       .forEach(p -> {
         final int idx = indexOf(p);
         if (idx >= 0) { //BR// Bounds-check the array as a bandaid against things being drawn during a simultaneous reload or screenshot
-          a.add(new Area(childBounds[idx]));
+          a.add(AreaCache.get(childBounds[idx]));
         }
       });
 
@@ -594,7 +647,14 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
    * @param b true if stack should be expanded, false if not
    */
   public void setExpanded(boolean b) {
+    final boolean wasExpanded = expanded;
     expanded = b && getPieceCount() > 1;
+    if (expanded != wasExpanded && map != null) {
+      final LocationIndex index = map.getLocationIndex();
+      if (index != null) {
+        index.shapeChanged(this);
+      }
+    }
   }
 
   /**
@@ -628,6 +688,7 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
       setPosition(new Point(st.nextInt(0), st.nextInt(0)));
     }
     pieceCount = 0;
+    clearPositions();
 
     final GameState gs = GameModule.getGameModule().getGameState();
     while (st.hasMoreTokens()) {
@@ -793,6 +854,7 @@ public class Stack extends AbstractImageFinder implements GamePiece, StateMergea
   @Override
   public void setPosition(Point p) {
     pos = p;
+    locationChanged();
   }
 
   /**
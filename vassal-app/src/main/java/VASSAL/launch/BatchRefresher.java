@@ -0,0 +1,486 @@
+/*
+ *
+ * Copyright (c) 2023 by vassalengine.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.launch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import VASSAL.Info;
+import VASSAL.tools.concurrent.DaemonThreadFactory;
+
+/**
+ * Refreshes the pieces in many saved games from the current definitions in
+ * their module, as the Refresh Counters dialog does for a single game.
+ *
+ * <pre>BatchRefresher [options] module saveDir [outDir]</pre>
+ *
+ * Every .vsav and .vlog in <code>saveDir</code> is refreshed. Logs are
+ * played through to their end and written out as saved games. Refreshed
+ * games are written to <code>outDir</code> if given, otherwise saved games
+ * are overwritten in place.
+ *
+ * A log whose output would be written over that of a saved game of the same
+ * name in the batch, or of another log, fails rather than overwrite it.
+ * Existing files outside the batch which are to be overwritten are listed
+ * before starting.
+ *
+ * Since {@link VASSAL.build.GameModule} is a singleton, only one game can be
+ * processed at a time per JVM. The work is therefore spread across several
+ * {@link Headless} worker JVMs, one per core by default, each of which
+ * loads the module once and then refreshes files handed to it one after
+ * another. A worker which dies takes only its current file with it; it is
+ * replaced and the batch carries on. So is a worker which takes longer than
+ * <code>--timeout</code> seconds (10 minutes by default) over one file.
+ *
+ * The coordinator's maximum heap is divided among the workers. If that
+ * would leave each less than {@value #MIN_WORKER_HEAP} MB, fewer workers
+ * are started.
+ *
+ * Exits with status 1 if any file failed.
+ *
+ * @since 3.7.0
+ */
+public class BatchRefresher {
+  private static final Logger logger = LoggerFactory.getLogger(BatchRefresher.class);
+
+  private static final String WORKER = "--worker"; //NON-NLS
+  private static final String RESULT = "REFRESHED\t"; //NON-NLS
+
+  /** The least heap, in MB, worth starting a worker with */
+  private static final long MIN_WORKER_HEAP = 256;
+
+  private static final long DEFAULT_TIMEOUT = 600;
+  private static final long EXIT_TIMEOUT = 30;
+
+  private static final String[][] OPTIONS = {
+    { "--use-name",          "UseName" },          //NON-NLS
+    { "--use-labeler-name",  "UseLabelerName" },   //NON-NLS
+    { "--use-layer-name",    "UseLayerName" },     //NON-NLS
+    { "--delete-no-map",     "DeleteNoMap" },      //NON-NLS
+    { "--refresh-decks",     "RefreshDecks" },     //NON-NLS
+    { "--delete-old-decks",  "DeleteOldDecks" },   //NON-NLS
+    { "--add-new-decks",     "AddNewDecks" }       //NON-NLS
+  };
+
+  private final File module;
+  private final File outDir;
+  private final List<String> optionArgs;
+  private final long timeout;
+
+  // Set up by run()
+  private long workerHeap;
+  private ScheduledExecutorService watchdog;
+
+  private BatchRefresher(File module, File outDir, List<String> optionArgs, long timeout) {
+    this.module = module;
+    this.outDir = outDir;
+    this.optionArgs = optionArgs;
+    this.timeout = timeout;
+  }
+
+  /** The outcome of refreshing one file */
+  private static class Result {
+    final String file;
+    final long millis;
+    final String error;
+
+    Result(String file, long millis, String error) {
+      this.file = file;
+      this.millis = millis;
+      this.error = error;
+    }
+
+    String encode() {
+      return RESULT + file + '\t' + millis + '\t' +
+        (error == null ? "" : error.replaceAll("\\s+", " "));
+    }
+
+    static Result decode(String line) {
+      final String[] f = line.substring(RESULT.length()).split("\t", 3);
+      return new Result(f[0], Long.parseLong(f[1]),
+                        f.length < 3 || f[2].isEmpty() ? null : f[2]);
+    }
+  }
+
+  /**
+   * Refreshes the files in the queue using one worker JVM, replacing it
+   * should it die, until the queue is empty.
+   */
+  private List<Result> drain(Queue<File> queue) throws IOException {
+    final List<Result> results = new ArrayList<>();
+
+    Process proc = null;
+    PrintWriter toWorker = null;
+    BufferedReader fromWorker = null;
+
+    File f;
+    while ((f = queue.poll()) != null) {
+      if (proc == null) {
+        proc = startWorker();
+        toWorker = new PrintWriter(new OutputStreamWriter(
+          proc.getOutputStream(), StandardCharsets.UTF_8), true);
+        fromWorker = new BufferedReader(new InputStreamReader(
+          proc.getInputStream(), StandardCharsets.UTF_8));
+      }
+
+      final long start = System.nanoTime();
+      toWorker.println(f.getPath());
+
+      // Kill the worker if it hangs; that ends its output
+      final Process p = proc;
+      final AtomicBoolean timedOut = new AtomicBoolean();
+      final ScheduledFuture<?> kill = watchdog.schedule(() -> {
+        timedOut.set(true);
+        p.destroyForcibly();
+      }, timeout, TimeUnit.SECONDS);
+
+      Result r = null;
+      try {
+        String line;
+        while ((line = fromWorker.readLine()) != null) {
+          if (line.startsWith(RESULT)) {
+            r = Result.decode(line);
+            break;
+          }
+        }
+      }
+      finally {
+        kill.cancel(false);
+      }
+
+      if (r == null) {
+        // The worker died or hung while working on this file
+        r = new Result(f.getPath(), (System.nanoTime() - start) / 1_000_000,
+                       timedOut.get() ? "timed out after " + timeout + " s" : "worker exited unexpectedly"); //NON-NLS
+        proc.destroyForcibly();
+        proc = null;
+      }
+
+      report(r);
+      results.add(r);
+    }
+
+    if (proc != null) {
+      // closing its input tells the worker to exit
+      toWorker.close();
+      try {
+        if (!proc.waitFor(EXIT_TIMEOUT, TimeUnit.SECONDS)) {
+          logger.warn("Worker did not exit; killing it"); //NON-NLS
+          proc.destroyForcibly();
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        proc.destroyForcibly();
+      }
+    }
+
+    return results;
+  }
+
+  private Process startWorker() throws IOException {
+    final List<String> cmd = new ArrayList<>(List.of(
+      Info.getJavaBinPath().getAbsolutePath(),
+      "-classpath", //NON-NLS
+      System.getProperty("java.class.path"),
+      "-Xmx" + workerHeap + "m", //NON-NLS
+      "-Djava.awt.headless=true", //NON-NLS
+      BatchRefresher.class.getName(),
+      WORKER
+    ));
+    cmd.addAll(optionArgs);
+    cmd.add(module.getPath());
+    if (outDir != null) {
+      cmd.add(outDir.getPath());
+    }
+
+    logger.info("Starting worker: {}", cmd); //NON-NLS
+    return new ProcessBuilder(cmd)
+      .redirectError(ProcessBuilder.Redirect.INHERIT)
+      .start();
+  }
+
+  private static synchronized void report(Result r) {
+    System.out.println(String.format(Locale.ROOT, "%8d ms  %s%s", //NON-NLS
+      r.millis, r.file, r.error == null ? "" : ": FAILED: " + r.error)); //NON-NLS
+  }
+
+  /**
+   * Finds which files can be refreshed without two of them being written to
+   * the same output file. Saved games take precedence over logs, then files
+   * earlier in the list over later ones.
+   *
+   * @param saves the files to refresh
+   * @param accepted the files which can be refreshed are added to this
+   * @return a failure for each file which cannot
+   */
+  private List<Result> claimOutputs(List<File> saves, List<File> accepted) {
+    final List<File> ordered = new ArrayList<>(saves);
+    ordered.sort(Comparator.comparing(BatchRefresher::isLog));
+
+    final Map<String, File> claimed = new HashMap<>();
+    final Set<String> inputs = new HashSet<>();
+    for (final File f : saves) {
+      inputs.add(pathKey(f));
+    }
+
+    final List<Result> failures = new ArrayList<>();
+    for (final File f : ordered) {
+      final File out = outputFile(f, outDir);
+      final String key = pathKey(out);
+      final File other = claimed.putIfAbsent(key, f);
+      if (other != null) {
+        failures.add(new Result(f.getPath(), 0, "would be written to " + out + ", as is " + other)); //NON-NLS
+        continue;
+      }
+
+      if (out.exists() && !inputs.contains(key)) {
+        System.err.println(out + ": will be overwritten"); //NON-NLS
+      }
+      accepted.add(f);
+    }
+
+    failures.forEach(BatchRefresher::report);
+    return failures;
+  }
+
+  private static boolean isLog(File f) {
+    return "vlog".equalsIgnoreCase(FilenameUtils.getExtension(f.getName())); //NON-NLS
+  }
+
+  /** Paths are compared without case, as some file systems do */
+  private static String pathKey(File f) {
+    return f.getAbsoluteFile().toPath().normalize().toString().toLowerCase(Locale.ROOT);
+  }
+
+  private int run(List<File> saves, int threads) throws IOException {
+    final List<File> accepted = new ArrayList<>();
+    final List<Result> results = claimOutputs(saves, accepted);
+    final Queue<File> queue = new ConcurrentLinkedQueue<>(accepted);
+
+    // Share our heap among the workers, rather than giving each all of it
+    final long heap = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+    final int n = (int) Math.max(1, Math.min(Math.min(threads, accepted.size()), heap / MIN_WORKER_HEAP));
+    workerHeap = Math.max(MIN_WORKER_HEAP, heap / n);
+    if (n < threads && n < accepted.size()) {
+      logger.info("Using {} workers of {} MB, for want of heap", n, workerHeap); //NON-NLS
+    }
+
+    final long start = System.nanoTime();
+    final ExecutorService exec =
+      Executors.newFixedThreadPool(n, new DaemonThreadFactory("BatchRefresher")); //NON-NLS
+    watchdog = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("BatchRefresher Watchdog")); //NON-NLS
+
+    final List<Future<List<Result>>> futures = new ArrayList<>();
+    for (int i = 0; i < n; ++i) {
+      futures.add(exec.submit(() -> drain(queue)));
+    }
+
+    try {
+      for (final Future<List<Result>> fut : futures) {
+        results.addAll(fut.get());
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+    catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+    finally {
+      exec.shutdownNow();
+      watchdog.shutdownNow();
+    }
+
+    final long failed = results.stream().filter(r -> r.error != null).count();
+    final long busy = results.stream().mapToLong(r -> r.millis).sum();
+    System.out.println(String.format(Locale.ROOT,
+      "%d files refreshed, %d failed, in %d ms using %d workers (%d ms total work)", //NON-NLS
+      results.size() - failed, failed, (System.nanoTime() - start) / 1_000_000,
+      n, busy));
+
+    return failed == 0 ? 0 : 1;
+  }
+
+  /**
+   * @return where the refreshed version of a file is written
+   */
+  static File outputFile(File in, File outDir) {
+    String name = in.getName();
+    if (isLog(in)) {
+      name = FilenameUtils.getBaseName(name) + ".vsav"; //NON-NLS
+    }
+    return new File(outDir == null ? in.getParentFile() : outDir, name);
+  }
+
+  /**
+   * Reads files to refresh from stdin, one per line, and writes a result
+   * line for each to stdout, until stdin is closed.
+   *
+   * Workers exit without shutting the module down, so that they do not
+   * race each other to write the module preferences.
+   */
+  private static void worker(File module, File outDir, Set<String> options) throws IOException {
+    final Headless h = Headless.open(module);
+
+    final BufferedReader in = new BufferedReader(
+      new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+    String path;
+    while ((path = in.readLine()) != null) {
+      final File f = new File(path);
+      final long start = System.nanoTime();
+      String error = null;
+      try {
+        h.loadGame(f);
+        if (isLog(f)) {
+          h.fastForward();
+        }
+        h.refresh(options);
+        h.saveGame(outputFile(f, outDir));
+      }
+      catch (IOException | RuntimeException e) {
+        logger.error("Failed to refresh " + f, e); //NON-NLS
+        error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+      }
+      finally {
+        h.closeGame();
+      }
+
+      System.out.println(
+        new Result(path, (System.nanoTime() - start) / 1_000_000, error).encode());
+      System.out.flush();
+    }
+
+    System.exit(0);
+  }
+
+  private static void usage() {
+    System.err.println("usage: BatchRefresher [--threads N] [--timeout SECONDS] [--use-name] [--use-labeler-name] [--use-layer-name] [--delete-no-map] [--refresh-decks] [--delete-old-decks] [--add-new-decks] module saveDir [outDir]"); //NON-NLS
+    System.exit(1);
+  }
+
+  public static void main(String[] args) throws IOException {
+    // Before anything can touch AWT; workers are also started with this
+    System.setProperty("java.awt.headless", "true"); //NON-NLS
+
+    Info.setConfig(new StandardConfig());
+
+    boolean worker = false;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long timeout = DEFAULT_TIMEOUT;
+    final List<String> optionArgs = new ArrayList<>();
+    final Set<String> options = new HashSet<>();
+
+    int i = 0;
+    for (; i < args.length && args[i].startsWith("--"); ++i) { //NON-NLS
+      final String a = args[i];
+      if (WORKER.equals(a)) {
+        worker = true;
+      }
+      else if ("--threads".equals(a) && i + 1 < args.length) { //NON-NLS
+        try {
+          threads = Integer.parseInt(args[++i]);
+        }
+        catch (NumberFormatException e) {
+          usage();
+        }
+      }
+      else if ("--timeout".equals(a) && i + 1 < args.length) { //NON-NLS
+        try {
+          timeout = Long.parseLong(args[++i]);
+        }
+        catch (NumberFormatException e) {
+          usage();
+        }
+      }
+      else {
+        final String opt = Arrays.stream(OPTIONS)
+          .filter(o -> o[0].equals(a)).map(o -> o[1]).findFirst().orElse(null);
+        if (opt == null) {
+          usage();
+        }
+        optionArgs.add(a);
+        options.add(opt);
+      }
+    }
+
+    final int remaining = args.length - i;
+    if (worker) {
+      if (remaining < 1 || remaining > 2) {
+        usage();
+      }
+      worker(new File(args[i]), remaining == 2 ? new File(args[i + 1]) : null, options);
+      return;
+    }
+
+    if (remaining < 2 || remaining > 3 || threads < 1 || timeout < 1) {
+      usage();
+    }
+
+    final File module = new File(args[i]);
+    final File saveDir = new File(args[i + 1]);
+    final File outDir = remaining == 3 ? new File(args[i + 2]) : null;
+
+    final File[] saves = saveDir.listFiles((dir, name) -> {
+      final String ext = FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT);
+      return "vsav".equals(ext) || "vlog".equals(ext); //NON-NLS
+    });
+    if (saves == null) {
+      System.err.println(saveDir + ": not a directory"); //NON-NLS
+      System.exit(1);
+    }
+    Arrays.sort(saves);
+
+    if (outDir != null && !outDir.isDirectory() && !outDir.mkdirs()) {
+      System.err.println(outDir + ": cannot create directory"); //NON-NLS
+      System.exit(1);
+    }
+
+    System.exit(new BatchRefresher(module, outDir, optionArgs, timeout).run(Arrays.asList(saves), threads));
+  }
+}
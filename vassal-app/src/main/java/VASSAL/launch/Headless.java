@@ -0,0 +1,370 @@
+/*
+ *
+ * Copyright (c) 2023 by vassalengine.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.launch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JFrame;
+import javax.swing.JMenuBar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import VASSAL.Info;
+import VASSAL.build.GameModule;
+import VASSAL.build.IllegalBuildException;
+import VASSAL.build.module.BasicLogger;
+import VASSAL.build.module.ExtensionsLoader;
+import VASSAL.build.module.GameRefresher;
+import VASSAL.build.module.GameState;
+import VASSAL.build.module.ModuleExtension;
+import VASSAL.build.module.metadata.SaveMetaData;
+import VASSAL.command.Command;
+import VASSAL.i18n.Localization;
+import VASSAL.i18n.Resources;
+import VASSAL.preferences.Prefs;
+import VASSAL.tools.DataArchive;
+import VASSAL.tools.JarArchive;
+import VASSAL.tools.menu.MenuBarProxy;
+import VASSAL.tools.menu.MenuManager;
+import VASSAL.tools.swing.EDT;
+
+/**
+ * Runs a module without creating any windows.
+ *
+ * The module's component hierarchy and {@link GameState} are built just as
+ * they are in the {@link Player}, so saved games and logs can be loaded,
+ * modified by executing {@link Command}s, and saved again. This is intended
+ * for batch processing of saved games and for server-side tools, and works
+ * on machines which have no display.
+ *
+ * No windows are created whether or not AWT is headless. On a machine
+ * without a display, the JVM must be started with
+ * <code>-Djava.awt.headless=true</code>, as setting it once AWT has been
+ * touched has no effect; {@link #main} sets it before doing anything else.
+ *
+ * Only one module may be open per JVM, as {@link GameModule} is a singleton.
+ * All work is done on the Event Dispatch Thread, as it is in the Player, so
+ * the methods here may be called from any thread.
+ *
+ * @since 3.7.0
+ */
+public class Headless implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(Headless.class);
+
+  private final GameModule module;
+
+  private Headless(GameModule module) {
+    this.module = module;
+  }
+
+  /**
+   * Opens a module headless.
+   *
+   * @param moduleFile the module to open
+   * @return the opened module
+   * @throws IOException if the module cannot be read
+   */
+  public static Headless open(File moduleFile) throws IOException {
+    return open(moduleFile, List.of());
+  }
+
+  /**
+   * Opens a module headless, along with extensions.
+   *
+   * @param moduleFile the module to open
+   * @param extensions extensions to load in addition to those which the
+   * module's preferences mark as active
+   * @return the opened module
+   * @throws IOException if the module or an extension cannot be read
+   */
+  public static Headless open(File moduleFile, List<File> extensions) throws IOException {
+    if (GameModule.getGameModule() != null) {
+      throw new IllegalStateException("A module is already open"); //NON-NLS
+    }
+
+    try {
+      MenuManager.getInstance();
+    }
+    catch (IllegalStateException e) {
+      new HeadlessMenuManager();
+    }
+
+    return call(() -> {
+      final GameModule mod = new GameModule(new DataArchive(moduleFile.getPath()), true);
+      GameModule.init(mod);
+
+      for (final File ext : extensions) {
+        new ModuleExtension(new JarArchive(ext.getPath())).build();
+      }
+
+      new ExtensionsLoader().addTo(mod);
+      Localization.getInstance().translate();
+
+      logger.info("Opened {} headless", moduleFile); //NON-NLS
+      return new Headless(mod);
+    });
+  }
+
+  /**
+   * @return the open module
+   */
+  public GameModule getModule() {
+    return module;
+  }
+
+  /**
+   * @return the state of the game in progress
+   */
+  public GameState getGameState() {
+    return module.getGameState();
+  }
+
+  /**
+   * Loads a saved game or log, replacing any game in progress.
+   *
+   * @param saveFile the .vsav or .vlog to load
+   * @return the command which was executed to load the game
+   * @throws IOException if the file cannot be read or is not a saved game
+   */
+  public Command loadGame(File saveFile) throws IOException {
+    return call(() -> {
+      final GameState gs = module.getGameState();
+      final Command c = gs.decodeSavedGame(saveFile);
+      if (c == null) {
+        throw new IOException("Invalid saveFile format: " + saveFile); //NON-NLS
+      }
+
+      c.execute();
+      module.setGameFile(saveFile.getName(), GameModule.GameFileMode.LOADED_GAME);
+      return c;
+    });
+  }
+
+  /**
+   * Executes all remaining steps of a log loaded by {@link #loadGame}, so
+   * that the game is in its state at the end of the log.
+   */
+  public void fastForward() throws IOException {
+    call(() -> {
+      final BasicLogger bl = module.getBasicLogger();
+      if (bl != null) {
+        bl.fastForward();
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Refreshes the pieces in the game in progress from their definitions
+   * in the module, as the Refresh Counters dialog does.
+   *
+   * @param options the refresh options; see {@link GameRefresher}
+   * @throws IOException if the module has invalid piece ids
+   */
+  public void refresh(Set<String> options) throws IOException {
+    call(() -> {
+      final GameRefresher refresher = new GameRefresher(module);
+      try {
+        refresher.execute(options, null);
+      }
+      catch (IllegalBuildException e) {
+        throw new IOException(e);
+      }
+      if (refresher.isGpIdError()) {
+        throw new IOException(Resources.getString("GameRefresher.gpid_error_message"));
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Executes a command against the game in progress.
+   *
+   * @param c the command to execute
+   */
+  public void apply(Command c) throws IOException {
+    call(() -> {
+      c.execute();
+      return null;
+    });
+  }
+
+  /**
+   * Decodes and executes an encoded command against the game in progress.
+   *
+   * @param encoded the encoded command, as sent between players
+   * @return the executed command
+   */
+  public Command apply(String encoded) throws IOException {
+    return call(() -> {
+      final Command c = module.decode(encoded);
+      if (c != null) {
+        c.execute();
+      }
+      return c;
+    });
+  }
+
+  /**
+   * @param c a command
+   * @return the command encoded, as it would be sent between players
+   */
+  public String encode(Command c) throws IOException {
+    return call(() -> module.encode(c));
+  }
+
+  /**
+   * Writes the game in progress to a file. Players are never prompted
+   * for save comments.
+   *
+   * @param saveFile the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void saveGame(File saveFile) throws IOException {
+    call(() -> {
+      final Prefs prefs = module.getPrefs();
+      final Object oldPrompt = prefs.getValue(SaveMetaData.PROMPT_LOG_COMMENT);
+      prefs.setValue(SaveMetaData.PROMPT_LOG_COMMENT, false);
+      try {
+        module.getGameState().saveGame(saveFile);
+      }
+      finally {
+        prefs.setValue(SaveMetaData.PROMPT_LOG_COMMENT, oldPrompt);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Ends the game in progress, without saving it.
+   */
+  public void closeGame() throws IOException {
+    call(() -> {
+      final GameState gs = module.getGameState();
+      gs.setModified(false);
+      gs.closeGame();
+      return null;
+    });
+  }
+
+  /**
+   * Ends the game in progress and closes the module. The module cannot be
+   * reopened in this JVM.
+   */
+  @Override
+  public void close() throws IOException {
+    closeGame();
+    call(module::shutDown);
+  }
+
+  /**
+   * Runs a task on the Event Dispatch Thread and waits for its result.
+   */
+  private static <T> T call(Callable<T> task) throws IOException {
+    try {
+      return EDT.submit(task).get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+    catch (ExecutionException e) {
+      final Throwable t = e.getCause();
+      if (t instanceof IOException) {
+        throw (IOException) t;
+      }
+      else if (t instanceof RuntimeException) {
+        throw (RuntimeException) t;
+      }
+      else if (t instanceof Error) {
+        throw (Error) t;
+      }
+      throw new IOException(t);
+    }
+  }
+
+  /**
+   * Loads each saved game given, reporting any which fail to load, and
+   * saves those given with <code>--resave</code> back to their files.
+   *
+   * <pre>Headless [--resave] module save...</pre>
+   *
+   * Exits with status 1 if any saved game failed.
+   */
+  public static void main(String[] args) throws IOException {
+    // Oh we have no heads, we have no HEADS!
+    System.setProperty("java.awt.headless", "true"); //NON-NLS
+
+    Info.setConfig(new StandardConfig());
+
+    int i = 0;
+    boolean resave = false;
+    if (args.length > 0 && "--resave".equals(args[0])) { //NON-NLS
+      resave = true;
+      ++i;
+    }
+
+    if (args.length - i < 2) {
+      System.err.println("usage: Headless [--resave] module save..."); //NON-NLS
+      System.exit(1);
+    }
+
+    int failed = 0;
+    try (Headless h = open(new File(args[i++]))) {
+      for (; i < args.length; ++i) {
+        final File f = new File(args[i]);
+        try {
+          h.loadGame(f);
+          if (resave) {
+            h.saveGame(f);
+          }
+          System.out.println(f + ": " + h.getGameState().getAllPieces().size() + " pieces"); //NON-NLS
+        }
+        catch (IOException | RuntimeException e) {
+          ++failed;
+          logger.error("Failed: " + f, e); //NON-NLS
+          System.out.println(f + ": FAILED: " + e.getMessage()); //NON-NLS
+        }
+        finally {
+          h.closeGame();
+        }
+      }
+    }
+
+    System.exit(failed == 0 ? 0 : 1);
+  }
+
+  private static class HeadlessMenuManager extends MenuManager {
+    @Override
+    public JMenuBar getMenuBarFor(JFrame fc) {
+      return null;
+    }
+
+    @Override
+    public MenuBarProxy getMenuBarProxyFor(JFrame fc) {
+      return null;
+    }
+  }
+}
@@ -19,6 +19,8 @@ package VASSAL.script;
 
 import VASSAL.build.BadDataReport;
 import VASSAL.build.GameModule;
+import VASSAL.build.module.AttachmentManager;
+import VASSAL.build.module.GameState;
 import VASSAL.build.module.GlobalOptions;
 import VASSAL.build.module.Map;
 import VASSAL.build.module.map.boardPicker.board.mapgrid.Zone;
@@ -59,6 +61,8 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  *
@@ -80,6 +84,12 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
   private static final long serialVersionUID = 1L;
   private static final Logger logger = LoggerFactory.getLogger(ExpressionInterpreter.class);
 
+  /**
+   * An expression of the form <code>{Name == "value" &amp;&amp; ...}</code>, with no || or ?: operators which
+   * could make the rest of the expression true without the comparison being true.
+   */
+  private static final Pattern INDEXED_EQUALS = Pattern.compile("\\s*\\{\\s*(\\w+)\\s*==\\s*\"([^\"\\\\]+)\"\\s*(?:&&[^|?]*)?\\}\\s*"); //NON-NLS
+
   protected static final String INIT_SCRIPT = "/VASSAL/script/init_expression.bsh"; // NON-NLS
   protected static final String THIS = "_interp"; // NON-NLS
   protected static final String SOURCE = "_source"; // NON-NLS
@@ -450,35 +460,38 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
     final int index = NumberUtils.isParsable(indexOrName) ? NumberUtils.toInt(indexOrName) : -1;
 
     if (ps instanceof GamePiece) {
-      GamePiece p = Decorator.getOutermost((Decorator) ps);
-      while (p instanceof Decorator) {
-        if (p instanceof Attachment) {
-          final Attachment a = (Attachment) p;
-          if (a.getAttachName().equals(attachment)) {
-            if (index > 0) {
-              final GamePiece target = a.getAttachedPieceAt(index - 1);
-              if (target == null) return "";
-              return target.getProperty(property);
-            }
-            else {
-              final String myName = (String)Decorator.getOutermost((Decorator)ps).getProperty(BasicPiece.BASIC_NAME);
-              if (myName != null) {
-                for (final GamePiece target : a.getAttachList()) {
-                  final String name = (String) target.getProperty(BasicPiece.BASIC_NAME);
-                  if (myName.equals(name)) {
-                    return target.getProperty(property);
-                  }
-                }
+      for (final Attachment a : getAttachments((GamePiece) ps, attachment)) {
+        if (index > 0) {
+          final GamePiece target = a.getAttachedPieceAt(index - 1);
+          if (target == null) return "";
+          return target.getProperty(property);
+        }
+        else {
+          final String myName = (String)Decorator.getOutermost((Decorator)ps).getProperty(BasicPiece.BASIC_NAME);
+          if (myName != null) {
+            for (final GamePiece target : a.getAttachList()) {
+              final String name = (String) target.getProperty(BasicPiece.BASIC_NAME);
+              if (myName.equals(name)) {
+                return target.getProperty(property);
               }
             }
           }
         }
-        p = ((Decorator) p).getInner();
       }
     }
     return "";
   }
 
+  /**
+   * @return the Attachment traits of a piece with the given attachment name
+   */
+  private static List<Attachment> getAttachments(GamePiece p, String attachment) {
+    final GameModule g = GameModule.getGameModule();
+    final GameState gs = g == null ? null : g.getGameState();
+    final AttachmentManager manager = gs == null ? null : gs.getAttachmentManager();
+    return manager == null ? AttachmentManager.findAttachments(p, attachment) : manager.getAttachments(p, attachment);
+  }
+
   private PropertySource translatePiece(PropertySource ps) {
     // Allows SetAttachmentProperty to use these functions correctly
     if (ps instanceof SetAttachmentProperty.SetAttachmentPropertySource) {
@@ -595,21 +608,14 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
     ps = translatePiece(ps);
 
     if (ps instanceof GamePiece) {
-      GamePiece p = Decorator.getOutermost((Decorator)ps);
-      while (p instanceof Decorator) {
-        if (p instanceof Attachment) {
-          final Attachment a = (Attachment)p;
-          if (a.getAttachName().equals(attachment)) {
-            for (final GamePiece target : a.getAttachList()) {
-              final Object prop = target.getProperty(property);
-              final int value = propValue(prop);
-              if (value > result) {
-                result = value;
-              }
-            }
+      for (final Attachment a : getAttachments((GamePiece) ps, attachment)) {
+        for (final GamePiece target : a.getAttachList()) {
+          final Object prop = target.getProperty(property);
+          final int value = propValue(prop);
+          if (value > result) {
+            result = value;
           }
         }
-        p = ((Decorator) p).getInner();
       }
     }
 
@@ -632,21 +638,14 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
     ps = translatePiece(ps);
 
     if (ps instanceof GamePiece) {
-      GamePiece p = Decorator.getOutermost((Decorator)ps);
-      while (p instanceof Decorator) {
-        if (p instanceof Attachment) {
-          final Attachment a = (Attachment)p;
-          if (a.getAttachName().equals(attachment)) {
-            for (final GamePiece target : a.getAttachList()) {
-              final Object prop = target.getProperty(property);
-              final int value = propValue(prop);
-              if (value < result) {
-                result = value;
-              }
-            }
+      for (final Attachment a : getAttachments((GamePiece) ps, attachment)) {
+        for (final GamePiece target : a.getAttachList()) {
+          final Object prop = target.getProperty(property);
+          final int value = propValue(prop);
+          if (value < result) {
+            result = value;
           }
         }
-        p = ((Decorator) p).getInner();
       }
     }
 
@@ -670,18 +669,11 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
     ps = translatePiece(ps);
 
     if (ps instanceof GamePiece) {
-      GamePiece p = Decorator.getOutermost((Decorator)ps);
-      while (p instanceof Decorator) {
-        if (p instanceof Attachment) {
-          final Attachment a = (Attachment)p;
-          if (a.getAttachName().equals(attachment)) {
-            for (final GamePiece target : a.getAttachList()) {
-              final Object prop = target.getProperty(property);
-              result += propValue(prop);
-            }
-          }
+      for (final Attachment a : getAttachments((GamePiece) ps, attachment)) {
+        for (final GamePiece target : a.getAttachList()) {
+          final Object prop = target.getProperty(property);
+          result += propValue(prop);
         }
-        p = ((Decorator) p).getInner();
       }
     }
     return result;
@@ -704,23 +696,16 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
     ps = translatePiece(ps);
 
     if (ps instanceof GamePiece) {
-      GamePiece p = Decorator.getOutermost((Decorator)ps);
-      while (p instanceof Decorator) {
-        if (p instanceof Attachment) {
-          final Attachment a = (Attachment)p;
-          if (a.getAttachName().equals(attachment)) {
-            for (final GamePiece target : a.getAttachList()) {
-              if ("".equals(property)) {
-                result++;
-              }
-              else {
-                final Object prop = target.getProperty(property);
-                result += propNonempty(prop);
-              }
-            }
+      for (final Attachment a : getAttachments((GamePiece) ps, attachment)) {
+        for (final GamePiece target : a.getAttachList()) {
+          if ("".equals(property)) {
+            result++;
+          }
+          else {
+            final Object prop = target.getProperty(property);
+            result += propNonempty(prop);
           }
         }
-        p = ((Decorator) p).getInner();
       }
     }
     return result;
@@ -742,22 +727,15 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
     ps = translatePiece(ps);
 
     if (ps instanceof GamePiece) {
-      GamePiece p = Decorator.getOutermost((Decorator)ps);
-      while (p instanceof Decorator) {
-        if (p instanceof Attachment) {
-          final Attachment a = (Attachment)p;
-          if (a.getAttachName().equals(attachment)) {
-            // We wait to run the beanshell until we've found a matching attachment, since there should properly speaking only be precisely 0 or 1 matches.
-            final String matchString = replaceDollarVariables(expression, ps);
-            final PieceFilter filter = matchString == null ? null : new PropertyExpression(unescape(matchString)).getFilter(ps);
-            for (final GamePiece target : a.getAttachList()) {
-              if (filter == null || filter.accept(target)) {
-                result++;
-              }
-            }
+      for (final Attachment a : getAttachments((GamePiece) ps, attachment)) {
+        // We wait to run the beanshell until we've found a matching attachment, since there should properly speaking only be precisely 0 or 1 matches.
+        final String matchString = replaceDollarVariables(expression, ps);
+        final PieceFilter filter = matchString == null ? null : new PropertyExpression(unescape(matchString)).getFilter(ps);
+        for (final GamePiece target : a.getAttachList()) {
+          if (filter == null || filter.accept(target)) {
+            result++;
           }
         }
-        p = ((Decorator) p).getInner();
       }
     }
     return result;
@@ -1004,6 +982,16 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
       return 0;
     }
 
+    final List<GamePiece> candidates = getIndexedCandidates(matchString);
+    if (candidates != null) {
+      for (final GamePiece p : candidates) {
+        if (p.getMap() != null && mapList.contains(p.getMap())) {
+          result += getIntPropertyValue(p, filter, (String) propertyName);
+        }
+      }
+      return result;
+    }
+
     for (final Map map : mapList) {
       if (map != null) {
         for (final GamePiece piece : map.getAllPieces()) {
@@ -1069,6 +1057,16 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
       return 0;
     }
 
+    final List<GamePiece> candidates = getIndexedCandidates(matchString);
+    if (candidates != null) {
+      for (final GamePiece p : candidates) {
+        if (p.getMap() != null && mapList.contains(p.getMap()) && (filter == null || filter.accept(p))) {
+          result++;
+        }
+      }
+      return result;
+    }
+
     for (final Map map : mapList) {
       if (map != null) {
         for (final GamePiece piece : map.getAllPieces()) {
@@ -1091,6 +1089,27 @@ public class ExpressionInterpreter extends AbstractInterpreter implements Loopab
     return result;
   }
 
+  /**
+   * If a Sum or Count expression begins by requiring an indexed property to equal a literal String, then only
+   * pieces having that value of the property can match, and the {@link VASSAL.build.module.PropertyIndex} can find them for us.
+   *
+   * @param matchString the match expression
+   * @return the pieces which may match the expression, or null if every piece must be checked
+   */
+  private List<GamePiece> getIndexedCandidates(String matchString) {
+    if (matchString == null) {
+      return null;
+    }
+
+    final Matcher m = INDEXED_EQUALS.matcher(unescape(matchString));
+    if (!m.matches()) {
+      return null;
+    }
+
+    final GameState gs = GameModule.getGameModule().getGameState();
+    return gs == null ? null : gs.getPropertyIndex().getPieces(m.group(1), m.group(2));
+  }
+
   private String unescape(String expr) {
     return expr.replace("\\\"", "\"");
   }
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A PNG encoder which writes an image a band of rows at a time, so that an image far larger than could be held
+ * in memory can be written. Images are written as 8-bit RGBA.
+ *
+ * Filtering the rows, which is most of the work besides compressing them, is done by {@link #filter}, which can
+ * be called for different bands on different threads. The first row of each band is filtered without reference to
+ * the row above it, so the bands do not depend upon one another.
+ */
+public class PNGEncoder implements Closeable {
+  private static final long SIGNATURE = 0x89504e470d0a1a0aL;
+
+  private static final int IHDR = 0x49484452;
+  private static final int IDAT = 0x49444154;
+  private static final int IEND = 0x49454e44;
+
+  private static final int IDAT_SIZE = 64 * 1024;
+  private static final int BYTES_PER_PIXEL = 4;
+
+  // filter types
+  private static final int NONE = 0;
+  private static final int SUB = 1;
+  private static final int UP = 2;
+  private static final int AVERAGE = 3;
+  private static final int PAETH = 4;
+
+  private final DataOutputStream out;
+  private final int width;
+  private final int height;
+  private final IDATOutputStream idat;
+  private final DeflaterOutputStream zout;
+  private final Deflater deflater;
+  private int rows;
+
+  /**
+   * Writes the PNG header.
+   *
+   * @param out where to write the PNG
+   * @param width width of the image
+   * @param height height of the image
+   */
+  public PNGEncoder(OutputStream out, int width, int height) throws IOException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Image size " + width + "x" + height); //NON-NLS
+    }
+
+    this.out = new DataOutputStream(out);
+    this.width = width;
+    this.height = height;
+
+    this.out.writeLong(SIGNATURE);
+
+    final byte[] ihdr = {
+      (byte) (width >>> 24), (byte) (width >>> 16), (byte) (width >>> 8), (byte) width,
+      (byte) (height >>> 24), (byte) (height >>> 16), (byte) (height >>> 8), (byte) height,
+      8, // bit depth
+      6, // color type: RGBA
+      0, // compression method: deflate
+      0, // filter method: adaptive
+      0  // interlace method: none
+    };
+    writeChunk(IHDR, ihdr, ihdr.length);
+
+    deflater = new Deflater();
+    idat = new IDATOutputStream();
+    zout = new DeflaterOutputStream(idat, deflater, IDAT_SIZE);
+  }
+
+  /**
+   * Filters rows of an image for {@link #write}. This may be called for different bands of the same PNG on
+   * different threads.
+   *
+   * @param img an image of the width of the PNG, holding the rows
+   * @param rows the number of rows to filter, from the top of the image
+   * @return the filtered rows
+   */
+  public static byte[] filter(BufferedImage img, int rows) {
+    final int w = img.getWidth();
+    final int len = w * BYTES_PER_PIXEL;
+    final byte[] filtered = new byte[rows * (len + 1)];
+
+    final Raster raster = img.getRaster();
+    final boolean packed = img.getType() == BufferedImage.TYPE_INT_ARGB;
+    final int[] argb = new int[w];
+
+    byte[] prior = null;
+    byte[] cur = new byte[len];
+    byte[] next = new byte[len];
+    final byte[][] trial = new byte[5][len];
+
+    for (int y = 0; y < rows; ++y) {
+      if (packed) {
+        raster.getDataElements(0, y, w, 1, argb);
+      }
+      else {
+        img.getRGB(0, y, w, 1, argb, 0, w);
+      }
+
+      for (int x = 0, i = 0; x < w; ++x) {
+        final int p = argb[x];
+        cur[i++] = (byte) (p >>> 16);
+        cur[i++] = (byte) (p >>> 8);
+        cur[i++] = (byte) p;
+        cur[i++] = (byte) (p >>> 24);
+      }
+
+      final int type = filterRow(cur, prior, trial);
+      final int off = y * (len + 1);
+      filtered[off] = (byte) type;
+      System.arraycopy(trial[type], 0, filtered, off + 1, len);
+
+      // swap the row buffers
+      final byte[] t = next;
+      next = prior == null ? new byte[len] : prior;
+      prior = cur;
+      cur = t;
+    }
+
+    return filtered;
+  }
+
+  /**
+   * Tries each filter on a row, keeping the one whose output has the smallest sum of absolute values.
+   *
+   * @param cur the row
+   * @param prior the row above, or null if the row is to be filtered without it
+   * @param trial where to put the output of each filter
+   * @return the filter type to use
+   */
+  private static int filterRow(byte[] cur, byte[] prior, byte[][] trial) {
+    final int len = cur.length;
+    final byte[] none = trial[NONE];
+    final byte[] sub = trial[SUB];
+    final byte[] up = trial[UP];
+    final byte[] avg = trial[AVERAGE];
+    final byte[] paeth = trial[PAETH];
+
+    System.arraycopy(cur, 0, none, 0, len);
+
+    for (int i = 0; i < len; ++i) {
+      final int a = i >= BYTES_PER_PIXEL ? cur[i - BYTES_PER_PIXEL] & 0xff : 0;
+      final int x = cur[i] & 0xff;
+      sub[i] = (byte) (x - a);
+
+      if (prior != null) {
+        final int b = prior[i] & 0xff;
+        final int c = i >= BYTES_PER_PIXEL ? prior[i - BYTES_PER_PIXEL] & 0xff : 0;
+        up[i] = (byte) (x - b);
+        avg[i] = (byte) (x - ((a + b) >>> 1));
+        paeth[i] = (byte) (x - paethPredictor(a, b, c));
+      }
+    }
+
+    final int last = prior == null ? SUB : PAETH;
+    int best = NONE;
+    long bestSum = Long.MAX_VALUE;
+    for (int type = NONE; type <= last; ++type) {
+      long sum = 0;
+      for (final byte v : trial[type]) {
+        sum += Math.abs(v);
+      }
+      if (sum < bestSum) {
+        bestSum = sum;
+        best = type;
+      }
+    }
+    return best;
+  }
+
+  private static int paethPredictor(int a, int b, int c) {
+    final int p = a + b - c;
+    final int pa = Math.abs(p - a);
+    final int pb = Math.abs(p - b);
+    final int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) {
+      return a;
+    }
+    else if (pb <= pc) {
+      return b;
+    }
+    else {
+      return c;
+    }
+  }
+
+  /**
+   * Writes the next band of rows.
+   *
+   * @param filtered rows returned by {@link #filter}
+   */
+  public void write(byte[] filtered) throws IOException {
+    final int len = width * BYTES_PER_PIXEL + 1;
+    if (filtered.length % len != 0) {
+      throw new IllegalArgumentException("Rows are not " + width + " pixels wide"); //NON-NLS
+    }
+
+    final int n = filtered.length / len;
+    if (rows + n > height) {
+      throw new IllegalStateException("More than " + height + " rows"); //NON-NLS
+    }
+
+    zout.write(filtered);
+    rows += n;
+  }
+
+  /**
+   * @return the number of rows written so far
+   */
+  public int getRowsWritten() {
+    return rows;
+  }
+
+  /**
+   * Writes the end of the PNG, and closes the stream to which it was written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      zout.finish();
+      idat.flush();
+      writeChunk(IEND, new byte[0], 0);
+      out.flush();
+    }
+    finally {
+      deflater.end();
+      out.close();
+    }
+
+    if (rows != height) {
+      throw new IOException("Wrote " + rows + " of " + height + " rows"); //NON-NLS
+    }
+  }
+
+  private void writeChunk(int type, byte[] data, int len) throws IOException {
+    final CRC32 crc = new CRC32();
+    crc.update(type >>> 24);
+    crc.update(type >>> 16);
+    crc.update(type >>> 8);
+    crc.update(type);
+    crc.update(data, 0, len);
+
+    out.writeInt(len);
+    out.writeInt(type);
+    out.write(data, 0, len);
+    out.writeInt((int) crc.getValue());
+  }
+
+  /**
+   * Gathers compressed data into IDAT chunks
+   */
+  private class IDATOutputStream extends OutputStream {
+    private final byte[] buf = new byte[IDAT_SIZE];
+    private int count;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buf.length) {
+        flush();
+      }
+      buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (count == buf.length) {
+          flush();
+        }
+        final int n = Math.min(len, buf.length - count);
+        System.arraycopy(b, off, buf, count, n);
+        count += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (count > 0) {
+        writeChunk(IDAT, buf, count);
+        count = 0;
+      }
+    }
+  }
+}
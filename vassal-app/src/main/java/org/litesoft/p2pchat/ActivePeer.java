@@ -65,6 +65,7 @@ public class ActivePeer extends Thread {
   private PeerInfo zPeerInfo;
   private PeerReader zReader;
   private PeerWriter zWriter;
+  private boolean zDisconnected = false;
 
   public ActivePeer(MyInfo pMyInfo, UserDialog pUserDialog,
                     ActivePeersSupport pActivePeersSupport,
@@ -85,7 +86,24 @@ public class ActivePeer extends Thread {
     zReader = reader;
     zWriter = writer;
     setName("Active Peer Thread");
-    start();
+    if (reader instanceof PeerChannel.Reader) {
+      // The PeerSelector passes us what is read, so there is no need for a thread of our own
+      send(formatHELO());
+      ((PeerChannel.Reader) reader).setListener(new PeerChannel.Listener() {
+        public void lineRead(String pLine) {
+          if (!ActivePeer.this.lineRead(pLine)) {
+            disconnected();
+          }
+        }
+
+        public void closed() {
+          disconnected();
+        }
+      });
+    }
+    else {
+      start();
+    }
   }
 
   public PeerInfo getPeerInfo() {
@@ -114,12 +132,27 @@ public class ActivePeer extends Thread {
     send(formatHELO());
 
     for (String line; null != (line = zReader.readLine());) {
-      processCommand(line);
-      if (line.equals(DONE)) {
+      if (!lineRead(line)) {
         break;
       }
     }
     
+    disconnected();
+  }
+
+  /* Returns false once the peer is done */
+  private boolean lineRead(String pLine) {
+    processCommand(pLine);
+    return !pLine.equals(DONE);
+  }
+
+  private void disconnected() {
+    synchronized (this) {
+      if (zDisconnected) {
+        return;
+      }
+      zDisconnected = true;
+    }
     close();
     zActivePeersSupport.removeActivePeer(this);
     zUserDialog.showDisconnect(zPeerInfo);
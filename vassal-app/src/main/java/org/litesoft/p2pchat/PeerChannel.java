@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package org.litesoft.p2pchat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A link to a peer over a non-blocking {@link SocketChannel}, serviced by a {@link PeerSelector} instead of by
+ * reader and writer threads of its own. It speaks the same line protocol as {@link PeerReader} and
+ * {@link PeerWriter}, so peers using either can talk to each other.
+ *
+ * Lines written to a peer are queued without blocking. If a peer falls so far behind that its queue reaches
+ * {@link PeerSelector#getMaxQueuedBytes}, it is disconnected rather than let its queue grow without limit.
+ * A single line longer than that, such as the game state sent to a joining player, is not counted against it;
+ * a peer which sends a line longer than {@link PeerSelector#getMaxLineBytes} is disconnected.
+ */
+public class PeerChannel {
+  private static final String BYE = "BYE";
+  private static final int READ_BUFFER_SIZE = 8192;
+  private static final int LINE_BUFFER_SIZE = 256;
+  private static final int LINE_BUFFER_RETAIN = 64 * 1024;
+
+  /**
+   * Receives what is read from the peer, on the {@link PeerSelector}'s dispatch thread.
+   */
+  public interface Listener {
+    void lineRead(String pLine);
+
+    /** Called once, when the peer says BYE, the connection is lost, or the {@link Reader} is closed */
+    void closed();
+  }
+
+  private final PeerSelector zSelector;
+  private final SocketChannel zChannel;
+  private final Reader zReader = new Reader();
+  private final Writer zWriter = new Writer();
+
+  // Used only on the selector thread
+  private SelectionKey zKey;
+  private final ByteBuffer zReadBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+  private byte[] zLine = new byte[LINE_BUFFER_SIZE];
+  private int zLineLength;
+  private boolean zSkipLF;
+  private boolean zReading = true;
+  private long zLastWrite = System.currentTimeMillis();
+
+  // Guarded by this
+  private final ArrayDeque<ByteBuffer> zWriteQueue = new ArrayDeque<>();
+  private long zQueuedBytes;
+  private ByteBuffer zLongLine;
+  private boolean zSigningOff;
+  private boolean zOverflowed;
+  private boolean zClosed;
+
+  PeerChannel(PeerSelector pSelector, SocketChannel pChannel) throws IOException {
+    IllegalArgument.ifNull("Selector", zSelector = pSelector);
+    IllegalArgument.ifNull("Channel", zChannel = pChannel);
+    zChannel.configureBlocking(false);
+  }
+
+  public Reader getReader() {
+    return zReader;
+  }
+
+  public Writer getWriter() {
+    return zWriter;
+  }
+
+  /**
+   * Registers with the selector, or updates what we are waiting for from it.
+   * Called on the selector thread.
+   */
+  void update(Selector pSelector) {
+    final boolean overflow;
+    final boolean done;
+    final boolean writing;
+    synchronized (this) {
+      if (zClosed) {
+        return;
+      }
+      overflow = zOverflowed;
+      writing = !zWriteQueue.isEmpty();
+      done = zSigningOff && !writing;
+    }
+
+    if (overflow) {
+      if ("true".equals(System.getProperty("debug"))) {
+        System.err.println("Disconnecting " + zChannel.socket().getInetAddress() + ": write queue overflowed");
+      }
+      closeConnection();
+      return;
+    }
+    if (done) {
+      closeConnection();
+      return;
+    }
+
+    final int ops = (zReading ? SelectionKey.OP_READ : 0) | (writing ? SelectionKey.OP_WRITE : 0);
+    try {
+      if (zKey == null) {
+        zKey = zChannel.register(pSelector, ops, this);
+      }
+      else {
+        zKey.interestOps(ops);
+      }
+    }
+    catch (ClosedChannelException | CancelledKeyException e) {
+      closeConnection();
+    }
+  }
+
+  /**
+   * Reads what is available, passing each complete line to the {@link Reader}.
+   * Called on the selector thread.
+   */
+  void read() {
+    final int n;
+    try {
+      n = zChannel.read(zReadBuffer);
+    }
+    catch (IOException e) {
+      closeConnection();
+      return;
+    }
+
+    if (n < 0) {
+      closeConnection();
+      return;
+    }
+
+    zReadBuffer.flip();
+    try {
+      while (zReadBuffer.hasRemaining() && zReading) {
+        final byte b = zReadBuffer.get();
+        if (b == '\n' && zSkipLF) {
+          zSkipLF = false;
+        }
+        else if (b == '\n' || b == '\r') {
+          // Accept the same line endings as BufferedReader does
+          zSkipLF = b == '\r';
+          handleLine();
+        }
+        else {
+          zSkipLF = false;
+          if (zLineLength == zLine.length) {
+            if (zLineLength >= zSelector.getMaxLineBytes()) {
+              closeConnection();
+              return;
+            }
+            zLine = Arrays.copyOf(zLine, (int) Math.min(zLine.length * 2L, zSelector.getMaxLineBytes()));
+          }
+          zLine[zLineLength++] = b;
+        }
+      }
+    }
+    finally {
+      zReadBuffer.clear();
+    }
+  }
+
+  private void handleLine() {
+    final String line = new String(zLine, 0, zLineLength, StandardCharsets.UTF_8);
+    zLineLength = 0;
+    if (zLine.length > LINE_BUFFER_RETAIN) {
+      zLine = new byte[LINE_BUFFER_SIZE];
+    }
+
+    zReader.deliver(line);
+    if (BYE.equals(line)) {
+      // As with PeerReader, the peer has nothing more to say
+      zReading = false;
+      zReader.end();
+      update(zKey.selector());
+    }
+  }
+
+  /**
+   * Writes as much of the queue as the socket will take.
+   * Called on the selector thread.
+   */
+  void write() {
+    try {
+      synchronized (this) {
+        while (!zWriteQueue.isEmpty()) {
+          final ByteBuffer buf = zWriteQueue.peek();
+          zChannel.write(buf);
+          if (buf.hasRemaining()) {
+            break;
+          }
+          if (buf == zLongLine) {
+            zLongLine = null;
+          }
+          else {
+            zQueuedBytes -= buf.limit();
+          }
+          zWriteQueue.poll();
+        }
+      }
+    }
+    catch (IOException e) {
+      closeConnection();
+      return;
+    }
+
+    zLastWrite = System.currentTimeMillis();
+    update(zKey.selector());
+  }
+
+  /**
+   * Sends an empty line if nothing has been sent for a while, as {@link PeerWriter} does.
+   * Called on the selector thread.
+   */
+  void keepAlive(long pNow, long pInterval) {
+    if (pNow - zLastWrite >= pInterval) {
+      zLastWrite = pNow;
+      zWriter.writeLine("");
+    }
+  }
+
+  /**
+   * Closes the connection without sending anything further, and ends the {@link Reader}.
+   */
+  void closeConnection() {
+    synchronized (this) {
+      if (zClosed) {
+        return;
+      }
+      zClosed = true;
+      zWriteQueue.clear();
+      zQueuedBytes = 0;
+      zLongLine = null;
+    }
+
+    try {
+      zChannel.close();
+    }
+    catch (IOException ignore) {
+    }
+    zReader.end();
+  }
+
+  private synchronized void queue(String pMessage) {
+    if (zClosed || zSigningOff || zOverflowed) {
+      return;
+    }
+
+    final byte[] bytes = (pMessage + "\n").getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer buf = ByteBuffer.wrap(bytes);
+    final long max = zSelector.getMaxQueuedBytes();
+    if (bytes.length > max && zLongLine == null) {
+      // A line too long to count against the queue, such as the game state, is let through one at a time
+      zLongLine = buf;
+      zWriteQueue.add(buf);
+    }
+    else if (zQueuedBytes + bytes.length > max) {
+      // Slow peer; drop it rather than hold on to ever more for it
+      zOverflowed = true;
+      zWriteQueue.clear();
+      zQueuedBytes = 0;
+      zLongLine = null;
+    }
+    else {
+      zWriteQueue.add(buf);
+      zQueuedBytes += bytes.length;
+    }
+  }
+
+  /**
+   * Passes lines to a {@link Listener} once one is set, holding them until then.
+   */
+  public class Reader extends PeerReader {
+    private Listener zListener;
+    private boolean zEnded;
+
+    private Reader() {
+      super();
+    }
+
+    /**
+     * Sets the listener, passing it any lines which arrived before it was set.
+     * No thread is needed to call {@link #readLine} once a listener is set.
+     */
+    public synchronized void setListener(Listener pListener) {
+      IllegalArgument.ifNull("Listener", zListener = pListener);
+      for (String line; null != (line = pollLine());) {
+        final String l = line;
+        zSelector.dispatch(() -> pListener.lineRead(l));
+      }
+      if (zEnded) {
+        zSelector.dispatch(pListener::closed);
+      }
+    }
+
+    synchronized void deliver(String pLine) {
+      if (!isOpen()) {
+        return;
+      }
+      if (zListener == null) {
+        add(pLine);
+      }
+      else {
+        final Listener listener = zListener;
+        zSelector.dispatch(() -> listener.lineRead(pLine));
+      }
+    }
+
+    synchronized void end() {
+      if (zEnded) {
+        return;
+      }
+      zEnded = true;
+      super.close();
+      if (zListener != null) {
+        zSelector.dispatch(zListener::closed);
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      super.close();
+      end();
+    }
+  }
+
+  /**
+   * Queues lines for the selector thread to write.
+   */
+  public class Writer extends PeerWriter {
+    private Writer() {
+      super();
+    }
+
+    @Override
+    public void writeLine(String pMessage) {
+      IllegalArgument.ifNull("Message", pMessage);
+      queue(pMessage);
+      zSelector.update(PeerChannel.this);
+    }
+
+    /** Says BYE, and closes the connection once everything queued has been sent */
+    @Override
+    public void close() {
+      synchronized (PeerChannel.this) {
+        if (zClosed || zSigningOff) {
+          return;
+        }
+        queue(BYE);
+        zSigningOff = true;
+      }
+      zSelector.update(PeerChannel.this);
+    }
+
+    @Override
+    public boolean isOpen() {
+      synchronized (PeerChannel.this) {
+        return !zClosed && !zSigningOff && !zOverflowed;
+      }
+    }
+  }
+}
@@ -65,6 +65,12 @@ public class PeerReader extends Thread {
     start();
   }
 
+  /**
+   * For subclasses which supply lines by {@link #add} instead of reading them from a stream of their own.
+   */
+  protected PeerReader() {
+  }
+
   public synchronized void close() {
     isOpen = false;
     notifyAll();
@@ -74,7 +80,7 @@ public class PeerReader extends Thread {
     return isOpen;
   }
 
-  private synchronized void add(String pMessage) {
+  protected synchronized void add(String pMessage) {
     if (isOpen) {
       zLines.addElement(pMessage);
     }
@@ -98,6 +104,11 @@ public class PeerReader extends Thread {
     return message;
   }
 
+  /* Returns the next line if one is available, without blocking */
+  protected synchronized String pollLine() {
+    return zLines.isEmpty() ? null : zLines.remove(0);
+  }
+
   public void run() {
     String line;
     try {
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2023 by The VASSAL Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package org.litesoft.p2pchat;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Services any number of {@link PeerChannel}s with two threads: one which does all of their reading and writing,
+ * and one which passes what they read to their {@link PeerChannel.Listener}s, in the order it was read.
+ *
+ * With {@link PeerReader} and {@link PeerWriter}, each peer has threads of its own, plus that of its
+ * {@link ActivePeer}; that adds up for a room with many peers in it.
+ */
+public class PeerSelector extends Thread {
+  public static final long DEFAULT_MAX_QUEUED_BYTES = 4L * 1024L * 1024L;
+  // P2P messages are not compressed, and the game state sent to a joining player is a single line
+  public static final int DEFAULT_MAX_LINE_BYTES = 256 * 1024 * 1024;
+
+  private static final long CHECK_INTERVAL = 60L * 1000L;
+  private static final long PING_INTERVAL = 15L * 60L * 1000L;
+  private static final long SHUTDOWN_GRACE = 2000L;
+
+  private final Selector zSelector;
+  private final Queue<PeerChannel> zPending = new ConcurrentLinkedQueue<>();
+  private final ExecutorService zDispatcher;
+  private volatile long zStopAt = 0;
+  private volatile long zMaxQueuedBytes = DEFAULT_MAX_QUEUED_BYTES;
+  private volatile int zMaxLineBytes = DEFAULT_MAX_LINE_BYTES;
+
+  public PeerSelector() throws IOException {
+    zSelector = Selector.open();
+    zDispatcher = Executors.newSingleThreadExecutor(r -> {
+      final Thread t = new Thread(r, "Peer Dispatch Thread");
+      t.setDaemon(true);
+      return t;
+    });
+    setName("Peer Selector Thread");
+    setDaemon(true);
+  }
+
+  /**
+   * Takes over a connected channel, which need not yet be in non-blocking mode.
+   *
+   * @return the link to the peer, whose {@link PeerChannel#getReader} and {@link PeerChannel#getWriter}
+   * can be handed to an {@link ActivePeer}
+   */
+  public PeerChannel register(SocketChannel pChannel) throws IOException {
+    IllegalArgument.ifNull("Channel", pChannel);
+    final PeerChannel link = new PeerChannel(this, pChannel);
+    update(link);
+    return link;
+  }
+
+  /**
+   * @return the most which may be waiting to be sent to a peer before it is disconnected, not counting one line
+   * which is longer than this by itself
+   */
+  public long getMaxQueuedBytes() {
+    return zMaxQueuedBytes;
+  }
+
+  public void setMaxQueuedBytes(long pMaxQueuedBytes) {
+    zMaxQueuedBytes = pMaxQueuedBytes;
+  }
+
+  /**
+   * @return the longest line which may be read from a peer before it is disconnected
+   */
+  public int getMaxLineBytes() {
+    return zMaxLineBytes;
+  }
+
+  public void setMaxLineBytes(int pMaxLineBytes) {
+    zMaxLineBytes = pMaxLineBytes;
+  }
+
+  /**
+   * Stops once the links have said BYE, or after a short while if they have not.
+   */
+  public void shutDown() {
+    zStopAt = System.currentTimeMillis() + SHUTDOWN_GRACE;
+    zSelector.wakeup();
+  }
+
+  /**
+   * Has the selector thread register or update a link.
+   */
+  void update(PeerChannel pLink) {
+    zPending.add(pLink);
+    if (Thread.currentThread() != this) {
+      zSelector.wakeup();
+    }
+  }
+
+  void dispatch(Runnable pTask) {
+    try {
+      zDispatcher.execute(pTask);
+    }
+    catch (RejectedExecutionException ignoreBecauseWeAreShuttingDown) {
+    }
+  }
+
+  /**
+   * @return the open links; to be called on the selector thread only
+   */
+  private List<PeerChannel> getLinks() {
+    final List<PeerChannel> l = new ArrayList<>();
+    for (SelectionKey key : zSelector.keys()) {
+      if (key.isValid()) {
+        l.add((PeerChannel) key.attachment());
+      }
+    }
+    return l;
+  }
+
+  private boolean isRunning() {
+    final long stopAt = zStopAt;
+    return stopAt == 0 || (System.currentTimeMillis() < stopAt && (!zPending.isEmpty() || !getLinks().isEmpty()));
+  }
+
+  public void run() {
+    int consecutiveFailures = 0;
+    long lastCheck = System.currentTimeMillis();
+
+    while (isRunning() && consecutiveFailures < 10) {
+      try {
+        zSelector.select(zStopAt == 0 ? CHECK_INTERVAL : SHUTDOWN_GRACE / 10);
+
+        final Iterator<SelectionKey> i = zSelector.selectedKeys().iterator();
+        while (i.hasNext()) {
+          final SelectionKey key = i.next();
+          i.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+
+          final PeerChannel link = (PeerChannel) key.attachment();
+          if (key.isReadable()) {
+            link.read();
+          }
+          if (key.isValid() && key.isWritable()) {
+            link.write();
+          }
+        }
+
+        final long now = System.currentTimeMillis();
+        if (now - lastCheck >= CHECK_INTERVAL) {
+          lastCheck = now;
+          for (PeerChannel link : getLinks()) {
+            link.keepAlive(now, PING_INTERVAL);
+          }
+        }
+
+        PeerChannel link;
+        while ((link = zPending.poll()) != null) {
+          link.update(zSelector);
+        }
+
+        consecutiveFailures = 0;
+      }
+      catch (IOException e) {
+        if ("true".equals(System.getProperty("debug"))) {
+          System.err.println("Caught " + e.getClass().getName() + " in peer selector");
+          e.printStackTrace();
+        }
+        consecutiveFailures++;
+      }
+    }
+
+    for (PeerChannel link : getLinks()) {
+      link.closeConnection();
+    }
+    PeerChannel link;
+    while ((link = zPending.poll()) != null) {
+      link.closeConnection();
+    }
+    try {
+      zSelector.close();
+    }
+    catch (IOException ignore) {
+    }
+    zDispatcher.shutdown();
+  }
+}
@@ -67,6 +67,12 @@ public class PeerWriter extends Thread {
     start();
   }
 
+  /**
+   * For subclasses which override {@link #writeLine} and {@link #close} to send lines without a thread.
+   */
+  protected PeerWriter() {
+  }
+
   public synchronized void writeLine(String pMessage) {
     IllegalArgument.ifNull("Message", pMessage);
     if (isOpen) {
@@ -4,7 +4,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
 
 
 // Copyright Status:
@@ -61,6 +64,7 @@ public class PendingPeerManager extends Thread implements NewPeersSupport {
   private PendingPeersSupport zPendingPeersSupport = null;
   private int maxRetries = 3;
   private boolean finish = false;
+  private volatile PeerSelector zPeerSelector = null;
 
   public PendingPeerManager(UserDialog pUserDialog) {
     IllegalArgument.ifNull("UserDialog", zUserDialog = pUserDialog);
@@ -143,6 +147,25 @@ public class PendingPeerManager extends Thread implements NewPeersSupport {
       }
     }
 
+    if (zPeerSelector != null && socket.getChannel() != null) {
+      final PeerChannel link;
+      try {
+        link = zPeerSelector.register(socket.getChannel());
+      }
+      catch (IOException e) {
+        zUserDialog.showStreamsFailed(peerInfo);
+        try {
+          socket.close();
+        }
+        catch (IOException ignore) {
+        }
+        return;
+      }
+      zPendingPeersSupport.addActivePeer(peerInfo, link.getReader(), link.getWriter());
+      zUserDialog.showConnect(peerInfo);
+      return;
+    }
+
     InputStream inputStream = null;
     OutputStream outputStream = null;
     try {
@@ -180,13 +203,31 @@ public class PendingPeerManager extends Thread implements NewPeersSupport {
   }
 
   private Socket getPeerClientSocket(String pPeerAddress, int pPeerPort) throws IOException {
-    Socket retval = new Socket(pPeerAddress, pPeerPort);
+    Socket retval;
+    if (zPeerSelector != null) {
+      InetSocketAddress address = new InetSocketAddress(pPeerAddress, pPeerPort);
+      if (address.isUnresolved()) {
+        throw new UnknownHostException(pPeerAddress);
+      }
+      retval = SocketChannel.open(address).socket();
+    }
+    else {
+      retval = new Socket(pPeerAddress, pPeerPort);
+    }
     if ("true".equals(System.getProperty("debug"))) {
       System.err.println("Established connection to " + pPeerAddress + ":" + pPeerPort);
     }
     return retval;
   }
 
+  /**
+   * Once set, connections to peers are handed to the given selector, rather than each getting threads
+   * of its own. This needs the sockets which are passed to {@link #addNewPeer(Socket)} to have channels.
+   */
+  public void setPeerSelector(PeerSelector pPeerSelector) {
+    zPeerSelector = pPeerSelector;
+  }
+
   public void setMaxRetries(int maxRetries) {
     this.maxRetries = maxRetries;
   }
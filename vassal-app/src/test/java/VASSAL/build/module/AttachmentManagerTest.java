@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build.module;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import VASSAL.counters.Attachment;
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Marker;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class AttachmentManagerTest {
+
+  private static GamePiece makePiece(String id, String... attachNames) {
+    GamePiece p = new BasicPiece();
+    for (final String name : attachNames) {
+      p = new Attachment(Attachment.ID + name + ";", p); // NON-NLS
+    }
+    p = new Marker(Marker.ID + "Side", p); // NON-NLS
+    p.setId(id);
+    return p;
+  }
+
+  @Test
+  public void indexesAddedPieces() {
+    final AttachmentManager am = new AttachmentManager();
+    final GamePiece p = makePiece("1", "Turrets", "Escorts"); // NON-NLS
+    am.pieceAdded(p);
+
+    final List<Attachment> turrets = am.getAttachments(p, "Turrets"); // NON-NLS
+    assertEquals(1, turrets.size());
+    assertEquals("Turrets", turrets.get(0).getAttachName()); // NON-NLS
+    assertTrue(am.getAttachments(p, "Cargo").isEmpty()); // NON-NLS
+    assertEquals(2, am.getAttachments("1").size());
+  }
+
+  @Test
+  public void removedPiecesAreForgotten() {
+    final AttachmentManager am = new AttachmentManager();
+    final GamePiece p = makePiece("1", "Turrets"); // NON-NLS
+    am.pieceAdded(p);
+    am.pieceRemoved(p);
+
+    assertTrue(am.getAttachments("1").isEmpty());
+    // Still found by searching the piece itself
+    assertEquals(1, am.getAttachments(p, "Turrets").size()); // NON-NLS
+  }
+
+  @Test
+  public void replacementPieceSupersedesOld() {
+    final AttachmentManager am = new AttachmentManager();
+    final GamePiece oldPiece = makePiece("1", "Turrets"); // NON-NLS
+    final GamePiece newPiece = makePiece("1", "Escorts"); // NON-NLS
+    am.pieceAdded(oldPiece);
+    am.pieceAdded(newPiece);
+
+    final List<Attachment> traits = am.getAttachments("1");
+    assertEquals(1, traits.size());
+    assertEquals("Escorts", traits.get(0).getAttachName()); // NON-NLS
+
+    // The old piece is no longer indexed, but can still be searched
+    assertEquals(1, am.getAttachments(oldPiece, "Turrets").size()); // NON-NLS
+
+    // Removing the old piece does not disturb its replacement
+    am.pieceRemoved(oldPiece);
+    assertEquals(1, am.getAttachments("1").size());
+  }
+
+  @Test
+  public void renamedAttachmentIsFound() {
+    final AttachmentManager am = new AttachmentManager();
+    final GamePiece p = makePiece("1", "Turrets"); // NON-NLS
+    am.pieceAdded(p);
+
+    final Attachment a = am.getAttachments("1").get(0);
+    a.setProperty(Attachment.ATTACH_NAME, "Escorts"); // NON-NLS
+    am.attachNameChanged(a, "Turrets"); // NON-NLS
+
+    assertTrue(am.getAttachments(p, "Turrets").isEmpty()); // NON-NLS
+    assertSame(a, am.getAttachments(p, "Escorts").get(0)); // NON-NLS
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build.module;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import VASSAL.counters.GamePiece;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class PropertyIndexTest {
+
+  private static GamePiece makePiece(String side) {
+    final GamePiece p = mock(GamePiece.class);
+    when(p.getProperty("Side")).thenReturn(side); // NON-NLS
+    return p;
+  }
+
+  @Test
+  public void unindexedPropertyReturnsNull() {
+    final PropertyIndex index = new PropertyIndex();
+    index.pieceAdded(makePiece("Allied")); // NON-NLS
+    assertNull(index.getPieces("Side", "Allied")); // NON-NLS
+  }
+
+  @Test
+  public void findsPiecesByValue() {
+    final PropertyIndex index = new PropertyIndex();
+    index.setIndexedProperties(List.of("Side")); // NON-NLS
+
+    final GamePiece allied = makePiece("Allied"); // NON-NLS
+    final GamePiece axis = makePiece("Axis"); // NON-NLS
+    index.pieceAdded(allied);
+    index.pieceAdded(axis);
+    index.pieceAdded(makePiece(null));
+
+    assertEquals(List.of(allied), index.getPieces("Side", "Allied")); // NON-NLS
+    assertEquals(List.of(axis), index.getPieces("Side", "Axis")); // NON-NLS
+    assertTrue(index.getPieces("Side", "Neutral").isEmpty()); // NON-NLS
+  }
+
+  @Test
+  public void changedPiecesAreReindexed() {
+    final PropertyIndex index = new PropertyIndex();
+    index.setIndexedProperties(List.of("Side")); // NON-NLS
+
+    final GamePiece p = makePiece("Allied"); // NON-NLS
+    index.pieceAdded(p);
+    assertEquals(List.of(p), index.getPieces("Side", "Allied")); // NON-NLS
+
+    when(p.getProperty("Side")).thenReturn("Axis"); // NON-NLS
+    index.pieceChanged(p);
+
+    assertTrue(index.getPieces("Side", "Allied").isEmpty()); // NON-NLS
+    assertEquals(List.of(p), index.getPieces("Side", "Axis")); // NON-NLS
+  }
+
+  @Test
+  public void removedPiecesAreForgotten() {
+    final PropertyIndex index = new PropertyIndex();
+    index.setIndexedProperties(List.of("Side")); // NON-NLS
+
+    final GamePiece p = makePiece("Allied"); // NON-NLS
+    index.pieceAdded(p);
+    index.getPieces("Side", "Allied"); // NON-NLS
+    index.pieceRemoved(p);
+
+    assertTrue(index.getPieces("Side", "Allied").isEmpty()); // NON-NLS
+
+    // Changes to pieces no longer in the game are ignored
+    index.pieceChanged(p);
+    assertTrue(index.getPieces("Side", "Allied").isEmpty()); // NON-NLS
+  }
+
+  @Test
+  public void declaringPropertiesIndexesExistingPieces() {
+    final PropertyIndex index = new PropertyIndex();
+    final GamePiece p = makePiece("Allied"); // NON-NLS
+    index.pieceAdded(p);
+
+    index.setIndexedProperties(List.of("Side")); // NON-NLS
+    assertEquals(List.of(p), index.getPieces("Side", "Allied")); // NON-NLS
+  }
+}
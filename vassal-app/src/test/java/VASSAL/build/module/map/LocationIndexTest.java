@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build.module.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import VASSAL.build.module.Map;
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.GamePiece;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class LocationIndexTest {
+
+  private static GamePiece makePiece(String zone, String location, Point pos) {
+    final GamePiece p = mock(GamePiece.class);
+    when(p.getProperty(BasicPiece.CURRENT_ZONE)).thenReturn(zone);
+    when(p.getProperty(BasicPiece.LOCATION_NAME)).thenReturn(location);
+    when(p.getPosition()).thenReturn(pos);
+    return p;
+  }
+
+  @Test
+  public void buildsBucketsFromMap() {
+    final GamePiece a = makePiece("Forest", "A1", new Point(10, 10)); // NON-NLS
+    final GamePiece b = makePiece("Forest", "A2", new Point(20, 10)); // NON-NLS
+    final GamePiece c = makePiece("Lake", "B1", new Point(10, 20)); // NON-NLS
+
+    final Map map = mock(Map.class);
+    when(map.getAllPieces()).thenReturn(new GamePiece[] { a, b, c });
+
+    final LocationIndex index = new LocationIndex(map);
+    assertEquals(Set.of(a, b), index.getPiecesInZone("Forest")); // NON-NLS
+    assertEquals(Set.of(c), index.getPiecesAtLocation("B1")); // NON-NLS
+    assertEquals(Set.of(b), index.getPiecesAt(new Point(20, 10)));
+    assertTrue(index.getPiecesInZone("Desert").isEmpty()); // NON-NLS
+  }
+
+  @Test
+  public void tracksMovedAddedAndRemovedPieces() {
+    final GamePiece a = makePiece("Forest", "A1", new Point(10, 10)); // NON-NLS
+    final GamePiece b = makePiece("Forest", "A2", new Point(20, 10)); // NON-NLS
+
+    final Map map = mock(Map.class);
+    when(map.getAllPieces()).thenReturn(new GamePiece[] { a, b });
+
+    final LocationIndex index = new LocationIndex(map);
+    assertEquals(Set.of(a, b), index.getPiecesInZone("Forest")); // NON-NLS
+
+    when(a.getProperty(BasicPiece.CURRENT_ZONE)).thenReturn("Lake"); // NON-NLS
+    when(a.getPosition()).thenReturn(new Point(10, 20));
+    index.pieceChanged(a);
+    assertEquals(Set.of(b), index.getPiecesInZone("Forest")); // NON-NLS
+    assertEquals(Set.of(a), index.getPiecesInZone("Lake")); // NON-NLS
+    assertTrue(index.getPiecesAt(new Point(10, 10)).isEmpty());
+
+    final GamePiece c = makePiece("Lake", "B2", new Point(20, 20)); // NON-NLS
+    index.pieceAdded(c);
+    index.pieceRemoved(a);
+    assertEquals(Set.of(c), index.getPiecesInZone("Lake")); // NON-NLS
+  }
+
+  @Test
+  public void invalidateRebuildsFromMap() {
+    final GamePiece a = makePiece("Forest", "A1", new Point(10, 10)); // NON-NLS
+    final Map map = mock(Map.class);
+    when(map.getAllPieces()).thenReturn(new GamePiece[] { a });
+
+    final LocationIndex index = new LocationIndex(map);
+    assertEquals(Set.of(a), index.getPiecesInZone("Forest")); // NON-NLS
+
+    when(a.getProperty(BasicPiece.CURRENT_ZONE)).thenReturn("Lake"); // NON-NLS
+    index.invalidate();
+    assertTrue(index.getPiecesInZone("Forest").isEmpty()); // NON-NLS
+    assertEquals(Set.of(a), index.getPiecesInZone("Lake")); // NON-NLS
+  }
+
+  @Test
+  public void findsPiecesNearPoint() {
+    final GamePiece a = makePiece("Forest", "A1", new Point(100, 100)); // NON-NLS
+    when(a.getShape()).thenReturn(new Rectangle(-20, -20, 40, 40));
+    final GamePiece b = makePiece("Forest", "A2", new Point(400, 400)); // NON-NLS
+    when(b.getShape()).thenReturn(new Rectangle(-20, -20, 40, 40));
+    final GamePiece mat = makePiece("Forest", "A1", new Point(0, 0)); // NON-NLS
+    when(mat.getShape()).thenReturn(new Rectangle(-1000, -1000, 2000, 2000));
+
+    final Map map = mock(Map.class);
+    when(map.getAllPieces()).thenReturn(new GamePiece[] { mat, a, b });
+
+    final LocationIndex index = new LocationIndex(map);
+    assertEquals(Set.of(a, mat), index.getPiecesNear(new Point(110, 90)));
+    assertEquals(Set.of(b, mat), index.getPiecesNear(new Point(400, 400)));
+    assertTrue(index.getPiecesNear(new Point(2000, 2000)).isEmpty());
+
+    when(a.getPosition()).thenReturn(new Point(400, 420));
+    index.pieceChanged(a);
+    assertEquals(Set.of(a, b, mat), index.getPiecesNear(new Point(400, 400)));
+    assertEquals(Set.of(mat), index.getPiecesNear(new Point(110, 90)));
+
+    when(b.getShape()).thenReturn(new Rectangle(-5, -5, 10, 10));
+    index.shapeChanged(b);
+    assertEquals(Set.of(a, mat), index.getPiecesNear(new Point(415, 415)));
+
+    index.pieceRemoved(mat);
+    assertTrue(index.getPiecesNear(new Point(110, 90)).isEmpty());
+  }
+}
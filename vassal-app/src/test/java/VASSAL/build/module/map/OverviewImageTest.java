@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+
+package VASSAL.build.module.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import VASSAL.build.module.Map;
+import VASSAL.counters.GamePiece;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+public class OverviewImageTest {
+
+  // A 20x10 piece centered on its position, drawn as a red rectangle
+  private static GamePiece makePiece(Point pos) {
+    final GamePiece p = mock(GamePiece.class);
+    when(p.boundingBox()).thenReturn(new Rectangle(-10, -5, 20, 10));
+    when(p.getPosition()).thenReturn(pos);
+    doAnswer(inv -> {
+      final Graphics g = inv.getArgument(0);
+      final int x = inv.getArgument(1);
+      final int y = inv.getArgument(2);
+      final double zoom = inv.getArgument(4);
+      g.setColor(Color.RED);
+      g.fillRect(x - (int) (10 * zoom), y - (int) (5 * zoom), (int) (20 * zoom), (int) (10 * zoom));
+      return null;
+    }).when(p).draw(any(), anyInt(), anyInt(), any(), anyDouble());
+    return p;
+  }
+
+  private static BufferedImage paint(OverviewImage overview) {
+    final BufferedImage im = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = im.createGraphics();
+    assertTrue(overview.draw(g, 100, 100, new Point(0, 0), 0.5));
+    g.dispose();
+    return im;
+  }
+
+  private static boolean isRed(BufferedImage im, int x, int y) {
+    return im.getRGB(x, y) == Color.RED.getRGB();
+  }
+
+  @Test
+  public void redrawsOnlyWhatHasChanged() {
+    final GamePiece a = makePiece(new Point(40, 40));
+    final GamePiece b = makePiece(new Point(160, 160));
+    final Map map = mock(Map.class);
+    when(map.getPieces()).thenReturn(new GamePiece[] { a, b });
+
+    final OverviewImage overview = new OverviewImage(map);
+    BufferedImage im = paint(overview);
+    assertEquals(2, overview.getPiecesDrawn());
+    assertTrue(isRed(im, 20, 20));
+    assertTrue(isRed(im, 80, 80));
+
+    // Nothing has changed
+    im = paint(overview);
+    assertEquals(2, overview.getPiecesDrawn());
+    assertTrue(isRed(im, 20, 20));
+
+    // Only the piece which moved is drawn again
+    when(a.getPosition()).thenReturn(new Point(40, 120));
+    overview.pieceChanged(a);
+    im = paint(overview);
+    assertEquals(3, overview.getPiecesDrawn());
+    assertFalse(isRed(im, 20, 20));
+    assertTrue(isRed(im, 20, 60));
+    assertTrue(isRed(im, 80, 80));
+
+    // A piece taken off the map is erased
+    when(map.getPieces()).thenReturn(new GamePiece[] { a });
+    im = paint(overview);
+    assertEquals(3, overview.getPiecesDrawn());
+    assertFalse(isRed(im, 80, 80));
+    assertTrue(isRed(im, 20, 60));
+
+    overview.allChanged();
+    paint(overview);
+    assertEquals(4, overview.getPiecesDrawn());
+  }
+
+  @Test
+  public void declinesLargeOverviews() {
+    final OverviewImage overview = new OverviewImage(mock(Map.class));
+    final BufferedImage im = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = im.createGraphics();
+    assertFalse(overview.draw(g, OverviewImage.MAX_DIMENSION + 1, 100, new Point(0, 0), 1.0));
+    g.dispose();
+  }
+}
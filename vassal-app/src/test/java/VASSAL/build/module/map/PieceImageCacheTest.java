@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+
+package VASSAL.build.module.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Properties;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+public class PieceImageCacheTest {
+
+  // A 20x10 piece centered on its position, drawn as a red rectangle
+  private static GamePiece makePiece() {
+    final GamePiece p = mock(GamePiece.class);
+    when(p.boundingBox()).thenReturn(new Rectangle(-10, -5, 20, 10));
+    when(p.getProperty(Properties.VISIBLE_STATE)).thenReturn("a"); // NON-NLS
+    doAnswer(inv -> {
+      final Graphics g = inv.getArgument(0);
+      final int x = inv.getArgument(1);
+      final int y = inv.getArgument(2);
+      final double zoom = inv.getArgument(4);
+      g.setColor(Color.RED);
+      g.fillRect(x - (int) (10 * zoom), y - (int) (5 * zoom), (int) (20 * zoom), (int) (10 * zoom));
+      return null;
+    }).when(p).draw(any(), anyInt(), anyInt(), any(), anyDouble());
+    return p;
+  }
+
+  private static BufferedImage paint(PieceImageCache cache, GamePiece p, int x, int y, double zoom) {
+    final BufferedImage im = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = im.createGraphics();
+    if (cache == null) {
+      p.draw(g, x, y, null, zoom);
+    }
+    else {
+      cache.draw(p, g, x, y, null, zoom);
+    }
+    g.dispose();
+    return im;
+  }
+
+  private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+    for (int y = 0; y < expected.getHeight(); ++y) {
+      for (int x = 0; x < expected.getWidth(); ++x) {
+        assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "at " + x + "," + y); // NON-NLS
+      }
+    }
+  }
+
+  @Test
+  public void drawsUnchangedPieceFromImage() {
+    final PieceImageCache cache = new PieceImageCache();
+    final GamePiece p = makePiece();
+
+    assertSameImage(paint(null, p, 40, 50, 1.5), paint(cache, p, 40, 50, 1.5));
+    // Drawn elsewhere, from the same image
+    assertSameImage(paint(null, p, 30, 20, 1.5), paint(cache, p, 30, 20, 1.5));
+
+    // Two direct draws, plus one to render the image
+    verify(p, times(3)).draw(any(), anyInt(), anyInt(), any(), eq(1.5));
+    assertEquals(1, cache.getImageCount());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void rendersAgainWhenStateOrZoomChanges() {
+    final PieceImageCache cache = new PieceImageCache();
+    final GamePiece p = makePiece();
+
+    paint(cache, p, 40, 50, 1.0);
+    paint(cache, p, 40, 50, 2.0);
+    assertEquals(2, cache.getImageCount());
+
+    when(p.getProperty(Properties.VISIBLE_STATE)).thenReturn("b"); // NON-NLS
+    paint(cache, p, 40, 50, 1.0);
+    paint(cache, p, 40, 50, 1.0);
+    assertEquals(2, cache.getImageCount());
+    assertEquals(1, cache.getHits());
+    assertEquals(3, cache.getMisses());
+
+    cache.remove(p);
+    assertEquals(0, cache.getImageCount());
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void keepsWithinBudget() {
+    // Room for only one 22x12 image
+    final PieceImageCache cache = new PieceImageCache(4 * 22 * 12);
+    final GamePiece a = makePiece();
+    final GamePiece b = makePiece();
+
+    paint(cache, a, 40, 50, 1.0);
+    paint(cache, b, 40, 50, 1.0);
+    assertEquals(1, cache.getImageCount());
+    assertEquals(4 * 22 * 12, cache.getSize());
+
+    // a was discarded to make room for b
+    paint(cache, a, 40, 50, 1.0);
+    assertEquals(3, cache.getMisses());
+
+    // b was discarded in turn, so removing it leaves a
+    cache.remove(b);
+    assertEquals(1, cache.getImageCount());
+    assertEquals(4 * 22 * 12, cache.getSize());
+    cache.remove(a);
+    assertEquals(0, cache.getImageCount());
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+
+package VASSAL.build.module.map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.PropertyIndex;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Stack;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+public class StackMetricsTest {
+
+  private static GamePiece makePiece() {
+    final GamePiece p = mock(GamePiece.class);
+    when(p.getShape()).thenReturn(new Rectangle(-10, -10, 20, 20));
+    when(p.boundingBox()).thenReturn(new Rectangle(-10, -10, 20, 20));
+    return p;
+  }
+
+  @Test
+  public void laysOutStackOnlyWhenItChanges() {
+    try (MockedStatic<GameModule> staticGm = Mockito.mockStatic(GameModule.class)) {
+      staticGm.when(GameModule::getGameModule).thenReturn(mock(GameModule.class));
+
+      final GamePiece a = makePiece();
+      final GamePiece b = makePiece();
+      final Stack stack = new Stack();
+      stack.add(a);
+      stack.add(b);
+
+      final StackMetrics metrics = new StackMetrics();
+      final BufferedImage im = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+      final Graphics2D g = im.createGraphics();
+
+      metrics.draw(stack, g, 50, 50, null, 1.0);
+      metrics.draw(stack, g, 50, 50, null, 2.0);
+      verify(a, times(1)).getShape();
+
+      // Expanding the stack changes its layout
+      stack.setExpanded(true);
+      metrics.draw(stack, g, 50, 50, null, 1.0);
+      verify(a, times(2)).getShape();
+
+      // So may a change to a piece
+      PropertyIndex.stateChanged(b);
+      metrics.draw(stack, g, 50, 50, null, 1.0);
+      verify(a, times(3)).getShape();
+
+      // Or to the stack
+      final GamePiece c = makePiece();
+      stack.add(c);
+      metrics.draw(stack, g, 50, 50, null, 1.0);
+      metrics.draw(stack, g, 50, 50, null, 1.0);
+      verify(a, times(4)).getShape();
+      verify(c, times(1)).getShape();
+
+      g.dispose();
+    }
+  }
+}
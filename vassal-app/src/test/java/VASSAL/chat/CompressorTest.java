@@ -2,6 +2,7 @@ package VASSAL.chat;
 
 import java.awt.Frame;
 import java.awt.TextField;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
@@ -10,14 +11,93 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.IOUtils;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 public class CompressorTest {
 
+  private static byte[] message(int length, long seed) {
+    final Random rng = new Random(seed);
+    final String alphabet = "+/;\\\tpieceCounterMain Map0123456789"; //NON-NLS
+    final byte[] b = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      b[i] = (byte) alphabet.charAt(rng.nextInt(alphabet.length()));
+    }
+    return b;
+  }
+
+  @Test
+  public void readableByOlderClients() throws Exception {
+    for (final int length : new int[] {0, 1, 1000, 100000}) {
+      final byte[] in = message(length, length);
+      try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(Compressor.compress(in)))) {
+        zipIn.getNextEntry();
+        assertArrayEquals(in, zipIn.readAllBytes());
+      }
+    }
+  }
+
+  @Test
+  public void readsOlderClients() throws Exception {
+    for (final int length : new int[] {0, 1, 1000, 100000}) {
+      final byte[] in = message(length, length);
+      final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+      try (ZipOutputStream zipOut = new ZipOutputStream(byteOut)) {
+        zipOut.putNextEntry(new ZipEntry("Dummy")); //NON-NLS
+        zipOut.write(in);
+      }
+      assertArrayEquals(in, Compressor.decompress(byteOut.toByteArray()));
+    }
+  }
+
+  @Test
+  public void rejectsDamagedMessages() throws Exception {
+    final byte[] zipped = Compressor.compress(message(1000, 1));
+    assertThrows(ZipException.class, () -> Compressor.decompress(Arrays.copyOf(zipped, 60)));
+
+    // Flip a bit in the compressed data
+    zipped[40] ^= 4;
+    assertThrows(ZipException.class, () -> Compressor.decompress(zipped));
+  }
+
+  @Test
+  public void reusedAcrossThreads() throws Exception {
+    final ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      final Future<?>[] futures = new Future<?>[8];
+      for (int t = 0; t < futures.length; ++t) {
+        final int thread = t;
+        futures[t] = exec.submit(() -> {
+          for (int i = 0; i < 200; ++i) {
+            final byte[] in = message(i * 37, thread * 1000L + i);
+            assertArrayEquals(in, Compressor.decompress(Compressor.compress(in)));
+          }
+          return null;
+        });
+      }
+      for (final Future<?> f : futures) {
+        f.get();
+      }
+    }
+    finally {
+      exec.shutdownNow();
+    }
+  }
+
   @Disabled
   @Test
   public void runCompressor() throws Exception {
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.swing.SwingUtilities;
+
+import VASSAL.command.Command;
+import VASSAL.command.NullCommand;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+public class HybridClientTest {
+
+  private static ChatServerConnection connect(HybridClient client) {
+    final ChatServerConnection delegate = mock(ChatServerConnection.class);
+    client.setDelegate(delegate);
+    when(delegate.isConnected()).thenReturn(true);
+    return delegate;
+  }
+
+  @Test
+  public void batchesCommandsSentDuringOneEvent() throws Exception {
+    final HybridClient client = new HybridClient();
+    final ChatServerConnection delegate = connect(client);
+    final Command[] sent = {new Cmd(), new Cmd(), new Cmd()};
+
+    SwingUtilities.invokeAndWait(() -> {
+      for (final Command c : sent) {
+        client.sendToOthers(c);
+      }
+      verify(delegate, never()).sendToOthers(any(Command.class));
+    });
+    // Let the flush queued by the first command run
+    SwingUtilities.invokeAndWait(() -> { });
+
+    final ArgumentCaptor<Command> captor = ArgumentCaptor.forClass(Command.class);
+    verify(delegate, times(1)).sendToOthers(captor.capture());
+    final Command[] sub = captor.getValue().getSubCommands();
+    assertEquals(3, sub.length);
+    for (int i = 0; i < sent.length; ++i) {
+      assertEquals(sent[i], sub[i]);
+    }
+  }
+
+  @Test
+  public void sendsAtOnceOffTheEventThreadOrWhenNotBatching() {
+    final HybridClient client = new HybridClient();
+    final ChatServerConnection delegate = connect(client);
+    final Command c = new Cmd();
+
+    client.sendToOthers(c);
+    verify(delegate).sendToOthers(c);
+
+    client.setBatching(false);
+    final Command d = new Cmd();
+    client.sendToOthers(d);
+    verify(delegate).sendToOthers(d);
+  }
+
+  @Test
+  public void flushesBeforeSendingToOnePlayer() throws Exception {
+    final HybridClient client = new HybridClient();
+    final ChatServerConnection delegate = connect(client);
+    final Command c = new Cmd();
+    final Command d = new Cmd();
+    final Player p = mock(Player.class);
+
+    SwingUtilities.invokeAndWait(() -> {
+      client.sendToOthers(c);
+      client.sendTo(p, d);
+      final ArgumentCaptor<Command> captor = ArgumentCaptor.forClass(Command.class);
+      verify(delegate).sendToOthers(captor.capture());
+      assertEquals(c, captor.getValue().getSubCommands()[0]);
+      verify(delegate).sendTo(p, d);
+    });
+  }
+
+  @Test
+  public void flushesBeforeChangingRoom() throws Exception {
+    final HybridClient client = new HybridClient();
+    final ChatServerConnection delegate = connect(client);
+    final Command c = new Cmd();
+    final Room room = mock(Room.class);
+
+    SwingUtilities.invokeAndWait(() -> {
+      client.sendToOthers(c);
+      client.setRoom(room);
+      // Sent to the players in the room it was sent from
+      final InOrder order = inOrder(delegate);
+      order.verify(delegate).sendToOthers(any(Command.class));
+      order.verify(delegate).setRoom(room);
+    });
+  }
+
+  /** A Command which is not null, and does nothing */
+  private static class Cmd extends Command {
+    @Override
+    protected void executeCommand() {
+    }
+
+    @Override
+    protected Command myUndoCommand() {
+      return new NullCommand();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat.node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class LoadTestTest {
+
+  private AsynchronousServerNode node;
+  private NioServer server;
+
+  @AfterEach
+  public void shutDown() {
+    if (server != null) {
+      server.shutDown();
+    }
+    if (node != null) {
+      node.shutDown();
+    }
+  }
+
+  @Test
+  public void percentiles() {
+    final long[] values = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+    assertEquals(5, LoadTest.percentile(values, 50));
+    assertEquals(10, LoadTest.percentile(values, 99));
+    assertEquals(10, LoadTest.percentile(values, 100));
+    assertEquals(1, LoadTest.percentile(values, 0));
+    assertEquals(0, LoadTest.percentile(new long[0], 50));
+  }
+
+  /**
+   * Runs real sockets for a couple of seconds, and what gets delivered in that time depends on the machine;
+   * run it by hand when changing the load generator.
+   */
+  @Disabled
+  @Test
+  public void deliversToRoomMates() throws Exception {
+    node = new AsynchronousServerNode(null);
+    server = new NioServer(node, 0);
+
+    // Two modules of two rooms, with three players in each room; every other message is compressed
+    final LoadTest.Report r = new LoadTest("localhost", server.getPort(), 12, 2, 2, 20, 1000, 1000) // NON-NLS
+      .run(500, 1000);
+    assertTrue(r.getSent() > 0);
+    assertEquals(2 * r.getSent(), r.getExpected());
+    assertTrue(r.getDelivered() > 0);
+    assertTrue(r.getLatency(50) <= r.getLatency(99));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat.node;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ModuleRosterTest {
+
+  private static Node player(Node room, String id, String info) {
+    final Node p = new Node(null, id, info) {
+      @Override
+      public boolean isLeaf() {
+        return true;
+      }
+    };
+    room.add(p);
+    return p;
+  }
+
+  @Test
+  public void sendsOnlyChanges() {
+    final Node root = new Node(null, null, null);
+    final Node main = Node.build(root, "mod/Main"); // NON-NLS
+    final Node side = Node.build(root, "mod/Side"); // NON-NLS
+    final Node mod = root.getChild("mod"); // NON-NLS
+
+    final Node a = player(main, "a", "infoA"); // NON-NLS
+    final Node b = player(main, "b", "infoB"); // NON-NLS
+
+    final ModuleRoster roster = new ModuleRoster();
+    final String first = roster.update(mod.getLeafDescendants());
+    assertEquals(1, Protocol.decodeListSequence(first));
+    assertEquals(2, Protocol.decodeListDelta(first).size());
+
+    // Nothing changed
+    assertNull(roster.update(mod.getLeafDescendants()));
+
+    // b moves, a changes its info, c joins
+    side.add(b);
+    a.setInfo("infoA2"); // NON-NLS
+    player(side, "c", "infoC"); // NON-NLS
+
+    final String delta = roster.update(mod.getLeafDescendants());
+    assertEquals(2, Protocol.decodeListSequence(delta));
+    final List<String[]> changes = Protocol.decodeListDelta(delta);
+    assertEquals(4, changes.size());
+    assertArrayEquals(new String[] {"mod/Main/b", null}, changes.get(0)); // NON-NLS
+    assertArrayEquals(new String[] {"mod/Main/a", "infoA2"}, changes.get(1)); // NON-NLS
+    assertArrayEquals(new String[] {"mod/Side/b", "infoB"}, changes.get(2)); // NON-NLS
+    assertArrayEquals(new String[] {"mod/Side/c", "infoC"}, changes.get(3)); // NON-NLS
+  }
+
+  @Test
+  public void snapshotMatchesList() {
+    final Node root = new Node(null, null, null);
+    final Node main = Node.build(root, "mod/Main"); // NON-NLS
+    player(main, "a", "infoA"); // NON-NLS
+    player(main, "b", "infoB"); // NON-NLS
+
+    final ModuleRoster roster = new ModuleRoster();
+    roster.update(root.getChild("mod").getLeafDescendants()); // NON-NLS
+
+    final String snapshot = roster.getSnapshot();
+    assertEquals(1, Protocol.decodeListSequence(snapshot));
+    final Node decoded = Protocol.decodeListSnapshot(snapshot);
+    assertNotNull(decoded);
+    assertEquals("infoA", decoded.getDescendant("mod/Main/a").getInfo()); // NON-NLS
+    assertEquals("infoB", decoded.getDescendant("mod/Main/b").getInfo()); // NON-NLS
+
+    final Node empty = Protocol.decodeListSnapshot(new ModuleRoster().getSnapshot());
+    assertEquals(0, empty.getChildren().length);
+  }
+}
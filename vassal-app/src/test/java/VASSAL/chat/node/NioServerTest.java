@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat.node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class NioServerTest {
+
+  /** Starts a server which echoes every message back to its sender, the given number of times */
+  private static NioServer echoServer(int maxQueuedBytes, int repeat, CountDownLatch closed) throws Exception {
+    return new NioServer(0, maxQueuedBytes, connection -> {
+      final SocketHandler[] handler = new SocketHandler[1];
+      handler[0] = connection.apply(new SocketWatcher() {
+        @Override
+        public void handleMessage(String msg) {
+          for (int i = 0; i < repeat; ++i) {
+            handler[0].writeLine(msg);
+          }
+        }
+
+        @Override
+        public void socketClosed(SocketHandler h) {
+          closed.countDown();
+        }
+      });
+      handler[0].start();
+    });
+  }
+
+  @Test
+  public void echoesToManyClients() throws Exception {
+    final int clients = 20;
+    final CountDownLatch closed = new CountDownLatch(clients);
+    final NioServer server = echoServer(NioServer.DEFAULT_MAX_QUEUED_BYTES, 1, closed);
+    try {
+      final Socket[] socks = new Socket[clients];
+      for (int i = 0; i < clients; ++i) {
+        socks[i] = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+      }
+
+      for (int i = 0; i < clients; ++i) {
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(socks[i].getOutputStream(), StandardCharsets.UTF_8), true);
+        final BufferedReader in = new BufferedReader(new InputStreamReader(socks[i].getInputStream(), StandardCharsets.UTF_8));
+        out.println("hello " + i + " \u00e9\u00e8"); // NON-NLS
+        assertEquals("hello " + i + " \u00e9\u00e8", in.readLine()); // NON-NLS
+
+        out.println(SocketHandler.SIGN_OFF);
+        assertNull(in.readLine());
+      }
+
+      assertTrue(closed.await(10, TimeUnit.SECONDS));
+    }
+    finally {
+      server.shutDown();
+    }
+  }
+
+  @Test
+  public void disconnectsWhenWriteQueueOverflows() throws Exception {
+    final CountDownLatch closed = new CountDownLatch(1);
+    final NioServer server = echoServer(4096, 10, closed);
+    try (Socket sock = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      final PrintWriter out = new PrintWriter(new OutputStreamWriter(sock.getOutputStream(), StandardCharsets.UTF_8), true);
+      // Ten echoes of this won't fit in the queue
+      out.println("x".repeat(1000)); // NON-NLS
+      assertTrue(closed.await(10, TimeUnit.SECONDS));
+    }
+    finally {
+      server.shutDown();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat.node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class ServerMetricsTest {
+
+  @Test
+  public void roomOfPath() {
+    assertEquals("mod/Main", ServerMetrics.getRoom("mod/Main")); // NON-NLS
+    assertEquals("mod/Main", ServerMetrics.getRoom("mod/Main/~player")); // NON-NLS
+    assertEquals("mod/*", ServerMetrics.getRoom("mod/*")); // NON-NLS
+    assertEquals("*", ServerMetrics.getRoom("*")); // NON-NLS
+  }
+
+  @Test
+  public void countsMessagesByRoom() throws Exception {
+    final ServerMetrics metrics = new ServerMetrics();
+    for (int i = 0; i < 10; ++i) {
+      metrics.messageForwarded("mod/Main"); // NON-NLS
+    }
+    metrics.messageForwarded("mod/\"Quoted\""); // NON-NLS
+    metrics.lockAcquired(2000000);
+    metrics.lockAcquired(1000000);
+    Thread.sleep(50);
+    metrics.sample();
+
+    assertEquals(11, metrics.getMessagesForwarded());
+    final Map<String, Double> rates = metrics.getRoomMessagesPerSecond();
+    assertEquals(2, rates.size());
+    assertTrue(rates.get("mod/Main") > 0); // NON-NLS
+    assertEquals(2, metrics.getLockAcquisitions());
+    assertEquals(3.0, metrics.getLockWaitMillis(), 0.001);
+    assertEquals(2.0, metrics.getMaxLockWaitMillis(), 0.001);
+
+    assertTrue(metrics.toText().contains("vassal_messages_forwarded 11\n")); // NON-NLS
+    assertTrue(metrics.toText().contains("vassal_room_messages_per_second{room=\"mod/\\\"Quoted\\\"\"} ")); // NON-NLS
+    assertTrue(metrics.toJson().startsWith("{\"connections\":0,")); // NON-NLS
+    assertTrue(metrics.toJson().contains("\"mod/\\\"Quoted\\\"\":")); // NON-NLS
+
+    // Rooms which have gone quiet are forgotten
+    metrics.sample();
+    assertTrue(metrics.getRoomMessagesPerSecond().isEmpty());
+
+    // ...until they are sent something again
+    metrics.messageForwarded("mod/Main"); // NON-NLS
+    Thread.sleep(10);
+    metrics.sample();
+    assertEquals(Set.of("mod/Main"), metrics.getRoomMessagesPerSecond().keySet()); // NON-NLS
+  }
+
+  @Test
+  public void measuresServerTraffic() throws Exception {
+    final AsynchronousServerNode root = new AsynchronousServerNode(null);
+    final NioServer server = new NioServer(root, 0);
+    final MetricsEndpoint endpoint = new MetricsEndpoint(root.getMetrics(), 0);
+    try (Socket s = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      final SocketHandler client = new SocketHandler(s, new SocketWatcher() {
+        @Override
+        public void handleMessage(String msg) {
+        }
+
+        @Override
+        public void socketClosed(SocketHandler handler) {
+        }
+      });
+      client.start();
+      client.writeLine(Protocol.encodeRegisterCommand("p1", "mod/Main", "id=p1")); // NON-NLS
+      for (int i = 0; i < 5; ++i) {
+        client.writeLine(Protocol.encodeForwardCommand("mod/Main", "hello")); // NON-NLS
+      }
+
+      final ServerMetrics metrics = root.getMetrics();
+      final long deadline = System.currentTimeMillis() + 10000;
+      while (metrics.getMessagesForwarded() < 5 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, metrics.getConnections());
+      assertEquals(5, metrics.getMessagesForwarded());
+      assertEquals(6, metrics.getMessagesReceived());
+      assertTrue(metrics.getBytesReceived() > 0);
+      assertTrue(metrics.getLockAcquisitions() > 0);
+
+      final HttpURLConnection conn = (HttpURLConnection) new URL("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + endpoint.getPort() + "/metrics.json").openConnection(); // NON-NLS
+      try (InputStream in = conn.getInputStream()) {
+        final String json = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).readLine();
+        assertTrue(json.contains("\"messages_forwarded\":5,")); // NON-NLS
+      }
+
+      client.close();
+      while (metrics.getConnections() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(0, metrics.getConnections());
+      // Including the sign-off
+      assertEquals(7, metrics.getMessagesReceived());
+      assertEquals(0, metrics.getSlowConsumerDisconnects());
+    }
+    finally {
+      endpoint.stop();
+      server.shutDown();
+      root.shutDown();
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat.node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+public class ServerNodeTest {
+
+  private static final String MSG = "test"; // NON-NLS
+
+  /** A player which records the test messages it is sent */
+  private static class Leaf extends Node {
+    final List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+    Leaf(String id) {
+      super(null, id, null);
+    }
+
+    @Override
+    public boolean isLeaf() {
+      return true;
+    }
+
+    @Override
+    public void send(String msg) {
+      if (msg.startsWith(MSG)) {
+        received.add(msg);
+      }
+    }
+  }
+
+  @Test
+  public void routesMessagesAsPlayersMove() {
+    final ServerNode server = new ServerNode();
+    final Leaf a = new Leaf("a"); // NON-NLS
+    final Leaf b = new Leaf("b"); // NON-NLS
+    final Leaf c = new Leaf("c"); // NON-NLS
+    server.registerNode("mod/Main", a); // NON-NLS
+    server.registerNode("mod/Main", b); // NON-NLS
+    server.registerNode("other/Main", c); // NON-NLS
+
+    server.forward("mod/Main", MSG + 1); // NON-NLS
+    assertEquals(List.of(MSG + 1), a.received);
+    assertEquals(List.of(MSG + 1), b.received);
+    assertTrue(c.received.isEmpty());
+
+    server.forward("mod/Main/~a", MSG + 2); // NON-NLS
+    assertEquals(List.of(MSG + 1), a.received);
+    assertEquals(List.of(MSG + 1, MSG + 2), b.received);
+
+    // The cached route must notice that b has left
+    server.move(b, "mod/Side"); // NON-NLS
+    server.forward("mod/Main/~a", MSG + 3); // NON-NLS
+    assertEquals(List.of(MSG + 1, MSG + 2), b.received);
+
+    server.forward("mod/*", MSG + 4); // NON-NLS
+    assertEquals(List.of(MSG + 1, MSG + 4), a.received);
+    assertEquals(List.of(MSG + 1, MSG + 2, MSG + 4), b.received);
+
+    server.disconnect(c);
+    assertNull(server.getChild("other")); // NON-NLS
+    server.forward("*", MSG + 5); // NON-NLS
+    assertTrue(c.received.isEmpty());
+    assertEquals(List.of(MSG + 1, MSG + 4, MSG + 5), a.received);
+  }
+
+  @Test
+  public void routesToRecreatedModule() {
+    final ServerNode server = new ServerNode();
+    final Leaf a = new Leaf("a"); // NON-NLS
+    server.registerNode("mod/Main", a); // NON-NLS
+    server.forward("mod/Main", MSG + 1); // NON-NLS
+    assertEquals(List.of(MSG + 1), a.received);
+
+    // The module goes away with its last player, and comes back with a new one
+    server.disconnect(a);
+    assertNull(server.getChild("mod")); // NON-NLS
+    final Leaf b = new Leaf("b"); // NON-NLS
+    server.registerNode("mod/Main", b); // NON-NLS
+
+    server.forward("mod/Main", MSG + 2); // NON-NLS
+    assertEquals(List.of(MSG + 1), a.received);
+    assertEquals(List.of(MSG + 2), b.received);
+  }
+
+  @Test
+  public void concurrentJoinsAndLeaves() throws Exception {
+    final ServerNode server = new ServerNode();
+    final int threads = 8;
+    final int players = 200;
+
+    final ExecutorService exec = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; ++t) {
+        final String mod = "mod" + (t % 2); // NON-NLS
+        final int thread = t;
+        futures.add(exec.submit(() -> {
+          for (int i = 0; i < players; ++i) {
+            final Leaf p = new Leaf(thread + "-" + i); // NON-NLS
+            server.registerNode(mod + "/Main", p); // NON-NLS
+            server.forward(mod + "/Main", MSG); // NON-NLS
+            server.move(p, mod + "/Room" + (i % 3)); // NON-NLS
+            if (i % 2 == 0) {
+              server.disconnect(p);
+            }
+          }
+        }));
+      }
+      for (final Future<?> f : futures) {
+        f.get();
+      }
+    }
+    finally {
+      exec.shutdownNow();
+    }
+
+    assertEquals(threads * players / 2, server.getLeafDescendants().length);
+  }
+}
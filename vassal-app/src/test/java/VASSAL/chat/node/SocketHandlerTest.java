@@ -0,0 +1,108 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat.node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class SocketHandlerTest {
+
+  private static final SocketWatcher IGNORE = new SocketWatcher() {
+    @Override
+    public void handleMessage(String msg) {
+    }
+
+    @Override
+    public void socketClosed(SocketHandler handler) {
+    }
+  };
+
+  @Test
+  public void writesQueuedLinesInBatches() throws Exception {
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+         Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+         Socket accepted = server.accept()) {
+      final SocketHandler handler = new SocketHandler(client, IGNORE);
+      handler.setBatching(4096, 0);
+
+      // A burst of messages, queued before the write thread gets to them
+      final int lines = 500;
+      for (int i = 0; i < lines; ++i) {
+        handler.writeLine("message " + i); // NON-NLS
+      }
+      assertEquals(lines, handler.getQueueDepth());
+      handler.start();
+
+      final BufferedReader in = new BufferedReader(new InputStreamReader(accepted.getInputStream(), StandardCharsets.UTF_8));
+      long bytes = 0;
+      for (int i = 0; i < lines; ++i) {
+        final String line = in.readLine();
+        assertEquals("message " + i, line); // NON-NLS
+        bytes += line.length() + 1;
+      }
+
+      handler.close();
+      assertEquals(SocketHandler.SIGN_OFF, in.readLine());
+      assertNull(in.readLine());
+
+      assertEquals(lines + 1, handler.getMessagesSent());
+      assertEquals(bytes + SocketHandler.SIGN_OFF.length() + 1, handler.getBytesSent());
+      // About 4K at a time, rather than one line at a time
+      assertTrue(handler.getBatchesSent() < 10);
+      assertEquals(0, handler.getQueueDepth());
+    }
+  }
+
+  @Test
+  public void disconnectsWhenOtherEndStopsReading() throws Exception {
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+         Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+         Socket ignored = server.accept()) {
+      final CountDownLatch closed = new CountDownLatch(1);
+      final SocketHandler handler = new SocketHandler(client, new SocketWatcher() {
+        @Override
+        public void handleMessage(String msg) {
+        }
+
+        @Override
+        public void socketClosed(SocketHandler handler) {
+          closed.countDown();
+        }
+      });
+      handler.start();
+
+      final String line = "x".repeat(64 * 1024); // NON-NLS
+      for (long sent = 0; sent <= SocketHandler.DEFAULT_MAX_QUEUED; sent += line.length()) {
+        handler.writeLine(line);
+      }
+      assertTrue(closed.await(10, TimeUnit.SECONDS));
+    }
+  }
+}
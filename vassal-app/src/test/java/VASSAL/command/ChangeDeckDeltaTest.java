@@ -0,0 +1,152 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+
+package VASSAL.command;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.BasicCommandEncoder;
+import VASSAL.build.module.GameState;
+import VASSAL.counters.Deck;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+public class ChangeDeckDeltaTest {
+
+  private static final String ID = "1234"; // NON-NLS
+  private static final String HEADER = "Main Map;100;200;true"; // NON-NLS
+
+  private static List<String> cards(int count) {
+    final List<String> l = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      l.add("16843297" + (10000 + i)); // NON-NLS
+    }
+    return l;
+  }
+
+  /** Encodes a change to a Deck, then decodes and executes it against a Deck in the given state */
+  private static String send(ChangePiece change, String receiverState, Deck deck) {
+    try (MockedStatic<GameModule> staticGm = Mockito.mockStatic(GameModule.class)) {
+      final GameModule gm = mock(GameModule.class);
+      final GameState gs = mock(GameState.class);
+      when(gs.getPieceForId(ID)).thenReturn(deck);
+      when(gm.getGameState()).thenReturn(gs);
+      staticGm.when(GameModule::getGameModule).thenReturn(gm);
+      when(deck.getState()).thenReturn(receiverState);
+
+      final BasicCommandEncoder encoder = new BasicCommandEncoder();
+      final String encoded = BasicCommandEncoder.encodeWithDeltas(encoder, change);
+      final Command received = encoder.decode(encoded);
+      assertEquals(encoded, BasicCommandEncoder.encodeWithDeltas(encoder, received));
+      received.execute();
+      return encoded;
+    }
+  }
+
+  @Test
+  public void splitAndJoin() {
+    final String state = ChangeDeckDelta.joinState(HEADER, cards(3));
+    assertEquals(HEADER, ChangeDeckDelta.getHeader(state));
+    assertEquals(cards(3), ChangeDeckDelta.getContents(state));
+    assertEquals(HEADER, ChangeDeckDelta.joinState(HEADER, List.of()));
+    assertEquals(List.of(), ChangeDeckDelta.getContents(HEADER));
+  }
+
+  @Test
+  public void sendsShuffleAsNewOrder() {
+    final List<String> before = cards(2000);
+    final List<String> after = new ArrayList<>(before);
+    Collections.shuffle(after, new Random(42));
+    final String oldState = ChangeDeckDelta.joinState(HEADER, before);
+    final String newState = ChangeDeckDelta.joinState(HEADER, after);
+
+    final ChangeDeckDelta delta = ChangeDeckDelta.diff(new ChangePiece(ID, oldState, newState));
+    assertEquals(ChangeDeckDelta.REORDER, delta.getMode());
+    assertArrayEquals(after.toArray(new String[0]), delta.getOrder());
+
+    final Deck deck = mock(Deck.class);
+    final String encoded = send(new ChangePiece(ID, oldState, newState), oldState, deck);
+    assertTrue(encoded.startsWith(BasicCommandEncoder.CHANGE_DECK));
+    final String full = new BasicCommandEncoder().encode(new ChangePiece(ID, oldState, newState));
+    assertTrue(encoded.length() * 3 < full.length() * 2);
+    verify(deck).mergeState(newState, oldState);
+
+    // A receiver whose deck has drifted ends up with the sender's order, as with the full state
+    final List<String> theirs = new ArrayList<>(before);
+    theirs.add("77"); // NON-NLS
+    final Deck other = mock(Deck.class);
+    final String theirState = ChangeDeckDelta.joinState(HEADER, theirs);
+    send(new ChangePiece(ID, oldState, newState), theirState, other);
+    verify(other).mergeState(newState, theirState);
+  }
+
+  @Test
+  public void sendsDrawsAndInsertsAsEdits() {
+    final List<String> before = cards(2000);
+    final List<String> after = new ArrayList<>(before);
+    after.remove(1999);
+    after.remove(700);
+    after.add(5, "99"); // NON-NLS
+    final String oldState = ChangeDeckDelta.joinState(HEADER, before);
+    final String newState = ChangeDeckDelta.joinState("Main Map;100;200;false", after); // NON-NLS
+
+    final ChangeDeckDelta delta = ChangeDeckDelta.diff(new ChangePiece(ID, oldState, newState));
+    assertEquals(ChangeDeckDelta.EDIT, delta.getMode());
+    assertArrayEquals(new String[] {before.get(700), before.get(1999)}, delta.getRemoved());
+    assertArrayEquals(new int[] {5}, delta.getInsertedAt());
+
+    final Deck deck = mock(Deck.class);
+    final String encoded = send(new ChangePiece(ID, oldState, newState), oldState, deck);
+    assertTrue(encoded.length() < 200);
+    verify(deck).mergeState(newState, oldState);
+
+    // A receiver whose deck has a card the sender's didn't still loses only the cards drawn
+    final List<String> theirs = new ArrayList<>(before);
+    theirs.add("77"); // NON-NLS
+    final List<String> expected = new ArrayList<>(after);
+    expected.add("77"); // NON-NLS
+    final Deck other = mock(Deck.class);
+    final String theirState = ChangeDeckDelta.joinState(HEADER, theirs);
+    send(new ChangePiece(ID, oldState, newState), theirState, other);
+    verify(other).mergeState(ChangeDeckDelta.joinState("Main Map;100;200;false", expected), theirState); // NON-NLS
+  }
+
+  @Test
+  public void cannotDescribeReorderWithDraw() {
+    final List<String> before = cards(10);
+    final List<String> after = new ArrayList<>(before);
+    Collections.reverse(after);
+    after.remove(0);
+    assertNull(ChangeDeckDelta.diff(new ChangePiece(ID,
+      ChangeDeckDelta.joinState(HEADER, before), ChangeDeckDelta.joinState(HEADER, after))));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.command;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.BasicCommandEncoder;
+import VASSAL.build.module.GameState;
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.DynamicProperty;
+import VASSAL.counters.GamePiece;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+public class ChangePieceDeltaTest {
+
+  private static final String ID = "1234"; // NON-NLS
+  private static final int TRAITS = 40;
+
+  private static DynamicProperty[] traits;
+
+  /** Builds a piece with many traits, whose states are escaped once more at each level */
+  private static GamePiece createPiece() {
+    final BasicPiece bp = new BasicPiece();
+    bp.setId(ID);
+    traits = new DynamicProperty[TRAITS];
+    GamePiece p = bp;
+    for (int i = TRAITS - 1; i >= 0; --i) {
+      traits[i] = new DynamicProperty();
+      traits[i].setInner(p);
+      traits[i].mySetState("value\t" + i); // NON-NLS
+      p = traits[i];
+    }
+    return p;
+  }
+
+  @Test
+  public void splitAndJoin() {
+    final GamePiece p = createPiece();
+    final String state = p.getState();
+    final String[] levels = ChangePieceDelta.splitState(state, TRAITS + 1);
+    assertEquals(TRAITS + 1, ChangePieceDelta.getStateLevels(p));
+    assertEquals("value\t7", levels[7]); // NON-NLS
+    assertEquals(state, ChangePieceDelta.joinState(levels));
+  }
+
+  @Test
+  public void sendsOnlyChangedTraits() {
+    try (MockedStatic<GameModule> staticGm = Mockito.mockStatic(GameModule.class)) {
+      final GamePiece p = createPiece();
+      final GameModule gm = mock(GameModule.class);
+      final GameState gs = mock(GameState.class);
+      when(gs.getPieceForId(ID)).thenReturn(p);
+      when(gm.getGameState()).thenReturn(gs);
+      staticGm.when(GameModule::getGameModule).thenReturn(gm);
+
+      final String oldState = p.getState();
+      traits[30].mySetState("changed"); // NON-NLS
+      final String newState = p.getState();
+
+      final BasicCommandEncoder encoder = new BasicCommandEncoder();
+      final String encoded = BasicCommandEncoder.encodeWithDeltas(encoder, new ChangePiece(ID, oldState, newState));
+      assertTrue(encoded.startsWith(BasicCommandEncoder.CHANGE_DELTA));
+
+      // Logs and saved games, and players who can't decode deltas, get the whole state
+      assertTrue(encoder.encode(new ChangePiece(ID, oldState, newState)).startsWith(BasicCommandEncoder.CHANGE));
+      assertTrue(encoded.length() * 10 < newState.length());
+
+      final ChangePieceDelta delta = (ChangePieceDelta) encoder.decode(encoded);
+      assertArrayEquals(new int[] {30}, delta.getChanged());
+
+      // The receiver has the old state, except for a change of its own to another trait
+      p.setState(oldState);
+      traits[5].mySetState("mine"); // NON-NLS
+      delta.execute();
+      assertEquals("changed", traits[30].myGetState()); // NON-NLS
+      assertEquals("mine", traits[5].myGetState()); // NON-NLS
+
+      // Undo restores the old state of the trait which changed
+      delta.getUndoCommand().execute();
+      assertEquals("value\t30", traits[30].myGetState()); // NON-NLS
+      assertEquals("mine", traits[5].myGetState()); // NON-NLS
+    }
+  }
+
+  @Test
+  public void decodesDeltasFromDeltaVersion() {
+    assertTrue(BasicCommandEncoder.decodesDeltas(BasicCommandEncoder.DELTA_VERSION));
+    assertTrue(BasicCommandEncoder.decodesDeltas("3.7.1")); // NON-NLS
+    assertTrue(BasicCommandEncoder.decodesDeltas("3.7.0-SNAPSHOT")); // NON-NLS
+    assertTrue(BasicCommandEncoder.decodesDeltas("3.7.0-beta3")); // NON-NLS
+    assertTrue(BasicCommandEncoder.decodesDeltas("3.7.2-SNAPSHOT")); // NON-NLS
+    assertFalse(BasicCommandEncoder.decodesDeltas("3.6.19-SNAPSHOT")); // NON-NLS
+    assertFalse(BasicCommandEncoder.decodesDeltas("3.6.19")); // NON-NLS
+    assertFalse(BasicCommandEncoder.decodesDeltas("")); // NON-NLS
+    assertFalse(BasicCommandEncoder.decodesDeltas(null));
+  }
+
+  @Test
+  public void sendsFullStateForPlainPieces() {
+    try (MockedStatic<GameModule> staticGm = Mockito.mockStatic(GameModule.class)) {
+      final BasicPiece bp = new BasicPiece();
+      bp.setId(ID);
+      final GameModule gm = mock(GameModule.class);
+      final GameState gs = mock(GameState.class);
+      when(gs.getPieceForId(ID)).thenReturn(bp);
+      when(gm.getGameState()).thenReturn(gs);
+      staticGm.when(GameModule::getGameModule).thenReturn(gm);
+
+      final String encoded = BasicCommandEncoder.encodeWithDeltas(new BasicCommandEncoder(), new ChangePiece(ID, "a", "b")); // NON-NLS
+      assertTrue(encoded.startsWith(BasicCommandEncoder.CHANGE));
+    }
+  }
+}
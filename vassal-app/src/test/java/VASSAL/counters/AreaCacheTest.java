@@ -0,0 +1,108 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.counters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+import org.junit.jupiter.api.Test;
+
+public class AreaCacheTest {
+
+  @Test
+  public void sharesAreasForShapesOfTheSameGeometry() {
+    AreaCache.clear();
+
+    final Area a = AreaCache.get(new Rectangle(0, 0, 10, 20));
+    assertSame(a, AreaCache.get(new Rectangle(0, 0, 10, 20)));
+    assertSame(a, AreaCache.get(new Rectangle2D.Double(0, 0, 10, 20)));
+    assertSame(a, AreaCache.get(AffineTransform.getTranslateInstance(5, 5).createTransformedShape(new Rectangle(-5, -5, 10, 20))));
+
+    final Path2D path = new Path2D.Double();
+    path.moveTo(0, 0);
+    path.lineTo(10, 0);
+    path.lineTo(10, 20);
+    path.lineTo(0, 20);
+    path.closePath();
+    assertSame(a, AreaCache.get(path));
+    assertNotSame(a, AreaCache.get(new Rectangle(0, 0, 10, 21)));
+
+    assertEquals(2, AreaCache.getSize());
+    assertEquals(4, AreaCache.getHits());
+    assertEquals(2, AreaCache.getMisses());
+  }
+
+  @Test
+  public void sharedAreasCannotBeChanged() {
+    final Area a = AreaCache.get(new Rectangle(0, 0, 10, 20));
+    assertThrows(UnsupportedOperationException.class, () -> a.add(new Area(new Rectangle(5, 5, 30, 30))));
+    assertThrows(UnsupportedOperationException.class, a::reset);
+
+    // A copy can be
+    final Area copy = new Area(a);
+    copy.add(new Area(new Rectangle(5, 5, 30, 30)));
+    assertTrue(copy.contains(30, 30));
+    assertTrue(!a.contains(30, 30));
+  }
+
+  @Test
+  public void keepsOnlyTheMostRecentlyUsed() {
+    AreaCache.clear();
+    final Area first = AreaCache.get(new Rectangle(0, 0, 1, 1));
+    for (int i = 1; i <= AreaCache.MAX_SIZE; ++i) {
+      AreaCache.get(new Rectangle(i, 0, 1, 1));
+    }
+    assertEquals(AreaCache.MAX_SIZE, AreaCache.getSize());
+    assertNotSame(first, AreaCache.get(new Rectangle(0, 0, 1, 1)));
+  }
+
+  @Test
+  public void unionIsKeptUntilEitherShapeChanges() {
+    final AreaCache.Union union = new AreaCache.Union();
+    final Rectangle added = new Rectangle(10, -5, 20, 10);
+
+    // BasicPiece makes a new, equal, Rectangle each time
+    final Shape first = union.get(new Rectangle(-10, -10, 20, 20), added, added);
+    assertTrue(first.contains(25, 0));
+    assertTrue(first.contains(-5, -5));
+    assertSame(first, union.get(new Rectangle(-10, -10, 20, 20), new Rectangle(added), added));
+
+    final Rectangle moved = new Rectangle(-30, -5, 20, 10);
+    final Shape second = union.get(new Rectangle(-10, -10, 20, 20), moved, moved);
+    assertNotSame(first, second);
+    assertTrue(second.contains(-25, 0));
+
+    // An Area from an outer trait is compared by identity
+    final Shape third = union.get(second, added, added);
+    assertSame(third, union.get(second, added, added));
+    assertNotSame(third, union.get(AreaCache.get(second), added, added));
+
+    union.clear();
+    assertNotSame(third, union.get(second, added, added));
+  }
+}
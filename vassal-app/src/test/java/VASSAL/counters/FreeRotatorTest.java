@@ -17,7 +17,19 @@
 
 package VASSAL.counters;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 import VASSAL.tools.NamedKeyStroke;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.lang.reflect.InvocationTargetException;
 
 import org.junit.jupiter.api.Test;
@@ -57,4 +69,30 @@ public class FreeRotatorTest extends DecoratorTest {
     serializeTest("Fixed Rotations", trait); // NON-NLS
 
   }
+
+  @Test
+  public void identicalPiecesShareRotatedImages() {
+    final BufferedImage im = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = im.createGraphics();
+
+    final GamePiece[] inner = new GamePiece[2];
+    for (int i = 0; i < inner.length; ++i) {
+      inner[i] = mock(GamePiece.class);
+      when(inner[i].getType()).thenReturn("piece;identicalPiecesShareRotatedImages"); // NON-NLS
+      when(inner[i].getProperty(Properties.VISIBLE_STATE)).thenReturn("");
+      when(inner[i].boundingBox()).thenReturn(new Rectangle(-10, -5, 20, 10));
+
+      final FreeRotator trait = new FreeRotator();
+      trait.validAngles = new double[] { 30.0 };
+      trait.setInner(inner[i]);
+
+      trait.draw(g, 50, 50, null, 1.0);
+      trait.draw(g, 50, 50, null, 1.0);
+    }
+    g.dispose();
+
+    // Rendered once, by the first piece, for both
+    verify(inner[0], times(1)).draw(any(), anyInt(), anyInt(), any(), anyDouble());
+    verify(inner[1], times(0)).draw(any(), anyInt(), anyInt(), any(), anyDouble());
+  }
 }
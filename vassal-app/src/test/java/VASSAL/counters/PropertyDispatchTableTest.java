@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+
+package VASSAL.counters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collection;
+
+import org.junit.jupiter.api.Test;
+
+public class PropertyDispatchTableTest {
+
+  /** Declares the properties it answers for */
+  private static class CountingMarker extends Marker {
+    int asked;
+
+    CountingMarker(String type, GamePiece inner) {
+      super(type, inner);
+    }
+
+    @Override
+    public Object getProperty(Object key) {
+      ++asked;
+      return super.getProperty(key);
+    }
+
+    @Override
+    protected Collection<?> getOwnedPropertyKeys() {
+      return super.getOwnedPropertyKeys();
+    }
+  }
+
+  /** Overrides getProperty without declaring what it answers for, so must be asked about everything */
+  private static class UndeclaredMarker extends Marker {
+    int asked;
+
+    UndeclaredMarker(String type, GamePiece inner) {
+      super(type, inner);
+    }
+
+    @Override
+    public Object getProperty(Object key) {
+      ++asked;
+      return super.getProperty(key);
+    }
+  }
+
+  private static Marker marker(String key, String value, GamePiece inner) {
+    final Marker m = new Marker(Marker.ID + key, inner);
+    m.setProperty(key, value);
+    return m;
+  }
+
+  @Test
+  public void asksOnlyTraitsWhichMayAnswer() {
+    final BasicPiece basic = new BasicPiece(BasicPiece.ID + ";;;Tank"); // NON-NLS
+    final UndeclaredMarker undeclared = new UndeclaredMarker(Marker.ID + "c", basic); // NON-NLS
+    final CountingMarker counting = new CountingMarker(Marker.ID + "b", undeclared); // NON-NLS
+    final Delete delete = new Delete(Delete.ID + "Delete;D", counting); // NON-NLS
+    final Marker top = marker("a", "1", delete); // NON-NLS
+    counting.setProperty("b", "2"); // NON-NLS
+    undeclared.setProperty("c", "3"); // NON-NLS
+
+    assertEquals("1", top.getProperty("a")); // NON-NLS
+    assertEquals("2", top.getProperty("b")); // NON-NLS
+    assertEquals("2", top.getLocalizedProperty("b")); // NON-NLS
+    assertEquals(1, counting.asked);
+    assertEquals(0, undeclared.asked);
+
+    // Not declared by anyone: straight past the declaring traits to the rest
+    assertEquals("3", top.getProperty("c")); // NON-NLS
+    assertEquals("Tank", top.getProperty(BasicPiece.BASIC_NAME)); // NON-NLS
+    assertEquals(1, counting.asked);
+    assertEquals(2, undeclared.asked);
+
+    // From a trait part way in
+    assertEquals("Tank", delete.getProperty(BasicPiece.BASIC_NAME)); // NON-NLS
+    assertEquals(3, undeclared.asked);
+
+    // Links between the traits are answered as before
+    assertEquals(counting, undeclared.getProperty(Properties.OUTER));
+  }
+
+  @Test
+  public void followsChangesToTheTraits() {
+    final BasicPiece basic = new BasicPiece(BasicPiece.ID + ";;;Tank"); // NON-NLS
+    final CountingMarker counting = new CountingMarker(Marker.ID + "b", basic); // NON-NLS
+    final Marker top = marker("a", "1", counting); // NON-NLS
+    assertEquals("", top.getProperty("b")); // NON-NLS
+    assertEquals(1, counting.asked);
+
+    // New names
+    counting.mySetType(Marker.ID + "d"); // NON-NLS
+    counting.setProperty("d", "4"); // NON-NLS
+    assertEquals("4", top.getProperty("d")); // NON-NLS
+    assertEquals(2, counting.asked);
+
+    // A trait added in between
+    final Marker middle = marker("e", "5", counting); // NON-NLS
+    top.setInner(middle);
+    assertEquals("5", top.getProperty("e")); // NON-NLS
+    assertEquals("4", top.getProperty("d")); // NON-NLS
+    assertEquals(3, counting.asked);
+
+    // And taken out again
+    top.setInner(basic);
+    assertEquals("Tank", top.getProperty(BasicPiece.BASIC_NAME)); // NON-NLS
+    assertEquals(3, counting.asked);
+  }
+}
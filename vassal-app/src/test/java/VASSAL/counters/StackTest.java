@@ -519,4 +519,36 @@ public class StackTest {
     assertEquals(gamePiece0, pieces.get(0));
     assertEquals(gamePiece1, pieces.get(1));
   }
+
+  @Test
+  public void indexOfShouldFollowChangesToLargeStack() {
+    // prepare
+    final Stack s = new Stack();
+    final GamePiece[] gamePieces = new GamePiece[100];
+    for (int i = 0; i < gamePieces.length; ++i) {
+      gamePieces[i] = mock(GamePiece.class);
+      s.add(gamePieces[i]);
+    }
+    final GamePiece absent = mock(GamePiece.class);
+
+    // run and assert
+    assertEquals(42, s.indexOf(gamePieces[42]));
+    assertEquals(-1, s.indexOf(absent));
+
+    s.insert(gamePieces[99], 0);
+    s.remove(gamePieces[10]);
+    s.insert(gamePieces[0], 50);
+    s.insertChild(absent, 20);
+    s.removePieceAt(90);
+
+    final List<GamePiece> pieces = s.asList();
+    for (int i = 0; i < pieces.size(); ++i) {
+      assertEquals(i, s.indexOf(pieces.get(i)));
+    }
+    assertEquals(-1, s.indexOf(gamePieces[10]));
+    assertEquals(20, s.indexOf(absent));
+
+    s.removeAll();
+    assertEquals(-1, s.indexOf(gamePieces[42]));
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.image;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+public class PNGEncoderTest {
+
+  private static BufferedImage makeImage(int w, int h) {
+    final BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    g.setPaint(new GradientPaint(0, 0, Color.RED, w, h, new Color(0, 0, 255, 128)));
+    g.fillRect(0, 0, w, h);
+    g.setColor(Color.GREEN);
+    g.fillOval(w / 4, h / 4, w / 2, h / 2);
+    g.dispose();
+
+    // some noise, and some transparency
+    for (int y = 0; y < h; y += 3) {
+      for (int x = y % 5; x < w; x += 7) {
+        img.setRGB(x, y, (x * 31 + y * 17) << 8 | (y & 0xff));
+      }
+    }
+    return img;
+  }
+
+  @Test
+  public void writesBandsAsOneImage() throws IOException {
+    final int w = 97;
+    final int h = 61;
+    final BufferedImage src = makeImage(w, h);
+
+    // encode in uneven bands, each filtered on its own
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final PNGEncoder enc = new PNGEncoder(out, w, h);
+    for (int top = 0; top < h; top += 16) {
+      final int rows = Math.min(16, h - top);
+      enc.write(PNGEncoder.filter(src.getSubimage(0, top, w, rows), rows));
+    }
+    assertEquals(h, enc.getRowsWritten());
+    enc.close();
+
+    final BufferedImage dst = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(w, dst.getWidth());
+    assertEquals(h, dst.getHeight());
+    for (int y = 0; y < h; ++y) {
+      for (int x = 0; x < w; ++x) {
+        assertEquals(src.getRGB(x, y), dst.getRGB(x, y), "pixel " + x + "," + y);
+      }
+    }
+  }
+
+  @Test
+  public void rejectsTooManyRows() throws IOException {
+    final BufferedImage src = makeImage(10, 8);
+    final PNGEncoder enc = new PNGEncoder(new ByteArrayOutputStream(), 10, 4);
+    assertThrows(IllegalStateException.class, () -> enc.write(PNGEncoder.filter(src, 8)));
+  }
+
+  @Test
+  public void failsIfIncomplete() throws IOException {
+    final BufferedImage src = makeImage(10, 8);
+    final PNGEncoder enc = new PNGEncoder(new ByteArrayOutputStream(), 10, 8);
+    enc.write(PNGEncoder.filter(src, 4));
+    assertThrows(IOException.class, enc::close);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 Vassal Development Team
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package org.litesoft.p2pchat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class PeerSelectorTest {
+
+  private static class Lines implements PeerChannel.Listener {
+    final List<String> lines = new CopyOnWriteArrayList<>();
+    final CountDownLatch closed = new CountDownLatch(1);
+
+    @Override
+    public void lineRead(String pLine) {
+      lines.add(pLine);
+    }
+
+    @Override
+    public void closed() {
+      closed.countDown();
+    }
+  }
+
+  @Test
+  public void readsAndWritesLines() throws Exception {
+    final PeerSelector selector = new PeerSelector();
+    selector.start();
+    try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+         Socket other = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+         SocketChannel accepted = server.accept()) {
+      final PeerChannel link = selector.register(accepted);
+
+      // Lines written before there is a listener are kept for it
+      final OutputStream out = other.getOutputStream();
+      out.write("HELO first\r\nCHAT \u00e9t\u00e9\n".getBytes(StandardCharsets.UTF_8)); // NON-NLS
+      out.flush();
+
+      final BufferedReader in = new BufferedReader(new InputStreamReader(other.getInputStream(), StandardCharsets.UTF_8));
+      link.getWriter().writeLine("HELO second"); // NON-NLS
+      assertEquals("HELO second", in.readLine()); // NON-NLS
+
+      final Lines listener = new Lines();
+      link.getReader().setListener(listener);
+      out.write("PMSG third\nBYE\n".getBytes(StandardCharsets.UTF_8)); // NON-NLS
+      out.flush();
+
+      assertTrue(listener.closed.await(10, TimeUnit.SECONDS));
+      assertEquals(List.of("HELO first", "CHAT \u00e9t\u00e9", "PMSG third", "BYE"), listener.lines); // NON-NLS
+
+      // Closing the writer says BYE, then closes the connection
+      link.getWriter().close();
+      assertFalse(link.getWriter().isOpen());
+      assertEquals("BYE", in.readLine()); // NON-NLS
+      assertNull(in.readLine());
+    }
+    finally {
+      selector.shutDown();
+    }
+  }
+
+  @Test
+  public void readsAndWritesLinesLongerThanQueue() throws Exception {
+    final PeerSelector selector = new PeerSelector();
+    selector.start();
+    try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+         Socket other = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+         SocketChannel accepted = server.accept()) {
+      final PeerChannel link = selector.register(accepted);
+      final Lines listener = new Lines();
+      link.getReader().setListener(listener);
+
+      // Such as the state of a large game, sent to a player joining it
+      final String line = "x".repeat((int) PeerSelector.DEFAULT_MAX_QUEUED_BYTES + 1024 * 1024); // NON-NLS
+      link.getWriter().writeLine(line);
+      link.getWriter().writeLine("CHAT after"); // NON-NLS
+      final BufferedReader in = new BufferedReader(new InputStreamReader(other.getInputStream(), StandardCharsets.UTF_8));
+      assertEquals(line, in.readLine());
+      assertEquals("CHAT after", in.readLine()); // NON-NLS
+      assertTrue(link.getWriter().isOpen());
+
+      final OutputStream out = other.getOutputStream();
+      out.write((line + "\nBYE\n").getBytes(StandardCharsets.UTF_8)); // NON-NLS
+      out.flush();
+      assertTrue(listener.closed.await(10, TimeUnit.SECONDS));
+      assertEquals(List.of(line, "BYE"), listener.lines); // NON-NLS
+    }
+    finally {
+      selector.shutDown();
+    }
+  }
+
+  @Test
+  public void disconnectsWhenOtherEndStopsReading() throws Exception {
+    final PeerSelector selector = new PeerSelector();
+    selector.setMaxQueuedBytes(256 * 1024);
+    selector.start();
+    try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+         Socket ignored = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+         SocketChannel accepted = server.accept()) {
+      final PeerChannel link = selector.register(accepted);
+      final Lines listener = new Lines();
+      link.getReader().setListener(listener);
+
+      // Writing never blocks, however far behind the other end is
+      final String line = "x".repeat(16 * 1024); // NON-NLS
+      for (int i = 0; i < 10000 && link.getWriter().isOpen(); ++i) {
+        link.getWriter().writeLine(line);
+      }
+      assertFalse(link.getWriter().isOpen());
+      assertTrue(listener.closed.await(10, TimeUnit.SECONDS));
+    }
+    finally {
+      selector.shutDown();
+    }
+  }
+}